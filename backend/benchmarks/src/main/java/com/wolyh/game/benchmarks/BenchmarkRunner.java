@@ -0,0 +1,43 @@
+package com.wolyh.game.benchmarks;
+
+import java.util.Arrays;
+
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.results.format.ResultFormatType;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Runs the selected benchmarks once per thread count with the gc profiler,
+ * so every result comes with its allocation rate.
+ * Thread counts come from -Dbench.threads (default: 1, 2, 4 and all cores),
+ * every other argument is a regular JMH command line option.
+ */
+public class BenchmarkRunner {
+
+    public static void main(String[] args) throws Exception {
+        CommandLineOptions commandLine = new CommandLineOptions(args);
+        String threads = System.getProperty(
+            "bench.threads",
+            "1,2,4," + Runtime.getRuntime().availableProcessors()
+        );
+
+        int[] threadCounts = Arrays.stream(threads.split(","))
+            .mapToInt(count -> Integer.parseInt(count.trim()))
+            .distinct()
+            .toArray();
+
+        for (int t : threadCounts) {
+            Options options = new OptionsBuilder()
+                .parent(commandLine)
+                .threads(t)
+                .addProfiler(GCProfiler.class)
+                .resultFormat(ResultFormatType.JSON)
+                .result("jmh-result-t" + t + ".json")
+                .build();
+            new Runner(options).run();
+        }
+    }
+}
@@ -0,0 +1,245 @@
+package com.wolyh.game.benchmarks;
+
+import java.io.IOException;
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.nio.file.Files;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Function;
+
+import org.openjdk.jol.vm.VM;
+import org.openjdk.jol.vm.VirtualMachine;
+import org.springframework.context.annotation.AnnotationConfigApplicationContext;
+import org.springframework.core.env.MapPropertySource;
+import org.springframework.messaging.simp.SimpMessagingTemplate;
+
+import tools.jackson.databind.json.JsonMapper;
+
+import com.wolyh.game.backend.dto.RoomResponses;
+import com.wolyh.game.backend.game.Game;
+import com.wolyh.game.backend.service.GameService;
+import com.wolyh.game.backend.service.LogService;
+import com.wolyh.game.backend.service.MapCatalogService;
+import com.wolyh.game.backend.service.NotificationService;
+import com.wolyh.game.backend.service.ReplayService;
+import com.wolyh.game.backend.service.RoomService;
+import com.wolyh.game.backend.service.SpectatorService;
+import com.wolyh.game.backend.utils.LongMap;
+
+/**
+ * Retained heap of one room and one game. The real services create, join and start
+ * N rooms and skip a few turns in each, then the objects reachable from the room and
+ * game tables are walked and charged to the first component below that reaches them.
+ * What existed before the first room, the services and the map catalog, is charged to
+ * no one. Exits with 1 when a room or a game is over its budget in bytes:
+ *
+ * <pre>
+ * java -Dfootprint.games=500 -Dfootprint.turns=10 -Dfootprint.max-room-bytes=... \
+ *     -Dfootprint.max-game-bytes=... -cp target/benchmarks.jar com.wolyh.game.benchmarks.FootprintBenchmark
+ * </pre>
+ */
+public class FootprintBenchmark {
+    private static final int GAMES = Integer.getInteger("footprint.games", 500);
+    private static final int TURNS = Integer.getInteger("footprint.turns", 10);
+    private static final long MAX_ROOM_BYTES = Long.getLong("footprint.max-room-bytes", 600);
+    private static final long MAX_GAME_BYTES = Long.getLong("footprint.max-game-bytes", 30_000);
+
+    private record Component(String name, boolean perGame, long bytes) {}
+
+    public static void main(String[] args) throws IOException {
+        AnnotationConfigApplicationContext context = new AnnotationConfigApplicationContext();
+        context.getEnvironment().getPropertySources().addFirst(new MapPropertySource("footprint", Map.of(
+            "replay.dir", Files.createTempDirectory("replays").toString(),
+            "map.procedural", "false"
+        )));
+        context.registerBean(SimpMessagingTemplate.class, () -> new SimpMessagingTemplate((message, timeout) -> true));
+        context.registerBean(JsonMapper.class, () -> new JsonMapper());
+        context.register(
+            RoomService.class,
+            GameService.class,
+            NotificationService.class,
+            SpectatorService.class,
+            ReplayService.class,
+            MapCatalogService.class,
+            LogService.class
+        );
+        context.refresh();
+
+        List<Component> components = new ArrayList<>();
+        try {
+            RoomService roomService = context.getBean(RoomService.class);
+            GameService gameService = context.getBean(GameService.class);
+            NotificationService notificationService = context.getBean(NotificationService.class);
+            ReplayService replayService = context.getBean(ReplayService.class);
+
+            Heap heap = new Heap();
+            heap.retain(roomService, gameService, notificationService, replayService, context.getBean(MapCatalogService.class));
+
+            for (int i = 0; i < GAMES; i++) {
+                RoomResponses.CreateRoom room = roomService.createRoom("creator-" + i);
+                roomService.joinRoom(room.roomId(), room.joinToken(), "guest-" + i);
+                roomService.startGame(room.roomId());
+                for (int turn = 0; turn < TURNS; turn++) {
+                    gameService.processSkipTurn(room.roomId(), gameService.getActivePlayer(room.roomId()));
+                }
+            }
+            // the replay writer and the spectator publisher run behind the game
+            try {
+                Thread.sleep(500);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+
+            LongMap<?> rooms = field(roomService, "rooms");
+            LongMap<?> roomLocks = field(roomService, "roomLocks");
+            LongMap<Game> games = field(gameService, "games");
+            LongMap<?> gameLocks = field(gameService, "gameLocks");
+            List<Game> gameList = games.values();
+
+            components.add(new Component("room", false, heap.retain(rooms.values())));
+            components.add(new Component("room lock", false, heap.retain(roomLocks.values())));
+            components.add(new Component("room tables", false,
+                heap.retain(rooms, roomLocks, field(roomService, "playerToRoom"))));
+            components.add(new Component("map", true, heap.retain(each(gameList, game -> field(game, "mapManager")))));
+            components.add(new Component("units", true, heap.retain(each(gameList, game -> field(game, "unitManager")))));
+            components.add(new Component("fov", true, heap.retain(each(gameList, game -> field(game, "fovManager")))));
+            components.add(new Component("path", true, heap.retain(each(gameList, game -> field(game, "pathManager")))));
+            components.add(new Component("players", true, heap.retain(each(gameList, game -> field(game, "playerManager")))));
+            components.add(new Component("turns", true, heap.retain(each(gameList, game -> field(game, "turnManager")))));
+            components.add(new Component("game", true, heap.retain(gameList)));
+            components.add(new Component("game lock", true, heap.retain(gameLocks.values())));
+            components.add(new Component("game tables", true, heap.retain(games, gameLocks)));
+            components.add(new Component("replay", true, heap.retain((Object) field(replayService, "recordings"))));
+            components.add(new Component("notifications", true, heap.retain((Object) field(notificationService, "streams"))));
+        } finally {
+            // the replay writer would keep the JVM alive
+            context.close();
+        }
+        System.exit(report(components) ? 0 : 1);
+    }
+
+    private static boolean report(List<Component> components) {
+        System.out.printf("%d rooms and games, %d turns each%n%n", GAMES, TURNS);
+        System.out.printf("%-16s %12s %10s%n", "component", "bytes", "per game");
+        long roomBytes = 0;
+        long gameBytes = 0;
+        for (Component component : components) {
+            System.out.printf("%-16s %12d %10d%n", component.name(), component.bytes(), component.bytes() / GAMES);
+            if (component.perGame()) {
+                gameBytes += component.bytes();
+            } else {
+                roomBytes += component.bytes();
+            }
+        }
+
+        long perRoom = roomBytes / GAMES;
+        long perGame = gameBytes / GAMES;
+        System.out.printf("%nper room %10d bytes, budget %d%n", perRoom, MAX_ROOM_BYTES);
+        System.out.printf("per game %10d bytes, budget %d%n", perGame, MAX_GAME_BYTES);
+
+        boolean withinBudget = perRoom <= MAX_ROOM_BYTES && perGame <= MAX_GAME_BYTES;
+        if (!withinBudget) {
+            System.out.println("OVER BUDGET");
+        }
+        return withinBudget;
+    }
+
+    private static List<Object> each(List<Game> games, Function<Game, Object> component) {
+        return games.stream().map(component).toList();
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <T> T field(Object target, String name) {
+        try {
+            Field field = target.getClass().getDeclaredField(name);
+            field.setAccessible(true);
+            return (T) field.get(target);
+        } catch (ReflectiveOperationException e) {
+            throw new IllegalStateException("No field " + name + " in " + target.getClass().getSimpleName(), e);
+        }
+    }
+
+    /**
+     * Objects already charged, by identity. JOL only gives the sizes and reads the fields,
+     * its graph layouts key the objects by address and could not be subtracted across a GC.
+     */
+    private static final class Heap {
+        static {
+            // Unsafe refuses the offsets of record fields, JOL then finds them by probing
+            System.setProperty("jol.magicFieldOffset", "true");
+        }
+
+        private final VirtualMachine vm = VM.current();
+        private final Set<Object> charged = identitySet();
+        private final ClassValue<long[]> referenceOffsets = new ClassValue<>() {
+            @Override
+            protected long[] computeValue(Class<?> type) {
+                List<Long> offsets = new ArrayList<>();
+                for (Class<?> c = type; c != null; c = c.getSuperclass()) {
+                    for (Field field : c.getDeclaredFields()) {
+                        if (!Modifier.isStatic(field.getModifiers()) && !field.getType().isPrimitive()) {
+                            offsets.add(vm.fieldOffset(field));
+                        }
+                    }
+                }
+                return offsets.stream().mapToLong(Long::longValue).toArray();
+            }
+        };
+
+        /**
+         * Shallow sizes of the objects reachable from the roots and not charged yet, elements
+         * of collections are roots. The walk goes through charged objects, a table created
+         * with its service still leads to the entries added since.
+         */
+        long retain(Object... roots) {
+            Set<Object> walked = identitySet();
+            ArrayDeque<Object> pending = new ArrayDeque<>();
+            for (Object root : roots) {
+                if (root instanceof Collection<?> collection) {
+                    collection.forEach(element -> visit(element, walked, pending));
+                } else {
+                    visit(root, walked, pending);
+                }
+            }
+
+            long bytes = 0;
+            while (!pending.isEmpty()) {
+                Object object = pending.pop();
+                if (charged.add(object)) {
+                    bytes += vm.sizeOf(object);
+                }
+                Class<?> type = object.getClass();
+                if (type.isArray()) {
+                    if (!type.getComponentType().isPrimitive()) {
+                        for (Object element : (Object[]) object) {
+                            visit(element, walked, pending);
+                        }
+                    }
+                    continue;
+                }
+                for (long offset : referenceOffsets.get(type)) {
+                    visit(vm.getObject(object, offset), walked, pending);
+                }
+            }
+            return bytes;
+        }
+
+        // classes and their statics are shared by every game
+        private static void visit(Object object, Set<Object> walked, ArrayDeque<Object> pending) {
+            if (object != null && !(object instanceof Class<?>) && walked.add(object)) {
+                pending.push(object);
+            }
+        }
+
+        private static Set<Object> identitySet() {
+            return Collections.newSetFromMap(new IdentityHashMap<>());
+        }
+    }
+}
@@ -0,0 +1,96 @@
+package com.wolyh.game.benchmarks;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import com.wolyh.game.backend.game.FovManager;
+import com.wolyh.game.backend.game.MapManager;
+import com.wolyh.game.backend.game.PlayerManager;
+import com.wolyh.game.backend.game.UnitManager;
+import com.wolyh.game.backend.model.Hex;
+
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(2)
+@State(Scope.Thread)
+public class FovBenchmark {
+
+    @Param({"4", "8", "16"})
+    int radius;
+
+    @Param({"1", "2", "4"})
+    int visibilityRange;
+
+    @Param({"3", "6"})
+    int unitsPerPlayer;
+
+    MapManager mapManager;
+    PlayerManager playerManager;
+    UnitManager unitManager;
+    FovManager fovManager;
+
+    Hex start;
+    Hex goal;
+
+    @Setup
+    public void setup() {
+        Random random = new Random(Scenarios.SEED);
+        mapManager = new MapManager(radius, random);
+        playerManager = new PlayerManager(Scenarios.PLAYER_1, Scenarios.PLAYER_2);
+        unitManager = new UnitManager(mapManager, playerManager, unitsPerPlayer, 1, random);
+        unitManager.spawnUnits();
+        fovManager = new FovManager(unitManager, mapManager, playerManager, visibilityRange);
+        fovManager.updateFov();
+
+        start = unitManager.getHex(0);
+        List<Hex> hexes = new ArrayList<>();
+        mapManager.forEachHex(hexes::add);
+        goal = hexes.stream()
+            .filter(hex -> !hex.isObstacle() && unitManager.isFree(hex))
+            .max(Comparator.comparingInt(hex -> hex.distance(start)))
+            .orElseThrow();
+    }
+
+    /** The constructor precomputes the visibility of every hex of the map. */
+    @Benchmark
+    public FovManager visibilityPrecompute() {
+        return new FovManager(unitManager, mapManager, playerManager, visibilityRange);
+    }
+
+    @Benchmark
+    public void updateFov() {
+        fovManager.updateFov();
+    }
+
+    /** One unit moving across the map and back, only its own vision is recounted. */
+    @Benchmark
+    public void moveUnit(Blackhole blackhole) {
+        unitManager.setUnitHex(0, goal);
+        blackhole.consume(fovManager.moveUnit(unitManager.getTeam(0), start, goal));
+        unitManager.setUnitHex(0, start);
+        blackhole.consume(fovManager.moveUnit(unitManager.getTeam(0), goal, start));
+    }
+
+    @Benchmark
+    public void resetFov() {
+        fovManager.resetFov();
+    }
+}
@@ -0,0 +1,48 @@
+package com.wolyh.game.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.wolyh.game.backend.game.Game;
+import com.wolyh.game.backend.game.GameConfig;
+
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(2)
+@State(Scope.Thread)
+public class GameBenchmark {
+
+    @Param({"4", "8", "16"})
+    int radius;
+
+    @Param({"1", "2", "4"})
+    int visibilityRange;
+
+    @Param({"3", "6"})
+    int unitsPerPlayer;
+
+    GameConfig config;
+
+    @Setup
+    public void setup() {
+        config = new GameConfig(radius, visibilityRange, unitsPerPlayer, 1, GameConfig.DEFAULT.shrinkInterval());
+    }
+
+    @Benchmark
+    public Game construct() {
+        return new Game(Scenarios.PLAYER_1, Scenarios.PLAYER_2, config, Scenarios.SEED);
+    }
+}
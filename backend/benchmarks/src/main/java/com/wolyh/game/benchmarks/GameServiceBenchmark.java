@@ -0,0 +1,146 @@
+package com.wolyh.game.benchmarks;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.IterationParams;
+import org.springframework.context.annotation.AnnotationConfigApplicationContext;
+import org.springframework.core.env.MapPropertySource;
+import org.springframework.messaging.simp.SimpMessagingTemplate;
+
+import tools.jackson.databind.json.JsonMapper;
+
+import com.wolyh.game.backend.dto.UnitActionRequest;
+import com.wolyh.game.backend.game.MapGenerator;
+import com.wolyh.game.backend.game.Result.AddGameResult;
+import com.wolyh.game.backend.game.Result.UnitActionResult;
+import com.wolyh.game.backend.model.HexCoordinates;
+import com.wolyh.game.backend.model.RoomIds;
+import com.wolyh.game.backend.model.UnitCoordinates;
+import com.wolyh.game.backend.service.GameService;
+import com.wolyh.game.backend.service.LogService;
+import com.wolyh.game.backend.service.MapCatalogService;
+import com.wolyh.game.backend.service.NotificationService;
+import com.wolyh.game.backend.service.ReplayService;
+import com.wolyh.game.backend.service.SpectatorService;
+
+/**
+ * One full move round through the service: lock, validation, path search,
+ * path fov, enemy pov, move and endTurn with its notification batch.
+ * Every thread plays in its own rooms of a shared service, so multi-threaded
+ * runs also measure contention on the game and lock tables.
+ * A move uses up its game, so each iteration is one batch of calls on a pool of
+ * fresh games built before it, and the score is the time of the whole batch.
+ */
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 10, batchSize = GameServiceBenchmark.POOL)
+@Measurement(iterations = 20, batchSize = GameServiceBenchmark.POOL)
+@Fork(2)
+public class GameServiceBenchmark {
+    static final int POOL = 1000;
+
+    @State(Scope.Benchmark)
+    public static class Service {
+        AnnotationConfigApplicationContext context;
+        GameService gameService;
+        final AtomicInteger roomIds = new AtomicInteger();
+
+        /** The services a game action goes through, with a broker channel that drops every message. */
+        @Setup(Level.Trial)
+        public void start() throws IOException {
+            context = new AnnotationConfigApplicationContext();
+            context.getEnvironment().getPropertySources().addFirst(new MapPropertySource("benchmark", Map.of(
+                "replay.dir", Files.createTempDirectory("replays").toString(),
+                "map.procedural", "false"
+            )));
+            context.registerBean(SimpMessagingTemplate.class, () -> new SimpMessagingTemplate((message, timeout) -> true));
+            context.registerBean(JsonMapper.class, () -> new JsonMapper());
+            context.register(
+                GameService.class,
+                NotificationService.class,
+                SpectatorService.class,
+                ReplayService.class,
+                MapCatalogService.class,
+                LogService.class
+            );
+            context.refresh();
+            gameService = context.getBean(GameService.class);
+        }
+
+        @TearDown(Level.Trial)
+        public void stop() {
+            context.close();
+        }
+    }
+
+    @State(Scope.Thread)
+    public static class Round {
+        String[] roomIds;
+        UnitActionRequest[] actions;
+        int next;
+
+        /** One game per call of the batch, the batch size can be changed with -bs. */
+        @Setup(Level.Iteration)
+        public void setupGames(Service service, IterationParams iteration) {
+            int size = iteration.getBatchSize();
+            if (roomIds == null || roomIds.length != size) {
+                roomIds = new String[size];
+                for (int i = 0; i < size; i++) {
+                    roomIds[i] = RoomIds.format(service.roomIds.incrementAndGet());
+                }
+                actions = new UnitActionRequest[size];
+            }
+            for (int i = 0; i < size; i++) {
+                actions[i] = setupGame(service, roomIds[i]);
+            }
+            next = 0;
+        }
+
+        // a fresh game per call keeps every round identical: unit 0 of player1 moves
+        private static UnitActionRequest setupGame(Service service, String roomId) {
+            service.gameService.deleteGame(roomId);
+            AddGameResult game = service.gameService.addGame(
+                roomId,
+                Scenarios.PLAYER_1,
+                Scenarios.PLAYER_2,
+                MapGenerator.CLASSIC_ID
+            );
+
+            List<UnitCoordinates> units = game.unitSpawnsPerPlayer().values().stream()
+                .flatMap(List::stream)
+                .toList();
+            UnitCoordinates active = units.stream()
+                .filter(unit -> unit.idx() == 0)
+                .findFirst()
+                .orElseThrow();
+
+            HexCoordinates goal = Scenarios.pickFreeHex(game.player1Fov(), units, active, true);
+            return goal == null
+                ? new UnitActionRequest("UNIT_ATTACK", 0, new HexCoordinates(active.q(), active.r()))
+                : new UnitActionRequest("UNIT_MOVE", 0, goal);
+        }
+    }
+
+    @Benchmark
+    public UnitActionResult processUnitAction(Service service, Round round) {
+        int i = round.next++;
+        return service.gameService.processUnitAction(round.roomIds[i], Scenarios.PLAYER_1, round.actions[i]);
+    }
+}
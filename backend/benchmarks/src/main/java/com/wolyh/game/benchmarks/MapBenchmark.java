@@ -0,0 +1,52 @@
+package com.wolyh.game.benchmarks;
+
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.wolyh.game.backend.game.MapManager;
+import com.wolyh.game.backend.model.Hex;
+
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(2)
+@State(Scope.Thread)
+public class MapBenchmark {
+
+    @Param({"4", "8", "16"})
+    int radius;
+
+    @Param({"2", "3"})
+    int minSpawnDistance;
+
+    MapManager mapManager;
+
+    @Setup
+    public void setup() {
+        mapManager = new MapManager(radius, new Random(Scenarios.SEED));
+    }
+
+    @Benchmark
+    public List<Hex> generateSpawns() {
+        return mapManager.generateSpawns(minSpawnDistance);
+    }
+
+    @Benchmark
+    public MapManager fill() {
+        return new MapManager(radius, new Random(Scenarios.SEED));
+    }
+}
@@ -0,0 +1,71 @@
+package com.wolyh.game.benchmarks;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.wolyh.game.backend.game.Game;
+import com.wolyh.game.backend.game.GameConfig;
+import com.wolyh.game.backend.model.HexCoordinates;
+import com.wolyh.game.backend.model.UnitCoordinates;
+
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(2)
+@State(Scope.Thread)
+public class PathBenchmark {
+
+    @Param({"4", "8", "16"})
+    int radius;
+
+    @Param({"1", "2", "4"})
+    int visibilityRange;
+
+    @Param({"3", "6"})
+    int unitsPerPlayer;
+
+    Game game;
+    HexCoordinates goal;
+    List<HexCoordinates> path;
+
+    @Setup
+    public void setup() {
+        GameConfig config = new GameConfig(radius, visibilityRange, unitsPerPlayer, 1, GameConfig.DEFAULT.shrinkInterval());
+        game = new Game(Scenarios.PLAYER_1, Scenarios.PLAYER_2, config, Scenarios.SEED);
+
+        List<UnitCoordinates> units = game.getUnitLocations().values().stream()
+            .flatMap(List::stream)
+            .toList();
+        UnitCoordinates active = units.stream()
+            .filter(unit -> unit.idx() == 0)
+            .findFirst()
+            .orElseThrow();
+
+        // the farthest visible hex gives the longest path the player can request
+        goal = Scenarios.pickFreeHex(game.getFov(game.getSlot(Scenarios.PLAYER_1)), units, active, false);
+        path = goal == null ? List.of() : game.searchPath(goal, 0, game.getSlot(Scenarios.PLAYER_1));
+    }
+
+    @Benchmark
+    public List<HexCoordinates> searchPath() {
+        return game.searchPath(goal, 0, game.getSlot(Scenarios.PLAYER_1));
+    }
+
+    @Benchmark
+    public List<HexCoordinates> calculateEnemyPovPath() {
+        return game.calculateEnemyPovPath(path, game.getTeam(game.getSlot(Scenarios.PLAYER_2)));
+    }
+}
@@ -0,0 +1,64 @@
+package com.wolyh.game.benchmarks;
+
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import com.wolyh.game.backend.model.HexCoordinates;
+import com.wolyh.game.backend.model.UnitCoordinates;
+
+final class Scenarios {
+    static final String PLAYER_1 = "player1";
+    static final String PLAYER_2 = "player2";
+    /** Every fork measures the same map and spawns. */
+    static final long SEED = 1;
+
+    private Scenarios() {}
+
+    static HexCoordinates parseKey(String key) {
+        int separator = key.indexOf('_');
+        return new HexCoordinates(
+            Integer.parseInt(key.substring(0, separator)),
+            Integer.parseInt(key.substring(separator + 1))
+        );
+    }
+
+    static int distance(HexCoordinates a, HexCoordinates b) {
+        int dq = a.q() - b.q();
+        int dr = a.r() - b.r();
+        return Math.max(Math.max(Math.abs(dq), Math.abs(dr)), Math.abs(dq + dr));
+    }
+
+    /**
+     * Picks the free hex of the fov that is the closest (nearest = true)
+     * or the farthest from the given unit, or null if every hex is taken.
+     */
+    static HexCoordinates pickFreeHex(
+        Set<String> fov,
+        List<UnitCoordinates> units,
+        UnitCoordinates from,
+        boolean nearest
+    ) {
+        Set<String> occupied = new HashSet<>();
+        for (UnitCoordinates unit : units) {
+            occupied.add(unit.q() + "_" + unit.r());
+        }
+
+        HexCoordinates origin = new HexCoordinates(from.q(), from.r());
+        HexCoordinates best = null;
+        int bestDistance = 0;
+
+        for (String key : fov) {
+            if (occupied.contains(key)) {
+                continue;
+            }
+            HexCoordinates candidate = parseKey(key);
+            int d = distance(origin, candidate);
+            if (best == null || (nearest ? d < bestDistance : d > bestDistance)) {
+                best = candidate;
+                bestDistance = d;
+            }
+        }
+        return best;
+    }
+}
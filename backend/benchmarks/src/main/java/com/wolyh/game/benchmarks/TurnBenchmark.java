@@ -0,0 +1,65 @@
+package com.wolyh.game.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import com.wolyh.game.backend.game.Game;
+import com.wolyh.game.backend.game.GameConfig;
+import com.wolyh.game.backend.game.PlayerManager;
+import com.wolyh.game.backend.model.HexCoordinates;
+import com.wolyh.game.backend.model.UnitCoordinates;
+
+/**
+ * Passing the turn and checking for a winner with armies of growing size, half of the
+ * units dead so the next alive unit has to skip some. Should not grow with the army.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(2)
+@State(Scope.Thread)
+public class TurnBenchmark {
+
+    @Param({"3", "30", "300"})
+    int unitsPerPlayer;
+
+    Game game;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        GameConfig army = GameConfig.army(unitsPerPlayer, 2);
+        // no shrink during the measurement
+        game = new Game(
+            Scenarios.PLAYER_1,
+            Scenarios.PLAYER_2,
+            new GameConfig(army.mapRadius(), army.visibilityRange(), unitsPerPlayer, 1, Integer.MAX_VALUE),
+            Scenarios.SEED
+        );
+
+        for (UnitCoordinates unit : game.getSpectatorView(PlayerManager.NONE).units()) {
+            if (unit.idx() % 4 >= 2 && unit.idx() != game.getActiveUnitIdx()) {
+                game.killUnitOn(new HexCoordinates(unit.q(), unit.r()));
+            }
+        }
+    }
+
+    @Benchmark
+    public void nextTurn(Blackhole blackhole) {
+        blackhole.consume(game.nextTurn());
+        blackhole.consume(game.resolveGameOver());
+    }
+}
@@ -0,0 +1,405 @@
+package com.wolyh.game.loadtest;
+
+import java.lang.reflect.Type;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import org.springframework.messaging.simp.stomp.StompCommand;
+import org.springframework.messaging.simp.stomp.StompFrameHandler;
+import org.springframework.messaging.simp.stomp.StompHeaders;
+import org.springframework.messaging.simp.stomp.StompSession;
+import org.springframework.messaging.simp.stomp.StompSessionHandlerAdapter;
+import org.springframework.util.MimeTypeUtils;
+import org.springframework.web.socket.WebSocketHttpHeaders;
+import org.springframework.web.socket.messaging.WebSocketStompClient;
+
+import tools.jackson.databind.JsonNode;
+import tools.jackson.databind.json.JsonMapper;
+import tools.jackson.databind.node.ObjectNode;
+
+/**
+ * A scripted player: it attacks any visible enemy, otherwise moves its active unit
+ * to a random free visible hex close to it, and skips the turn when the server
+ * does not answer (rejected actions are silent).
+ * All game state is guarded by the bot's monitor since frames arrive on the
+ * websocket threads and actions run on the scheduler.
+ */
+public class Bot {
+    private static final int MAX_MOVE_DISTANCE = 3;
+    private static final int MAX_CONSECUTIVE_TIMEOUTS = 3;
+
+    private final String username;
+    private final LoadTestConfig config;
+    private final LobbyClient lobby;
+    private final WebSocketStompClient stompClient;
+    private final ScheduledExecutorService scheduler;
+    private final JsonMapper mapper;
+    private final LatencyStats stats;
+    private final Counters counters;
+
+    private String token;
+    private StompSession session;
+    private StompSession.Subscription subscription;
+
+    private String roomId;
+    private CompletableFuture<Void> gameOver;
+    private final Set<Integer> ownUnits = new HashSet<>();
+    private final Map<Integer, String> unitHexes = new HashMap<>();
+    private Set<String> fov = Set.of();
+    private int activeUnit;
+
+    private String pendingType;
+    private long pendingStart;
+    private ScheduledFuture<?> pendingTimeout;
+    private int consecutiveTimeouts;
+
+    public Bot(
+        String username,
+        LoadTestConfig config,
+        LobbyClient lobby,
+        WebSocketStompClient stompClient,
+        ScheduledExecutorService scheduler,
+        JsonMapper mapper,
+        LatencyStats stats,
+        Counters counters
+    ) {
+        this.username = username;
+        this.config = config;
+        this.lobby = lobby;
+        this.stompClient = stompClient;
+        this.scheduler = scheduler;
+        this.mapper = mapper;
+        this.stats = stats;
+        this.counters = counters;
+    }
+
+    public String token() {
+        return token;
+    }
+
+    public void connect() throws Exception {
+        token = lobby.login(username);
+
+        StompHeaders connectHeaders = new StompHeaders();
+        connectHeaders.add("Authorization", "Bearer " + token);
+
+        long start = System.nanoTime();
+        session = stompClient
+            .connectAsync(config.wsUrl(), new WebSocketHttpHeaders(), connectHeaders, new StompSessionHandlerAdapter() {
+                @Override
+                public void handleException(
+                    StompSession session,
+                    StompCommand command,
+                    StompHeaders headers,
+                    byte[] payload,
+                    Throwable exception
+                ) {
+                    System.err.println(username + ": " + exception);
+                }
+
+                @Override
+                public void handleTransportError(StompSession session, Throwable exception) {
+                    System.err.println(username + " transport error: " + exception);
+                }
+            })
+            .get(30, TimeUnit.SECONDS);
+        stats.record("STOMP_CONNECT", start);
+    }
+
+    public void disconnect() {
+        if (session != null && session.isConnected()) {
+            session.disconnect();
+        }
+    }
+
+    public synchronized CompletableFuture<Void> enterRoom(String roomId) {
+        this.roomId = roomId;
+        this.gameOver = new CompletableFuture<>();
+        this.subscription = session.subscribe("/user/queue/" + roomId, new StompFrameHandler() {
+            @Override
+            public Type getPayloadType(StompHeaders headers) {
+                return byte[].class;
+            }
+
+            @Override
+            public void handleFrame(StompHeaders headers, Object payload) {
+                onFrame((byte[]) payload);
+            }
+        });
+        return gameOver;
+    }
+
+    public synchronized void leaveRoom() {
+        cancelPending();
+        if (subscription != null) {
+            subscription.unsubscribe();
+            subscription = null;
+        }
+        ownUnits.clear();
+        unitHexes.clear();
+        fov = Set.of();
+        roomId = null;
+    }
+
+    public void forfeit() {
+        send("/game-forfeit", "{}");
+    }
+
+    /** The creator gets its start data from the REST response, the guest from GAME_START. */
+    public synchronized void startGame(JsonNode gameStart) {
+        fov = keys(gameStart.get("fov"));
+        for (JsonNode unit : gameStart.get("unitSpawns")) {
+            int idx = unit.get("idx").asInt();
+            ownUnits.add(idx);
+            unitHexes.put(idx, key(unit));
+        }
+        activeUnit = 0;
+        if (ownUnits.contains(activeUnit)) {
+            scheduleAction();
+        }
+    }
+
+    private synchronized void onFrame(byte[] payload) {
+        counters.framesReceived.increment();
+        counters.bytesReceived.add(payload.length);
+
+        JsonNode root = mapper.readTree(payload);
+        if (!root.isArray() && "ACTION_REJECTED".equals(root.get("type").asString())) {
+            onRejected();
+            return;
+        }
+
+        if (pendingType != null) {
+            // an open-loop bot would have acted again every think time while it waited
+            stats.record(pendingType, pendingStart, config.thinkTime().toNanos());
+            cancelPending();
+            consecutiveTimeouts = 0;
+        }
+
+        if (root.isArray()) {
+            for (JsonNode notification : root) {
+                handle(notification.get("type").asString(), notification.get("data"));
+            }
+        } else {
+            handle(root.get("type").asString(), root.get("data"));
+        }
+    }
+
+    private void handle(String type, JsonNode data) {
+        switch (type) {
+            case "GAME_START" -> startGame(data);
+            case "ALLY_MOVE" -> {
+                JsonNode path = data.get("path");
+                unitHexes.put(data.get("unitIdx").asInt(), key(path.get(path.size() - 1)));
+                Set<String> next = new HashSet<>(fov);
+                for (JsonNode step : data.get("pathFov")) {
+                    next.addAll(keys(step.get("gained")));
+                    next.removeAll(keys(step.get("lost")));
+                    for (JsonNode enemy : step.get("spotted")) {
+                        unitHexes.put(enemy.get("idx").asInt(), key(enemy));
+                    }
+                    for (JsonNode hidden : step.get("hidden")) {
+                        unitHexes.remove(hidden.asInt());
+                    }
+                }
+                fov = next;
+            }
+            case "ENEMY_MOVE" -> {
+                JsonNode path = data.get("path");
+                int idx = data.get("unitIdx").asInt();
+                String last = path.isEmpty() ? null : key(path.get(path.size() - 1));
+                if (last != null && fov.contains(last)) {
+                    unitHexes.put(idx, last);
+                } else {
+                    unitHexes.remove(idx);
+                }
+            }
+            case "UNIT_ATTACK" -> {
+                String target = key(data.get("targetCoords"));
+                unitHexes.values().remove(target);
+                fov = keys(data.get("fov"));
+            }
+            case "MAP_SHRINK" -> {
+                for (JsonNode dead : data.get("deadUnits")) {
+                    unitHexes.remove(dead.asInt());
+                    ownUnits.remove(dead.asInt());
+                }
+                fov = keys(data.get("fov"));
+            }
+            case "TURN_CHANGE" -> {
+                activeUnit = data.get("nextUnitIdx").asInt();
+                if (ownUnits.isEmpty()) {
+                    // the subscription was not registered yet when the game started
+                    gameOver.completeExceptionally(new IllegalStateException(username + " missed GAME_START"));
+                    return;
+                }
+                if (ownUnits.contains(activeUnit)) {
+                    scheduleAction();
+                }
+            }
+            case "GAME_OVER" -> {
+                cancelPending();
+                gameOver.complete(null);
+            }
+            default -> {}
+        }
+    }
+
+    private void scheduleAction() {
+        long intendedStart = System.nanoTime() + config.thinkTime().toNanos();
+        String room = roomId;
+        scheduler.schedule(() -> act(room, intendedStart), config.thinkTime().toNanos(), TimeUnit.NANOSECONDS);
+    }
+
+    private synchronized void act(String room, long intendedStart) {
+        if (!room.equals(roomId) || gameOver.isDone()) {
+            return;
+        }
+
+        String from = unitHexes.get(activeUnit);
+        String target = findVisibleEnemy();
+        if (target != null) {
+            sendAction("UNIT_ATTACK", target, intendedStart);
+            return;
+        }
+
+        target = from == null ? null : findMoveTarget(from);
+        if (target != null) {
+            sendAction("UNIT_MOVE", target, intendedStart);
+            return;
+        }
+
+        expect("TURN_SKIP", intendedStart);
+        send("/turn-skip", "{}");
+    }
+
+    private String findVisibleEnemy() {
+        for (Map.Entry<Integer, String> unit : unitHexes.entrySet()) {
+            if (!ownUnits.contains(unit.getKey()) && fov.contains(unit.getValue())) {
+                return unit.getValue();
+            }
+        }
+        return null;
+    }
+
+    private String findMoveTarget(String from) {
+        int[] origin = coords(from);
+        Set<String> occupied = new HashSet<>(unitHexes.values());
+        List<String> candidates = new ArrayList<>();
+
+        for (String hex : fov) {
+            if (occupied.contains(hex)) {
+                continue;
+            }
+            int[] c = coords(hex);
+            int dq = c[0] - origin[0];
+            int dr = c[1] - origin[1];
+            int distance = Math.max(Math.max(Math.abs(dq), Math.abs(dr)), Math.abs(dq + dr));
+            if (distance >= 1 && distance <= MAX_MOVE_DISTANCE) {
+                candidates.add(hex);
+            }
+        }
+
+        if (candidates.isEmpty()) {
+            return null;
+        }
+        return candidates.get(ThreadLocalRandom.current().nextInt(candidates.size()));
+    }
+
+    private void sendAction(String type, String hex, long intendedStart) {
+        int[] c = coords(hex);
+        ObjectNode action = mapper.createObjectNode();
+        action.put("type", type);
+        action.put("unitIdx", activeUnit);
+        action.putObject("goal").put("q", c[0]).put("r", c[1]);
+
+        expect(type, intendedStart);
+        send("/unit-action", mapper.writeValueAsString(action));
+    }
+
+    private void expect(String type, long intendedStart) {
+        pendingType = type;
+        pendingStart = intendedStart;
+        String room = roomId;
+        pendingTimeout = scheduler.schedule(
+            () -> onTimeout(room),
+            config.actionTimeout().toMillis(),
+            TimeUnit.MILLISECONDS
+        );
+    }
+
+    private synchronized void onTimeout(String room) {
+        if (pendingType == null || !room.equals(roomId)) {
+            return;
+        }
+        stats.error(pendingType);
+        pendingType = null;
+
+        if (++consecutiveTimeouts >= MAX_CONSECUTIVE_TIMEOUTS) {
+            gameOver.completeExceptionally(new IllegalStateException(username + " got no answer in " + room));
+            return;
+        }
+
+        expect("TURN_SKIP", System.nanoTime());
+        send("/turn-skip", "{}");
+    }
+
+    /** Counted as an error like a timeout, without waiting for it. */
+    private void onRejected() {
+        String rejected = pendingType;
+        if (rejected == null) {
+            return;
+        }
+        stats.error(rejected);
+        cancelPending();
+        if (!rejected.equals("TURN_SKIP")) {
+            expect("TURN_SKIP", System.nanoTime());
+            send("/turn-skip", "{}");
+        }
+    }
+
+    private void cancelPending() {
+        pendingType = null;
+        if (pendingTimeout != null) {
+            pendingTimeout.cancel(false);
+            pendingTimeout = null;
+        }
+    }
+
+    private void send(String action, String body) {
+        StompHeaders headers = new StompHeaders();
+        headers.setDestination("/app/room/" + roomId + action);
+        headers.setContentType(MimeTypeUtils.APPLICATION_JSON);
+        session.send(headers, body.getBytes());
+        counters.framesSent.increment();
+    }
+
+    private static Set<String> keys(JsonNode fov) {
+        Set<String> keys = new HashSet<>(fov.size() * 2);
+        for (JsonNode key : fov) {
+            keys.add(key.asString());
+        }
+        return keys;
+    }
+
+    private static String key(JsonNode coords) {
+        return coords.get("q").asInt() + "_" + coords.get("r").asInt();
+    }
+
+    private static int[] coords(String key) {
+        int separator = key.indexOf('_');
+        return new int[] {
+            Integer.parseInt(key.substring(0, separator)),
+            Integer.parseInt(key.substring(separator + 1))
+        };
+    }
+}
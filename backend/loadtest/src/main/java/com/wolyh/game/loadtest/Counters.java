@@ -0,0 +1,12 @@
+package com.wolyh.game.loadtest;
+
+import java.util.concurrent.atomic.LongAdder;
+
+public class Counters {
+    public final LongAdder gamesStarted = new LongAdder();
+    public final LongAdder gamesCompleted = new LongAdder();
+    public final LongAdder gamesFailed = new LongAdder();
+    public final LongAdder framesSent = new LongAdder();
+    public final LongAdder framesReceived = new LongAdder();
+    public final LongAdder bytesReceived = new LongAdder();
+}
@@ -0,0 +1,79 @@
+package com.wolyh.game.loadtest;
+
+import java.io.PrintStream;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.HdrHistogram.Histogram;
+import org.HdrHistogram.Recorder;
+
+/**
+ * Latency histograms per message type.
+ * Every latency is measured from the moment the request was supposed to be sent,
+ * not from the moment it actually left, so a late scheduler shows up too.
+ * The bots wait for an answer before acting again, so a stalled server also lowers
+ * the send rate. Latencies recorded with an expected interval are corrected for
+ * that (coordinated omission): one slower than the interval is also counted for
+ * the requests that would have been sent meanwhile.
+ */
+public class LatencyStats {
+    private static final long HIGHEST_TRACKABLE = TimeUnit.MINUTES.toNanos(5);
+
+    private final Map<String, Recorder> recorders = new ConcurrentHashMap<>();
+    private final Map<String, Histogram> totals = new ConcurrentHashMap<>();
+    private final Map<String, LongAdder> errors = new ConcurrentHashMap<>();
+
+    public void record(String type, long intendedStartNanos) {
+        record(type, intendedStartNanos, 0);
+    }
+
+    /** An interval of 0 records the latency alone. */
+    public void record(String type, long intendedStartNanos, long expectedIntervalNanos) {
+        long latency = Math.max(0, System.nanoTime() - intendedStartNanos);
+        recorders.computeIfAbsent(type, t -> new Recorder(HIGHEST_TRACKABLE, 3))
+            .recordValueWithExpectedInterval(Math.min(latency, HIGHEST_TRACKABLE), expectedIntervalNanos);
+    }
+
+    public void error(String type) {
+        errors.computeIfAbsent(type, t -> new LongAdder()).increment();
+    }
+
+    /** Prints the interval since the previous report and folds it into the totals. */
+    public synchronized void report(PrintStream out, double intervalSeconds) {
+        Map<String, Histogram> interval = new TreeMap<>();
+        recorders.forEach((type, recorder) -> {
+            Histogram histogram = recorder.getIntervalHistogram();
+            interval.put(type, histogram);
+            totals.computeIfAbsent(type, t -> new Histogram(HIGHEST_TRACKABLE, 3)).add(histogram);
+        });
+        print(out, interval, intervalSeconds);
+    }
+
+    public synchronized void reportTotals(PrintStream out, double elapsedSeconds) {
+        report(new PrintStream(PrintStream.nullOutputStream()), elapsedSeconds);
+        print(out, new TreeMap<>(totals), elapsedSeconds);
+    }
+
+    private void print(PrintStream out, Map<String, Histogram> histograms, double seconds) {
+        out.printf("%-14s %10s %10s %9s %9s %9s %9s %9s %8s%n",
+            "type", "count", "rate/s", "p50 ms", "p90 ms", "p99 ms", "p99.9 ms", "max ms", "errors");
+        histograms.forEach((type, h) -> out.printf("%-14s %10d %10.1f %9.2f %9.2f %9.2f %9.2f %9.2f %8d%n",
+            type,
+            h.getTotalCount(),
+            h.getTotalCount() / seconds,
+            millis(h.getValueAtPercentile(50)),
+            millis(h.getValueAtPercentile(90)),
+            millis(h.getValueAtPercentile(99)),
+            millis(h.getValueAtPercentile(99.9)),
+            millis(h.getMaxValue()),
+            errors.containsKey(type) ? errors.get(type).sum() : 0
+        ));
+    }
+
+    private static double millis(long nanos) {
+        return nanos / 1_000_000.0;
+    }
+}
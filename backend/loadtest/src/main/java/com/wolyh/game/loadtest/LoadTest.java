@@ -0,0 +1,97 @@
+package com.wolyh.game.loadtest;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import org.springframework.messaging.MessageHeaders;
+import org.springframework.messaging.converter.ByteArrayMessageConverter;
+import org.springframework.web.socket.client.standard.StandardWebSocketClient;
+import org.springframework.web.socket.messaging.WebSocketStompClient;
+
+import tools.jackson.databind.json.JsonMapper;
+
+/**
+ * Plays full games against a running backend and reports throughput and
+ * latency percentiles per message type.
+ *
+ * java -jar target/loadtest.jar games=1000 duration=300 rampUp=30 thinkMs=200
+ */
+public class LoadTest {
+
+    public static void main(String[] args) throws Exception {
+        LoadTestConfig config = LoadTestConfig.parse(args);
+        JsonMapper mapper = JsonMapper.builder().build();
+        LatencyStats stats = new LatencyStats();
+        Counters counters = new Counters();
+
+        ScheduledExecutorService scheduler = Executors.newScheduledThreadPool(
+            Runtime.getRuntime().availableProcessors()
+        );
+
+        long start = System.nanoTime();
+        long deadline = start + config.duration().toNanos();
+        String runId = Long.toString(System.currentTimeMillis(), 36);
+
+        double interval = config.reportInterval().toMillis() / 1000.0;
+        scheduler.scheduleAtFixedRate(() -> {
+            System.out.printf("%n[%6.0fs] games started=%d completed=%d failed=%d, frames sent=%d received=%d (%.1f MB)%n",
+                (System.nanoTime() - start) / 1e9,
+                counters.gamesStarted.sum(),
+                counters.gamesCompleted.sum(),
+                counters.gamesFailed.sum(),
+                counters.framesSent.sum(),
+                counters.framesReceived.sum(),
+                counters.bytesReceived.sum() / 1e6
+            );
+            stats.report(System.out, interval);
+        }, config.reportInterval().toMillis(), config.reportInterval().toMillis(), TimeUnit.MILLISECONDS);
+
+        play(config, mapper, stats, counters, scheduler, runId, deadline);
+
+        scheduler.shutdownNow();
+        double elapsed = (System.nanoTime() - start) / 1e9;
+
+        System.out.printf("%n==== totals over %.0fs: %d games completed (%.1f games/s), %d failed, %.0f frames/s in ====%n",
+            elapsed,
+            counters.gamesCompleted.sum(),
+            counters.gamesCompleted.sum() / elapsed,
+            counters.gamesFailed.sum(),
+            counters.framesReceived.sum() / elapsed
+        );
+        stats.reportTotals(System.out, elapsed);
+    }
+
+    /** Runs the pairs of bots until the deadline, the scheduler is used for their timeouts. */
+    static void play(
+        LoadTestConfig config,
+        JsonMapper mapper,
+        LatencyStats stats,
+        Counters counters,
+        ScheduledExecutorService scheduler,
+        String runId,
+        long deadline
+    ) {
+        LobbyClient lobby = new LobbyClient(config.apiUrl(), mapper, stats);
+
+        WebSocketStompClient stompClient = new WebSocketStompClient(new StandardWebSocketClient());
+        // frames are parsed by the bots, so keep the raw json bytes whatever the content type
+        stompClient.setMessageConverter(new ByteArrayMessageConverter() {
+            @Override
+            protected boolean supportsMimeType(MessageHeaders headers) {
+                return true;
+            }
+        });
+        stompClient.setInboundMessageSizeLimit(1024 * 1024);
+
+        try (ExecutorService matches = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (int i = 0; i < config.games(); i++) {
+                long delay = config.rampUp().toNanos() * i / config.games();
+                Bot creator = new Bot("bot-" + runId + "-" + i + "a", config, lobby, stompClient, scheduler, mapper, stats, counters);
+                Bot guest = new Bot("bot-" + runId + "-" + i + "b", config, lobby, stompClient, scheduler, mapper, stats, counters);
+                matches.submit(new Match(creator, guest, lobby, config, counters, delay, deadline));
+            }
+        }
+    }
+}
@@ -0,0 +1,46 @@
+package com.wolyh.game.loadtest;
+
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Arguments are given as key=value pairs, e.g. games=2000 duration=300.
+ */
+public record LoadTestConfig(
+    String apiUrl,
+    String wsUrl,
+    int games,
+    Duration duration,
+    Duration rampUp,
+    Duration thinkTime,
+    Duration actionTimeout,
+    Duration subscribeSettle,
+    Duration gameTimeout,
+    Duration reportInterval
+) {
+
+    public static LoadTestConfig parse(String[] args) {
+        Map<String, String> values = new HashMap<>();
+        for (String arg : args) {
+            int separator = arg.indexOf('=');
+            if (separator <= 0) {
+                throw new IllegalArgumentException("Expected key=value but got: " + arg);
+            }
+            values.put(arg.substring(0, separator), arg.substring(separator + 1));
+        }
+
+        return new LoadTestConfig(
+            values.getOrDefault("api", "http://localhost:8080/api"),
+            values.getOrDefault("ws", "ws://localhost:8080/ws"),
+            Integer.parseInt(values.getOrDefault("games", "100")),
+            Duration.ofSeconds(Long.parseLong(values.getOrDefault("duration", "60"))),
+            Duration.ofSeconds(Long.parseLong(values.getOrDefault("rampUp", "10"))),
+            Duration.ofMillis(Long.parseLong(values.getOrDefault("thinkMs", "200"))),
+            Duration.ofMillis(Long.parseLong(values.getOrDefault("actionTimeoutMs", "2000"))),
+            Duration.ofMillis(Long.parseLong(values.getOrDefault("subscribeSettleMs", "100"))),
+            Duration.ofSeconds(Long.parseLong(values.getOrDefault("gameTimeout", "300"))),
+            Duration.ofSeconds(Long.parseLong(values.getOrDefault("reportEvery", "10")))
+        );
+    }
+}
@@ -0,0 +1,84 @@
+package com.wolyh.game.loadtest;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+
+import tools.jackson.databind.JsonNode;
+import tools.jackson.databind.json.JsonMapper;
+
+/**
+ * Blocking client for the REST endpoints, meant to be called from virtual threads.
+ */
+public class LobbyClient {
+    private final HttpClient http = HttpClient.newBuilder()
+        .connectTimeout(Duration.ofSeconds(10))
+        .build();
+    private final JsonMapper mapper;
+    private final String apiUrl;
+    private final LatencyStats stats;
+
+    public LobbyClient(String apiUrl, JsonMapper mapper, LatencyStats stats) {
+        this.apiUrl = apiUrl;
+        this.mapper = mapper;
+        this.stats = stats;
+    }
+
+    public String login(String username) {
+        String body = mapper.writeValueAsString(mapper.createObjectNode().put("username", username));
+        JsonNode response = send("LOGIN", "POST", "/auth/login", null, body);
+        return response.get("token").asString();
+    }
+
+    /** roomId, and a joinToken that is null for a public room */
+    public JsonNode createRoom(String token) {
+        return send("CREATE_ROOM", "POST", "/room/create", token, null);
+    }
+
+    public void joinRoom(String token, String roomId, String joinToken) {
+        String query = joinToken == null ? "" : "?token=" + joinToken;
+        send("JOIN_ROOM", "POST", "/room/join/" + roomId + query, token, null);
+    }
+
+    public JsonNode startGame(String token, String roomId) {
+        return send("START_GAME", "POST", "/room/start/" + roomId, token, null);
+    }
+
+    public void leaveRoom(String token, String roomId) {
+        send("LEAVE_ROOM", "DELETE", "/room/leave/" + roomId, token, null);
+    }
+
+    private JsonNode send(String type, String method, String path, String token, String body) {
+        HttpRequest.Builder request = HttpRequest.newBuilder(URI.create(apiUrl + path))
+            .timeout(Duration.ofSeconds(30))
+            .header("Content-Type", "application/json")
+            .method(method, body == null
+                ? HttpRequest.BodyPublishers.noBody()
+                : HttpRequest.BodyPublishers.ofString(body));
+
+        if (token != null) {
+            request.header("Authorization", "Bearer " + token);
+        }
+
+        long start = System.nanoTime();
+        try {
+            HttpResponse<byte[]> response = http.send(request.build(), HttpResponse.BodyHandlers.ofByteArray());
+            stats.record(type, start);
+
+            if (response.statusCode() != 200) {
+                stats.error(type);
+                throw new IllegalStateException(type + " failed with status " + response.statusCode());
+            }
+            return response.body().length == 0 ? mapper.createObjectNode() : mapper.readTree(response.body());
+        } catch (IOException e) {
+            stats.error(type);
+            throw new IllegalStateException(type + " failed", e);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException(type + " interrupted", e);
+        }
+    }
+}
@@ -0,0 +1,97 @@
+package com.wolyh.game.loadtest;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import tools.jackson.databind.JsonNode;
+
+/**
+ * Two bots playing games against each other until the deadline:
+ * create, join, start and play over the real REST and STOMP endpoints, then leave.
+ */
+public class Match implements Runnable {
+    private final Bot creator;
+    private final Bot guest;
+    private final LobbyClient lobby;
+    private final LoadTestConfig config;
+    private final Counters counters;
+    private final long startDelayNanos;
+    private final long deadlineNanos;
+
+    public Match(
+        Bot creator,
+        Bot guest,
+        LobbyClient lobby,
+        LoadTestConfig config,
+        Counters counters,
+        long startDelayNanos,
+        long deadlineNanos
+    ) {
+        this.creator = creator;
+        this.guest = guest;
+        this.lobby = lobby;
+        this.config = config;
+        this.counters = counters;
+        this.startDelayNanos = startDelayNanos;
+        this.deadlineNanos = deadlineNanos;
+    }
+
+    @Override
+    public void run() {
+        try {
+            TimeUnit.NANOSECONDS.sleep(startDelayNanos);
+            creator.connect();
+            guest.connect();
+
+            while (System.nanoTime() < deadlineNanos) {
+                playOneGame();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (Exception e) {
+            System.err.println("Match stopped: " + e.getMessage());
+        } finally {
+            creator.disconnect();
+            guest.disconnect();
+        }
+    }
+
+    private void playOneGame() throws InterruptedException {
+        JsonNode room = lobby.createRoom(creator.token());
+        String roomId = room.get("roomId").asString();
+        try {
+            CompletableFuture<Void> creatorDone = creator.enterRoom(roomId);
+            JsonNode joinToken = room.path("joinToken");
+            lobby.joinRoom(guest.token(), roomId, joinToken.isNull() || joinToken.isMissingNode() ? null : joinToken.asString());
+            CompletableFuture<Void> guestDone = guest.enterRoom(roomId);
+
+            // the simple broker does not send receipts for SUBSCRIBE
+            TimeUnit.MILLISECONDS.sleep(config.subscribeSettle().toMillis());
+
+            JsonNode start = lobby.startGame(creator.token(), roomId);
+            counters.gamesStarted.increment();
+            creator.startGame(start);
+
+            CompletableFuture.allOf(creatorDone, guestDone)
+                .orTimeout(config.gameTimeout().toSeconds(), TimeUnit.SECONDS)
+                .join();
+            counters.gamesCompleted.increment();
+        } catch (RuntimeException e) {
+            counters.gamesFailed.increment();
+            creator.forfeit();
+        } finally {
+            creator.leaveRoom();
+            guest.leaveRoom();
+            leave(creator, roomId);
+            leave(guest, roomId);
+        }
+    }
+
+    private void leave(Bot bot, String roomId) {
+        try {
+            lobby.leaveRoom(bot.token(), roomId);
+        } catch (RuntimeException ignored) {
+            // the room may already be gone, e.g. the creator left a waiting room
+        }
+    }
+}
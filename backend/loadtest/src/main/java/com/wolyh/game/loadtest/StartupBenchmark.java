@@ -0,0 +1,141 @@
+package com.wolyh.game.loadtest;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import tools.jackson.databind.json.JsonMapper;
+
+/**
+ * Starts the backend several times per setup and measures the time until the readiness
+ * probe is up, then plays games on the fresh node to see how the first minutes are served.
+ * Setups: cold (no cache, no warm-up), warm-up only, AOT cache and warm-up. The last one
+ * is skipped without cache=. Backend logs go to startup-{setup}-{run}.log.
+ *
+ * java -cp target/loadtest.jar com.wolyh.game.loadtest.StartupBenchmark
+ *     jar=../target/application/backend-0.0.1-SNAPSHOT-exec.jar cache=../target/application/backend.aot
+ */
+public class StartupBenchmark {
+    private static final Duration READY_TIMEOUT = Duration.ofMinutes(2);
+
+    private record Setup(String name, List<String> jvmOptions, List<String> appArguments) {}
+
+    public static void main(String[] args) throws Exception {
+        Map<String, String> values = new HashMap<>();
+        for (String arg : args) {
+            int separator = arg.indexOf('=');
+            if (separator <= 0) {
+                throw new IllegalArgumentException("Expected key=value but got: " + arg);
+            }
+            values.put(arg.substring(0, separator), arg.substring(separator + 1));
+        }
+
+        String java = values.getOrDefault("java", Path.of(System.getProperty("java.home"), "bin", "java").toString());
+        String jar = values.getOrDefault("jar", "../target/application/backend-0.0.1-SNAPSHOT-exec.jar");
+        int port = Integer.parseInt(values.getOrDefault("port", "18090"));
+        int runs = Integer.parseInt(values.getOrDefault("runs", "3"));
+        String games = values.getOrDefault("games", "4");
+        String duration = values.getOrDefault("duration", "20");
+
+        List<Setup> setups = new ArrayList<>();
+        setups.add(new Setup("cold", List.of(), List.of("--warmup.turns=0")));
+        setups.add(new Setup("warm-up", List.of(), List.of()));
+        if (values.containsKey("cache")) {
+            // -XX:SharedArchiveFile= compares with a CDS archive on JDKs without AOT caches
+            String cacheOption = values.getOrDefault("cacheOption", "-XX:AOTCache=");
+            setups.add(new Setup("aot+warm-up", List.of(cacheOption + values.get("cache")), List.of()));
+        }
+
+        LoadTestConfig config = LoadTestConfig.parse(new String[] {
+            "api=http://localhost:" + port + "/api",
+            "ws=ws://localhost:" + port + "/ws",
+            "games=" + games,
+            "duration=" + duration,
+            "rampUp=0",
+            "thinkMs=" + values.getOrDefault("thinkMs", "10")
+        });
+        JsonMapper mapper = JsonMapper.builder().build();
+        HttpClient http = HttpClient.newHttpClient();
+        Map<String, LatencyStats> results = new HashMap<>();
+
+        for (Setup setup : setups) {
+            LatencyStats stats = new LatencyStats();
+            results.put(setup.name(), stats);
+
+            for (int run = 1; run <= runs; run++) {
+                List<String> command = new ArrayList<>();
+                command.add(java);
+                command.addAll(setup.jvmOptions());
+                command.addAll(List.of("-jar", jar, "--server.port=" + port, "--map.procedural=false",
+                    "--replay.dir=" + Files.createTempDirectory("startup-replays")));
+                command.addAll(setup.appArguments());
+
+                ProcessBuilder builder = new ProcessBuilder(command)
+                    .redirectErrorStream(true)
+                    .redirectOutput(Path.of("startup-" + setup.name() + "-" + run + ".log").toFile());
+                builder.environment().putIfAbsent("JWT_SECRET", "c3RhcnR1cC1iZW5jaG1hcmstc3RhcnR1cC1iZW5jaG1hcms=");
+                builder.environment().putIfAbsent("JWT_EXPIRATION", "3600000");
+
+                long start = System.nanoTime();
+                Process backend = builder.start();
+                try {
+                    awaitReady(http, port, backend);
+                    long readyMs = (System.nanoTime() - start) / 1_000_000;
+
+                    Counters counters = new Counters();
+                    ScheduledExecutorService scheduler = Executors.newScheduledThreadPool(2);
+                    long deadline = System.nanoTime() + config.duration().toNanos();
+                    LoadTest.play(config, mapper, stats, counters, scheduler, setup.name() + run, deadline);
+                    scheduler.shutdownNow();
+
+                    System.out.printf("%-12s run %d: ready in %5d ms, %d games completed, %d failed%n",
+                        setup.name(), run, readyMs, counters.gamesCompleted.sum(), counters.gamesFailed.sum());
+                } finally {
+                    backend.destroy();
+                    if (!backend.waitFor(30, TimeUnit.SECONDS)) {
+                        backend.destroyForcibly().waitFor();
+                    }
+                }
+            }
+        }
+
+        double seconds = runs * config.duration().toSeconds();
+        for (Setup setup : setups) {
+            System.out.printf("%n==== %s: first %ss after ready, %d runs ====%n", setup.name(), duration, runs);
+            results.get(setup.name()).reportTotals(System.out, seconds);
+        }
+    }
+
+    private static void awaitReady(HttpClient http, int port, Process backend) throws IOException, InterruptedException {
+        HttpRequest request = HttpRequest.newBuilder(URI.create("http://localhost:" + port + "/actuator/health/readiness"))
+            .timeout(Duration.ofSeconds(1))
+            .build();
+        long deadline = System.nanoTime() + READY_TIMEOUT.toNanos();
+        while (System.nanoTime() < deadline) {
+            if (!backend.isAlive()) {
+                throw new IllegalStateException("Backend exited with " + backend.exitValue());
+            }
+            try {
+                if (http.send(request, HttpResponse.BodyHandlers.discarding()).statusCode() == 200) {
+                    return;
+                }
+            } catch (IOException e) {
+                // not listening yet
+            }
+            Thread.sleep(10);
+        }
+        throw new IllegalStateException("Backend not ready after " + READY_TIMEOUT);
+    }
+}
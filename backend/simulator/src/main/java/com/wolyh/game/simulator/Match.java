@@ -0,0 +1,155 @@
+package com.wolyh.game.simulator;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+
+import com.wolyh.game.backend.game.Game;
+import com.wolyh.game.backend.game.GameConfig;
+import com.wolyh.game.backend.game.MapGenerator;
+import com.wolyh.game.backend.game.PlayerSnapshot;
+import com.wolyh.game.backend.game.Result.ShrinkMapResult;
+import com.wolyh.game.backend.game.ai.BotAction;
+import com.wolyh.game.backend.model.UnitCoordinates;
+
+/**
+ * Plays one game on the engine with the same turn resolution as GameService,
+ * minus the notifications.
+ */
+public final class Match {
+    public static final int DRAW = -1;
+    public static final int UNFINISHED = -2;
+
+    /**
+     * @param outcome the winning team, or {@link #DRAW} or {@link #UNFINISHED}
+     * @param spawnAdvantage how much closer to the center the first team spawned than the second, summed over units
+     * @param shrinkDeaths units killed by each shrink, indexed by the shrink level reached
+     */
+    public record Result(
+        int outcome,
+        int turns,
+        int spawnAdvantage,
+        int attackKills,
+        int[] shrinkDeaths
+    ) {}
+
+    private Match() {}
+
+    public static Result play(SimulatorConfig simulatorConfig, Policy policy, SplittableRandom random) {
+        GameConfig config = simulatorConfig.gameConfig();
+        int maxTurns = simulatorConfig.maxTurns();
+        Game game = new Game(
+            teams(simulatorConfig.teams(), simulatorConfig.teamSize()),
+            config,
+            random.nextLong(),
+            MapGenerator.classic(config.mapRadius())
+        );
+        int spawnAdvantage = spawnAdvantage(game);
+        int attackKills = 0;
+        int[] shrinkDeaths = new int[config.mapRadius()];
+
+        for (int turn = 1; turn <= maxTurns; turn++) {
+            int slot = game.getActiveSlot();
+
+            // the unit plays until its action points run out, it skips or nothing is legal
+            for (int action = 0; action < config.actionPoints(); action++) {
+                PlayerSnapshot snapshot = game.getPlayerSnapshot(slot);
+                if (!isActiveUnitAlive(snapshot)) {
+                    break;
+                }
+                BotAction played = playFirstLegal(game, slot, policy.choose(snapshot, random));
+                if (played == null || played.type() == BotAction.Type.TURN_SKIP) {
+                    break;
+                }
+                if (played.type() == BotAction.Type.UNIT_ATTACK) {
+                    attackKills++;
+                }
+                game.resolveGameOver();
+                if (game.isGameOver()) {
+                    break;
+                }
+            }
+
+            game.resolveGameOver();
+            if (game.isGameOver()) {
+                return new Result(outcome(game), turn, spawnAdvantage, attackKills, shrinkDeaths);
+            }
+
+            game.nextTurn();
+            ShrinkMapResult shrink = game.shrinkMapIfNeeded();
+            if (!shrink.occurred()) {
+                continue;
+            }
+
+            shrinkDeaths[Math.max(shrink.shrinkLevel(), 0)] += shrink.deadUnits().size();
+            game.resolveGameOver();
+            if (game.isGameOver()) {
+                return new Result(outcome(game), turn, spawnAdvantage, attackKills, shrinkDeaths);
+            }
+        }
+        return new Result(UNFINISHED, maxTurns, spawnAdvantage, attackKills, shrinkDeaths);
+    }
+
+    private static BotAction playFirstLegal(Game game, int slot, List<BotAction> candidates) {
+        for (BotAction action : candidates) {
+            switch (action.type()) {
+                case UNIT_ATTACK -> {
+                    if (game.canUnitAttackOnHex(action.unitIdx(), action.goal())) {
+                        game.killUnitOn(action.goal());
+                        return action;
+                    }
+                }
+                case UNIT_MOVE -> {
+                    if (!game.searchPath(action.goal(), action.unitIdx(), slot).isEmpty()) {
+                        game.moveUnit(action.unitIdx(), action.goal());
+                        return action;
+                    }
+                }
+                case TURN_SKIP -> {
+                    return action;
+                }
+            }
+        }
+        return null;
+    }
+
+    private static boolean isActiveUnitAlive(PlayerSnapshot snapshot) {
+        for (UnitCoordinates unit : snapshot.allies()) {
+            if (unit.idx() == snapshot.activeUnitIdx()) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /** Players are named team-player, e.g. 0-1 for the second player of the first team. */
+    private static List<List<String>> teams(int teams, int teamSize) {
+        List<List<String>> players = new ArrayList<>();
+        for (int team = 0; team < teams; team++) {
+            List<String> members = new ArrayList<>();
+            for (int player = 0; player < teamSize; player++) {
+                members.add(team + "-" + player);
+            }
+            players.add(members);
+        }
+        return players;
+    }
+
+    private static int spawnAdvantage(Game game) {
+        // every player of a team sees the units of the whole team
+        List<UnitCoordinates> first = game.getUnitLocations().get(game.getPlayer(game.firstSlotOf(0)));
+        List<UnitCoordinates> second = game.getUnitLocations().get(game.getPlayer(game.firstSlotOf(1)));
+        int advantage = 0;
+        for (UnitCoordinates unit : first) {
+            advantage -= Policy.distance(unit.q(), unit.r(), 0, 0);
+        }
+        for (UnitCoordinates unit : second) {
+            advantage += Policy.distance(unit.q(), unit.r(), 0, 0);
+        }
+        return advantage;
+    }
+
+    private static int outcome(Game game) {
+        return game.getWinningTeam() < 0 ? DRAW : game.getWinningTeam();
+    }
+}
@@ -0,0 +1,92 @@
+package com.wolyh.game.simulator;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.SplittableRandom;
+
+import com.wolyh.game.backend.game.PlayerSnapshot;
+import com.wolyh.game.backend.game.ai.BotAction;
+import com.wolyh.game.backend.model.Hex;
+import com.wolyh.game.backend.model.HexCoordinates;
+import com.wolyh.game.backend.model.UnitCoordinates;
+
+/**
+ * Chooses the action of the active unit from what its player can see.
+ * Moves are only proposed on free hexes of the fov, the match checks the path.
+ */
+public interface Policy {
+
+    /** Candidates in preference order, the match plays the first legal one and skips otherwise. */
+    List<BotAction> choose(PlayerSnapshot snapshot, SplittableRandom random);
+
+    static Policy of(String name) {
+        return switch (name) {
+            case "random" -> Policy::random;
+            case "scripted" -> Policy::scripted;
+            default -> throw new IllegalArgumentException("Unknown policy: " + name);
+        };
+    }
+
+    /** Uniform over attacks, moves and skip. */
+    private static List<BotAction> random(PlayerSnapshot snapshot, SplittableRandom random) {
+        int unitIdx = snapshot.activeUnitIdx();
+        List<BotAction> actions = new ArrayList<>();
+        for (UnitCoordinates enemy : snapshot.visibleEnemies()) {
+            actions.add(new BotAction(BotAction.Type.UNIT_ATTACK, unitIdx, new HexCoordinates(enemy.q(), enemy.r())));
+        }
+        for (HexCoordinates hex : freeHexes(snapshot)) {
+            actions.add(new BotAction(BotAction.Type.UNIT_MOVE, unitIdx, hex));
+        }
+        actions.add(new BotAction(BotAction.Type.TURN_SKIP, unitIdx, null));
+
+        BotAction chosen = actions.get(random.nextInt(actions.size()));
+        return List.of(chosen);
+    }
+
+    /** Attacks when it can, otherwise closes in on the nearest visible enemy or falls back to the center. */
+    private static List<BotAction> scripted(PlayerSnapshot snapshot, SplittableRandom random) {
+        int unitIdx = snapshot.activeUnitIdx();
+        List<UnitCoordinates> enemies = snapshot.visibleEnemies();
+        if (!enemies.isEmpty()) {
+            UnitCoordinates target = enemies.get(random.nextInt(enemies.size()));
+            return List.of(new BotAction(BotAction.Type.UNIT_ATTACK, unitIdx, new HexCoordinates(target.q(), target.r())));
+        }
+
+        List<HexCoordinates> hexes = freeHexes(snapshot);
+        hexes.sort((a, b) -> Integer.compare(distance(a.q(), a.r(), 0, 0), distance(b.q(), b.r(), 0, 0)));
+
+        List<BotAction> actions = new ArrayList<>();
+        for (HexCoordinates hex : hexes) {
+            actions.add(new BotAction(BotAction.Type.UNIT_MOVE, unitIdx, hex));
+        }
+        return actions;
+    }
+
+    private static List<HexCoordinates> freeHexes(PlayerSnapshot snapshot) {
+        Set<String> occupied = new HashSet<>();
+        for (UnitCoordinates unit : snapshot.allies()) {
+            occupied.add(Hex.key(unit.q(), unit.r()));
+        }
+        for (UnitCoordinates unit : snapshot.visibleEnemies()) {
+            occupied.add(Hex.key(unit.q(), unit.r()));
+        }
+        Set<HexCoordinates> obstacles = new HashSet<>(snapshot.obstacles());
+
+        List<HexCoordinates> free = new ArrayList<>();
+        for (HexCoordinates hex : snapshot.hexes()) {
+            String key = Hex.key(hex.q(), hex.r());
+            if (snapshot.fov().contains(key) && !occupied.contains(key) && !obstacles.contains(hex)) {
+                free.add(hex);
+            }
+        }
+        return free;
+    }
+
+    static int distance(int q1, int r1, int q2, int r2) {
+        int dq = q1 - q2;
+        int dr = r1 - r2;
+        return Math.max(Math.max(Math.abs(dq), Math.abs(dr)), Math.abs(dq + dr));
+    }
+}
@@ -0,0 +1,76 @@
+package com.wolyh.game.simulator;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Plays games directly on the engine, without Spring or WebSocket, on every
+ * core and prints aggregate statistics while it runs.
+ *
+ * java -jar target/simulator.jar games=1000000 shrinkInterval=12 units=4
+ * java -jar target/simulator.jar teams=2x2 mapRadius=6
+ */
+public class Simulator {
+    private static final int BATCH = 512;
+
+    public static void main(String[] args) throws Exception {
+        SimulatorConfig config = SimulatorConfig.parse(args);
+        Policy policy = Policy.of(config.policy());
+        Stats total = new Stats(config.maxTurns(), config.gameConfig().mapRadius(), config.teams());
+        AtomicLong remaining = new AtomicLong(config.games());
+
+        System.out.printf("%s, teams=%dx%d, policy=%s, %d games on %d threads%n",
+            config.gameConfig(), config.teams(), config.teamSize(), config.policy(), config.games(), config.threads()
+        );
+
+        long start = System.nanoTime();
+        ScheduledExecutorService reporter = Executors.newSingleThreadScheduledExecutor();
+        reporter.scheduleAtFixedRate(() -> {
+            double elapsed = (System.nanoTime() - start) / 1e9;
+            System.out.printf("%n[%6.0fs] %.0f games/s%n", elapsed, total.games() / elapsed);
+            total.report(System.out);
+        }, config.reportInterval().toMillis(), config.reportInterval().toMillis(), TimeUnit.MILLISECONDS);
+
+        SplittableRandom seeds = new SplittableRandom();
+        try (ExecutorService workers = Executors.newFixedThreadPool(config.threads())) {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int i = 0; i < config.threads(); i++) {
+                SplittableRandom random = seeds.split();
+                futures.add(workers.submit(() -> run(config, policy, random, remaining, total)));
+            }
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        }
+
+        reporter.shutdownNow();
+        double elapsed = (System.nanoTime() - start) / 1e9;
+        System.out.printf("%n==== totals over %.1fs (%.0f games/s) ====%n", elapsed, total.games() / elapsed);
+        total.report(System.out);
+    }
+
+    private static void run(
+        SimulatorConfig config,
+        Policy policy,
+        SplittableRandom random,
+        AtomicLong remaining,
+        Stats total
+    ) {
+        Stats local = new Stats(config.maxTurns(), config.gameConfig().mapRadius(), config.teams());
+        long batch;
+        while ((batch = Math.min(BATCH, remaining.getAndAdd(-BATCH))) > 0) {
+            for (long i = 0; i < batch; i++) {
+                local.add(Match.play(config, policy, random));
+            }
+            total.merge(local);
+            local.reset();
+        }
+    }
+}
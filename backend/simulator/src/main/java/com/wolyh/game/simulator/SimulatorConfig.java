@@ -0,0 +1,71 @@
+package com.wolyh.game.simulator;
+
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.Map;
+
+import com.wolyh.game.backend.game.GameConfig;
+
+/**
+ * Arguments are given as key=value pairs, e.g. games=1000000 shrinkInterval=12.
+ * Rules default to {@link GameConfig#DEFAULT}, army=N switches to {@link GameConfig#army}
+ * with N units for each of the players and ignores the other rule arguments except actionPoints.
+ * teams=TxP plays T teams of P players, 2x1 by default.
+ */
+public record SimulatorConfig(
+    long games,
+    int threads,
+    String policy,
+    GameConfig gameConfig,
+    int teams,
+    int teamSize,
+    int maxTurns,
+    Duration reportInterval
+) {
+
+    public static SimulatorConfig parse(String[] args) {
+        Map<String, String> values = new HashMap<>();
+        for (String arg : args) {
+            int separator = arg.indexOf('=');
+            if (separator <= 0) {
+                throw new IllegalArgumentException("Expected key=value but got: " + arg);
+            }
+            values.put(arg.substring(0, separator), arg.substring(separator + 1));
+        }
+
+        String[] teams = values.getOrDefault("teams", "2x1").split("x");
+        if (teams.length != 2) {
+            throw new IllegalArgumentException("Expected teams=TxP but got: " + values.get("teams"));
+        }
+        int teamCount = Integer.parseInt(teams[0]);
+        int teamSize = Integer.parseInt(teams[1]);
+
+        GameConfig defaults = GameConfig.DEFAULT;
+        GameConfig gameConfig;
+        if (values.containsKey("army")) {
+            gameConfig = GameConfig.army(Integer.parseInt(values.get("army")), teamCount * teamSize);
+        } else {
+            gameConfig = new GameConfig(
+                Integer.parseInt(values.getOrDefault("mapRadius", String.valueOf(defaults.mapRadius()))),
+                Integer.parseInt(values.getOrDefault("visibilityRange", String.valueOf(defaults.visibilityRange()))),
+                Integer.parseInt(values.getOrDefault("units", String.valueOf(defaults.unitsPerPlayer()))),
+                Integer.parseInt(values.getOrDefault("spawnDistance", String.valueOf(defaults.minSpawnDistance()))),
+                Integer.parseInt(values.getOrDefault("shrinkInterval", String.valueOf(defaults.shrinkInterval())))
+            );
+        }
+        if (values.containsKey("actionPoints")) {
+            gameConfig = gameConfig.withActionPoints(Integer.parseInt(values.get("actionPoints")));
+        }
+
+        return new SimulatorConfig(
+            Long.parseLong(values.getOrDefault("games", "100000")),
+            Integer.parseInt(values.getOrDefault("threads", String.valueOf(Runtime.getRuntime().availableProcessors()))),
+            values.getOrDefault("policy", "scripted"),
+            gameConfig,
+            teamCount,
+            teamSize,
+            Integer.parseInt(values.getOrDefault("maxTurns", "1000")),
+            Duration.ofSeconds(Long.parseLong(values.getOrDefault("reportEvery", "5")))
+        );
+    }
+}
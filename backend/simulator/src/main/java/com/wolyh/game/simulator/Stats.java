@@ -0,0 +1,172 @@
+package com.wolyh.game.simulator;
+
+import java.io.PrintStream;
+import java.util.Arrays;
+
+/**
+ * Aggregates match results. Each worker fills its own instance and merges it
+ * into the shared one in batches, so the hot loop never contends. Teams are numbered
+ * from 1 in the report, in a 1v1 they are the players.
+ */
+public class Stats {
+    private static final int SPAWN_BUCKET_WIDTH = 2;
+    private static final int SPAWN_BUCKETS = 7;
+
+    private final long[] turns;
+    private final long[] shrinkDeaths;
+    private final long[][] spawnOutcomes = new long[SPAWN_BUCKETS][3];
+
+    /** team -> games won */
+    private final long[] wins;
+
+    private long games;
+    private long draws;
+    private long unfinished;
+    private long attackKills;
+
+    public Stats(int maxTurns, int mapRadius, int teams) {
+        this.turns = new long[maxTurns + 1];
+        this.shrinkDeaths = new long[mapRadius];
+        this.wins = new long[teams];
+    }
+
+    public void add(Match.Result result) {
+        games++;
+        turns[result.turns()]++;
+        attackKills += result.attackKills();
+        for (int level = 0; level < shrinkDeaths.length; level++) {
+            shrinkDeaths[level] += result.shrinkDeaths()[level];
+        }
+
+        long[] bucket = spawnOutcomes[spawnBucket(result.spawnAdvantage())];
+        switch (result.outcome()) {
+            case Match.UNFINISHED -> unfinished++;
+            case Match.DRAW -> {
+                draws++;
+                bucket[2]++;
+            }
+            default -> {
+                wins[result.outcome()]++;
+                bucket[result.outcome() == 0 ? 0 : 1]++;
+            }
+        }
+    }
+
+    public synchronized void merge(Stats other) {
+        games += other.games;
+        for (int i = 0; i < wins.length; i++) {
+            wins[i] += other.wins[i];
+        }
+        draws += other.draws;
+        unfinished += other.unfinished;
+        attackKills += other.attackKills;
+        for (int i = 0; i < turns.length; i++) {
+            turns[i] += other.turns[i];
+        }
+        for (int i = 0; i < shrinkDeaths.length; i++) {
+            shrinkDeaths[i] += other.shrinkDeaths[i];
+        }
+        for (int i = 0; i < SPAWN_BUCKETS; i++) {
+            for (int j = 0; j < 3; j++) {
+                spawnOutcomes[i][j] += other.spawnOutcomes[i][j];
+            }
+        }
+    }
+
+    public void reset() {
+        games = draws = unfinished = attackKills = 0;
+        Arrays.fill(wins, 0);
+        Arrays.fill(turns, 0);
+        Arrays.fill(shrinkDeaths, 0);
+        for (long[] bucket : spawnOutcomes) {
+            Arrays.fill(bucket, 0);
+        }
+    }
+
+    public synchronized long games() {
+        return games;
+    }
+
+    public synchronized void report(PrintStream out) {
+        if (games == 0) {
+            out.println("no games played");
+            return;
+        }
+
+        StringBuilder outcomes = new StringBuilder("games=" + games);
+        for (int team = 0; team < wins.length; team++) {
+            outcomes.append(String.format("  team%d %.1f%%", team + 1, percent(wins[team], games)));
+        }
+        out.printf("%s  draw %.1f%%  unfinished %.1f%%%n", outcomes, percent(draws, games), percent(unfinished, games));
+        out.printf("length (turns)  mean=%.1f  p50=%d  p90=%d  p99=%d  max=%d%n",
+            meanTurns(), turnPercentile(0.50), turnPercentile(0.90), turnPercentile(0.99), turnPercentile(1.0)
+        );
+
+        long shrinkTotal = 0;
+        for (long deaths : shrinkDeaths) {
+            shrinkTotal += deaths;
+        }
+        out.printf("deaths per game  attack=%.2f  shrink=%.2f (%.1f%% of deaths)%n",
+            (double) attackKills / games, (double) shrinkTotal / games,
+            percent(shrinkTotal, shrinkTotal + attackKills)
+        );
+        StringBuilder levels = new StringBuilder("shrink deaths per game by level reached:");
+        for (int level = shrinkDeaths.length - 1; level >= 0; level--) {
+            levels.append(String.format("  %d=%.3f", level, (double) shrinkDeaths[level] / games));
+        }
+        out.println(levels);
+
+        out.println("team1 results by spawn advantage (distance to center, team2 minus team1):");
+        for (int i = 0; i < SPAWN_BUCKETS; i++) {
+            long[] bucket = spawnOutcomes[i];
+            long total = bucket[0] + bucket[1] + bucket[2];
+            if (total == 0) {
+                continue;
+            }
+            out.printf("  %-9s games=%-10d win %.1f%%  loss %.1f%%  draw %.1f%%%n",
+                bucketLabel(i), total,
+                percent(bucket[0], total), percent(bucket[1], total), percent(bucket[2], total)
+            );
+        }
+    }
+
+    private double meanTurns() {
+        double sum = 0;
+        for (int i = 0; i < turns.length; i++) {
+            sum += (double) i * turns[i];
+        }
+        return sum / games;
+    }
+
+    private int turnPercentile(double percentile) {
+        long rank = (long) Math.ceil(percentile * games);
+        long seen = 0;
+        for (int i = 0; i < turns.length; i++) {
+            seen += turns[i];
+            if (seen >= rank && turns[i] > 0) {
+                return i;
+            }
+        }
+        return turns.length - 1;
+    }
+
+    private static int spawnBucket(int advantage) {
+        int bucket = Math.floorDiv(advantage + SPAWN_BUCKET_WIDTH / 2, SPAWN_BUCKET_WIDTH) + SPAWN_BUCKETS / 2;
+        return Math.clamp(bucket, 0, SPAWN_BUCKETS - 1);
+    }
+
+    private static String bucketLabel(int bucket) {
+        int center = (bucket - SPAWN_BUCKETS / 2) * SPAWN_BUCKET_WIDTH;
+        if (bucket == 0) {
+            return "<=" + center;
+        }
+        if (bucket == SPAWN_BUCKETS - 1) {
+            return ">=" + center;
+        }
+        return String.valueOf(center);
+    }
+
+    private static double percent(long part, long total) {
+        return total == 0 ? 0 : 100.0 * part / total;
+    }
+}
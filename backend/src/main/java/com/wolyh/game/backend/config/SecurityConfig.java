@@ -1,22 +1,36 @@
 package com.wolyh.game.backend.config;
 
 import com.wolyh.game.backend.security.JwtAuthFilter;
+import com.wolyh.game.backend.security.RateLimitFilter;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
 
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.security.authorization.AuthorizationDecision;
 import org.springframework.security.config.annotation.web.builders.HttpSecurity;
 import org.springframework.security.config.annotation.web.configuration.EnableWebSecurity;
 import org.springframework.security.config.http.SessionCreationPolicy;
 import org.springframework.security.web.authentication.UsernamePasswordAuthenticationFilter;
 import org.springframework.security.web.SecurityFilterChain;
 
+import jakarta.servlet.http.HttpServletRequest;
+
 @Configuration
 @EnableWebSecurity
 public class SecurityConfig {
     
     @Autowired
     private JwtAuthFilter jwtAuthFilter;
+
+    @Autowired
+    private RateLimitFilter rateLimitFilter;
+
+    @Value("${metrics.token:}")
+    private String metricsToken;
     
     @Bean
     public SecurityFilterChain securityFilterChain(HttpSecurity http) throws Exception {
@@ -25,14 +39,30 @@ public class SecurityConfig {
             .authorizeHttpRequests(auth -> auth
                 .requestMatchers("/api/auth/**").permitAll()
                 .requestMatchers("/ws/**").permitAll()
+                .requestMatchers("/actuator/health/**").permitAll()
+                // scraped with the metrics token, not readable by players or at all without one
+                .requestMatchers("/actuator/prometheus").access((authentication, context) ->
+                    new AuthorizationDecision(isScraper(context.getRequest()))
+                )
+                // checked against the admin token by the controller
+                .requestMatchers("/api/admin/**").permitAll()
                 .requestMatchers(org.springframework.http.HttpMethod.OPTIONS, "/api/**").permitAll()
                 .anyRequest().authenticated()
             )
             .sessionManagement(session -> 
                 session.sessionCreationPolicy(SessionCreationPolicy.STATELESS)
             )
-            .addFilterBefore(jwtAuthFilter, UsernamePasswordAuthenticationFilter.class);
+            .addFilterBefore(jwtAuthFilter, UsernamePasswordAuthenticationFilter.class)
+            .addFilterAfter(rateLimitFilter, JwtAuthFilter.class);
         
         return http.build();
     }
+
+    private boolean isScraper(HttpServletRequest request) {
+        String header = request.getHeader("Authorization");
+        return !metricsToken.isEmpty() && header != null && MessageDigest.isEqual(
+            ("Bearer " + metricsToken).getBytes(StandardCharsets.UTF_8),
+            header.getBytes(StandardCharsets.UTF_8)
+        );
+    }
 }
\ No newline at end of file
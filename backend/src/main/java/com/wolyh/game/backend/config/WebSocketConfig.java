@@ -18,7 +18,11 @@ import org.springframework.web.socket.config.annotation.EnableWebSocketMessageBr
 import org.springframework.web.socket.config.annotation.StompEndpointRegistry;
 import org.springframework.web.socket.config.annotation.WebSocketMessageBrokerConfigurer;
 
+import com.wolyh.game.backend.metrics.GameMetrics;
+import com.wolyh.game.backend.model.Channel;
+import com.wolyh.game.backend.service.RateLimitService;
 import com.wolyh.game.backend.service.RoomService;
+import com.wolyh.game.backend.service.SpectatorService;
 import com.wolyh.game.backend.utils.JwtUtil;
 
 @Configuration
@@ -30,10 +34,13 @@ public class WebSocketConfig implements WebSocketMessageBrokerConfigurer {
     
     @Autowired
     private RoomService roomService;
+
+    @Autowired
+    private RateLimitService rateLimitService;
     
     @Override
     public void configureMessageBroker(MessageBrokerRegistry config) {
-        config.enableSimpleBroker("/queue");
+        config.enableSimpleBroker("/queue", "/topic");
         config.setApplicationDestinationPrefixes("/app");
     }
 
@@ -70,6 +77,21 @@ public class WebSocketConfig implements WebSocketMessageBrokerConfigurer {
                     }
                 }
 
+                // dropped before any controller runs, the game lock is never taken for them
+                if ((StompCommand.SEND.equals(accessor.getCommand()) || StompCommand.SUBSCRIBE.equals(accessor.getCommand()))
+                    && accessor.getUser() != null
+                    && !rateLimitService.tryAcquire(Channel.STOMP, accessor.getUser().getName())) {
+                    return null;
+                }
+
+                // the broker would relay a frame sent to /topic or /queue to every subscriber
+                if (StompCommand.SEND.equals(accessor.getCommand())) {
+                    String destination = accessor.getDestination();
+                    if (destination == null || !destination.startsWith("/app/")) {
+                        throw new MessageDeliveryException("Destination must start with /app/");
+                    }
+                }
+
                 if (StompCommand.SUBSCRIBE.equals(accessor.getCommand())) {
                     UsernamePasswordAuthenticationToken user = 
                         (UsernamePasswordAuthenticationToken) accessor.getUser();
@@ -84,6 +106,10 @@ public class WebSocketConfig implements WebSocketMessageBrokerConfigurer {
                     if(destination == null) {
                         throw new MessageDeliveryException("Destination is null");
                     }
+                    if (SpectatorService.isSpectatorDestination(destination)) {
+                        authorizeSpectator(username, destination);
+                        return message;
+                    }
                     if(!destination.startsWith("/user/queue/")) {
                         throw new MessageDeliveryException("Destination must be /user/queue/roomId");
                     }
@@ -111,5 +137,28 @@ public class WebSocketConfig implements WebSocketMessageBrokerConfigurer {
             }
         });
     }
+
+    private void authorizeSpectator(String username, String destination) {
+        String[] parts = destination.substring(SpectatorService.DESTINATION_PREFIX.length()).split("/");
+        if (parts.length != 2 || !SpectatorService.VIEWS.contains(parts[1])) {
+            throw new MessageDeliveryException("Destination must be /topic/spectate/roomId/view");
+        }
+        if (!roomService.canSpectate(parts[0], username)) {
+            throw new MessageDeliveryException("You cannot spectate the room: " + parts[0]);
+        }
+    }
+
+    @Override
+    public void configureClientOutboundChannel(ChannelRegistration registration) {
+        registration.interceptors(new ChannelInterceptor() {
+            @Override
+            public Message<?> preSend(Message<?> message, MessageChannel channel) {
+                if (message.getPayload() instanceof byte[] payload && payload.length > 0) {
+                    GameMetrics.OUTBOUND_PAYLOAD.record(payload.length);
+                }
+                return message;
+            }
+        });
+    }
     
 }
@@ -0,0 +1,77 @@
+package com.wolyh.game.backend.controller;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestHeader;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import com.wolyh.game.backend.dto.ProfilingStatus;
+import com.wolyh.game.backend.service.ProfilingService;
+
+/**
+ * Operator endpoints. Anyone can log in under any name, so they take the admin token
+ * instead of a player one, and do not exist when no token is configured.
+ */
+@RestController
+@RequestMapping("/api/admin")
+public class AdminController {
+    public static final String TOKEN_HEADER = "X-Admin-Token";
+
+    @Autowired
+    private ProfilingService profilingService;
+
+    @Value("${admin.token:}")
+    private String adminToken;
+
+    @GetMapping("/profiling")
+    public ResponseEntity<ProfilingStatus> getProfiling(@RequestHeader(value = TOKEN_HEADER, required = false) String token) {
+        if (!isAdmin(token)) {
+            return ResponseEntity.notFound().build();
+        }
+
+        return ResponseEntity.ok(profilingService.getStatus());
+    }
+
+    @PostMapping("/profiling/start")
+    public ResponseEntity<ProfilingStatus> startRecording(@RequestHeader(value = TOKEN_HEADER, required = false) String token) {
+        if (!isAdmin(token)) {
+            return ResponseEntity.notFound().build();
+        }
+
+        if (profilingService.startRecording() == null) {
+            return ResponseEntity.status(HttpStatus.CONFLICT).body(profilingService.getStatus());
+        }
+
+        return ResponseEntity.ok(profilingService.getStatus());
+    }
+
+    @PostMapping("/profiling/stop")
+    public ResponseEntity<ProfilingStatus> stopRecording(@RequestHeader(value = TOKEN_HEADER, required = false) String token) {
+        if (!isAdmin(token)) {
+            return ResponseEntity.notFound().build();
+        }
+
+        String file = profilingService.stopRecording();
+        if (file == null) {
+            return ResponseEntity.status(HttpStatus.CONFLICT).build();
+        }
+
+        ProfilingStatus status = profilingService.getStatus();
+        return ResponseEntity.ok(new ProfilingStatus(false, file, status.p99Ms()));
+    }
+
+    private boolean isAdmin(String token) {
+        return !adminToken.isEmpty() && token != null && MessageDigest.isEqual(
+            adminToken.getBytes(StandardCharsets.UTF_8),
+            token.getBytes(StandardCharsets.UTF_8)
+        );
+    }
+}
@@ -9,6 +9,7 @@ import org.springframework.web.bind.annotation.RestController;
 
 import com.wolyh.game.backend.dto.AuthRequest;
 import com.wolyh.game.backend.dto.AuthResponse;
+import com.wolyh.game.backend.service.BotService;
 import com.wolyh.game.backend.utils.JwtUtil;
 
 @RestController
@@ -20,6 +21,10 @@ public class AuthController {
 
     @PostMapping("/login")
     public ResponseEntity<AuthResponse> login(@RequestBody AuthRequest request) {
+        if (BotService.isBot(request.username())) {
+            return ResponseEntity.badRequest().build();
+        }
+
         String token = jwtUtil.generateToken(request.username());
         AuthResponse response = AuthResponse.builder()
             .token(token)
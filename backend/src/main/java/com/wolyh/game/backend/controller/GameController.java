@@ -2,21 +2,27 @@ package com.wolyh.game.backend.controller;
 
 import java.security.Principal;
 import java.util.List;
+import java.util.Map;
 
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.messaging.handler.annotation.DestinationVariable;
 import org.springframework.messaging.handler.annotation.MessageMapping;
 import org.springframework.messaging.handler.annotation.Payload;
-import org.springframework.messaging.simp.SimpMessagingTemplate;
 import org.springframework.stereotype.Controller;
 
-import com.wolyh.game.backend.dto.Notification;
-import com.wolyh.game.backend.dto.Notification.GameEvent;
+import com.wolyh.game.backend.game.Rejection;
 import com.wolyh.game.backend.game.Result.ForfeitResult;
+import com.wolyh.game.backend.game.Result.ResyncResult;
 import com.wolyh.game.backend.game.Result.SkipTurnResult;
 import com.wolyh.game.backend.game.Result.UnitActionResult;
+import com.wolyh.game.backend.dto.Notification;
+import com.wolyh.game.backend.dto.Notification.GameEvent;
+import com.wolyh.game.backend.dto.ResyncRequest;
 import com.wolyh.game.backend.dto.UnitActionRequest;
+import com.wolyh.game.backend.dto.UnitActionsRequest;
+import com.wolyh.game.backend.service.BotService;
 import com.wolyh.game.backend.service.GameService;
+import com.wolyh.game.backend.service.NotificationService;
 import com.wolyh.game.backend.service.RoomService;
 
 @Controller
@@ -29,7 +35,10 @@ public class GameController {
     private RoomService roomService;
 
     @Autowired
-    private SimpMessagingTemplate messagingTemplate;
+    private BotService botService;
+
+    @Autowired
+    private NotificationService notificationService;
 
     @MessageMapping("/room/{roomId}/game-forfeit")
     public void handleForfeit(
@@ -40,34 +49,42 @@ public class GameController {
         ForfeitResult result = roomService.processForfeit(roomId, username);
 
         if (result == null) {
-            System.err.println("Invalid forfeit attempt");
+            Rejection rejection = gameService.reject(Rejection.NOT_IN_GAME, roomId, username, "FORFEIT");
+            notificationService.sendRejection(roomId, username, rejection);
             return;
         }
 
-        sendToUser(result.forfeitingPlayer(), roomId, List.of(result.gameOverNotif()));
-        sendToUser(result.otherPlayer(), roomId, List.of(result.gameOverNotif()));
+        result.players().forEach(player -> notificationService.flush(roomId, player));
     }
 
-    @MessageMapping("/room/{roomId}/turn-skip")
-    public void handleSkipTurn(
+    @MessageMapping("/room/{roomId}/resync")
+    public void handleResync(
         @DestinationVariable String roomId,
+        @Payload ResyncRequest request,
         Principal principal
     ) {
         String username = principal.getName();
-        SkipTurnResult result = gameService.processSkipTurn(roomId, username);
+        if (notificationService.replay(roomId, username, request.lastSeq())) {
+            return;
+        }
 
+        ResyncResult result = gameService.getResync(roomId, username);
         if (result == null) {
-            System.err.println("Invalid skip turn attempt");
+            Rejection rejection = gameService.reject(Rejection.NOT_IN_GAME, roomId, username, "RESYNC");
+            notificationService.sendRejection(roomId, username, rejection);
             return;
         }
 
-        if(result.isGameOver()) {
-            roomService.markGameAsFinished(roomId);
-        }
+        notificationService.sendSnapshot(roomId, username, result.seq(), result.snapshot());
+    }
 
-        result.notifications().forEach((playerUsername, playerNotifs) -> sendToUser(
-            playerUsername, roomId, playerNotifs
-        ));
+    @MessageMapping("/room/{roomId}/turn-skip")
+    public void handleSkipTurn(
+        @DestinationVariable String roomId,
+        Principal principal
+    ) {
+        SkipTurnResult result = gameService.processSkipTurn(roomId, principal.getName());
+        publish(roomId, principal.getName(), result.rejection(), result.isGameOver(), result.notifications());
     }
 
     @MessageMapping("/room/{roomId}/unit-action")
@@ -76,31 +93,33 @@ public class GameController {
         @Payload UnitActionRequest action,
         Principal principal
     ) {
-        String username = principal.getName();
-        UnitActionResult result = gameService.processUnitAction(roomId, username, action);
-        
-        if (result == null) {
-            System.err.println("Invalid unit action attempt");
-            return;
-        }
-
-        if(result.isGameOver()) {
-            roomService.markGameAsFinished(roomId);
-        }
+        UnitActionResult result = gameService.processUnitAction(roomId, principal.getName(), action);
+        publish(roomId, principal.getName(), result.rejection(), result.isGameOver(), result.notifications());
+    }
 
-        result.notifications().forEach((playerUsername, playerNotifs) -> sendToUser(
-            playerUsername, roomId, playerNotifs
-        ));
+    @MessageMapping("/room/{roomId}/unit-actions")
+    public void handleUnitActions(
+        @DestinationVariable String roomId,
+        @Payload UnitActionsRequest request,
+        Principal principal
+    ) {
+        UnitActionResult result = gameService.processUnitActions(roomId, principal.getName(), request);
+        publish(roomId, principal.getName(), result.rejection(), result.isGameOver(), result.notifications());
     }
 
-    private void sendToUser(String username, String roomId, List<Notification<GameEvent>> batch) {
-        if (batch.isEmpty()) {
+    /** Answers the sender of a refused action, or sends the batch and lets the bot play next. */
+    private void publish(
+        String roomId,
+        String username,
+        Rejection rejection,
+        boolean gameOver,
+        Map<String, List<Notification<GameEvent>>> notifications
+    ) {
+        if (rejection != null) {
+            notificationService.sendRejection(roomId, username, rejection);
             return;
         }
-        messagingTemplate.convertAndSendToUser(
-            username,
-            "/queue/" + roomId,
-            batch
-        );
+
+        botService.publish(roomId, gameOver, notifications);
     }
 }
@@ -0,0 +1,49 @@
+package com.wolyh.game.backend.controller;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import com.wolyh.game.backend.dto.ReplayInfo;
+import com.wolyh.game.backend.service.ReplayService;
+
+@RestController
+@RequestMapping("/api/replay")
+public class ReplayController {
+
+    @Autowired
+    private ReplayService replayService;
+
+    @GetMapping("/{roomId}")
+    public ResponseEntity<ReplayInfo> getReplayInfo(@PathVariable String roomId) {
+        ReplayInfo info = replayService.getReplayInfo(roomId);
+        if (info == null) {
+            return ResponseEntity.notFound().build();
+        }
+
+        return ResponseEntity.ok(info);
+    }
+
+    @GetMapping("/{roomId}/play")
+    public ResponseEntity<SseEmitter> play(
+        @PathVariable String roomId,
+        @RequestParam(defaultValue = "1") double speed,
+        @RequestParam(defaultValue = "0") int from
+    ) {
+        if (!replayService.reserveStream()) {
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).build();
+        }
+        SseEmitter emitter = replayService.play(roomId, speed, from);
+        if (emitter == null) {
+            return ResponseEntity.badRequest().build();
+        }
+
+        return ResponseEntity.ok(emitter);
+    }
+}
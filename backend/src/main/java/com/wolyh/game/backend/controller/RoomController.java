@@ -4,6 +4,7 @@ import java.security.Principal;
 import java.util.List;
 
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.messaging.simp.SimpMessagingTemplate;
 import org.springframework.web.bind.annotation.DeleteMapping;
@@ -11,14 +12,20 @@ import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
 
 import com.wolyh.game.backend.dto.Notification;
 import com.wolyh.game.backend.dto.Notification.RoomEvent;
 import com.wolyh.game.backend.dto.RoomResponses;
+import com.wolyh.game.backend.dto.RoomResponses.AddBot;
 import com.wolyh.game.backend.dto.RoomResponses.CreateRoom;
 import com.wolyh.game.backend.dto.RoomResponses.JoinRoom;
 import com.wolyh.game.backend.dto.RoomResponses.StartGame;
+import com.wolyh.game.backend.service.AdmissionService;
+import com.wolyh.game.backend.model.Operation;
+import com.wolyh.game.backend.service.BotService;
+import com.wolyh.game.backend.service.PresenceService;
 import com.wolyh.game.backend.service.RoomService;
 import com.wolyh.game.backend.service.RoomService.JoinRoomResult;
 import com.wolyh.game.backend.service.RoomService.LeaveRoomResult;
@@ -30,17 +37,33 @@ public class RoomController {
 
     @Autowired
     private RoomService roomService;
+
+    @Autowired
+    private BotService botService;
+
+    @Autowired
+    private AdmissionService admissionService;
+
+    @Autowired
+    private PresenceService presenceService;
     
     @Autowired
     private SimpMessagingTemplate messagingTemplate;
 
     @PostMapping("/create")
-    public ResponseEntity<CreateRoom> createRoom(Principal principal) {
-        CreateRoom response = roomService.createRoom(principal.getName());
+    public ResponseEntity<CreateRoom> createRoom(
+        @RequestParam(name = "private", defaultValue = "false") boolean invite,
+        Principal principal
+    ) {
+        if (!admissionService.admit(Operation.CREATE_ROOM)) {
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).build();
+        }
+        CreateRoom response = roomService.createRoom(principal.getName(), invite);
         if (response == null) {
             return ResponseEntity.badRequest().build();
         }
-        
+
+        presenceService.track(principal.getName());
         return ResponseEntity.ok(response);
     }
       
@@ -61,20 +84,22 @@ public class RoomController {
     @PostMapping("/join/{roomId}")
     public ResponseEntity<JoinRoom> joinRoom(
         @PathVariable String roomId, 
+        @RequestParam(required = false) String token,
         Principal principal
     ) {
-        JoinRoomResult result = roomService.joinRoom(roomId, principal.getName());
+        JoinRoomResult result = roomService.joinRoom(roomId, token, principal.getName());
         if (result == null) {
             return ResponseEntity.badRequest().build();
         }
 
+        presenceService.track(principal.getName());
         sentToUser(result.userNotified(), roomId, result.notification());
         return ResponseEntity.ok(result.response());
     }
 
     @GetMapping("/available")
-    public ResponseEntity<List<RoomResponses.JoinRoom>> getAvailableRooms() {
-        List<RoomResponses.JoinRoom> rooms = roomService.getAvailableRooms();
+    public ResponseEntity<List<RoomResponses.AvailableRoom>> getAvailableRooms() {
+        List<RoomResponses.AvailableRoom> rooms = roomService.getAvailableRooms();
         if (rooms == null) {
             return ResponseEntity.badRequest().build();
         }
@@ -82,17 +107,38 @@ public class RoomController {
         return ResponseEntity.ok(rooms);
     }
 
+    @GetMapping("/live")
+    public ResponseEntity<List<RoomResponses.LiveRoom>> getLiveRooms() {
+        return ResponseEntity.ok(roomService.getLiveRooms());
+    }
+
     @PostMapping("/start/{roomId}")
     public ResponseEntity<StartGame> startGame(@PathVariable String roomId ) {
+        if (!admissionService.admit(Operation.START_GAME)) {
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).build();
+        }
         StartGameResult result = roomService.startGame(roomId);
         if (result == null) {
             return ResponseEntity.badRequest().build();
         }
 
         sentToUser(result.userNotified(), roomId, result.notification());
+        botService.playIfBotTurn(roomId);
         return ResponseEntity.ok(result.response());
     }
 
+    @PostMapping("/bot/{roomId}")
+    public ResponseEntity<AddBot> addBot(
+        @PathVariable String roomId,
+        Principal principal
+    ) {
+        AddBot response = roomService.addBot(roomId, principal.getName());
+        if (response == null) {
+            return ResponseEntity.badRequest().build();
+        }
+
+        return ResponseEntity.ok(response);
+    }
 
     private void sentToUser(String username, String roomId, Notification<RoomEvent> notification) {
         if (username == null || notification == null) {
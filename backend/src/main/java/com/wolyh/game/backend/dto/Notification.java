@@ -3,7 +3,9 @@ package com.wolyh.game.backend.dto;
 import java.util.List;
 import java.util.Set;
 
+import com.wolyh.game.backend.game.Rejection;
 import com.wolyh.game.backend.model.HexCoordinates;
+import com.wolyh.game.backend.model.MapTerrain;
 import com.wolyh.game.backend.model.UnitCoordinates;
 
 public record Notification <T> (Type type, T data) {
@@ -15,6 +17,7 @@ public record Notification <T> (Type type, T data) {
         Set<String> fov,
         List<UnitCoordinates> unitSpawns,
         int nb_units,
+        MapTerrain terrain,
         String roomId
     ) implements RoomEvent {}
 
@@ -32,11 +35,18 @@ public record Notification <T> (Type type, T data) {
         String roomId
     ) implements RoomEvent {}
 
+    /** What changed for the moving player when its unit entered the next hex of the path. */
+    public static record FovStep(
+        Set<String> gained,
+        Set<String> lost,
+        List<UnitCoordinates> spotted,
+        List<Integer> hidden
+    ) {}
+
     public static record AllyUnitMove (
         int unitIdx, 
         List<HexCoordinates> path, 
-        List<Set<String>> pathFov,
-        List<List<UnitCoordinates>> visibleUnitsAlongPath,
+        List<FovStep> pathFov,
         String roomId
     ) implements GameEvent{}
 
@@ -65,6 +75,25 @@ public record Notification <T> (Type type, T data) {
         String roomId
     ) implements GameEvent {}
 
+    /** Whole state of the game as seen by one player, sent to a client that fell too far behind. */
+    public static record Resync(
+        Set<String> fov,
+        List<UnitCoordinates> allies,
+        List<UnitCoordinates> visibleEnemies,
+        List<Integer> deadUnits,
+        int nb_units,
+        int activeUnitIdx,
+        int shrinkLevel,
+        MapTerrain terrain,
+        String roomId
+    ) implements GameEvent {}
+
+    /** Sent to the sender of a refused action only, outside of the numbered batches. */
+    public static record ActionRejected(
+        Rejection reason,
+        String roomId
+    ) implements GameEvent {}
+
     public static record GameOver(
         String winner, 
         String roomId
@@ -80,6 +109,8 @@ public record Notification <T> (Type type, T data) {
         UNIT_ATTACK,
         TURN_CHANGE,
         MAP_SHRINK,
-        GAME_OVER
+        GAME_OVER,
+        RESYNC,
+        ACTION_REJECTED
     }
 }
@@ -0,0 +1,9 @@
+package com.wolyh.game.backend.dto;
+
+import java.util.Map;
+
+public record ProfilingStatus(
+    boolean recording,
+    String file,
+    Map<String, Double> p99Ms
+) {}
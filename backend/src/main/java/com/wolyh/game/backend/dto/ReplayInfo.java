@@ -0,0 +1,8 @@
+package com.wolyh.game.backend.dto;
+
+public record ReplayInfo(
+    String player1,
+    String player2,
+    int actionCount,
+    long startedAt
+) {}
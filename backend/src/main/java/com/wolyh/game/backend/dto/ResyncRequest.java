@@ -0,0 +1,3 @@
+package com.wolyh.game.backend.dto;
+
+public record ResyncRequest(long lastSeq) {}
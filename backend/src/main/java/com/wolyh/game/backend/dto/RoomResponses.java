@@ -3,15 +3,20 @@ package com.wolyh.game.backend.dto;
 import java.util.List;
 import java.util.Set;
 
+import com.wolyh.game.backend.model.MapTerrain;
 import com.wolyh.game.backend.model.UnitCoordinates;
 
 public class RoomResponses {
-    public static record CreateRoom(String roomId) {}
+    public static record CreateRoom(String roomId, String joinToken) {}
+    public static record AvailableRoom(String creatorName, String roomId) {}
     public static record JoinRoom(String creatorName, String roomId) {}
+    public static record AddBot(String botName, String roomId) {}
+    public static record LiveRoom(String player1, String player2, String roomId) {}
     public static record StartGame(
         Set<String> fov, 
         List<UnitCoordinates> unitSpawns,
         int nb_units,
+        MapTerrain terrain,
         String roomId
     ) {}
 }
@@ -0,0 +1,8 @@
+package com.wolyh.game.backend.dto;
+
+import java.util.List;
+
+/** Actions of the active unit, applied in order, all or none. */
+public record UnitActionsRequest(
+    List<UnitActionRequest> actions
+) {}
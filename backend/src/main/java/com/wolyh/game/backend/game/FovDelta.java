@@ -0,0 +1,14 @@
+package com.wolyh.game.backend.game;
+
+import java.util.Set;
+
+/** Hexes a team started or stopped seeing after one of its units moved or died. */
+public record FovDelta(
+    int team,
+    Set<String> gained,
+    Set<String> lost
+) {
+    public boolean isEmpty() {
+        return gained.isEmpty() && lost.isEmpty();
+    }
+}
@@ -1,34 +1,72 @@
 package com.wolyh.game.backend.game;
 
 import java.util.ArrayList;
-import java.util.HashMap;
+import java.util.Arrays;
 import java.util.HashSet;
 import java.util.List;
-import java.util.Map;
 import java.util.Set;
 
 import com.wolyh.game.backend.model.Hex;
 import com.wolyh.game.backend.model.HexCoordinates;
-import com.wolyh.game.backend.model.Unit;
-import com.wolyh.game.backend.model.UnitCoordinates;
 
+/**
+ * Vision of every team. Each hex keeps how many units of each team see it, and a bitmask
+ * with one bit per team that sees it, so checking or sharing vision is one bit operation
+ * whatever the number of teams. A move only touches the counters of the team that moved.
+ * Everything is indexed by the dense hex index of {@link MapManager}, hex keys are only
+ * made for the hexes a delta reports and for the fov sets handed out.
+ */
 public class FovManager {
     private final UnitManager unitManager;
     private final MapManager mapManager;
+    private final int teamCount;
+    private final int visibilityRange;
+    private final HexOffsets offsets;
 
-    private HashMap<String, List<String>> visibilityMap = new HashMap<>();
-    private Map<String, Set<String>> playerFovs = new HashMap<>();
+    /** hex index -> indexes of the hexes seen from it, null off the map */
+    private int[][] visibleFrom;
+
+    /** hex index * teamCount + team -> how many units of the team see the hex */
+    private final int[] seenBy;
+    /** hex index -> bit t set when team t sees the hex */
+    private final long[] visibility;
+    /** team -> number of hexes it sees */
+    private final int[] fovSizes;
+
+    /** hex index -> update during which the team last stopped seeing it, a hex seen again is no gain */
+    private final int[] lostAt;
+    private int update;
+    /** hexes that crossed zero during the update, their keys are only made for the delta */
+    private final int[] gained;
+    private final int[] lost;
+    private int gainedCount;
+    private int lostCount;
+
+    /** Read-only copies handed out, dropped when the fov of the team changes. */
+    private final List<Set<String>> published = new ArrayList<>();
+    private List<Set<String>> publishedFovs;
 
     public FovManager(
         UnitManager unitManager, 
         MapManager mapManager,
-        PlayerManager playerManager
+        PlayerManager playerManager,
+        int visibilityRange
     ) {
         this.unitManager = unitManager;
         this.mapManager = mapManager;
-
-        playerFovs.put(playerManager.getPlayer1(), new HashSet<>());
-        playerFovs.put(playerManager.getPlayer2(), new HashSet<>());
+        this.teamCount = playerManager.getTeamCount();
+        this.visibilityRange = visibilityRange;
+        this.offsets = HexOffsets.of(visibilityRange);
+        int indexCount = mapManager.indexCount();
+        this.seenBy = new int[indexCount * teamCount];
+        this.visibility = new long[indexCount];
+        this.fovSizes = new int[teamCount];
+        this.lostAt = new int[indexCount];
+        this.gained = new int[indexCount];
+        this.lost = new int[indexCount];
+        for (int team = 0; team < teamCount; team++) {
+            published.add(null);
+        }
 
         this.updateVisibilityMap();
     }
@@ -38,124 +76,211 @@ public class FovManager {
         this.updateFov();
     }
 
+    /** Recounts every unit, needed when the map changes. Moves and deaths go through {@link #moveUnit} and {@link #removeUnit}. */
     public void updateFov() {
-        playerFovs.values().forEach(fov -> fov.clear());
-        unitManager.forEachAliveUnit(unit -> {
-            String player = unit.getPlayer();
-            Set<String> fov = playerFovs.get(player);
-            fov.addAll(getUnitFov(unit.getHex().getKey()));
+        Arrays.fill(seenBy, 0);
+        Arrays.fill(visibility, 0);
+        Arrays.fill(fovSizes, 0);
+        unitManager.forEachAliveUnit(idx -> {
+            begin();
+            see(unitManager.getTeam(idx), mapManager.index(unitManager.getHex(idx)));
         });
+        for (int team = 0; team < teamCount; team++) {
+            invalidate(team);
+        }
     }
 
-    public boolean isVisibleBy(Hex hex, String username) {
-        Set<String> fov = playerFovs.get(username);
-        return fov.contains(hex.getKey());
+    /** Moves the contribution of a unit, only the hexes seen from its old and new position are touched. */
+    public FovDelta moveUnit(int team, Hex from, Hex to) {
+        begin();
+        unsee(team, mapManager.index(from));
+        see(team, mapManager.index(to));
+        return delta(team);
     }
 
-    public boolean isVisibleBy(HexCoordinates hexCoords, String username) {
-        Set<String> fov = playerFovs.get(username);
-        return fov.contains(Hex.key(hexCoords.q(), hexCoords.r()));
+    public FovDelta removeUnit(int team, Hex at) {
+        begin();
+        unsee(team, mapManager.index(at));
+        return delta(team);
     }
 
-    public Set<String> getFov(String username) {
-        return new HashSet<>(playerFovs.get(username));
+    /** The reverse of {@link #removeUnit}. */
+    public FovDelta addUnit(int team, Hex at) {
+        begin();
+        see(team, mapManager.index(at));
+        return delta(team);
     }
 
-    private List<String> getUnitFov(String hexKey) {
-        List<String> fov = visibilityMap.get(hexKey);
-        if (fov != null) {
-            return fov;
-        }
-        throw new IllegalArgumentException("Hex: " + hexKey + " not on the map ");
+    private void begin() {
+        update++;
+        gainedCount = 0;
+        lostCount = 0;
     }
 
-    public List<Set<String>> getPathFov(List<HexCoordinates> path, String username) {
-        List<Set<String>> pathFov = new ArrayList<>();
-        Set<String> otherFov = new HashSet<>();
+    private void see(int team, int from) {
+        long bit = 1L << team;
+        for (int index : getUnitFov(from)) {
+            if (seenBy[index * teamCount + team]++ == 0) {
+                visibility[index] |= bit;
+                fovSizes[team]++;
+                if (lostAt[index] != update) {
+                    gained[gainedCount++] = index;
+                }
+            }
+        }
+    }
 
-        unitManager.forEachAliveUnit(unit -> {
-            if(!unitManager.isUnitActive(unit) && unit.getPlayer().equals(username)) {
-                otherFov.addAll(getUnitFov(unit.getHex().getKey()));
+    private void unsee(int team, int from) {
+        long bit = 1L << team;
+        for (int index : getUnitFov(from)) {
+            if (--seenBy[index * teamCount + team] == 0) {
+                visibility[index] &= ~bit;
+                fovSizes[team]--;
+                lostAt[index] = update;
+                lost[lostCount++] = index;
             }
-        });
+        }
+    }
 
-        for(HexCoordinates hexCoords: path) {
-            Set<String> snapshot = new HashSet<>();
-            snapshot.addAll(otherFov);
-            snapshot.addAll(getUnitFov(Hex.key(hexCoords.q(), hexCoords.r())));
-            pathFov.add(snapshot);
+    /** Hexes lost then seen again within the update are in neither set. */
+    private FovDelta delta(int team) {
+        long bit = 1L << team;
+        Set<String> gainedKeys = new HashSet<>();
+        Set<String> lostKeys = new HashSet<>();
+        for (int i = 0; i < gainedCount; i++) {
+            gainedKeys.add(mapManager.hexAt(gained[i]).getKey());
         }
-        return pathFov;
-    }
-
-    public List<List<UnitCoordinates>> getVisibleUnitsAlongPath(List<Set<String>> pathPov) {
-        Map<String, UnitCoordinates> enemyUnitsByHex = new HashMap<>();
-        
-        unitManager.forEachAliveUnit(unit -> {
-            if (!unitManager.isActivePlayer(unit) && unit.getHex() != null) {
-                Hex unitHex = unit.getHex();
-                String key = Hex.key(unitHex.getQ(), unitHex.getR());
-                enemyUnitsByHex.put(key, new UnitCoordinates(
-                    unit.idx, 
-                    unitHex.getQ(), 
-                    unitHex.getR()
-                ));
+        for (int i = 0; i < lostCount; i++) {
+            if ((visibility[lost[i]] & bit) == 0) {
+                lostKeys.add(mapManager.hexAt(lost[i]).getKey());
             }
-        });
+        }
+        FovDelta delta = new FovDelta(team, gainedKeys, lostKeys);
+        if (!delta.isEmpty()) {
+            invalidate(team);
+        }
+        return delta;
+    }
+
+    private void invalidate(int team) {
+        published.set(team, null);
+        publishedFovs = null;
+    }
 
-        List<List<UnitCoordinates>> visibleUnitsAlongPath = new ArrayList<>(pathPov.size());
+    public boolean isVisibleBy(Hex hex, int team) {
+        return team >= 0 && (visibility[mapManager.index(hex)] & (1L << team)) != 0;
+    }
 
-        for(Set<String> snapshot: pathPov) {
-            List<UnitCoordinates> visibleUnits = new ArrayList<>();
-            for (String hexKey : snapshot) {
-                UnitCoordinates unit = enemyUnitsByHex.get(hexKey);
-                if (unit != null) {
-                    visibleUnits.add(unit);
+    public boolean isVisibleBy(HexCoordinates hexCoords, int team) {
+        Hex hex = mapManager.getHex(Hex.key(hexCoords.q(), hexCoords.r()));
+        return hex != null && isVisibleBy(hex, team);
+    }
+
+    /** Live team bitmask of every hex by hex index, must not be modified nor kept across updates. */
+    public long[] getVisibility() {
+        return visibility;
+    }
+
+    /** Without the set {@link #getTeamFov} builds. */
+    public int getTeamFovSize(int team) {
+        return fovSizes[team];
+    }
+
+    /** Read from the bitmask, shared by the players of the team, stays valid after later updates. */
+    public Set<String> getTeamFov(int team) {
+        Set<String> fov = published.get(team);
+        if (fov == null) {
+            long bit = 1L << team;
+            List<String> keys = new ArrayList<>(fovSizes[team]);
+            for (int index = 0; index < visibility.length; index++) {
+                if ((visibility[index] & bit) != 0) {
+                    keys.add(mapManager.hexAt(index).getKey());
                 }
             }
-            visibleUnitsAlongPath.add(visibleUnits);
+            fov = Set.copyOf(keys);
+            published.set(team, fov);
         }
-        
-        return visibleUnitsAlongPath;
+        return fov;
     }
 
-    private void updateVisibilityMap() {
-        this.visibilityMap.clear();
-
-        mapManager.forEachHex(hex -> {
-            ArrayList<String> fov = new ArrayList<>();
-            for(Hex candidate : mapManager.getHexesInRange(hex, Unit.VISIBILITY_RANGE)) {
-                if(rayCast(hex, candidate, Unit.VISIBILITY_RANGE)) {
-                    fov.add(candidate.getKey());
-                }
+    /** Read-only fov of every team by team index, stays valid after later updates. */
+    public List<Set<String>> getFovs() {
+        if (publishedFovs == null) {
+            List<Set<String>> teamFovs = new ArrayList<>(teamCount);
+            for (int team = 0; team < teamCount; team++) {
+                teamFovs.add(getTeamFov(team));
             }
-            visibilityMap.put(hex.getKey(), fov);
-        });
+            publishedFovs = List.copyOf(teamFovs);
+        }
+        return publishedFovs;
     }
 
-    private double lerp(double a, double b, double t) {
-        return a + (b - a) * t;
+    private int[] getUnitFov(int index) {
+        int[] fov = visibleFrom[index];
+        if (fov != null) {
+            return fov;
+        }
+        Hex hex = mapManager.hexAt(index);
+        throw new IllegalArgumentException("Hex: " + (hex == null ? index : hex.getKey()) + " not on the map ");
     }
 
-    private record CuberLerpResult(double q, double r, double s) {}
+    /**
+     * Uses the table of the layout when it has one, a shrink only removes hexes
+     * around the ones left so the lines between them do not change.
+     */
+    private void updateVisibilityMap() {
+        MapLayout layout = mapManager.getLayout();
+        int[][] table = layout.visibilityRange() == visibilityRange ? layout.visibility() : null;
+        int[][] fovs = new int[mapManager.indexCount()][];
 
-    private CuberLerpResult cubeLerp(Hex h1, Hex h2, double t) {
-        return new CuberLerpResult(lerp(h1.getQ(), h2.getQ(), t), 
-            lerp(h1.getR(), h2.getR(), t),
-            lerp(h1.getS(), h2.getS(), t)
-        );
+        mapManager.forEachHex(hex -> {
+            int from = mapManager.index(hex);
+            fovs[from] = table != null
+                ? Arrays.stream(table[from]).filter(mapManager::contains).toArray()
+                : visibleHexes(mapManager, hex, offsets);
+        });
+        this.visibleFrom = fovs;
     }
 
-    private boolean rayCast(Hex h1, Hex h2, int visibilityRange) {
-        int distance = h1.distance(h2);
-        if(distance > visibilityRange) {
-            return false;
+    /**
+     * Indexes of the hexes seen from each hex of the map by hex index, null off the map.
+     * What a {@link MapLayout} carries once precomputed.
+     */
+    public static int[][] computeVisibility(MapManager mapManager, int visibilityRange) {
+        int[][] visibility = new int[mapManager.indexCount()][];
+        HexOffsets offsets = HexOffsets.of(visibilityRange);
+        mapManager.forEachHex(hex -> visibility[mapManager.index(hex)] = visibleHexes(mapManager, hex, offsets));
+        return visibility;
+    }
+
+    /**
+     * Indexes of the hexes of the map within range of the origin with no obstacle on the line between them,
+     * the line going through the precomputed steps of {@link HexOffsets}. Nothing is seen from an obstacle.
+     */
+    private static int[] visibleHexes(MapManager mapManager, Hex origin, HexOffsets offsets) {
+        if (origin.isObstacle()) {
+            return new int[0];
         }
+        int[] seen = new int[offsets.size];
+        int count = 0;
+        int q = origin.getQ();
+        int r = origin.getR();
+        for (int i = 0; i < offsets.size; i++) {
+            int target = mapManager.index(q + offsets.dq[i], r + offsets.dr[i]);
+            if (target < 0 || !mapManager.contains(target)) {
+                continue;
+            }
+            if (isLineClear(mapManager, q, r, offsets, i)) {
+                seen[count++] = target;
+            }
+        }
+        return Arrays.copyOf(seen, count);
+    }
 
-        for (int i = 0 ; i <= distance ; i++) {
-            CuberLerpResult result = cubeLerp(h1, h2, 1.0 / visibilityRange * i);
-            Hex hex = mapManager.getHex(Hex.key((int)Math.round(result.q()), (int)Math.round(result.r())));
-            if(hex != null && hex.isObstacle()) {
+    private static boolean isLineClear(MapManager mapManager, int q, int r, HexOffsets offsets, int i) {
+        for (int step = offsets.rayStart[i]; step < offsets.rayStart[i + 1]; step++) {
+            int index = mapManager.index(q + offsets.rayDq[step], r + offsets.rayDr[step]);
+            if (index >= 0 && mapManager.contains(index) && mapManager.hexAt(index).isObstacle()) {
                 return false;
             }
         }
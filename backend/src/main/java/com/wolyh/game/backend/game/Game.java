@@ -1,8 +1,15 @@
 package com.wolyh.game.backend.game;
 
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Random;
 import java.util.Set;
+import java.util.concurrent.ThreadLocalRandom;
 
 import com.wolyh.game.backend.game.Result.ShrinkMapResult;
 import com.wolyh.game.backend.game.UnitManager.EndConditionResult;
@@ -11,33 +18,240 @@ import com.wolyh.game.backend.model.HexCoordinates;
 import com.wolyh.game.backend.model.UnitCoordinates;
 
 public class Game {
+    /** Action points an action costs out of {@link GameConfig#actionPoints()} per turn. */
+    public static final int MOVE_COST = 1;
+    public static final int ATTACK_COST = 1;
+
     private final MapManager mapManager;
     private final UnitManager unitManager;
     private final FovManager fovManager;
     private final PathManager pathManager;
     private final PlayerManager playerManager;
     private final TurnManager turnManager;
+    private final GameConfig config;
+    private final long seed;
 
     private boolean isGameOver = false;
+    private String winner;
+    private int winningTeam = -1;
+
+    private int actionPointsLeft;
+
+    /** Active unit of the batch being applied and where it stood, {@link UnitManager#NONE} outside of one. */
+    private int batchUnit = UnitManager.NONE;
+    private Hex batchStart;
+    /** Units killed during the batch, in order. */
+    private final List<Integer> batchKills = new ArrayList<>();
+
+    /** Bumped whenever units or the map change, views of an older version are rebuilt on read. */
+    private long version;
+    /** team -> view shared by its players */
+    private final PlayerView[] views;
+    private List<UnitCoordinates> allUnits;
+    /** unit idx -> team, fixed once spawned */
+    private final int[] unitTeams;
 
     public Game(String player1, String player2) {
-        this.mapManager = new MapManager();
-        this.playerManager = new PlayerManager(player1, player2);
-        this.turnManager = new TurnManager();
-        this.unitManager = new UnitManager(mapManager, playerManager);
-        this.fovManager = new FovManager(unitManager, mapManager, playerManager);
+        this(player1, player2, GameConfig.DEFAULT);
+    }
+
+    public Game(String player1, String player2, GameConfig config) {
+        this(player1, player2, config, ThreadLocalRandom.current().nextLong());
+    }
+
+    public Game(String player1, String player2, GameConfig config, long seed) {
+        this(player1, player2, config, seed, MapGenerator.classic(config.mapRadius()));
+    }
+
+    /**
+     * The same seed, config and layout always give the same spawns, which is what replays rely on.
+     * The layout must have the radius of the config.
+     */
+    public Game(String player1, String player2, GameConfig config, long seed, MapLayout layout) {
+        this(List.of(List.of(player1), List.of(player2)), config, seed, layout);
+    }
+
+    /** Teams of one or more players, see {@link PlayerManager} for the turn order. */
+    public Game(List<List<String>> teams, GameConfig config, long seed, MapLayout layout) {
+        Random random = new Random(seed);
+        this.config = config;
+        this.seed = seed;
+        this.actionPointsLeft = config.actionPoints();
+        this.mapManager = new MapManager(layout, random);
+        this.playerManager = new PlayerManager(teams);
+        this.turnManager = new TurnManager(config.shrinkInterval());
+        this.unitManager = new UnitManager(
+            mapManager,
+            playerManager,
+            config.unitsPerPlayer(),
+            config.minSpawnDistance(),
+            random
+        );
+        this.fovManager = new FovManager(
+            unitManager,
+            mapManager,
+            playerManager,
+            config.visibilityRange()
+        );
         this.pathManager = new PathManager(mapManager, unitManager, fovManager, playerManager);
+        this.views = new PlayerView[playerManager.getTeamCount()];
         
         unitManager.spawnUnits();
         fovManager.resetFov();
+        this.unitTeams = new int[unitManager.getNumberOfUnits()];
+        for (int idx = 0; idx < unitTeams.length; idx++) {
+            unitTeams[idx] = unitManager.getTeam(idx);
+        }
+    }
+
+    public long getSeed() {
+        return seed;
+    }
+
+    public GameConfig getConfig() {
+        return config;
+    }
+
+    public MapLayout getLayout() {
+        return mapManager.getLayout();
+    }
+
+    public int getTurn() {
+        return turnManager.getTurn();
+    }
+
+    /**
+     * Jumps to a state previously taken with {@link #getSpectatorView(int)} with no slot.
+     * The action points left are not part of it and stay as they are.
+     */
+    public void restore(SpectatorView keyframe) {
+        while (mapManager.getShrinkLevel() > keyframe.shrinkLevel()) {
+            mapManager.shrink();
+        }
+        unitManager.restore(keyframe.activeUnitIdx(), keyframe.units());
+        turnManager.setTurn(keyframe.turn());
+        fovManager.resetFov();
+        invalidateViews();
+    }
+
+    /**
+     * Starts recording what the actions of the active unit change so {@link #rollbackBatch} can undo them.
+     * Within a turn only the active unit moves and only its attacks kill, so that is its hex and the units killed.
+     */
+    public void beginBatch() {
+        batchUnit = unitManager.getActiveUnitIdx();
+        batchStart = unitManager.getHex(batchUnit);
+        batchKills.clear();
     }
 
-    public Set<String> getFov(String username) {
-        return fovManager.getFov(username);
+    public void commitBatch() {
+        batchUnit = UnitManager.NONE;
+        batchKills.clear();
     }
 
+    /** Moves the unit back and revives the dead in reverse order, through the same incremental fov updates. */
+    public void rollbackBatch() {
+        Hex current = unitManager.getHex(batchUnit);
+        if (!current.getKey().equals(batchStart.getKey())) {
+            unitManager.setUnitHex(batchUnit, batchStart);
+            fovManager.moveUnit(unitManager.getTeam(batchUnit), current, batchStart);
+        }
+        for (int i = batchKills.size() - 1; i >= 0; i--) {
+            int unit = batchKills.get(i);
+            unitManager.reviveUnit(unit);
+            fovManager.addUnit(unitManager.getTeam(unit), unitManager.getHex(unit));
+        }
+        invalidateViews();
+        commitBatch();
+    }
+
+    public long getVersion() {
+        return version;
+    }
+
+    /** Shared between callers and by the players of a team until the next change, must not be modified. */
+    public PlayerView getView(int slot) {
+        return getTeamView(playerManager.teamOf(slot));
+    }
+
+    public PlayerView getTeamView(int team) {
+        PlayerView view = views[team];
+        if (view == null) {
+            view = buildView(team);
+            views[team] = view;
+        }
+        return view;
+    }
+
+    private PlayerView buildView(int team) {
+        Set<String> fov = fovManager.getTeamFov(team);
+        List<UnitCoordinates> allies = new ArrayList<>();
+        List<UnitCoordinates> visibleEnemies = new ArrayList<>();
+        List<Integer> aliveEnemies = new ArrayList<>();
+
+        unitManager.forEachAliveUnit(idx -> {
+            if (unitManager.getTeam(idx) == team) {
+                Hex hex = unitManager.getHex(idx);
+                allies.add(new UnitCoordinates(idx, hex.getQ(), hex.getR()));
+            } else {
+                aliveEnemies.add(idx);
+            }
+        });
+        unitManager.getOccupancy().forEachEnemySeenBy(
+            fovManager.getVisibility(),
+            team,
+            idx -> {
+                Hex hex = unitManager.getHex(idx);
+                visibleEnemies.add(new UnitCoordinates(idx, hex.getQ(), hex.getR()));
+            }
+        );
+
+        return new PlayerView(
+            version,
+            fov,
+            Collections.unmodifiableList(allies),
+            Collections.unmodifiableList(visibleEnemies),
+            Collections.unmodifiableList(aliveEnemies)
+        );
+    }
+
+    private List<UnitCoordinates> getAllUnits() {
+        if (allUnits == null) {
+            List<UnitCoordinates> units = new ArrayList<>();
+            unitManager.forEachAliveUnit(idx -> {
+                Hex hex = unitManager.getHex(idx);
+                units.add(new UnitCoordinates(idx, hex.getQ(), hex.getR()));
+            });
+            allUnits = Collections.unmodifiableList(units);
+        }
+        return allUnits;
+    }
+
+    private void invalidateViews() {
+        version++;
+        Arrays.fill(views, null);
+        allUnits = null;
+    }
+
+    public Set<String> getFov(int slot) {
+        return fovManager.getTeamFov(playerManager.teamOf(slot));
+    }
+
+    public int getFovSize(int slot) {
+        return fovManager.getTeamFovSize(playerManager.teamOf(slot));
+    }
+
+    public Set<String> getTeamFov(int team) {
+        return fovManager.getTeamFov(team);
+    }
+
+    /** Units of the team of each player. */
     public Map<String, List<UnitCoordinates>> getUnitLocations() {
-        return unitManager.getUnitLocations();
+        Map<String, List<UnitCoordinates>> locations = new HashMap<>();
+        for (int slot = 0; slot < playerManager.getPlayerCount(); slot++) {
+            locations.put(playerManager.getPlayer(slot), getView(slot).allies());
+        }
+        return locations;
     }
 
     public int getNumberOfUnits() {
@@ -48,122 +262,281 @@ public class Game {
         return unitManager.getActivePlayer();
     }
 
-    public boolean isPlayerActive(String username) {
-        return unitManager.getActivePlayer().equals(username);
+    public int getActiveSlot() {
+        return unitManager.getActiveSlot();
     }
 
-    public String getOtherPlayer(String username) {
-        return playerManager.getOtherPlayer(username);
+    public int getActiveUnitIdx() {
+        return unitManager.getActiveUnitIdx();
+    }
+
+    public boolean isPlayerActive(int slot) {
+        return unitManager.getActiveSlot() == slot;
+    }
+
+    public int getOtherSlot(int slot) {
+        return playerManager.getOtherSlot(slot);
+    }
+
+    /** Where usernames become slots, {@link PlayerManager#NONE} for someone not in the game. */
+    public int getSlot(String username) {
+        return playerManager.slotOf(username);
+    }
+
+    public String getPlayer(int slot) {
+        return playerManager.getPlayer(slot);
+    }
+
+    public String getPlayer1() {
+        return playerManager.getPlayer1();
+    }
+
+    public String getPlayer2() {
+        return playerManager.getPlayer2();
+    }
+
+    public List<String> getPlayers() {
+        return playerManager.getPlayers();
+    }
+
+    public int getTeamCount() {
+        return playerManager.getTeamCount();
+    }
+
+    /** -1 for {@link PlayerManager#NONE}. */
+    public int getTeam(int slot) {
+        return playerManager.teamOf(slot);
+    }
+
+    public List<String> getTeamMembers(int team) {
+        return playerManager.getTeamMembers(team);
+    }
+
+    public int firstSlotOf(int team) {
+        return playerManager.firstSlotOf(team);
+    }
+
+    /**
+     * Everything the player is allowed to know about the game: the map,
+     * its own units and only the enemy units standing in its field of view.
+     */
+    public PlayerSnapshot getPlayerSnapshot(int slot) {
+        List<HexCoordinates> hexes = new ArrayList<>();
+        List<HexCoordinates> obstacles = new ArrayList<>();
+        mapManager.forEachHex(hex -> {
+            HexCoordinates coords = new HexCoordinates(hex.getQ(), hex.getR());
+            hexes.add(coords);
+            if (hex.isObstacle()) {
+                obstacles.add(coords);
+            }
+        });
+
+        PlayerView view = getView(slot);
+
+        return new PlayerSnapshot(
+            config,
+            turnManager.getTurn(),
+            mapManager.getShrinkLevel(),
+            unitManager.getActiveUnitIdx(),
+            unitManager.getNumberOfUnits(),
+            hexes,
+            obstacles,
+            view.fov(),
+            view.allies(),
+            view.visibleEnemies(),
+            view.aliveEnemies()
+        );
+    }
+
+    /**
+     * What a spectator of the given player sees, or every unit for {@link PlayerManager#NONE}.
+     */
+    public SpectatorView getSpectatorView(int slot) {
+        return snapshot().view(slot == PlayerManager.NONE ? PlayerManager.NONE : playerManager.teamOf(slot));
+    }
+
+    /**
+     * Spectator views are built from it outside of the game lock. The turn and the end of the game
+     * change without a new version, so it is taken anew on each call.
+     */
+    public GameSnapshot snapshot() {
+        return new GameSnapshot(
+            version,
+            turnManager.getTurn(),
+            mapManager.getShrinkLevel(),
+            unitManager.getActiveUnitIdx(),
+            unitManager.getNumberOfUnits(),
+            getAllUnits(),
+            unitTeams,
+            mapManager.getLayout().radius(),
+            fovManager.getVisibility().clone(),
+            isGameOver,
+            winner,
+            mapManager.getLayout().terrain()
+        );
     }
 
     public boolean isGameOver() {
         return isGameOver;
     }
 
-    public void setGameOver() {
-        if(isGameOver) {
-            System.err.println("game already over");
-        }
+    public String getWinner() {
+        return winner;
+    }
+
+    public int getWinningTeam() {
+        return winningTeam;
+    }
+
+    /** A draw has no winner, {@link PlayerManager#NONE}. */
+    public void setGameOver(int winnerSlot) {
         isGameOver = true;
+        this.winner = winnerSlot == PlayerManager.NONE ? null : playerManager.getPlayer(winnerSlot);
+        this.winningTeam = playerManager.teamOf(winnerSlot);
     }
 
-    public void moveUnit(int unitIdx, HexCoordinates coords) {
+    /** Returns the hexes the owner of the unit started or stopped seeing. */
+    public FovDelta moveUnit(int unitIdx, HexCoordinates coords) {
         Hex hex = mapManager.getHex(Hex.key(coords.q(), coords.r()));
+        Hex from = unitManager.getHex(unitIdx);
 
         unitManager.setUnitHex(unitIdx, hex);
-        fovManager.updateFov();
+        FovDelta delta = fovManager.moveUnit(unitManager.getTeam(unitIdx), from, hex);
+        invalidateViews();
+        return delta;
     }
 
-    public List<HexCoordinates> searchPath(HexCoordinates goalCoords, int unitIdx, String username) {
-        return pathManager.searchPath(goalCoords, unitIdx, username);
+    /** Through the hexes seen by the team of the slot. */
+    public List<HexCoordinates> searchPath(HexCoordinates goalCoords, int unitIdx, int slot) {
+        return pathManager.searchPath(goalCoords, unitIdx, playerManager.teamOf(slot));
     }
 
-    public List<Set<String>> getPathFov(List<HexCoordinates> path, String username) {
-        return fovManager.getPathFov(path, username);
+    /**
+     * Moves the unit one hex at a time, the path excluding its current hex.
+     * Returns what its owner gained and lost at each step, the end state is the same as {@link #moveUnit}.
+     */
+    public List<FovDelta> moveUnitAlong(int unitIdx, List<HexCoordinates> path) {
+        Hex from = unitManager.getHex(unitIdx);
+        int team = unitManager.getTeam(unitIdx);
+        List<FovDelta> steps = new ArrayList<>(path.size());
+
+        for (HexCoordinates coords : path) {
+            Hex to = mapManager.getHex(Hex.key(coords.q(), coords.r()));
+            steps.add(fovManager.moveUnit(team, from, to));
+            from = to;
+        }
+
+        unitManager.setUnitHex(unitIdx, from);
+        invalidateViews();
+        return steps;
     }
 
-    public List<List<UnitCoordinates>> getVisibleUnitsAlongPath(List<Set<String>> pathFov) {
-        return fovManager.getVisibleUnitsAlongPath(pathFov);
+    /** Units of other teams standing on the hexes, read from the occupancy. */
+    public List<UnitCoordinates> getEnemiesOn(Collection<String> hexKeys, int team) {
+        List<UnitCoordinates> enemies = new ArrayList<>();
+        for (String key : hexKeys) {
+            Hex hex = mapManager.getHex(key);
+            if (hex == null) {
+                continue;
+            }
+            int unit = unitManager.unitAt(hex);
+            if (unit != OccupancyIndex.EMPTY && unitManager.getTeam(unit) != team) {
+                enemies.add(new UnitCoordinates(unit, hex.getQ(), hex.getR()));
+            }
+        }
+        return enemies;
     }
 
-    public List<HexCoordinates> calculateEnemyPovPath(List<HexCoordinates> path, String enemy) {
-        return pathManager.calculateEnemyPovPath(path, enemy);
+    /** The path as seen by a team, usually not the one of the moving unit. */
+    public List<HexCoordinates> calculateEnemyPovPath(List<HexCoordinates> path, int team) {
+        return pathManager.calculateEnemyPovPath(path, team);
     }
 
-    public Map<String, Set<String>> killUnitOn(HexCoordinates coords) {
+    /** Returns the fov of every team by team index. */
+    public List<Set<String>> killUnitOn(HexCoordinates coords) {
         Hex hex = mapManager.getHex(Hex.key(coords.q(), coords.r()));
 
-        hex.getUnit().setDead(true);
-        fovManager.updateFov();
-
-        String player1 = playerManager.getPlayer1();
-        String player2 = playerManager.getPlayer2();
-
-        Map<String, Set<String>> playerFovs = Map.of(
-            player1, fovManager.getFov(player1),
-            player2, fovManager.getFov(player2)
-        );
+        int unit = unitManager.unitAt(hex);
+        unitManager.killUnit(unit);
+        fovManager.removeUnit(unitManager.getTeam(unit), hex);
+        invalidateViews();
+        if (batchUnit != UnitManager.NONE) {
+            batchKills.add(unit);
+        }
 
-        return playerFovs;
+        return fovManager.getFovs();
     }
 
     public boolean canUnitMoveOnHex(int unitIdx, HexCoordinates coords) {
+        return checkMove(unitIdx, coords) == null;
+    }
+
+    /** Null when the unit may move there. A hex out of sight is left to the path search. */
+    public Rejection checkMove(int unitIdx, HexCoordinates coords) {
         Hex hex = mapManager.getHex(Hex.key(coords.q(), coords.r()));
 
         if(hex == null) {
-            System.err.println("Target hex is not on the map");
-            return false;
+            return Rejection.OFF_MAP;
         }
 
         if (!unitManager.isUnitActive(unitIdx)) {
-            System.err.println("Unit is not active");
-            return false;
+            return Rejection.UNIT_NOT_ACTIVE;
         }
 
-        if (!fovManager.isVisibleBy(hex, getActivePlayer())) {
-            System.err.println("Target hex not visible by the player/unit");
-        }
-        
-        if (!hex.isTraversable()) {
-            System.err.println("Target hex is either an obstacle, occupied by a unit");
-            return false;
+        if (hex.isObstacle() || !unitManager.isFree(hex)) {
+            return Rejection.HEX_BLOCKED;
         }
-        return true;
+        return null;
     }
 
     public boolean canUnitAttackOnHex(int unitIdx, HexCoordinates coords) {
+        return checkAttack(unitIdx, coords) == null;
+    }
+
+    /** Null when the unit may attack there. */
+    public Rejection checkAttack(int unitIdx, HexCoordinates coords) {
         Hex hex = mapManager.getHex(Hex.key(coords.q(), coords.r()));
 
         if(hex == null) {
-            System.err.println("Target hex is not on the map");
-            return false;
+            return Rejection.OFF_MAP;
         }
 
         if (!unitManager.isUnitActive(unitIdx)) {
-            System.err.println("Unit is not active");
-            return false;
+            return Rejection.UNIT_NOT_ACTIVE;
         }
 
-        if (!fovManager.isVisibleBy(hex, getActivePlayer())) {
-            System.err.println("Target hex not visible by the player/unit");
-            return false;
+        if (!fovManager.isVisibleBy(hex, activeTeam())) {
+            return Rejection.HEX_NOT_VISIBLE;
         }
 
-        if (hex.getUnit() == null) {
-            System.err.println("Target hex has no unit");
-            return false;
+        int target = unitManager.unitAt(hex);
+        if (target == OccupancyIndex.EMPTY) {
+            return Rejection.NO_TARGET;
         }
 
-        if (hex.getUnit().getPlayer().equals(unitManager.getActivePlayer())) {
-            System.err.println("Target unit is an ally");
-            return false;
+        if (unitManager.getTeam(target) == activeTeam()) {
+            return Rejection.ALLY_TARGET;
         }
 
-        return true;
+        return null;
+    }
+
+    private int activeTeam() {
+        return playerManager.teamOf(unitManager.getActiveSlot());
+    }
+
+    public int getActionPointsLeft() {
+        return actionPointsLeft;
+    }
+
+    /** Only counts, the caller checks the actions are affordable before applying them. */
+    public void spendActionPoints(int points) {
+        actionPointsLeft -= points;
     }
 
     public int nextTurn() {
         turnManager.incrementTurn();
+        actionPointsLeft = config.actionPoints();
         return unitManager.setNextActiveUnit();
     }
 
@@ -175,31 +548,27 @@ public class Game {
         int shrinkLevel = mapManager.shrink();
         List<Integer> deadUnits = unitManager.killOutOfMapUnits();
         fovManager.resetFov();
+        invalidateViews();
 
-        String player1 = playerManager.getPlayer1();
-        String player2 = playerManager.getPlayer2();
-
-        Map<String, Set<String>> playerFovs = Map.of(
-            player1, fovManager.getFov(player1),
-            player2, fovManager.getFov(player2)
-        );
-
-        return new ShrinkMapResult(true, shrinkLevel, deadUnits, playerFovs);
+        return new ShrinkMapResult(true, shrinkLevel, deadUnits, fovManager.getFovs());
     }
     
+    /** The winner of a team game is named after the first player of the team, a draw has none. */
     public String resolveGameOver() {
         EndConditionResult result = unitManager.checkEndCondition();
 
-        if(!result.player1Won() && !result.player2Won()) {
+        if(result.teamsAlive() > 1) {
             return null;
         }
 
         isGameOver = true;
 
-        if(result.player1Won() && result.player2Won()) {
+        if(result.teamsAlive() == 0) {
             return null;
         }
         
-        return result.player1Won() ? playerManager.getPlayer1() : playerManager.getPlayer2();
+        winningTeam = result.lastTeam();
+        winner = playerManager.getTeamMembers(winningTeam).getFirst();
+        return winner;
     }
 }
\ No newline at end of file
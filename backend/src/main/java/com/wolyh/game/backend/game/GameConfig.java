@@ -0,0 +1,41 @@
+package com.wolyh.game.backend.game;
+
+public record GameConfig(
+    int mapRadius,
+    int visibilityRange,
+    int unitsPerPlayer,
+    int minSpawnDistance,
+    int shrinkInterval,
+    int actionPoints
+) {
+    public static final int VISIBILITY_RANGE = 1;
+    /**
+     * One action per turn, the rules from before action points. A batch of several actions
+     * is then always refused with {@link Rejection#NO_ACTION_POINTS}.
+     */
+    public static final int ACTION_POINTS = 1;
+
+    public static final GameConfig DEFAULT = new GameConfig(4, VISIBILITY_RANGE, 3, 2, 15);
+
+    public GameConfig(int mapRadius, int visibilityRange, int unitsPerPlayer, int minSpawnDistance, int shrinkInterval) {
+        this(mapRadius, visibilityRange, unitsPerPlayer, minSpawnDistance, shrinkInterval, ACTION_POINTS);
+    }
+
+    public GameConfig withActionPoints(int actionPoints) {
+        return new GameConfig(mapRadius, visibilityRange, unitsPerPlayer, minSpawnDistance, shrinkInterval, actionPoints);
+    }
+
+    /**
+     * Rules for large armies: units may spawn side by side on a map about twice the size
+     * the units of all the players need, and the map shrinks after as many rounds of the
+     * units as by default.
+     */
+    public static GameConfig army(int unitsPerPlayer, int players) {
+        int radius = DEFAULT.mapRadius();
+        while (3 * radius * (radius + 1) + 1 < 2 * players * unitsPerPlayer) {
+            radius++;
+        }
+        int shrinkInterval = Math.max(1, DEFAULT.shrinkInterval() * unitsPerPlayer / DEFAULT.unitsPerPlayer());
+        return new GameConfig(radius, VISIBILITY_RANGE, unitsPerPlayer, 1, shrinkInterval);
+    }
+}
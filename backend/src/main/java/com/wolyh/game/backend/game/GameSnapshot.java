@@ -0,0 +1,64 @@
+package com.wolyh.game.backend.game;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import com.wolyh.game.backend.model.Hex;
+import com.wolyh.game.backend.model.MapTerrain;
+import com.wolyh.game.backend.model.UnitCoordinates;
+
+/**
+ * State of a game at one version, enough to build any spectator view. Taking it under the game
+ * lock costs a copy of the team bitmask of every hex, the views are built from it later on any
+ * thread. The arrays are never modified, unitTeams is shared by every snapshot of the game.
+ */
+public record GameSnapshot(
+    long version,
+    int turn,
+    int shrinkLevel,
+    int activeUnitIdx,
+    int nbUnits,
+    List<UnitCoordinates> units,
+    int[] unitTeams,
+    int radius,
+    long[] visibility,
+    boolean gameOver,
+    String winner,
+    MapTerrain terrain
+) {
+    /** What a spectator of the team sees, every unit for {@link PlayerManager#NONE}. */
+    public SpectatorView view(int team) {
+        if (team == PlayerManager.NONE) {
+            return new SpectatorView(turn, shrinkLevel, activeUnitIdx, nbUnits, units, null, gameOver, winner, terrain);
+        }
+
+        long bit = 1L << team;
+        int side = 2 * radius + 1;
+        Set<String> fov = new HashSet<>();
+        for (int index = 0; index < visibility.length; index++) {
+            if ((visibility[index] & bit) != 0) {
+                fov.add(Hex.key(index / side - radius, index % side - radius));
+            }
+        }
+        List<UnitCoordinates> seen = new ArrayList<>();
+        for (UnitCoordinates unit : units) {
+            if (unitTeams[unit.idx()] == team || (visibility[(unit.q() + radius) * side + unit.r() + radius] & bit) != 0) {
+                seen.add(unit);
+            }
+        }
+        return new SpectatorView(
+            turn,
+            shrinkLevel,
+            activeUnitIdx,
+            nbUnits,
+            Collections.unmodifiableList(seen),
+            Collections.unmodifiableSet(fov),
+            gameOver,
+            winner,
+            terrain
+        );
+    }
+}
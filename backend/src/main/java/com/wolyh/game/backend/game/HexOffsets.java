@@ -0,0 +1,150 @@
+package com.wolyh.game.backend.game;
+
+import java.util.Arrays;
+
+/**
+ * Offsets from an origin hex, computed once per radius and shared by every map. Owners resolve
+ * their table once, a table also answers every smaller range since it is sorted by distance.
+ * The disk is listed ring by ring from the origin outwards, each ring in q then r order,
+ * with the distance of each offset. The ring at distance d is the offsets ringStart[d]
+ * until ringStart[d + 1], a query over a few rings reads only their offsets. Each offset
+ * also has its line of sight: the hexes a straight line from the origin goes through, its
+ * end included. Queries add the offsets to the origin, nothing is rounded nor allocated.
+ */
+public final class HexOffsets {
+    /** Pushes points lying exactly between two hexes to the same side for every line. */
+    private static final double NUDGE_Q = 1e-6;
+    private static final double NUDGE_R = 2e-6;
+    private static final double NUDGE_S = -3e-6;
+
+    /** table of each radius computed so far, replaced by a larger copy when one is added */
+    private static volatile HexOffsets[] byRadius = new HexOffsets[0];
+
+    final int radius;
+    final int size;
+    final int[] dq;
+    final int[] dr;
+    final int[] distance;
+    /** first offset of each ring, radius + 2 entries */
+    final int[] ringStart;
+    /** line of offset i: steps rayStart[i] until rayStart[i + 1] of rayDq and rayDr */
+    final int[] rayStart;
+    final int[] rayDq;
+    final int[] rayDr;
+
+    public static HexOffsets of(int radius) {
+        HexOffsets[] known = byRadius;
+        if (radius < known.length && known[radius] != null) {
+            return known[radius];
+        }
+        return compute(radius);
+    }
+
+    private static synchronized HexOffsets compute(int radius) {
+        HexOffsets[] known = byRadius;
+        if (radius < known.length && known[radius] != null) {
+            return known[radius];
+        }
+        HexOffsets[] larger = Arrays.copyOf(known, Math.max(known.length, radius + 1));
+        larger[radius] = new HexOffsets(radius);
+        byRadius = larger;
+        return larger[radius];
+    }
+
+    private HexOffsets(int radius) {
+        this.radius = radius;
+        this.size = 3 * radius * (radius + 1) + 1;
+        this.dq = new int[size];
+        this.dr = new int[size];
+        this.distance = new int[size];
+        this.ringStart = new int[radius + 2];
+        this.rayStart = new int[size + 1];
+
+        // ring d holds 6d offsets, only the center for d = 0
+        for (int d = 1; d <= radius + 1; d++) {
+            ringStart[d] = 3 * d * (d - 1) + 1;
+        }
+        int[] next = ringStart.clone();
+        for (int q = -radius; q <= radius; q++) {
+            for (int r = Math.max(-radius, -q - radius); r <= Math.min(radius, -q + radius); r++) {
+                int d = Math.max(Math.abs(q), Math.max(Math.abs(r), Math.abs(-q - r)));
+                int i = next[d]++;
+                dq[i] = q;
+                dr[i] = r;
+                distance[i] = d;
+            }
+        }
+
+        int steps = 0;
+        for (int i = 0; i < size; i++) {
+            rayStart[i] = steps;
+            steps += distance[i];
+        }
+        rayStart[size] = steps;
+
+        this.rayDq = new int[steps];
+        this.rayDr = new int[steps];
+        for (int i = 0; i < size; i++) {
+            int d = distance[i];
+            for (int step = 1; step <= d; step++) {
+                round((double) step / d, i, rayStart[i] + step - 1);
+            }
+        }
+    }
+
+    /** Hex at fraction t of the line to offset i, rounded in cube coordinates. */
+    private void round(double t, int i, int step) {
+        double q = dq[i] * t + NUDGE_Q;
+        double r = dr[i] * t + NUDGE_R;
+        double s = (-dq[i] - dr[i]) * t + NUDGE_S;
+
+        long rq = Math.round(q);
+        long rr = Math.round(r);
+        long rs = Math.round(s);
+        double diffQ = Math.abs(rq - q);
+        double diffR = Math.abs(rr - r);
+        double diffS = Math.abs(rs - s);
+        if (diffQ > diffR && diffQ > diffS) {
+            rq = -rr - rs;
+        } else if (diffR > diffS) {
+            rr = -rq - rs;
+        }
+        rayDq[step] = (int) rq;
+        rayDr[step] = (int) rr;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    /** First offset at distance d, ringStart(d + 1) is the end of the ring. */
+    public int ringStart(int d) {
+        return ringStart[d];
+    }
+
+    /** End of the offsets up to distance d, every offset when d is beyond the radius. */
+    public int end(int d) {
+        return d < 0 ? 0 : ringStart[Math.min(d, radius) + 1];
+    }
+
+    public int dq(int i) {
+        return dq[i];
+    }
+
+    public int dr(int i) {
+        return dr[i];
+    }
+
+    /** Line of sight of offset i: steps rayStart(i) until rayStart(i + 1). */
+    public int rayStart(int i) {
+        return rayStart[i];
+    }
+
+    public int rayDq(int step) {
+        return rayDq[step];
+    }
+
+    public int rayDr(int step) {
+        return rayDr[step];
+    }
+}
@@ -0,0 +1,153 @@
+package com.wolyh.game.backend.game;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+import com.wolyh.game.backend.model.Hex;
+import com.wolyh.game.backend.model.HexCoordinates;
+
+/**
+ * Seeded procedural maps. Maps are point symmetric so both sides get the same terrain,
+ * and only kept when every shrink level stays connected and the spawns fit on several tries.
+ * The spawns of a successful try are kept in the layout, for games whose own try falls short.
+ * This is too slow for the game-start path, maps are prepared ahead by the catalog.
+ */
+public final class MapGenerator {
+    public static final long CLASSIC_ID = 0;
+
+    private static final double EDGE_HOLE_CHANCE = 0.3;
+    private static final double HOLE_CHANCE = 0.05;
+    private static final double OBSTACLE_CHANCE = 0.12;
+    private static final int SPAWN_TRIALS = 16;
+
+    private static final int[][] DIRECTIONS = {
+        {+1,  0}, {+1, -1}, { 0, -1},
+        {-1,  0}, {-1, +1}, { 0, +1}
+    };
+
+    private MapGenerator() {}
+
+    /** The fixed hexagon with three holes on the middle row and no obstacles. */
+    public static MapLayout classic(int radius) {
+        List<HexCoordinates> holes = List.of(
+            new HexCoordinates(-radius, 0),
+            new HexCoordinates(radius, 0),
+            new HexCoordinates(0, 0)
+        );
+        return new MapLayout(CLASSIC_ID, radius, 0, holes, List.of(), null, null);
+    }
+
+    /**
+     * The same seed, config and player count always give the same map, null when it is not
+     * playable by that many players.
+     */
+    public static MapLayout generate(long seed, GameConfig config, int players) {
+        int n = config.mapRadius();
+        Random random = new Random(seed);
+        List<HexCoordinates> holes = new ArrayList<>();
+        List<HexCoordinates> obstacles = new ArrayList<>();
+
+        if (random.nextDouble() < OBSTACLE_CHANCE) {
+            obstacles.add(new HexCoordinates(0, 0));
+        }
+
+        // one hex of each symmetric pair decides for both
+        for (int q = 0; q <= n; q++) {
+            for (int r = Math.max(-n, -q - n); r <= Math.min(n, -q + n); r++) {
+                if (q == 0 && r <= 0) {
+                    continue;
+                }
+                int distance = Math.max(Math.abs(q), Math.max(Math.abs(r), Math.abs(q + r)));
+                double roll = random.nextDouble();
+
+                if (roll < (distance == n ? EDGE_HOLE_CHANCE : HOLE_CHANCE)) {
+                    holes.add(new HexCoordinates(q, r));
+                    holes.add(new HexCoordinates(-q, -r));
+                } else if (distance < n && roll < HOLE_CHANCE + OBSTACLE_CHANCE) {
+                    obstacles.add(new HexCoordinates(q, r));
+                    obstacles.add(new HexCoordinates(-q, -r));
+                }
+            }
+        }
+
+        MapLayout layout = new MapLayout(seed, n, 0, List.copyOf(holes), List.copyOf(obstacles), null, null);
+        List<HexCoordinates> spawns = spawns(layout, config, players);
+        if (spawns == null || !isConnected(layout)) {
+            return null;
+        }
+        return new MapLayout(seed, n, 0, layout.holes(), layout.obstacles(), spawns, null);
+    }
+
+    /** Adds the visibility table of the layout for the given range. */
+    public static MapLayout precompute(MapLayout layout, int visibilityRange) {
+        MapManager map = new MapManager(layout, new Random(layout.id()));
+        return new MapLayout(
+            layout.id(),
+            layout.radius(),
+            visibilityRange,
+            layout.holes(),
+            layout.obstacles(),
+            layout.spawns(),
+            FovManager.computeVisibility(map, visibilityRange)
+        );
+    }
+
+    /** Spawns of the first try, null when any try leaves a unit without a hex. */
+    private static List<HexCoordinates> spawns(MapLayout layout, GameConfig config, int players) {
+        List<HexCoordinates> first = null;
+        for (int trial = 0; trial < SPAWN_TRIALS; trial++) {
+            MapManager map = new MapManager(layout, new Random(layout.id() + trial));
+            List<Hex> spawns = map.generateSpawns(config.minSpawnDistance());
+            if (spawns.size() < players * config.unitsPerPlayer()) {
+                return null;
+            }
+            if (first == null) {
+                first = spawns.stream().map(hex -> new HexCoordinates(hex.getQ(), hex.getR())).toList();
+            }
+        }
+        return first;
+    }
+
+    private static boolean isConnected(MapLayout layout) {
+        MapManager map = new MapManager(layout, new Random(layout.id()));
+        while (map.getShrinkLevel() > 0) {
+            if (!isConnected(map)) {
+                return false;
+            }
+            map.shrink();
+        }
+        return true;
+    }
+
+    /** Every hex a unit can stand on is reachable from any other. */
+    private static boolean isConnected(MapManager map) {
+        List<Hex> traversable = new ArrayList<>();
+        map.forEachHex(hex -> {
+            if (!hex.isObstacle()) {
+                traversable.add(hex);
+            }
+        });
+        if (traversable.isEmpty()) {
+            return true;
+        }
+
+        List<Hex> frontier = new ArrayList<>();
+        Set<String> reached = new HashSet<>();
+        frontier.add(traversable.getFirst());
+        reached.add(traversable.getFirst().getKey());
+
+        for (int i = 0; i < frontier.size(); i++) {
+            Hex current = frontier.get(i);
+            for (int[] direction : DIRECTIONS) {
+                Hex next = map.getHex(Hex.key(current.getQ() + direction[0], current.getR() + direction[1]));
+                if (next != null && !next.isObstacle() && reached.add(next.getKey())) {
+                    frontier.add(next);
+                }
+            }
+        }
+        return reached.size() == traversable.size();
+    }
+}
@@ -0,0 +1,28 @@
+package com.wolyh.game.backend.game;
+
+import java.util.List;
+
+import com.wolyh.game.backend.model.HexCoordinates;
+import com.wolyh.game.backend.model.MapTerrain;
+
+/**
+ * Shape of a map, shared read-only by every game played on it.
+ * The map is the hexagon of the given radius minus the holes. The id is the seed
+ * it was generated from, {@link MapGenerator#CLASSIC_ID} for the fixed map.
+ * spawns are hexes the map was validated with, far enough from each other for every unit,
+ * null when the map was not validated. visibility lists, by hex index of {@link MapManager}, the indexes
+ * of the hexes seen from each hex on the full map, null if not precomputed. It must not be modified.
+ */
+public record MapLayout(
+    long id,
+    int radius,
+    int visibilityRange,
+    List<HexCoordinates> holes,
+    List<HexCoordinates> obstacles,
+    List<HexCoordinates> spawns,
+    int[][] visibility
+) {
+    public MapTerrain terrain() {
+        return new MapTerrain(holes, obstacles);
+    }
+}
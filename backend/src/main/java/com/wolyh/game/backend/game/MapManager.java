@@ -3,24 +3,50 @@ package com.wolyh.game.backend.game;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Random;
+import java.util.Set;
 import java.util.function.Consumer;
 
 import com.wolyh.game.backend.model.Hex;
+import com.wolyh.game.backend.model.HexCoordinates;
 
 public class MapManager {
     private HashMap<String, Hex> map = new HashMap<>();
-    private final Random random = new Random();
+    /** hex index -> hex of the full map, null for holes */
+    private final Hex[] hexes;
+    /** every distance between two hexes of the map, up to 2n */
+    private final HexOffsets offsets;
+    private final Random random;
+
+    final int n;
+    private int shrinkLevel;
+    private final MapLayout layout;
+
+    public MapManager(int radius) {
+        this(radius, new Random());
+    }
 
-    final int n = 4;
-    private int shrinkLevel = n;
+    public MapManager(int radius, Random random) {
+        this(MapGenerator.classic(radius), random);
+    }
 
-    public MapManager() {
+    public MapManager(MapLayout layout, Random random) {
+        this.random = random;
+        this.layout = layout;
+        this.n = layout.radius();
+        this.shrinkLevel = layout.radius();
+        this.hexes = new Hex[indexCount()];
+        this.offsets = HexOffsets.of(2 * n);
         fill();
     }
 
+    public MapLayout getLayout() {
+        return layout;
+    }
+
     public int getShrinkLevel() {
         return this.shrinkLevel;
     }
@@ -33,31 +59,67 @@ public class MapManager {
         return map.containsKey(key);
     }
 
+    /** Dense index of the hex in the bounding square of the full map, stable across shrinks. */
+    public int index(Hex hex) {
+        return (hex.getQ() + n) * (2 * n + 1) + (hex.getR() + n);
+    }
+
+    public int indexCount() {
+        return (2 * n + 1) * (2 * n + 1);
+    }
+
+    /** Dense index of the coordinates, -1 outside the bounding square. */
+    int index(int q, int r) {
+        if (q < -n || q > n || r < -n || r > n) {
+            return -1;
+        }
+        return (q + n) * (2 * n + 1) + (r + n);
+    }
+
+    /** Hex of the full map at the index, still returned once shrunk out, null for holes. */
+    public Hex hexAt(int index) {
+        return hexes[index];
+    }
+
+    /** Same as {@link #hasHex} by index. */
+    public boolean contains(int index) {
+        Hex hex = hexes[index];
+        return hex != null && Math.max(Math.abs(hex.getQ()), Math.max(Math.abs(hex.getR()), Math.abs(hex.getS()))) <= shrinkLevel;
+    }
+
     public void forEachHex(Consumer<Hex> action) {
         map.values().forEach(action);
     }   
     private void fill() {
+        Set<String> obstacles = new HashSet<>();
+        for (HexCoordinates obstacle : layout.obstacles()) {
+            obstacles.add(Hex.key(obstacle.q(), obstacle.r()));
+        }
+
         //hexagonal shape
         for (int q = -n; q <= n; q++) {
             int r1 = Math.max(-n, -q - n);
             int r2 = Math.min(n, -q + n);
             
             for(int r = r1 ; r <= r2 ; r++) {
-                Hex hex = new Hex(q, r, -q-r, false);
+                Hex hex = new Hex(q, r, -q-r, obstacles.contains(Hex.key(q, r)));
                 map.put(hex.getKey(), hex);
             }
         }
 
-        map.remove(Hex.key(-n,0));
-        map.remove(Hex.key(n,0));
-        map.remove(Hex.key(0,0));
+        for (HexCoordinates hole : layout.holes()) {
+            map.remove(Hex.key(hole.q(), hole.r()));
+        }
+        map.values().forEach(hex -> hexes[index(hex)] = hex);
     }
 
     public List<Hex> generateSpawns(int minDist) {
         List<Hex> placed = new ArrayList<>();
         List<Hex> active = new ArrayList<>();
         Map<String, Hex> validMap = new HashMap<>(map);
+        validMap.values().removeIf(Hex::isObstacle);
         List<Hex> validHexes = new ArrayList<>(validMap.values());
+        List<Hex> candidates = new ArrayList<>();
         Hex start = validHexes.get(random.nextInt(validHexes.size()));
 
         placed.add(start);
@@ -65,8 +127,14 @@ public class MapManager {
 
         while (!active.isEmpty()) {
             Hex hex = active.get(random.nextInt(active.size()));
-            List<Hex> candidates = getHexesInRange(hex, validMap, minDist, minDist * 2);
-            Collections.shuffle(candidates);
+            candidates.clear();
+            for (int i = start(minDist), end = offsets.end(minDist * 2); i < end; i++) {
+                Hex candidate = hexAt(hex, i);
+                if (candidate != null && !candidate.isObstacle()) {
+                    candidates.add(candidate);
+                }
+            }
+            Collections.shuffle(candidates, random);
 
             boolean found = false;
             for (Hex candidate: candidates) {
@@ -92,31 +160,47 @@ public class MapManager {
         return true;
     }
 
-    public  List<Hex> getHexesInRange(Hex origin, int range) {
-        return getHexesInRange(origin, map, 0, range);
+    /** Spawns the layout was validated with, empty for a map that was not validated. */
+    public List<Hex> getValidatedSpawns() {
+        List<Hex> spawns = new ArrayList<>();
+        if (layout.spawns() != null) {
+            for (HexCoordinates spawn : layout.spawns()) {
+                spawns.add(map.get(Hex.key(spawn.q(), spawn.r())));
+            }
+        }
+        return spawns;
     }
 
-    public List<Hex> getHexesInRange(
-        Hex origin, 
-        Map<String, Hex> validHexes, 
-        int minDist, 
-        int maxDist
-    ) {
+    public List<Hex> getHexesInRange(Hex origin, int range) {
         List<Hex> candidates = new ArrayList<>();
+        for (int i = 0, end = offsets.end(range); i < end; i++) {
+            Hex hex = hexAt(origin, i);
+            if (hex != null) {
+                candidates.add(hex);
+            }
+        }
+        return candidates;
+    }
 
-        for (int q = -maxDist; q <= +maxDist ; q++) {
-            for (int r = Math.max(-maxDist, -q-maxDist) ; r <= Math.min(+maxDist, -q+maxDist) ; r++) {
-                int dist = Math.max(Math.abs(q), Math.max(Math.abs(r), Math.abs(-q-r)));
-                if (dist >= minDist) {
-                    Hex candidate = map.get(Hex.key(origin.getQ() + q, origin.getR() + r));
-                    if (candidate != null) {
-                        candidates.add(candidate);
-                    }
-                }
+    /** Hexes of the map at a distance between minDist and maxDist of the origin, ring by ring. */
+    public void forEachHexInRange(Hex origin, int minDist, int maxDist, Consumer<Hex> action) {
+        for (int i = start(minDist), end = offsets.end(maxDist); i < end; i++) {
+            Hex hex = hexAt(origin, i);
+            if (hex != null) {
+                action.accept(hex);
             }
         }
+    }
 
-        return candidates;
+    /** First offset at distance minDist, past every offset when no hex of the map is that far. */
+    private int start(int minDist) {
+        return minDist > 2 * n ? offsets.size : offsets.ringStart[Math.max(minDist, 0)];
+    }
+
+    /** Hex of the map at offset i of the origin, null off the map. */
+    private Hex hexAt(Hex origin, int i) {
+        int index = index(origin.getQ() + offsets.dq[i], origin.getR() + offsets.dr[i]);
+        return index >= 0 && contains(index) ? hexes[index] : null;
     }
 
     public int shrink() {
@@ -0,0 +1,76 @@
+package com.wolyh.game.backend.game;
+
+import java.util.Arrays;
+import java.util.function.IntConsumer;
+
+/**
+ * Which unit stands on which hex, both ways, keyed by the dense hex index of {@link MapManager#index}.
+ * Owners are team indexes. Queries do not allocate.
+ */
+public class OccupancyIndex {
+    public static final int EMPTY = -1;
+
+    /** hex index -> unit idx */
+    private final int[] unitAt;
+    /** unit idx -> hex index */
+    private final int[] hexOf;
+    private final byte[] team;
+
+    public OccupancyIndex(int hexCount, int unitCount) {
+        this.unitAt = new int[hexCount];
+        this.hexOf = new int[unitCount];
+        this.team = new byte[unitCount];
+        clear();
+    }
+
+    public void clear() {
+        Arrays.fill(unitAt, EMPTY);
+        Arrays.fill(hexOf, EMPTY);
+    }
+
+    public void place(int unit, int teamIndex, int hex) {
+        team[unit] = (byte) teamIndex;
+        move(unit, hex);
+    }
+
+    public void move(int unit, int hex) {
+        remove(unit);
+        unitAt[hex] = unit;
+        hexOf[unit] = hex;
+    }
+
+    public void remove(int unit) {
+        int hex = hexOf[unit];
+        if (hex != EMPTY && unitAt[hex] == unit) {
+            unitAt[hex] = EMPTY;
+        }
+        hexOf[unit] = EMPTY;
+    }
+
+    /** Alive unit on the hex, or {@link #EMPTY}. */
+    public int unitAt(int hex) {
+        return unitAt[hex];
+    }
+
+    public boolean isFree(int hex) {
+        return unitAt[hex] == EMPTY;
+    }
+
+    public int teamOf(int unit) {
+        return team[unit];
+    }
+
+    /**
+     * Calls the action with every alive unit outside the team standing on a hex the team sees,
+     * visibility being the team bitmask of each hex as kept by {@link FovManager}.
+     */
+    public void forEachEnemySeenBy(long[] visibility, int teamIndex, IntConsumer action) {
+        long bit = 1L << teamIndex;
+        for (int unit = 0; unit < hexOf.length; unit++) {
+            int hex = hexOf[unit];
+            if (hex != EMPTY && team[unit] != teamIndex && (visibility[hex] & bit) != 0) {
+                action.accept(unit);
+            }
+        }
+    }
+}
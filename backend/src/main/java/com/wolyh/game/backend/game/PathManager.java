@@ -25,7 +25,8 @@ public class PathManager {
         this.fovManager = fovManager;
     }
 
-    public List<HexCoordinates> searchPath(HexCoordinates goalCoords, int unitIdx, String username) {
+    /** Only through hexes the team sees. */
+    public List<HexCoordinates> searchPath(HexCoordinates goalCoords, int unitIdx, int team) {
         ArrayList<HexCoordinates> path = new ArrayList<>();
 
         Hex start = unitManager.getHex(unitIdx);
@@ -47,7 +48,7 @@ public class PathManager {
             Hex current = frontier.get(startIdx);
             startIdx++;
 
-            SearchNeighborsResult result = searchNeighbors(current, goal, username);
+            SearchNeighborsResult result = searchNeighbors(current, goal, team);
             if (result.earlyExit()) {
                 cameFrom.put(goal.getKey(), current.getKey());
                 break;
@@ -82,12 +83,12 @@ public class PathManager {
         return path;
     }
 
-    public List<HexCoordinates> calculateEnemyPovPath(List<HexCoordinates> path, String enemy) {
+    public List<HexCoordinates> calculateEnemyPovPath(List<HexCoordinates> path, int enemyTeam) {
         ArrayList<HexCoordinates> enemyPovPath = new ArrayList<>();
 
         boolean prevVisible = false;
         for (int i = 0 ; i < path.size() ; i++) {
-            boolean currVisible = fovManager.isVisibleBy(path.get(i), enemy);
+            boolean currVisible = fovManager.isVisibleBy(path.get(i), enemyTeam);
 
             if (currVisible && !prevVisible && i > 0) {
                 enemyPovPath.add(path.get(i - 1));
@@ -107,7 +108,7 @@ public class PathManager {
 
     private record SearchNeighborsResult(List<Hex> neighbors, boolean earlyExit) {}
 
-    private SearchNeighborsResult searchNeighbors(Hex h, Hex goal, String username) {
+    private SearchNeighborsResult searchNeighbors(Hex h, Hex goal, int team) {
         ArrayList<Hex> neighbors = new ArrayList<>(6);
         int[][] directionVectors = {
             {+1,  0, -1},
@@ -120,7 +121,7 @@ public class PathManager {
 
         for (int[] vector : directionVectors) {
             Hex neighbor = mapManager.getHex(Hex.key(h.getQ() + vector[0], h.getR() + vector[1]));
-            if(neighbor != null && neighbor.isTraversable() && fovManager.isVisibleBy(neighbor, username)) {
+            if(neighbor != null && !neighbor.isObstacle() && unitManager.isFree(neighbor) && fovManager.isVisibleBy(neighbor, team)) {
                 neighbors.add(neighbor);
                 if(goal.getKey().equals(neighbor.getKey())) {
                     return new SearchNeighborsResult(neighbors, true);
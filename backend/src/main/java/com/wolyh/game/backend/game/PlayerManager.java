@@ -1,27 +1,114 @@
 package com.wolyh.game.backend.game;
 
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Players of a game grouped in teams, a 1v1 is two teams of one.
+ * Players take turns in the order of {@link #getPlayers()}, which goes around
+ * the teams so two players of the same team never play one after the other.
+ * The engine knows a player by its slot, its index in that order, usernames are
+ * only turned into slots where requests come in. Teams are numbered from 0 and
+ * share their vision.
+ */
 public class PlayerManager {
-    private final String player1;
-    private final String player2;
+    /** Team visibility is kept as one bit per team and hex. */
+    public static final int MAX_TEAMS = Long.SIZE;
+    /** Slot of someone not in the game, or no player at all. */
+    public static final int NONE = -1;
+
+    private final List<String> players;
+    private final List<List<String>> teams;
+    private final Map<String, Integer> slotOf = new HashMap<>();
+    /** slot -> team */
+    private final int[] teamOf;
 
     public PlayerManager(String player1, String player2) {
-        this.player1 = player1;
-        this.player2 = player2;
+        this(List.of(List.of(player1), List.of(player2)));
+    }
+
+    public PlayerManager(List<List<String>> teams) {
+        if (teams.size() < 2 || teams.size() > MAX_TEAMS) {
+            throw new IllegalArgumentException("A game needs between 2 and " + MAX_TEAMS + " teams");
+        }
+        this.teams = List.copyOf(teams.stream().map(List::copyOf).toList());
+
+        List<String> order = new ArrayList<>();
+        List<Integer> orderTeams = new ArrayList<>();
+        int largest = teams.stream().mapToInt(List::size).max().orElse(0);
+        for (int i = 0; i < largest; i++) {
+            for (int team = 0; team < teams.size(); team++) {
+                if (i < teams.get(team).size()) {
+                    String player = teams.get(team).get(i);
+                    if (slotOf.putIfAbsent(player, order.size()) != null) {
+                        throw new IllegalArgumentException(player + " is listed twice");
+                    }
+                    order.add(player);
+                    orderTeams.add(team);
+                }
+            }
+        }
+        this.players = List.copyOf(order);
+        this.teamOf = orderTeams.stream().mapToInt(Integer::intValue).toArray();
+    }
+
+    /** The only lookup by username, {@link #NONE} for someone not in the game. */
+    public int slotOf(String username) {
+        Integer slot = username == null ? null : slotOf.get(username);
+        return slot == null ? NONE : slot;
+    }
+
+    public String getPlayer(int slot) {
+        return players.get(slot);
     }
 
-    public String getOtherPlayer(String username) {
-        return username.equals(player1) ? player2 : player1;
+    /** The first round of the turn order is the first player of every team, in team order. */
+    public int firstSlotOf(int team) {
+        return team;
     }
-    
+
+    /** First player of another team, only meaningful for two teams. */
+    public int getOtherSlot(int slot) {
+        return firstSlotOf(teamOf(slot) == 0 ? 1 : 0);
+    }
+
     public boolean isValidPlayer(String username) {
-        return username.equals(player1) || username.equals(player2);
+        return slotOf.containsKey(username);
+    }
+
+    public List<String> getPlayers() {
+        return players;
+    }
+
+    public int getPlayerCount() {
+        return players.size();
+    }
+
+    public int getTeamCount() {
+        return teams.size();
+    }
+
+    /** Team of the slot, -1 for {@link #NONE}. */
+    public int teamOf(int slot) {
+        return slot == NONE ? -1 : teamOf[slot];
+    }
+
+    /** Team of the player, -1 for someone not in the game. */
+    public int getTeam(String username) {
+        return teamOf(slotOf(username));
+    }
+
+    public List<String> getTeamMembers(int team) {
+        return teams.get(team);
     }
 
     public String getPlayer1() {
-        return player1;
+        return players.get(0);
     }
 
     public String getPlayer2() {
-        return player2;
+        return players.get(1);
     }
 }
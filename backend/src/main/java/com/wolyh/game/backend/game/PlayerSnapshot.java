@@ -0,0 +1,21 @@
+package com.wolyh.game.backend.game;
+
+import java.util.List;
+import java.util.Set;
+
+import com.wolyh.game.backend.model.HexCoordinates;
+import com.wolyh.game.backend.model.UnitCoordinates;
+
+public record PlayerSnapshot(
+    GameConfig config,
+    int turn,
+    int shrinkLevel,
+    int activeUnitIdx,
+    int nbUnits,
+    List<HexCoordinates> hexes,
+    List<HexCoordinates> obstacles,
+    Set<String> fov,
+    List<UnitCoordinates> allies,
+    List<UnitCoordinates> visibleEnemies,
+    List<Integer> aliveEnemies
+) {}
@@ -0,0 +1,18 @@
+package com.wolyh.game.backend.game;
+
+import java.util.List;
+import java.util.Set;
+
+import com.wolyh.game.backend.model.UnitCoordinates;
+
+/**
+ * What one player can see of the units at a given version of the game.
+ * Immutable, the game publishes a new one after the units or the map change.
+ */
+public record PlayerView(
+    long version,
+    Set<String> fov,
+    List<UnitCoordinates> allies,
+    List<UnitCoordinates> visibleEnemies,
+    List<Integer> aliveEnemies
+) {}
@@ -0,0 +1,31 @@
+package com.wolyh.game.backend.game;
+
+/** Why an action of a player was refused, sent back to them and counted by reason. */
+public enum Rejection {
+    /** The room has no game, or the sender does not play in it. */
+    NOT_IN_GAME,
+    GAME_OVER,
+    NOT_ACTIVE_PLAYER,
+    UNKNOWN_ACTION,
+    EMPTY_BATCH,
+    /** A null action in a batch, or an action without its goal hex. */
+    MALFORMED_ACTION,
+    NO_ACTION_POINTS,
+    /** The unit is not the one whose turn it is. */
+    UNIT_NOT_ACTIVE,
+    OFF_MAP,
+    HEX_NOT_VISIBLE,
+    /** Obstacle or another unit on the goal of a move. */
+    HEX_BLOCKED,
+    /** No path through the hexes the team sees. */
+    NO_PATH,
+    NO_TARGET,
+    ALLY_TARGET;
+
+    private final String tag = name().toLowerCase();
+
+    /** Metric and log value. */
+    public String tag() {
+        return tag;
+    }
+}
@@ -4,11 +4,13 @@ import java.util.List;
 import java.util.Map;
 import java.util.Set;
 
+import com.wolyh.game.backend.model.MapTerrain;
 import com.wolyh.game.backend.model.UnitCoordinates;
 
 public record AddGameResult (
         Set<String> player1Fov,
         Set<String> player2Fov,
         Map<String, List<UnitCoordinates>> unitSpawnsPerPlayer,
-        int nb_units
+        int nb_units,
+        MapTerrain terrain
 ) {}
\ No newline at end of file
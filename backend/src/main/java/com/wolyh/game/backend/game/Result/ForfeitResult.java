@@ -1,10 +1,13 @@
 package com.wolyh.game.backend.game.Result;
 
+import java.util.List;
+
 import com.wolyh.game.backend.dto.Notification;
 import com.wolyh.game.backend.dto.Notification.GameEvent;
 
 public record ForfeitResult(
         String forfeitingPlayer,
-        String otherPlayer,
+        String winner,
+        List<String> players,
         Notification<GameEvent> gameOverNotif
-) {}
\ No newline at end of file
+) {}
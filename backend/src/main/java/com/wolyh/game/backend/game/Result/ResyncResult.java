@@ -0,0 +1,9 @@
+package com.wolyh.game.backend.game.Result;
+
+import com.wolyh.game.backend.dto.Notification;
+import com.wolyh.game.backend.dto.Notification.GameEvent;
+
+public record ResyncResult(
+    long seq,
+    Notification<GameEvent> snapshot
+) {}
@@ -5,9 +5,23 @@ import java.util.Map;
 
 import com.wolyh.game.backend.dto.Notification;
 import com.wolyh.game.backend.dto.Notification.GameEvent;
+import com.wolyh.game.backend.game.Rejection;
 
+/** Either applied, with the notifications of the players, or refused with the reason. */
 public record UnitActionResult(
     boolean isGameOver,
-    Map<String, List<Notification<GameEvent>>> notifications
-) {}
+    Map<String, List<Notification<GameEvent>>> notifications,
+    Rejection rejection
+) {
+    public UnitActionResult(boolean isGameOver, Map<String, List<Notification<GameEvent>>> notifications) {
+        this(isGameOver, notifications, null);
+    }
 
+    public static UnitActionResult rejected(Rejection rejection) {
+        return new UnitActionResult(false, Map.of(), rejection);
+    }
+
+    public boolean isRejected() {
+        return rejection != null;
+    }
+}
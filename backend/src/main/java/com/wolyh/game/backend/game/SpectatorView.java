@@ -0,0 +1,23 @@
+package com.wolyh.game.backend.game;
+
+import java.util.List;
+import java.util.Set;
+
+import com.wolyh.game.backend.model.MapTerrain;
+import com.wolyh.game.backend.model.UnitCoordinates;
+
+/**
+ * Self-contained state of a game for spectators, so a watcher joining late needs nothing else.
+ * fov is null for the omniscient view, terrain is null in replay keyframes.
+ */
+public record SpectatorView(
+    int turn,
+    int shrinkLevel,
+    int activeUnitIdx,
+    int nbUnits,
+    List<UnitCoordinates> units,
+    Set<String> fov,
+    boolean gameOver,
+    String winner,
+    MapTerrain terrain
+) {}
@@ -1,16 +1,26 @@
 package com.wolyh.game.backend.game;
 
 public class TurnManager {
+    private final int shrinkInterval;
+
     private int turn = 1;
+
+    public TurnManager(int shrinkInterval) {
+        this.shrinkInterval = shrinkInterval;
+    }
     
     public void incrementTurn() {
         turn++;
     }
     
     public boolean shouldShrinkMap() {
-        return turn % 15 == 0 && turn > 1;
+        return turn % shrinkInterval == 0 && turn > 1;
     }
     
+    public void setTurn(int turn) {
+        this.turn = turn;
+    }
+
     public int getTurn() {
         return turn;
     }
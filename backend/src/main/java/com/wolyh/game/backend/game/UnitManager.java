@@ -1,77 +1,193 @@
 package com.wolyh.game.backend.game;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Random;
-import java.util.function.Consumer;
+import java.util.function.IntConsumer;
 
 import com.wolyh.game.backend.model.Hex;
-import com.wolyh.game.backend.model.Unit;
 import com.wolyh.game.backend.model.UnitCoordinates;
 
+/**
+ * Units are plain indexes into parallel arrays: hex index, owner slot in
+ * {@link PlayerManager#getPlayers()} and alive flag. Alive units are also linked in a ring
+ * in index order, and alive counts are kept per team, so passing the turn and checking
+ * the end of the game do not depend on the size of the armies.
+ */
 public class UnitManager {
+    public static final int NONE = -1;
+
     private final MapManager mapManager;
     private final PlayerManager playerManager;
 
-    private final Random random = new Random();
+    private final Random random;
+
+    private final int nb_units_per_player;
+    private final int inital_min_dist_between_units;
+
+    /** unit idx -> hex index, kept after death */
+    private final int[] position;
+    /** unit idx -> player slot */
+    private final int[] owner;
+    private final boolean[] alive;
+
+    /** Ring of alive units, a dead unit keeps its links so the next alive one is still found from it. */
+    private final int[] next;
+    private final int[] prev;
+    private int aliveCount;
 
-    private final int nb_units_per_player = 3;
-    private final int inital_min_dist_between_units = 2;
+    private final int[] aliveByTeam;
+    private int teamsAlive;
 
-    private Unit[] units;
     private int ActiveUnitIdx = 0;
 
+    private final OccupancyIndex occupancy;
+
+    public UnitManager(
+        MapManager mapManager,
+        PlayerManager playerManager,
+        int unitsPerPlayer,
+        int minSpawnDistance
+    ) {
+        this(mapManager, playerManager, unitsPerPlayer, minSpawnDistance, new Random());
+    }
+
     public UnitManager(
         MapManager mapManager,
-        PlayerManager playerManager
+        PlayerManager playerManager,
+        int unitsPerPlayer,
+        int minSpawnDistance,
+        Random random
     ) {
+        this.random = random;
         this.mapManager = mapManager;
         this.playerManager = playerManager;
-        this.units = new Unit[2* nb_units_per_player];
+        this.nb_units_per_player = unitsPerPlayer;
+        this.inital_min_dist_between_units = minSpawnDistance;
+
+        int nbUnits = playerManager.getPlayerCount() * nb_units_per_player;
+        this.position = new int[nbUnits];
+        this.owner = new int[nbUnits];
+        this.alive = new boolean[nbUnits];
+        this.next = new int[nbUnits];
+        this.prev = new int[nbUnits];
+        this.aliveByTeam = new int[playerManager.getTeamCount()];
+        this.occupancy = new OccupancyIndex(mapManager.indexCount(), nbUnits);
     }
 
-    public Hex getHex(int ActiveUnitIdx) {
-        return this.units[ActiveUnitIdx].getHex();
+    public Hex getHex(int idx) {
+        return mapManager.hexAt(position[idx]);
     }
 
     public void setUnitHex(int idx, Hex hex) {
-        this.units[idx].getHex().setUnit(null);
-        this.units[idx].setHex(hex);
+        position[idx] = mapManager.index(hex);
+        occupancy.move(idx, position[idx]);
+    }
+
+    public void killUnit(int idx) {
+        if (!alive[idx]) {
+            return;
+        }
+        alive[idx] = false;
+        occupancy.remove(idx);
+
+        next[prev[idx]] = next[idx];
+        prev[next[idx]] = prev[idx];
+        aliveCount--;
+
+        if (--aliveByTeam[occupancy.teamOf(idx)] == 0) {
+            teamsAlive--;
+        }
+    }
+
+    /** Undoes kills in the reverse order they were made, the links a dead unit kept are then still right. */
+    public void reviveUnit(int idx) {
+        if (alive[idx]) {
+            return;
+        }
+        alive[idx] = true;
+        int team = playerManager.teamOf(owner[idx]);
+        occupancy.place(idx, team, position[idx]);
+
+        next[prev[idx]] = idx;
+        prev[next[idx]] = idx;
+        aliveCount++;
+
+        if (aliveByTeam[team]++ == 0) {
+            teamsAlive++;
+        }
+    }
+
+    public OccupancyIndex getOccupancy() {
+        return occupancy;
+    }
+
+    /** Alive unit on the hex, or {@link OccupancyIndex#EMPTY}. */
+    public int unitAt(Hex hex) {
+        return occupancy.unitAt(mapManager.index(hex));
+    }
+
+    public boolean isFree(Hex hex) {
+        return occupancy.isFree(mapManager.index(hex));
+    }
+
+    public int getTeam(int idx) {
+        return occupancy.teamOf(idx);
+    }
 
-        hex.setUnit(this.units[idx]);
+    /** Slot of the player owning the unit. */
+    public int getOwner(int idx) {
+        return owner[idx];
     }
 
-    public void forEachAliveUnit(Consumer<Unit> action) {
-        for (Unit unit : units) {
-            if (unit != null && !unit.isDead()) {
-                action.accept(unit);
+    public String getPlayer(int idx) {
+        return playerManager.getPlayer(owner[idx]);
+    }
+
+    public boolean isAlive(int idx) {
+        return alive[idx];
+    }
+
+    /** Alive units in index order. */
+    public void forEachAliveUnit(IntConsumer action) {
+        for (int i = 0 ; i < alive.length ; i++) {
+            if (alive[i]) {
+                action.accept(i);
             }
         }
     }
 
+    /** Next alive unit after the active one in index order, -1 if there is none. */
     public int setNextActiveUnit() {
-        for (int i = 1 ; i < units.length ; i++) {
-            int nextIdx = (ActiveUnitIdx + i) % units.length;
-            if (!units[nextIdx].isDead()) {
-                ActiveUnitIdx = nextIdx;
-                return nextIdx;
-            }
+        if (aliveCount == 0) {
+            return NONE;
+        }
+        // the active unit may have died, its links lead to the next alive unit
+        int nextIdx = next[ActiveUnitIdx];
+        while (!alive[nextIdx]) {
+            nextIdx = next[nextIdx];
         }
-        return -1;
+        if (nextIdx == ActiveUnitIdx) {
+            return NONE;
+        }
+        next[ActiveUnitIdx] = nextIdx;
+        ActiveUnitIdx = nextIdx;
+        return nextIdx;
     }
-    
-    public String getActivePlayer() {
-        return units[ActiveUnitIdx].getPlayer();
+
+    public int getActiveUnitIdx() {
+        return ActiveUnitIdx;
     }
 
-    public boolean isActivePlayer(Unit unit) {
-        return unit.getPlayer().equals(getActivePlayer());
+    public int getActiveSlot() {
+        return owner[ActiveUnitIdx];
     }
 
-    public boolean isUnitActive(Unit unit) {
-        return this.ActiveUnitIdx == unit.idx;
+    public String getActivePlayer() {
+        return getPlayer(ActiveUnitIdx);
     }
 
     public boolean isUnitActive(int idx) {
@@ -80,81 +196,130 @@ public class UnitManager {
 
     public void spawnUnits() {
         List<Hex> possibleSpawns = mapManager.generateSpawns(inital_min_dist_between_units);
+        if (possibleSpawns.size() < position.length) {
+            // any subset of the validated spawns keeps the min distance
+            possibleSpawns = mapManager.getValidatedSpawns();
+        }
 
-        if(possibleSpawns.size() < 2 * nb_units_per_player) {
+        if(possibleSpawns.size() < position.length) {
             throw new IllegalArgumentException(
-                "A min spawn distance of "  + 
-                inital_min_dist_between_units + 
+                "A min spawn distance of "  +
+                inital_min_dist_between_units +
                 " bewteen unit is too large for the map size"
             );
         }
 
-        for (int i = 0 ; i < units.length ; i++) {
+        // units are dealt to the players in turn order, so turns go around the players
+        int nbPlayers = playerManager.getPlayerCount();
+        occupancy.clear();
+        for (int i = 0 ; i < position.length ; i++) {
             Hex hex = possibleSpawns.remove(random.nextInt(possibleSpawns.size()));
-            if(i % 2 == 0) {
-                units[i] = new Unit(hex, playerManager.getPlayer1(), i);
+            owner[i] = i % nbPlayers;
+            position[i] = mapManager.index(hex);
+            occupancy.place(i, playerManager.teamOf(owner[i]), position[i]);
+        }
+        Arrays.fill(alive, true);
+        link();
+    }
+
+    /** Puts the units back as listed, the others are dead. */
+    public void restore(int activeUnitIdx, List<UnitCoordinates> aliveUnits) {
+        Arrays.fill(alive, false);
+        occupancy.clear();
+        for (UnitCoordinates coords : aliveUnits) {
+            int idx = coords.idx();
+            alive[idx] = true;
+            position[idx] = mapManager.index(mapManager.getHex(Hex.key(coords.q(), coords.r())));
+            occupancy.place(idx, playerManager.teamOf(owner[idx]), position[idx]);
+        }
+        link();
+        this.ActiveUnitIdx = activeUnitIdx;
+        if (!alive[activeUnitIdx]) {
+            // find the next alive unit from the dead active one as if it had just died
+            for (int i = 1 ; i < alive.length ; i++) {
+                int nextIdx = (activeUnitIdx + i) % alive.length;
+                if (alive[nextIdx]) {
+                    next[activeUnitIdx] = nextIdx;
+                    break;
+                }
             }
-            else {
-                units[i] = new Unit(hex, playerManager.getPlayer2(), i);
+        }
+    }
+
+    /** Rebuilds the ring and the counts from the alive flags. */
+    private void link() {
+        Arrays.fill(aliveByTeam, 0);
+        aliveCount = 0;
+        teamsAlive = 0;
+
+        int first = NONE;
+        int last = NONE;
+        for (int i = 0 ; i < alive.length ; i++) {
+            if (!alive[i]) {
+                continue;
+            }
+            if (first == NONE) {
+                first = i;
+            } else {
+                next[last] = i;
+                prev[i] = last;
             }
+            last = i;
+            aliveCount++;
+            if (aliveByTeam[occupancy.teamOf(i)]++ == 0) {
+                teamsAlive++;
+            }
+        }
+        if (first != NONE) {
+            next[last] = first;
+            prev[first] = last;
         }
     }
 
     public Map<String, List<UnitCoordinates>> getUnitLocations() {
         Map<String, List<UnitCoordinates>> unitLocationsPerPlayer = new HashMap<>();
 
-        unitLocationsPerPlayer.put(playerManager.getPlayer1(), new ArrayList<>());
-        unitLocationsPerPlayer.put(playerManager.getPlayer2(), new ArrayList<>());
+        for (String player : playerManager.getPlayers()) {
+            unitLocationsPerPlayer.put(player, new ArrayList<>());
+        }
 
-        for (int i = 0 ; i < units.length ; i++) {
-            if(units[i].isDead()) {
-                continue;
-            }
+        forEachAliveUnit(i -> {
+            Hex hex = getHex(i);
+            unitLocationsPerPlayer.get(getPlayer(i)).add(new UnitCoordinates(i, hex.getQ(), hex.getR()));
+        });
 
-            unitLocationsPerPlayer.get(units[i].getPlayer()).add(new UnitCoordinates(
-                i, 
-                units[i].getHex().getQ(), 
-                units[i].getHex().getR()
-            ));
-        }
-        
         return unitLocationsPerPlayer;
     }
 
     public int getNumberOfUnits() {
-        return 2 * nb_units_per_player;
+        return position.length;
     }
 
-    public record EndConditionResult(boolean player1Won, boolean player2Won) {}
+    /** lastTeam is the surviving team when teamsAlive is 1. */
+    public record EndConditionResult(int teamsAlive, int lastTeam) {}
 
     public EndConditionResult checkEndCondition() {
-        int player1Units = 0;
-        int player2Units = 0;
-
-        for (Unit unit : units) {
-            if (unit != null && !unit.isDead()) {
-                if(unit.getPlayer().equals(playerManager.getPlayer1())) {
-                    player1Units++;
-                }
-                if (unit.getPlayer().equals(playerManager.getPlayer2())) {
-                    player2Units++;
+        int lastTeam = NONE;
+        if (teamsAlive == 1) {
+            for (int team = 0 ; team < aliveByTeam.length ; team++) {
+                if (aliveByTeam[team] > 0) {
+                    lastTeam = team;
+                    break;
                 }
             }
         }
-        
-        return new EndConditionResult(player2Units == 0, player1Units == 0);
+        return new EndConditionResult(teamsAlive, lastTeam);
     }
 
+    /** Only alive units are checked, once per shrink. */
     public List<Integer> killOutOfMapUnits() {
         List<Integer> deadUnits = new ArrayList<>();
-        for (int i = 0 ; i < units.length ; i++) {
-            if(!mapManager.hasHex(units[i].getHex().getKey())) {
-                if(!units[i].isDead()) {
-                    units[i].setDead(true);
-                    deadUnits.add(i);
-                }
+        forEachAliveUnit(i -> {
+            if (!mapManager.contains(position[i])) {
+                deadUnits.add(i);
             }
-        }
+        });
+        deadUnits.forEach(this::killUnit);
         return deadUnits;
     }
 }
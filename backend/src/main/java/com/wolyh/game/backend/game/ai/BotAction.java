@@ -0,0 +1,15 @@
+package com.wolyh.game.backend.game.ai;
+
+import com.wolyh.game.backend.model.HexCoordinates;
+
+public record BotAction(
+    Type type,
+    int unitIdx,
+    HexCoordinates goal
+) {
+    public static enum Type {
+        UNIT_MOVE,
+        UNIT_ATTACK,
+        TURN_SKIP
+    }
+}
@@ -0,0 +1,215 @@
+package com.wolyh.game.backend.game.ai;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import com.wolyh.game.backend.game.PlayerSnapshot;
+import com.wolyh.game.backend.model.HexCoordinates;
+
+/**
+ * Time-bounded Monte Carlo search over the actions of the active unit.
+ * Each worker runs UCB1 over the root actions on its own statistics (root parallelism),
+ * every playout starts from a fresh determinization of the hidden enemy units
+ * and follows a greedy-random policy for both sides. The most visited action wins.
+ * Every worker runs on the given pool, which may be shared by several searches, so the
+ * pool alone bounds the CPU spent searching and the calling thread only waits. Workers
+ * still queued at the deadline are dropped instead of being waited for, a search that got
+ * no worker at all skips. A busy pool costs strength, never time.
+ */
+public class MonteCarloSearch {
+    private static final double EXPLORATION = Math.sqrt(2);
+    private static final int MAX_PLAYOUT_TURNS = 120;
+    private static final double GREEDY_MOVE_PROBABILITY = 0.7;
+
+    private final ExecutorService workers;
+    private final int parallelism;
+
+    public MonteCarloSearch(ExecutorService workers, int parallelism) {
+        this.workers = workers;
+        this.parallelism = parallelism;
+    }
+
+    public BotAction search(PlayerSnapshot snapshot, Duration budget) throws InterruptedException {
+        SimulationState root = SimulationState.fromSnapshot(snapshot);
+        List<SimulationAction> actions = rootActions(root);
+
+        if (actions.size() == 1) {
+            return toBotAction(root, actions.get(0));
+        }
+
+        long deadline = System.nanoTime() + budget.toNanos();
+        List<Future<double[][]>> futures = new ArrayList<>(parallelism);
+        List<AtomicBoolean> claims = new ArrayList<>(parallelism);
+        SplittableRandom seeds = new SplittableRandom();
+
+        for (int i = 0; i < parallelism; i++) {
+            SplittableRandom random = seeds.split();
+            AtomicBoolean claim = new AtomicBoolean();
+            claims.add(claim);
+            futures.add(workers.submit(() -> claim.compareAndSet(false, true) ? runWorker(root, actions, deadline, random) : null));
+        }
+
+        double[] visits = new double[actions.size()];
+        double total = 0;
+        for (int i = 0; i < parallelism; i++) {
+            double[][] stats = collect(futures.get(i), claims.get(i), deadline);
+            if (stats == null) {
+                continue;
+            }
+            for (int a = 0; a < visits.length; a++) {
+                visits[a] += stats[1][a];
+                total += stats[1][a];
+            }
+        }
+        if (total == 0) {
+            return toBotAction(root, SimulationAction.SKIP);
+        }
+
+        int best = 0;
+        for (int a = 1; a < visits.length; a++) {
+            if (visits[a] > visits[best]) {
+                best = a;
+            }
+        }
+        return toBotAction(root, actions.get(best));
+    }
+
+    /**
+     * Statistics of a worker, null when it had not started by the deadline: claiming it first
+     * keeps it from starting, a running worker ends with its current playout.
+     */
+    private static double[][] collect(Future<double[][]> future, AtomicBoolean claim, long deadline)
+            throws InterruptedException {
+        try {
+            try {
+                return future.get(Math.max(0, deadline - System.nanoTime()), TimeUnit.NANOSECONDS);
+            } catch (TimeoutException e) {
+                return claim.compareAndSet(false, true) ? null : future.get();
+            }
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("Bot search worker failed", e.getCause());
+        }
+    }
+
+    /** The first ply uses the real fov of the player, exactly what the server will validate against. */
+    private List<SimulationAction> rootActions(SimulationState root) {
+        List<SimulationAction> actions = new ArrayList<>();
+        for (int target : root.attackTargets(root.fov)) {
+            actions.add(new SimulationAction(SimulationAction.Type.ATTACK, target));
+        }
+        for (int hex : root.reachable(root.fov)) {
+            actions.add(new SimulationAction(SimulationAction.Type.MOVE, hex));
+        }
+        actions.add(SimulationAction.SKIP);
+        return actions;
+    }
+
+    private double[][] runWorker(
+        SimulationState root,
+        List<SimulationAction> actions,
+        long deadline,
+        SplittableRandom random
+    ) {
+        double[] wins = new double[actions.size()];
+        double[] visits = new double[actions.size()];
+        int total = 0;
+
+        while (System.nanoTime() < deadline) {
+            int a = select(wins, visits, total);
+
+            SimulationState state = root.copy();
+            state.determinize(random);
+            int outcome = state.apply(actions.get(a));
+
+            wins[a] += playout(state, outcome, random);
+            visits[a]++;
+            total++;
+        }
+        return new double[][] {wins, visits};
+    }
+
+    private int select(double[] wins, double[] visits, int total) {
+        int best = 0;
+        double bestScore = Double.NEGATIVE_INFINITY;
+        double logTotal = Math.log(Math.max(1, total));
+
+        for (int a = 0; a < visits.length; a++) {
+            if (visits[a] == 0) {
+                return a;
+            }
+            double score = wins[a] / visits[a] + EXPLORATION * Math.sqrt(logTotal / visits[a]);
+            if (score > bestScore) {
+                bestScore = score;
+                best = a;
+            }
+        }
+        return best;
+    }
+
+    private double playout(SimulationState state, int outcome, SplittableRandom random) {
+        for (int turns = 0; outcome == SimulationState.ONGOING && turns < MAX_PLAYOUT_TURNS; turns++) {
+            outcome = state.apply(policy(state, random));
+        }
+
+        return switch (outcome) {
+            case SimulationState.ALLY_WON -> 1.0;
+            case SimulationState.ENEMY_WON -> 0.0;
+            case SimulationState.DRAW -> 0.5;
+            default -> state.material();
+        };
+    }
+
+    private SimulationAction policy(SimulationState state, SplittableRandom random) {
+        boolean side = state.isAllyTurn();
+        boolean[] visible = state.visibleBy(side);
+
+        int[] targets = state.attackTargets(visible);
+        if (targets.length > 0) {
+            return new SimulationAction(SimulationAction.Type.ATTACK, targets[random.nextInt(targets.length)]);
+        }
+
+        int[] reachable = state.reachable(visible);
+        if (reachable.length == 0) {
+            return SimulationAction.SKIP;
+        }
+
+        if (random.nextDouble() >= GREEDY_MOVE_PROBABILITY) {
+            return new SimulationAction(SimulationAction.Type.MOVE, reachable[random.nextInt(reachable.length)]);
+        }
+
+        int best = reachable[0];
+        int bestDistance = Integer.MAX_VALUE;
+        for (int hex : reachable) {
+            int distance = state.nearestEnemyDistance(hex, side);
+            if (distance < bestDistance) {
+                best = hex;
+                bestDistance = distance;
+            }
+        }
+        return new SimulationAction(SimulationAction.Type.MOVE, best);
+    }
+
+    private BotAction toBotAction(SimulationState root, SimulationAction action) {
+        return switch (action.type()) {
+            case MOVE -> new BotAction(
+                BotAction.Type.UNIT_MOVE,
+                root.active,
+                new HexCoordinates(root.q(action.hex()), root.r(action.hex()))
+            );
+            case ATTACK -> new BotAction(
+                BotAction.Type.UNIT_ATTACK,
+                root.active,
+                new HexCoordinates(root.q(action.hex()), root.r(action.hex()))
+            );
+            case SKIP -> new BotAction(BotAction.Type.TURN_SKIP, root.active, null);
+        };
+    }
+}
@@ -0,0 +1,12 @@
+package com.wolyh.game.backend.game.ai;
+
+record SimulationAction(Type type, int hex) {
+
+    static final SimulationAction SKIP = new SimulationAction(Type.SKIP, SimulationState.NONE);
+
+    enum Type {
+        MOVE,
+        ATTACK,
+        SKIP
+    }
+}
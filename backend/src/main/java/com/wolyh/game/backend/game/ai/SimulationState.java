@@ -0,0 +1,385 @@
+package com.wolyh.game.backend.game.ai;
+
+import java.util.Arrays;
+import java.util.SplittableRandom;
+
+import com.wolyh.game.backend.game.HexOffsets;
+import com.wolyh.game.backend.game.PlayerSnapshot;
+import com.wolyh.game.backend.model.HexCoordinates;
+import com.wolyh.game.backend.model.UnitCoordinates;
+
+/**
+ * Flat copy of a game as seen by one player, cheap enough to clone for every rollout.
+ * Hexes are dense indices of a (2r+1)² grid, units are plain int arrays and sides are
+ * booleans: true for the searching player, false for the opponent.
+ * Visibility follows the server: the hexes in range of a unit with no obstacle on the line
+ * between them. Lines only depend on the obstacles, so they are traced once per search.
+ */
+final class SimulationState {
+    static final int NONE = -1;
+
+    static final int ONGOING = 2;
+    static final int ALLY_WON = 1;
+    static final int DRAW = 0;
+    static final int ENEMY_WON = -1;
+
+    private static final int[][] DIRECTIONS = {
+        {+1,  0}, {+1, -1}, { 0, -1},
+        {-1,  0}, {-1, +1}, { 0, +1}
+    };
+
+    final int radius;
+    final int width;
+    final int visibilityRange;
+    final int shrinkInterval;
+
+    boolean[] playable;
+    final int[] unitHex;
+    final boolean[] ally;
+    final int[] occupant;
+    int active;
+    int turn;
+    int shrinkLevel;
+
+    /** Enemy units the player knows are alive but cannot see, placed by {@link #determinize}. */
+    final int[] hiddenEnemies;
+    final boolean[] fov;
+    /** Hexes seen from each playable hex, null elsewhere. */
+    final int[][] sight;
+
+    private SimulationState(int radius, int visibilityRange, int shrinkInterval, int nbUnits, int[] hiddenEnemies) {
+        this.radius = radius;
+        this.width = 2 * radius + 1;
+        this.visibilityRange = visibilityRange;
+        this.shrinkInterval = shrinkInterval;
+        this.playable = new boolean[width * width];
+        this.unitHex = new int[nbUnits];
+        this.ally = new boolean[nbUnits];
+        this.occupant = new int[width * width];
+        this.hiddenEnemies = hiddenEnemies;
+        this.fov = new boolean[width * width];
+        this.sight = new int[width * width][];
+    }
+
+    private SimulationState(SimulationState other) {
+        this.radius = other.radius;
+        this.width = other.width;
+        this.visibilityRange = other.visibilityRange;
+        this.shrinkInterval = other.shrinkInterval;
+        this.playable = other.playable;
+        this.unitHex = other.unitHex.clone();
+        this.ally = other.ally;
+        this.occupant = other.occupant.clone();
+        this.active = other.active;
+        this.turn = other.turn;
+        this.shrinkLevel = other.shrinkLevel;
+        this.hiddenEnemies = other.hiddenEnemies;
+        this.fov = other.fov;
+        this.sight = other.sight;
+    }
+
+    static SimulationState fromSnapshot(PlayerSnapshot snapshot) {
+        int[] hidden = snapshot.aliveEnemies().stream()
+            .mapToInt(Integer::intValue)
+            .filter(idx -> snapshot.visibleEnemies().stream().noneMatch(unit -> unit.idx() == idx))
+            .toArray();
+
+        SimulationState state = new SimulationState(
+            snapshot.config().mapRadius(),
+            snapshot.config().visibilityRange(),
+            snapshot.config().shrinkInterval(),
+            snapshot.nbUnits(),
+            hidden
+        );
+
+        for (HexCoordinates hex : snapshot.hexes()) {
+            state.playable[state.index(hex.q(), hex.r())] = true;
+        }
+        boolean[] obstacles = new boolean[state.playable.length];
+        for (HexCoordinates obstacle : snapshot.obstacles()) {
+            state.playable[state.index(obstacle.q(), obstacle.r())] = false;
+            obstacles[state.index(obstacle.q(), obstacle.r())] = true;
+        }
+        HexOffsets offsets = HexOffsets.of(state.visibilityRange);
+        for (int hex = 0; hex < state.playable.length; hex++) {
+            if (state.playable[hex]) {
+                state.sight[hex] = state.traceSight(hex, obstacles, offsets);
+            }
+        }
+        for (String key : snapshot.fov()) {
+            int separator = key.indexOf('_');
+            int q = Integer.parseInt(key.substring(0, separator));
+            int r = Integer.parseInt(key.substring(separator + 1));
+            state.fov[state.index(q, r)] = true;
+        }
+
+        Arrays.fill(state.unitHex, NONE);
+        Arrays.fill(state.occupant, NONE);
+        for (UnitCoordinates unit : snapshot.allies()) {
+            state.ally[unit.idx()] = true;
+            state.place(unit.idx(), state.index(unit.q(), unit.r()));
+        }
+        for (UnitCoordinates unit : snapshot.visibleEnemies()) {
+            state.place(unit.idx(), state.index(unit.q(), unit.r()));
+        }
+
+        state.active = snapshot.activeUnitIdx();
+        state.turn = snapshot.turn();
+        state.shrinkLevel = snapshot.shrinkLevel();
+        return state;
+    }
+
+    SimulationState copy() {
+        return new SimulationState(this);
+    }
+
+    int index(int q, int r) {
+        return (q + radius) * width + (r + radius);
+    }
+
+    int q(int index) {
+        return index / width - radius;
+    }
+
+    int r(int index) {
+        return index % width - radius;
+    }
+
+    int distance(int a, int b) {
+        int dq = q(a) - q(b);
+        int dr = r(a) - r(b);
+        return Math.max(Math.max(Math.abs(dq), Math.abs(dr)), Math.abs(dq + dr));
+    }
+
+    private boolean inGrid(int q, int r) {
+        return Math.abs(q) <= radius && Math.abs(r) <= radius && Math.abs(q + r) <= radius;
+    }
+
+    /** Same lines as the server's fov, a hole does not block them. */
+    private int[] traceSight(int origin, boolean[] obstacles, HexOffsets offsets) {
+        int q0 = q(origin);
+        int r0 = r(origin);
+        int[] seen = new int[offsets.size()];
+        int count = 0;
+        for (int i = 0; i < offsets.size(); i++) {
+            if (!inGrid(q0 + offsets.dq(i), r0 + offsets.dr(i))) {
+                continue;
+            }
+            boolean clear = true;
+            for (int step = offsets.rayStart(i); step < offsets.rayStart(i + 1) && clear; step++) {
+                int q = q0 + offsets.rayDq(step);
+                int r = r0 + offsets.rayDr(step);
+                clear = !inGrid(q, r) || !obstacles[index(q, r)];
+            }
+            if (clear) {
+                seen[count++] = index(q0 + offsets.dq(i), r0 + offsets.dr(i));
+            }
+        }
+        return Arrays.copyOf(seen, count);
+    }
+
+    private int neighbor(int index, int direction) {
+        int q = q(index) + DIRECTIONS[direction][0];
+        int r = r(index) + DIRECTIONS[direction][1];
+        return inGrid(q, r) ? index(q, r) : NONE;
+    }
+
+    private void place(int unit, int hex) {
+        unitHex[unit] = hex;
+        occupant[hex] = unit;
+    }
+
+    /**
+     * Places every hidden enemy on a random free hex outside the player's fov,
+     * so each rollout plays against one plausible world.
+     */
+    void determinize(SplittableRandom random) {
+        for (int unit : hiddenEnemies) {
+            int hex = randomFreeHex(random, true);
+            if (hex == NONE) {
+                hex = randomFreeHex(random, false);
+            }
+            if (hex != NONE) {
+                place(unit, hex);
+            }
+        }
+    }
+
+    private int randomFreeHex(SplittableRandom random, boolean outsideFov) {
+        int start = random.nextInt(playable.length);
+        for (int i = 0; i < playable.length; i++) {
+            int hex = (start + i) % playable.length;
+            if (playable[hex] && occupant[hex] == NONE && !(outsideFov && fov[hex])) {
+                return hex;
+            }
+        }
+        return NONE;
+    }
+
+    boolean isAllyTurn() {
+        return ally[active];
+    }
+
+    boolean[] visibleBy(boolean side) {
+        boolean[] visible = new boolean[playable.length];
+        for (int unit = 0; unit < unitHex.length; unit++) {
+            if (unitHex[unit] == NONE || ally[unit] != side) {
+                continue;
+            }
+            for (int hex : sight[unitHex[unit]]) {
+                visible[hex] = playable[hex];
+            }
+        }
+        return visible;
+    }
+
+    /** Hexes the active unit can walk to through free hexes its side can see, as the server's BFS. */
+    int[] reachable(boolean[] visible) {
+        int start = unitHex[active];
+        if (start == NONE) {
+            return new int[0];
+        }
+        int[] frontier = new int[playable.length];
+        boolean[] seen = new boolean[playable.length];
+        int head = 0;
+        int tail = 0;
+
+        frontier[tail++] = start;
+        seen[start] = true;
+
+        while (head < tail) {
+            int current = frontier[head++];
+            for (int direction = 0; direction < DIRECTIONS.length; direction++) {
+                int next = neighbor(current, direction);
+                if (next == NONE || seen[next] || !playable[next] || occupant[next] != NONE || !visible[next]) {
+                    continue;
+                }
+                seen[next] = true;
+                frontier[tail++] = next;
+            }
+        }
+        return Arrays.copyOfRange(frontier, 1, tail);
+    }
+
+    int[] attackTargets(boolean[] visible) {
+        boolean side = ally[active];
+        int[] targets = new int[unitHex.length];
+        int count = 0;
+        for (int unit = 0; unit < unitHex.length; unit++) {
+            if (unitHex[unit] != NONE && ally[unit] != side && visible[unitHex[unit]]) {
+                targets[count++] = unitHex[unit];
+            }
+        }
+        return Arrays.copyOf(targets, count);
+    }
+
+    /** Applies the action of the active unit and ends the turn. Returns the outcome. */
+    int apply(SimulationAction action) {
+        switch (action.type()) {
+            case MOVE -> {
+                occupant[unitHex[active]] = NONE;
+                place(active, action.hex());
+            }
+            case ATTACK -> {
+                int target = occupant[action.hex()];
+                if (target != NONE) {
+                    unitHex[target] = NONE;
+                    occupant[action.hex()] = NONE;
+                }
+            }
+            case SKIP -> {}
+        }
+        return endTurn();
+    }
+
+    private int endTurn() {
+        int outcome = outcome();
+        if (outcome != ONGOING) {
+            return outcome;
+        }
+
+        turn++;
+        nextActive();
+
+        if (turn % shrinkInterval != 0) {
+            return ONGOING;
+        }
+
+        shrinkLevel--;
+        boolean[] shrunk = playable.clone();
+        for (int hex = 0; hex < shrunk.length; hex++) {
+            int q = q(hex);
+            int r = r(hex);
+            if (Math.max(Math.max(Math.abs(q), Math.abs(r)), Math.abs(q + r)) > shrinkLevel) {
+                shrunk[hex] = false;
+                int unit = occupant[hex];
+                if (unit != NONE) {
+                    unitHex[unit] = NONE;
+                    occupant[hex] = NONE;
+                }
+            }
+        }
+        playable = shrunk;
+        if (unitHex[active] == NONE) {
+            nextActive();
+        }
+        return outcome();
+    }
+
+    private void nextActive() {
+        for (int i = 1; i <= unitHex.length; i++) {
+            int next = (active + i) % unitHex.length;
+            if (unitHex[next] != NONE) {
+                active = next;
+                return;
+            }
+        }
+    }
+
+    int outcome() {
+        int allies = 0;
+        int enemies = 0;
+        for (int unit = 0; unit < unitHex.length; unit++) {
+            if (unitHex[unit] == NONE) {
+                continue;
+            }
+            if (ally[unit]) {
+                allies++;
+            } else {
+                enemies++;
+            }
+        }
+        if (allies > 0 && enemies > 0) {
+            return ONGOING;
+        }
+        if (allies == 0 && enemies == 0) {
+            return DRAW;
+        }
+        return allies > 0 ? ALLY_WON : ENEMY_WON;
+    }
+
+    /** Share of the alive units owned by the searching player, used when a rollout is cut. */
+    double material() {
+        int allies = 0;
+        int alive = 0;
+        for (int unit = 0; unit < unitHex.length; unit++) {
+            if (unitHex[unit] != NONE) {
+                alive++;
+                if (ally[unit]) {
+                    allies++;
+                }
+            }
+        }
+        return alive == 0 ? 0.5 : (double) allies / alive;
+    }
+
+    int nearestEnemyDistance(int hex, boolean side) {
+        int best = Integer.MAX_VALUE;
+        for (int unit = 0; unit < unitHex.length; unit++) {
+            if (unitHex[unit] != NONE && ally[unit] != side) {
+                best = Math.min(best, distance(hex, unitHex[unit]));
+            }
+        }
+        return best;
+    }
+}
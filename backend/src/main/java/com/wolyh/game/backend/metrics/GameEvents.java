@@ -0,0 +1,93 @@
+package com.wolyh.game.backend.metrics;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * Flight recorder events of the game services, one per action and one per phase of it.
+ * The meters give the latency of a phase across every game, these events also say which
+ * game it was. When no recording asks for them they cost a branch, begin and commit are
+ * removed by the JIT and the event is never allocated.
+ */
+public final class GameEvents {
+    public static final String ACTION = "com.wolyh.game.Action";
+    public static final String END_TURN = "com.wolyh.game.EndTurn";
+    public static final String VISIBILITY = "com.wolyh.game.Visibility";
+    public static final String PATH_SEARCH = "com.wolyh.game.PathSearch";
+    public static final String SHRINK = "com.wolyh.game.Shrink";
+    public static final String NOTIFICATION = "com.wolyh.game.Notification";
+
+    public static final String[] ALL = { ACTION, END_TURN, VISIBILITY, PATH_SEARCH, SHRINK, NOTIFICATION };
+
+    private GameEvents() {}
+
+    @Category({ "2DArena", "Game" })
+    @StackTrace(false)
+    public abstract static class GameEvent extends Event {
+        @Label("Room")
+        public String roomId;
+
+        @Label("Action Type")
+        @Description("Action that started the phase, the rejection of a refused action, or the first notification of a dispatched batch")
+        public String actionType;
+
+        /** Ends the event and commits it when a recording wants it. */
+        public void commit(String roomId, String actionType) {
+            end();
+            if (shouldCommit()) {
+                this.roomId = roomId;
+                this.actionType = actionType;
+                commit();
+            }
+        }
+    }
+
+    /** Phase of an action, with the path it walked and what the acting team sees after it. */
+    public abstract static class PlayEvent extends GameEvent {
+        @Label("Path Length")
+        public int pathLength;
+
+        @Label("FOV Size")
+        @Description("Hexes seen by the team of the active player")
+        public int fovSize;
+
+        public void commit(String roomId, String actionType, int pathLength, int fovSize) {
+            end();
+            if (shouldCommit()) {
+                this.roomId = roomId;
+                this.actionType = actionType;
+                this.pathLength = pathLength;
+                this.fovSize = fovSize;
+                commit();
+            }
+        }
+    }
+
+    @Name(ACTION)
+    @Label("Game Action")
+    public static final class Action extends PlayEvent {}
+
+    @Name(END_TURN)
+    @Label("End Turn")
+    public static final class EndTurn extends PlayEvent {}
+
+    @Name(VISIBILITY)
+    @Label("Visibility Update")
+    public static final class Visibility extends PlayEvent {}
+
+    @Name(PATH_SEARCH)
+    @Label("Path Search")
+    public static final class PathSearch extends PlayEvent {}
+
+    @Name(SHRINK)
+    @Label("Map Shrink")
+    public static final class Shrink extends PlayEvent {}
+
+    @Name(NOTIFICATION)
+    @Label("Notification Dispatch")
+    public static final class Notification extends GameEvent {}
+}
@@ -0,0 +1,131 @@
+package com.wolyh.game.backend.metrics;
+
+import java.time.Duration;
+import java.util.EnumMap;
+import java.util.Locale;
+import java.util.Map;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Metrics;
+import io.micrometer.core.instrument.Timer;
+
+import com.wolyh.game.backend.game.Rejection;
+import com.wolyh.game.backend.model.Channel;
+import com.wolyh.game.backend.model.Operation;
+
+/**
+ * Meters of the services. The engine phases are timed from the game service around
+ * the engine calls, so the engine run by the simulator, the benchmarks and the replays
+ * knows nothing of Micrometer. They are registered on the Micrometer global registry,
+ * which Spring Boot binds the Prometheus registry to at startup.
+ */
+public final class GameMetrics {
+    private static final MeterRegistry registry = Metrics.globalRegistry;
+
+    public static final Timer UNIT_MOVE = actionTimer("UNIT_MOVE");
+    public static final Timer UNIT_ATTACK = actionTimer("UNIT_ATTACK");
+    public static final Timer TURN_SKIP = actionTimer("TURN_SKIP");
+    public static final Timer UNIT_ACTIONS = actionTimer("UNIT_ACTIONS");
+
+    public static final Timer END_TURN = timer("game.turn.end");
+    public static final Timer PATH_SEARCH = timer("game.path.search");
+    /** Incremental fov deltas of every step of a move. */
+    public static final Timer FOV_MOVE = timer("game.fov.move");
+    /** Incremental fov delta of a unit killed by an attack. */
+    public static final Timer FOV_KILL = timer("game.fov.kill");
+    /** Shrink of the map, with the full fov recount it needs. */
+    public static final Timer MAP_SHRINK = timer("game.map.shrink");
+    public static final Timer ROOM_START_GAME = timer("room.game.start");
+
+    public static final DistributionSummary OUTBOUND_PAYLOAD = DistributionSummary
+        .builder("ws.outbound.payload.size")
+        .baseUnit("bytes")
+        .publishPercentileHistogram()
+        .register(registry);
+
+    public static final DistributionSummary ACTION_BATCH_SIZE = DistributionSummary
+        .builder("game.action.batch.size")
+        .publishPercentileHistogram()
+        .register(registry);
+
+    private static final Map<Rejection, Counter> REJECTED = new EnumMap<>(Rejection.class);
+    static {
+        for (Rejection reason : Rejection.values()) {
+            REJECTED.put(reason, Counter.builder("game.action.rejected")
+                .tag("reason", reason.tag())
+                .register(registry));
+        }
+    }
+
+    private static final Map<Channel, Counter> THROTTLED = new EnumMap<>(Channel.class);
+    static {
+        for (Channel channel : Channel.values()) {
+            THROTTLED.put(channel, Counter.builder("ratelimit.rejected")
+                .tag("channel", channel.name())
+                .register(registry));
+        }
+    }
+
+    private static final Map<Operation, Counter> SHED = new EnumMap<>(Operation.class);
+    static {
+        for (Operation operation : Operation.values()) {
+            SHED.put(operation, Counter.builder("admission.shed")
+                .tag("operation", operation.name().toLowerCase(Locale.ROOT))
+                .register(registry));
+        }
+    }
+
+    /** Player removed from their room after staying disconnected past the grace period. */
+    public static final Counter ABANDONED_FORFEIT = abandonedCounter("forfeit");
+    public static final Counter ABANDONED_LEFT = abandonedCounter("left");
+
+    private GameMetrics() {}
+
+    public static MeterRegistry registry() {
+        return registry;
+    }
+
+    public static void rejected(Rejection reason) {
+        REJECTED.get(reason).increment();
+    }
+
+    /** Inbound message or request dropped by the rate limit. */
+    public static void throttled(Channel channel) {
+        THROTTLED.get(channel).increment();
+    }
+
+    /** New work refused while the server is overloaded. */
+    public static void shed(Operation operation) {
+        SHED.get(operation).increment();
+    }
+
+    /** Durations of a flight recorder event, with a client-side p99 over the last minute. */
+    public static Timer phase(String phase) {
+        return Timer.builder("game.phase")
+            .tag("phase", phase)
+            .publishPercentiles(0.99)
+            .distributionStatisticExpiry(Duration.ofMinutes(1))
+            .register(registry);
+    }
+
+    private static Timer actionTimer(String type) {
+        return Timer.builder("game.action")
+            .tag("type", type)
+            .publishPercentileHistogram()
+            .register(registry);
+    }
+
+    private static Counter abandonedCounter(String outcome) {
+        return Counter.builder("presence.abandoned")
+            .tag("outcome", outcome)
+            .register(registry);
+    }
+
+    private static Timer timer(String name) {
+        return Timer.builder(name)
+            .publishPercentileHistogram()
+            .register(registry);
+    }
+}
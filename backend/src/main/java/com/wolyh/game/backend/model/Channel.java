@@ -0,0 +1,4 @@
+package com.wolyh.game.backend.model;
+
+/** Where inbound traffic comes from, each one has its own rate limit. */
+public enum Channel { STOMP, REST, LOGIN }
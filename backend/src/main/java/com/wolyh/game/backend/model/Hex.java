@@ -13,8 +13,6 @@ public class Hex {
     private int s;
     private final String key;
 
-    private Unit unit;
-
     public Hex(int q, int r, int s, boolean isObstacle) {
         if (Math.round(q + r + s) != 0) {
             throw new IllegalArgumentException("q + r + s must be 0");
@@ -44,9 +42,5 @@ public class Hex {
     public static String key(int q, int r) {
         return q + "_" + r;
     }
-
-    public boolean isTraversable() {
-        return (unit == null || unit.isDead()) && !isObstacle;
-    }
   
 }
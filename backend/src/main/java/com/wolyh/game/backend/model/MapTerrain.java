@@ -0,0 +1,9 @@
+package com.wolyh.game.backend.model;
+
+import java.util.List;
+
+/** What a client needs to draw a map, the hexes missing from the hexagon and the obstacles. */
+public record MapTerrain(
+    List<HexCoordinates> holes,
+    List<HexCoordinates> obstacles
+) {}
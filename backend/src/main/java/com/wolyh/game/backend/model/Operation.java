@@ -0,0 +1,4 @@
+package com.wolyh.game.backend.model;
+
+/** New work that is refused while the server is overloaded. */
+public enum Operation { CREATE_ROOM, START_GAME }
@@ -1,20 +1,25 @@
 package com.wolyh.game.backend.model;
 
-import java.util.UUID;
-
 import lombok.Getter;
 import lombok.Setter;
 
 @Getter
 @Setter
 public class Room {
+    public final long key;
+    /** base62 form of the key, used everywhere outside the room tables */
     public final String id;
+    /** null for a public room, anyone can join it from the lobby */
+    public final String joinToken;
     private String creator;
     private String guest;
     private Status status;
+    private long mapId;
 
-    public Room(String creator) {
-        this.id = UUID.randomUUID().toString();
+    public Room(long key, String creator, boolean invite) {
+        this.key = key;
+        this.id = RoomIds.format(key);
+        this.joinToken = invite ? RoomIds.token() : null;
         this.creator = creator;
         this.status = Status.WAITING;
     }
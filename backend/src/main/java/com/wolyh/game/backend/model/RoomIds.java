@@ -0,0 +1,98 @@
+package com.wolyh.game.backend.model;
+
+import java.security.NoSuchAlgorithmException;
+import java.security.SecureRandom;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Room ids are 64-bit: milliseconds since 2025 (41 bits), node (10 bits) and a sequence
+ * (12 bits), shown in base62 so they take 10 or 11 characters. Taking one is a single
+ * compare-and-set, when the 4096 ids of a millisecond are used up the sequence borrows
+ * the next one instead of waiting. Ids can be guessed, joining a private room takes its token.
+ */
+public final class RoomIds {
+    public static final long INVALID = -1;
+    public static final int MAX_NODE = (1 << 10) - 1;
+
+    private static final long EPOCH = 1735689600000L;
+    private static final int NODE_BITS = 10;
+    private static final int SEQUENCE_BITS = 12;
+    private static final long SEQUENCE_MASK = (1L << SEQUENCE_BITS) - 1;
+    private static final int MAX_LENGTH = 11;
+    private static final String ALPHABET = "0123456789ABCDEFGHIJKLMNOPQRSTUVWXYZabcdefghijklmnopqrstuvwxyz";
+
+    /** One generator per thread, the default one shares a lock across instances on Linux. */
+    private static final ThreadLocal<SecureRandom> TOKEN_RANDOM = ThreadLocal.withInitial(() -> {
+        try {
+            return SecureRandom.getInstance("DRBG");
+        } catch (NoSuchAlgorithmException e) {
+            return new SecureRandom();
+        }
+    });
+
+    private final long node;
+    /** milliseconds and sequence of the last id */
+    private final AtomicLong last = new AtomicLong();
+
+    public RoomIds(int node) {
+        if (node < 0 || node > MAX_NODE) {
+            throw new IllegalArgumentException("Node must be between 0 and " + MAX_NODE + " but got " + node);
+        }
+        this.node = node;
+    }
+
+    public long next() {
+        long now = (System.currentTimeMillis() - EPOCH) << SEQUENCE_BITS;
+        long stamp = last.accumulateAndGet(now, (previous, time) -> Math.max(previous + 1, time));
+        return (stamp >>> SEQUENCE_BITS) << (NODE_BITS + SEQUENCE_BITS)
+            | node << SEQUENCE_BITS
+            | (stamp & SEQUENCE_MASK);
+    }
+
+    /** 63 random bits, enough that a room cannot be joined by trying tokens. */
+    public static String token() {
+        return format(TOKEN_RANDOM.get().nextLong() >>> 1);
+    }
+
+    public static String format(long id) {
+        if (id == 0) {
+            return "0";
+        }
+        char[] chars = new char[MAX_LENGTH];
+        int start = MAX_LENGTH;
+        while (id > 0) {
+            chars[--start] = ALPHABET.charAt((int) (id % 62));
+            id /= 62;
+        }
+        return new String(chars, start, MAX_LENGTH - start);
+    }
+
+    /** {@link #INVALID} for anything {@link #format} cannot produce. */
+    public static long parse(String id) {
+        if (id == null || id.isEmpty() || id.length() > MAX_LENGTH || (id.length() > 1 && id.charAt(0) == '0')) {
+            return INVALID;
+        }
+        long value = 0;
+        for (int i = 0; i < id.length(); i++) {
+            int digit = digit(id.charAt(i));
+            if (digit < 0 || value > (Long.MAX_VALUE - digit) / 62) {
+                return INVALID;
+            }
+            value = value * 62 + digit;
+        }
+        return value;
+    }
+
+    private static int digit(char c) {
+        if (c >= '0' && c <= '9') {
+            return c - '0';
+        }
+        if (c >= 'A' && c <= 'Z') {
+            return c - 'A' + 10;
+        }
+        if (c >= 'a' && c <= 'z') {
+            return c - 'a' + 36;
+        }
+        return -1;
+    }
+}
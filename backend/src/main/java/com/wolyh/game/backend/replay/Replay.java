@@ -0,0 +1,192 @@
+package com.wolyh.game.backend.replay;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+
+import com.wolyh.game.backend.game.GameConfig;
+import com.wolyh.game.backend.game.SpectatorView;
+import com.wolyh.game.backend.model.HexCoordinates;
+import com.wolyh.game.backend.model.UnitCoordinates;
+
+/**
+ * Read view over one block of a segment. Records are decoded on demand
+ * straight from the mapped file, nothing is copied to the heap up front.
+ */
+public class Replay {
+    private final ByteBuffer block;
+    private final int recordsStart;
+    private final int indexOffset;
+
+    private final long seed;
+    private final long mapId;
+    private final GameConfig config;
+    private final long startedAt;
+    private final String player1;
+    private final String player2;
+
+    private Replay(ByteBuffer block) {
+        this.block = block;
+        if (block.getInt(0) != ReplayFormat.MAGIC || block.getInt(4) != ReplayFormat.VERSION) {
+            throw new IllegalArgumentException("Not a replay block of version " + ReplayFormat.VERSION);
+        }
+        this.indexOffset = block.getInt(12);
+
+        ByteBuffer reader = block.duplicate().position(ReplayFormat.HEADER_SIZE);
+        this.seed = reader.getLong();
+        this.mapId = reader.getLong();
+        this.config = new GameConfig(
+            reader.getInt(),
+            reader.getInt(),
+            reader.getInt(),
+            reader.getInt(),
+            reader.getInt(),
+            reader.getInt()
+        );
+        this.startedAt = reader.getLong();
+        this.player1 = ReplayFormat.getString(reader);
+        this.player2 = ReplayFormat.getString(reader);
+        this.recordsStart = reader.position();
+    }
+
+    public static Replay of(ByteBuffer block) {
+        return new Replay(block);
+    }
+
+    public long getSeed() {
+        return seed;
+    }
+
+    public long getMapId() {
+        return mapId;
+    }
+
+    public GameConfig getConfig() {
+        return config;
+    }
+
+    public long getStartedAt() {
+        return startedAt;
+    }
+
+    public String getPlayer1() {
+        return player1;
+    }
+
+    public String getPlayer2() {
+        return player2;
+    }
+
+    public int getActionCount() {
+        return block.getInt(indexOffset);
+    }
+
+    /**
+     * Cursor on the last keyframe taken at or before the given action, found through the index,
+     * or on the first action when there is none.
+     */
+    public Cursor seek(int actionNo) {
+        int keyframes = block.getInt(indexOffset + 4);
+        int position = recordsStart;
+        for (int i = 0; i < keyframes; i++) {
+            int entry = indexOffset + 8 + i * 8;
+            if (block.getInt(entry) > actionNo) {
+                break;
+            }
+            position = block.getInt(entry + 4);
+        }
+        return new Cursor(block.duplicate().position(position));
+    }
+
+    public class Cursor {
+        private final ByteBuffer reader;
+        private SpectatorView keyframe;
+        private int actionsRead;
+        private boolean ended = false;
+        private String winner;
+
+        private Cursor(ByteBuffer reader) {
+            this.reader = reader;
+            if (reader.get(reader.position()) == ReplayFormat.KEYFRAME) {
+                reader.get();
+                readKeyframe();
+            }
+        }
+
+        /** State the cursor starts from, null when it starts from the spawns. */
+        public SpectatorView getKeyframe() {
+            return keyframe;
+        }
+
+        /** Number of actions already applied at the cursor position. */
+        public int getActionsRead() {
+            return actionsRead;
+        }
+
+        public boolean isEnded() {
+            return ended;
+        }
+
+        public String getWinner() {
+            return winner;
+        }
+
+        /** Next action, or null once the end of the game is reached. */
+        public ReplayAction next() {
+            while (!ended) {
+                byte type = reader.get();
+                switch (type) {
+                    case ReplayFormat.ACTION -> {
+                        byte flags = reader.get();
+                        ReplayAction.Type actionType = ReplayAction.Type.values()[flags & ~ReplayFormat.CONTINUES_TURN];
+                        int unitIdx = reader.getInt();
+                        HexCoordinates goal = new HexCoordinates(reader.getInt(), reader.getInt());
+                        actionsRead++;
+                        return new ReplayAction(
+                            actionType,
+                            unitIdx,
+                            actionType == ReplayAction.Type.TURN_SKIP ? null : goal,
+                            (flags & ReplayFormat.CONTINUES_TURN) == 0
+                        );
+                    }
+                    case ReplayFormat.KEYFRAME -> {
+                        reader.position(reader.position() + 5 * 4);
+                        int count = reader.getInt();
+                        reader.position(reader.position() + count * 3 * 4);
+                    }
+                    case ReplayFormat.END -> {
+                        reader.getLong();
+                        winner = ReplayFormat.getString(reader);
+                        ended = true;
+                    }
+                    default -> throw new IllegalStateException("Corrupted replay record: " + type);
+                }
+            }
+            return null;
+        }
+
+        private void readKeyframe() {
+            actionsRead = reader.getInt();
+            int turn = reader.getInt();
+            int shrinkLevel = reader.getInt();
+            int activeUnitIdx = reader.getInt();
+            int nbUnits = reader.getInt();
+            int count = reader.getInt();
+            List<UnitCoordinates> units = new ArrayList<>(count);
+            for (int i = 0; i < count; i++) {
+                units.add(new UnitCoordinates(reader.getInt(), reader.getInt(), reader.getInt()));
+            }
+            keyframe = new SpectatorView(
+                turn,
+                shrinkLevel,
+                activeUnitIdx,
+                nbUnits,
+                units,
+                null,
+                false,
+                null,
+                null
+            );
+        }
+    }
+}
@@ -0,0 +1,17 @@
+package com.wolyh.game.backend.replay;
+
+import com.wolyh.game.backend.model.HexCoordinates;
+
+/** endsTurn is false for the actions of a turn before its last one. */
+public record ReplayAction(
+    Type type,
+    int unitIdx,
+    HexCoordinates goal,
+    boolean endsTurn
+) {
+    public static enum Type {
+        UNIT_MOVE,
+        UNIT_ATTACK,
+        TURN_SKIP
+    }
+}
@@ -0,0 +1,57 @@
+package com.wolyh.game.backend.replay;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Layout of one game in a segment, all integers big endian:
+ *
+ * header   int magic, int version, int block length, int index offset
+ * start    long seed, long map id, 6 x int config, long started at, str player1, str player2
+ * records  byte ACTION, byte action type | CONTINUES_TURN, int unit idx, int q, int r
+ *          byte KEYFRAME, int action count, int turn, int shrink level, int active idx,
+ *               int units, int n, n x (int idx, int q, int r)
+ *          byte END, long finished at, str winner
+ * index    int action count, int n, n x (int action count, int keyframe offset)
+ *
+ * Offsets are relative to the start of the block, str is a short length (-1 for null)
+ * followed by utf-8 bytes.
+ */
+final class ReplayFormat {
+    static final int MAGIC = 0x52504C59;
+    static final int VERSION = 1;
+    static final int HEADER_SIZE = 16;
+
+    static final byte ACTION = 1;
+    static final byte KEYFRAME = 2;
+    static final byte END = 3;
+
+    /** Set on the action type when more actions of the same turn follow. */
+    static final byte CONTINUES_TURN = (byte) 0x80;
+
+    private ReplayFormat() {}
+
+    static void putString(ByteBuffer buffer, String value) {
+        if (value == null) {
+            buffer.putShort((short) -1);
+            return;
+        }
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        buffer.putShort((short) bytes.length);
+        buffer.put(bytes);
+    }
+
+    static int stringSize(String value) {
+        return 2 + (value == null ? 0 : value.getBytes(StandardCharsets.UTF_8).length);
+    }
+
+    static String getString(ByteBuffer buffer) {
+        int length = buffer.getShort();
+        if (length < 0) {
+            return null;
+        }
+        byte[] bytes = new byte[length];
+        buffer.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,63 @@
+package com.wolyh.game.backend.replay;
+
+import com.wolyh.game.backend.game.Game;
+import com.wolyh.game.backend.game.MapLayout;
+import com.wolyh.game.backend.game.PlayerManager;
+import com.wolyh.game.backend.game.SpectatorView;
+
+/**
+ * Replays a stored game on a fresh engine built from its seed. Actions are trusted,
+ * they were validated when the game was played, so only their effects are applied,
+ * with the same turn resolution as GameService.
+ * The layout is the one of the map the game was played on.
+ */
+public class ReplayPlayer {
+    private final Game game;
+    private final Replay.Cursor cursor;
+
+    public ReplayPlayer(Replay replay, MapLayout layout, int from) {
+        this.game = new Game(replay.getPlayer1(), replay.getPlayer2(), replay.getConfig(), replay.getSeed(), layout);
+        this.cursor = replay.seek(from);
+
+        if (cursor.getKeyframe() != null) {
+            game.restore(cursor.getKeyframe());
+        }
+        while (cursor.getActionsRead() < from && step()) {}
+    }
+
+    public int getActionsPlayed() {
+        return cursor.getActionsRead();
+    }
+
+    public SpectatorView current() {
+        return game.getSpectatorView(PlayerManager.NONE);
+    }
+
+    /** Applies the next action, returns false once the game is over. */
+    public boolean step() {
+        ReplayAction action = cursor.next();
+        if (action == null) {
+            if (!game.isGameOver()) {
+                // forfeits end the game without a last action
+                game.setGameOver(game.getSlot(cursor.getWinner()));
+            }
+            return false;
+        }
+
+        switch (action.type()) {
+            case UNIT_MOVE -> game.moveUnit(action.unitIdx(), action.goal());
+            case UNIT_ATTACK -> game.killUnitOn(action.goal());
+            case TURN_SKIP -> {}
+        }
+
+        game.resolveGameOver();
+        if (game.isGameOver() || !action.endsTurn()) {
+            return true;
+        }
+        game.nextTurn();
+        if (game.shrinkMapIfNeeded().occurred()) {
+            game.resolveGameOver();
+        }
+        return true;
+    }
+}
@@ -0,0 +1,257 @@
+package com.wolyh.game.backend.replay;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+
+import com.wolyh.game.backend.game.GameConfig;
+import com.wolyh.game.backend.game.SpectatorView;
+import com.wolyh.game.backend.model.UnitCoordinates;
+
+/**
+ * Block of a game being played, written to a journal file of its own as the game goes: the start
+ * right away, the actions of a turn once the turn ends and every keyframe. Only the turn being
+ * played and the keyframe index are kept in memory, a crash loses at most that turn and
+ * {@link #recover} closes what the journal holds. When the game ends the block gets its end record
+ * and its index, and is appended to a segment in one piece.
+ */
+public class ReplayRecording implements Closeable {
+    private final Path journal;
+    private final FileChannel channel;
+    /** records not written to the journal yet */
+    private ByteBuffer pending = ByteBuffer.allocate(256);
+    private int written = 0;
+    private final List<int[]> keyframes = new ArrayList<>();
+    private int actionCount = 0;
+
+    public ReplayRecording(
+        Path journal,
+        long seed,
+        long mapId,
+        GameConfig config,
+        long startedAt,
+        String player1,
+        String player2
+    ) throws IOException {
+        this.journal = journal;
+        this.channel = FileChannel.open(
+            journal,
+            StandardOpenOption.CREATE,
+            StandardOpenOption.TRUNCATE_EXISTING,
+            StandardOpenOption.READ,
+            StandardOpenOption.WRITE
+        );
+        ensure(ReplayFormat.HEADER_SIZE + 2 * 8 + 6 * 4 + 8
+            + ReplayFormat.stringSize(player1) + ReplayFormat.stringSize(player2));
+        pending.putInt(ReplayFormat.MAGIC);
+        pending.putInt(ReplayFormat.VERSION);
+        pending.putInt(0);
+        pending.putInt(0);
+
+        pending.putLong(seed);
+        pending.putLong(mapId);
+        pending.putInt(config.mapRadius());
+        pending.putInt(config.visibilityRange());
+        pending.putInt(config.unitsPerPlayer());
+        pending.putInt(config.minSpawnDistance());
+        pending.putInt(config.shrinkInterval());
+        pending.putInt(config.actionPoints());
+        pending.putLong(startedAt);
+        ReplayFormat.putString(pending, player1);
+        ReplayFormat.putString(pending, player2);
+        flush();
+    }
+
+    public int getActionCount() {
+        return actionCount;
+    }
+
+    /** Written to the journal with the action that ends its turn. */
+    public void addAction(ReplayAction action) throws IOException {
+        ensure(1 + 1 + 3 * 4);
+        pending.put(ReplayFormat.ACTION);
+        pending.put((byte) (action.type().ordinal() | (action.endsTurn() ? 0 : ReplayFormat.CONTINUES_TURN)));
+        pending.putInt(action.unitIdx());
+        pending.putInt(action.goal() == null ? 0 : action.goal().q());
+        pending.putInt(action.goal() == null ? 0 : action.goal().r());
+        actionCount++;
+        if (action.endsTurn()) {
+            flush();
+        }
+    }
+
+    /** Full state after the last added action, from {@code Game.getSpectatorView(PlayerManager.NONE)}. */
+    public void addKeyframe(SpectatorView state) throws IOException {
+        ensure(1 + 6 * 4 + state.units().size() * 3 * 4);
+        keyframes.add(new int[] {actionCount, written + pending.position()});
+        pending.put(ReplayFormat.KEYFRAME);
+        pending.putInt(actionCount);
+        pending.putInt(state.turn());
+        pending.putInt(state.shrinkLevel());
+        pending.putInt(state.activeUnitIdx());
+        pending.putInt(state.nbUnits());
+        pending.putInt(state.units().size());
+        for (UnitCoordinates unit : state.units()) {
+            pending.putInt(unit.idx());
+            pending.putInt(unit.q());
+            pending.putInt(unit.r());
+        }
+        flush();
+    }
+
+    /** Closes the block in the journal and returns it ready to be appended to a segment. */
+    public ByteBuffer finish(long finishedAt, String winner) throws IOException {
+        ensure(endSize(winner, keyframes.size()));
+        putEnd(pending, finishedAt, winner);
+        int indexOffset = written + pending.position();
+        putIndex(pending, actionCount, keyframes);
+        flush();
+        channel.write(ByteBuffer.allocate(8).putInt(written).putInt(indexOffset).flip(), 8);
+
+        ByteBuffer block = ByteBuffer.allocate(written);
+        while (block.hasRemaining()) {
+            if (channel.read(block, block.position()) < 0) {
+                throw new IOException("Replay journal " + journal + " is shorter than its block");
+            }
+        }
+        return block.flip();
+    }
+
+    /** Closes the journal and removes it, once its block is stored or the game is dropped. */
+    public void delete() throws IOException {
+        channel.close();
+        Files.deleteIfExists(journal);
+    }
+
+    /** Writes what is pending and closes the journal, it is left for {@link #recover} at the next start. */
+    @Override
+    public void close() throws IOException {
+        try {
+            flush();
+        } finally {
+            channel.close();
+        }
+    }
+
+    /**
+     * Block of a game cut by a restart: the start and every whole record of its journal, closed with
+     * its index. The end is the one of the journal when the game had ended, otherwise an end without
+     * a winner dated from the last write. Null when the start itself was not written.
+     */
+    public static ByteBuffer recover(Path journal) throws IOException {
+        ByteBuffer reader = ByteBuffer.wrap(Files.readAllBytes(journal));
+        if (reader.remaining() < ReplayFormat.HEADER_SIZE
+                || reader.getInt(0) != ReplayFormat.MAGIC
+                || reader.getInt(4) != ReplayFormat.VERSION) {
+            return null;
+        }
+
+        List<int[]> keyframes = new ArrayList<>();
+        int actionCount = 0;
+        int end;
+        boolean ended = false;
+        long finishedAt = Files.getLastModifiedTime(journal).toMillis();
+        String winner = null;
+        try {
+            reader.position(ReplayFormat.HEADER_SIZE);
+            skip(reader, 2 * 8 + 6 * 4 + 8);
+            ReplayFormat.getString(reader);
+            ReplayFormat.getString(reader);
+        } catch (BufferUnderflowException e) {
+            return null;
+        }
+        end = reader.position();
+
+        // a torn or unknown record ends the block, the index written after an end is rebuilt
+        try {
+            while (!ended && reader.hasRemaining()) {
+                int position = reader.position();
+                switch (reader.get()) {
+                    case ReplayFormat.ACTION -> {
+                        skip(reader, 1 + 3 * 4);
+                        actionCount++;
+                    }
+                    case ReplayFormat.KEYFRAME -> {
+                        int actionsRead = reader.getInt();
+                        skip(reader, 4 * 4);
+                        skip(reader, reader.getInt() * 3 * 4);
+                        keyframes.add(new int[] {actionsRead, position});
+                    }
+                    case ReplayFormat.END -> {
+                        long at = reader.getLong();
+                        String name = ReplayFormat.getString(reader);
+                        finishedAt = at;
+                        winner = name;
+                        ended = true;
+                    }
+                    default -> throw new BufferUnderflowException();
+                }
+                end = reader.position();
+            }
+        } catch (BufferUnderflowException e) {
+            // keeps the records before the torn one
+        }
+
+        ByteBuffer block = ByteBuffer.allocate(end + endSize(winner, keyframes.size()));
+        block.put(reader.array(), 0, end);
+        if (!ended) {
+            putEnd(block, finishedAt, null);
+        }
+        int indexOffset = block.position();
+        putIndex(block, actionCount, keyframes);
+        block.putInt(8, block.position());
+        block.putInt(12, indexOffset);
+        return block.flip();
+    }
+
+    private static int endSize(String winner, int keyframes) {
+        return 1 + 8 + ReplayFormat.stringSize(winner) + 2 * 4 + keyframes * 2 * 4;
+    }
+
+    private static void putEnd(ByteBuffer buffer, long finishedAt, String winner) {
+        buffer.put(ReplayFormat.END);
+        buffer.putLong(finishedAt);
+        ReplayFormat.putString(buffer, winner);
+    }
+
+    private static void putIndex(ByteBuffer buffer, int actionCount, List<int[]> keyframes) {
+        buffer.putInt(actionCount);
+        buffer.putInt(keyframes.size());
+        for (int[] keyframe : keyframes) {
+            buffer.putInt(keyframe[0]);
+            buffer.putInt(keyframe[1]);
+        }
+    }
+
+    private static void skip(ByteBuffer reader, int bytes) {
+        if (bytes < 0 || reader.remaining() < bytes) {
+            throw new BufferUnderflowException();
+        }
+        reader.position(reader.position() + bytes);
+    }
+
+    private void flush() throws IOException {
+        pending.flip();
+        while (pending.hasRemaining()) {
+            written += channel.write(pending, written);
+        }
+        pending.clear();
+    }
+
+    private void ensure(int bytes) {
+        if (pending.remaining() >= bytes) {
+            return;
+        }
+        ByteBuffer larger = ByteBuffer.allocate(Math.max(pending.capacity() * 2, pending.position() + bytes));
+        pending.flip();
+        larger.put(pending);
+        pending = larger;
+    }
+}
@@ -0,0 +1,162 @@
+package com.wolyh.game.backend.replay;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Append-only store of finished games. Blocks go into fixed size segment files
+ * mapped in memory, a new segment is started when the current one is full.
+ * A small catalog file maps each room id to its block and is loaded at startup.
+ *
+ * Appends come from a single writer, reads can happen from any thread.
+ */
+public class ReplayStore implements Closeable {
+    private record Location(int segment, int offset, int length) {}
+
+    private final Path dir;
+    private final int segmentSize;
+    private final FileChannel catalog;
+
+    private final Map<String, Location> locations = new ConcurrentHashMap<>();
+    private final Map<Integer, MappedByteBuffer> segments = new ConcurrentHashMap<>();
+
+    private int currentSegment;
+    private int writePosition;
+
+    public ReplayStore(Path dir, int segmentSize) throws IOException {
+        this.dir = dir;
+        this.segmentSize = segmentSize;
+        Files.createDirectories(dir);
+
+        this.catalog = FileChannel.open(
+            dir.resolve("catalog"),
+            StandardOpenOption.CREATE,
+            StandardOpenOption.READ,
+            StandardOpenOption.WRITE
+        );
+        loadCatalog();
+
+        currentSegment = Math.max(currentSegment, 1);
+        openSegment(currentSegment);
+    }
+
+    public int size() {
+        return locations.size();
+    }
+
+    public synchronized void append(String roomId, ByteBuffer block) throws IOException {
+        int length = block.remaining();
+        if (length > segmentSize) {
+            throw new IOException("Replay of " + length + " bytes is larger than a segment");
+        }
+        if (writePosition + length > segmentSize) {
+            segments.get(currentSegment).force();
+            currentSegment++;
+            writePosition = 0;
+            openSegment(currentSegment);
+        }
+
+        segments.get(currentSegment).put(writePosition, block, block.position(), length);
+        Location location = new Location(currentSegment, writePosition, length);
+        writePosition += length;
+
+        writeCatalogEntry(roomId, location);
+        locations.put(roomId, location);
+    }
+
+    /** Read-only view on the block of the game, null if it was never stored. */
+    public Replay open(String roomId) {
+        Location location = locations.get(roomId);
+        if (location == null) {
+            return null;
+        }
+        MappedByteBuffer segment = segments.computeIfAbsent(location.segment(), this::mapReadOnly);
+        return Replay.of(segment.slice(location.offset(), location.length()).asReadOnlyBuffer());
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        MappedByteBuffer current = segments.get(currentSegment);
+        if (current != null) {
+            current.force();
+        }
+        catalog.force(false);
+        catalog.close();
+    }
+
+    private void openSegment(int segment) throws IOException {
+        try (FileChannel channel = FileChannel.open(
+            segmentPath(segment),
+            StandardOpenOption.CREATE,
+            StandardOpenOption.READ,
+            StandardOpenOption.WRITE
+        )) {
+            segments.put(segment, channel.map(FileChannel.MapMode.READ_WRITE, 0, segmentSize));
+        }
+    }
+
+    private MappedByteBuffer mapReadOnly(int segment) {
+        try (FileChannel channel = FileChannel.open(segmentPath(segment), StandardOpenOption.READ)) {
+            return channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        } catch (IOException e) {
+            throw new IllegalStateException("Cannot map replay segment " + segment, e);
+        }
+    }
+
+    private Path segmentPath(int segment) {
+        return dir.resolve(String.format("%08d.seg", segment));
+    }
+
+    private void writeCatalogEntry(String roomId, Location location) throws IOException {
+        byte[] id = roomId.getBytes(StandardCharsets.UTF_8);
+        ByteBuffer entry = ByteBuffer.allocate(2 + id.length + 3 * 4);
+        entry.putShort((short) id.length);
+        entry.put(id);
+        entry.putInt(location.segment());
+        entry.putInt(location.offset());
+        entry.putInt(location.length());
+        entry.flip();
+        while (entry.hasRemaining()) {
+            catalog.write(entry, catalog.size());
+        }
+    }
+
+    /** Also finds where the last segment ends, so appends resume after the last stored game. */
+    private void loadCatalog() throws IOException {
+        ByteBuffer entries = ByteBuffer.allocate((int) catalog.size());
+        while (entries.hasRemaining() && catalog.read(entries, entries.position()) > 0) {}
+        entries.flip();
+
+        int valid = 0;
+        while (entries.remaining() >= 2) {
+            int idLength = entries.getShort();
+            if (entries.remaining() < idLength + 3 * 4) {
+                break;
+            }
+            byte[] id = new byte[idLength];
+            entries.get(id);
+            Location location = new Location(entries.getInt(), entries.getInt(), entries.getInt());
+            locations.put(new String(id, StandardCharsets.UTF_8), location);
+
+            if (location.segment() > currentSegment) {
+                currentSegment = location.segment();
+                writePosition = 0;
+            }
+            if (location.segment() == currentSegment) {
+                writePosition = Math.max(writePosition, location.offset() + location.length());
+            }
+            valid = entries.position();
+        }
+        // a torn entry at the end of the catalog is dropped and overwritten
+        catalog.truncate(valid);
+    }
+}
@@ -0,0 +1,58 @@
+package com.wolyh.game.backend.security;
+
+import java.io.IOException;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import com.wolyh.game.backend.model.Channel;
+import com.wolyh.game.backend.service.RateLimitService;
+
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+
+/**
+ * Runs after the JWT filter. Logins are limited by address, since a login mints a token for
+ * any username. Other anonymous calls are left to the security rules.
+ */
+@Component
+public class RateLimitFilter extends OncePerRequestFilter {
+
+    @Autowired
+    private RateLimitService rateLimitService;
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        return !request.getRequestURI().startsWith("/api/") || "OPTIONS".equals(request.getMethod());
+    }
+
+    @Override
+    protected void doFilterInternal(
+        HttpServletRequest request,
+        HttpServletResponse response,
+        FilterChain filterChain) throws ServletException, IOException
+        {
+
+        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+        boolean allowed = true;
+        if (request.getRequestURI().startsWith("/api/auth/")) {
+            allowed = rateLimitService.tryAcquire(Channel.LOGIN, request.getRemoteAddr());
+        } else if (authentication != null) {
+            allowed = rateLimitService.tryAcquire(Channel.REST, authentication.getName());
+        }
+
+        if (!allowed) {
+            response.setStatus(HttpStatus.TOO_MANY_REQUESTS.value());
+            response.setHeader("Retry-After", "1");
+            return;
+        }
+
+        filterChain.doFilter(request, response);
+    }
+}
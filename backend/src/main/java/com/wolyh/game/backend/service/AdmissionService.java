@@ -0,0 +1,106 @@
+package com.wolyh.game.backend.service;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryMXBean;
+import java.lang.management.MemoryUsage;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+
+import com.wolyh.game.backend.metrics.GameMetrics;
+import com.wolyh.game.backend.model.Operation;
+
+/**
+ * Sheds new rooms and game starts while the server is overloaded, games already
+ * running are never refused. The load is sampled on a timer: the mean latency of the
+ * game actions handled since the last sample, and the share of the max heap in use.
+ * Callers only read a flag.
+ */
+@Service
+public class AdmissionService {
+
+    private static final List<Timer> ACTION_TIMERS = List.of(
+        GameMetrics.UNIT_MOVE,
+        GameMetrics.UNIT_ATTACK,
+        GameMetrics.UNIT_ACTIONS,
+        GameMetrics.TURN_SKIP
+    );
+
+    @Autowired
+    private LogService logService;
+
+    @Value("${admission.max-action-latency-ms:250}")
+    private long maxActionLatencyMs;
+
+    @Value("${admission.max-heap-ratio:0.9}")
+    private double maxHeapRatio;
+
+    @Value("${admission.sample-interval-ms:1000}")
+    private long sampleIntervalMs;
+
+    private final MemoryMXBean memory = ManagementFactory.getMemoryMXBean();
+    private ScheduledExecutorService sampler;
+
+    private volatile boolean shedding;
+    private long lastCount;
+    private double lastTotalNanos;
+
+    @PostConstruct
+    void start() {
+        Gauge.builder("admission.shedding", this, admission -> admission.shedding ? 1 : 0)
+            .register(GameMetrics.registry());
+
+        sampler = Executors.newSingleThreadScheduledExecutor(Thread.ofPlatform().name("admission-sampler").daemon().factory());
+        sampler.scheduleAtFixedRate(this::sample, sampleIntervalMs, sampleIntervalMs, TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    void stop() {
+        sampler.shutdownNow();
+    }
+
+    /** False when the operation must be refused, counted by operation. */
+    public boolean admit(Operation operation) {
+        if (shedding) {
+            GameMetrics.shed(operation);
+            return false;
+        }
+        return true;
+    }
+
+    private void sample() {
+        long count = 0;
+        double totalNanos = 0;
+        for (Timer timer : ACTION_TIMERS) {
+            count += timer.count();
+            totalNanos += timer.totalTime(TimeUnit.NANOSECONDS);
+        }
+        long actions = count - lastCount;
+        double meanMs = actions == 0 ? 0 : (totalNanos - lastTotalNanos) / actions / 1_000_000;
+        lastCount = count;
+        lastTotalNanos = totalNanos;
+
+        MemoryUsage heap = memory.getHeapMemoryUsage();
+        double heapRatio = heap.getMax() > 0 ? (double) heap.getUsed() / heap.getMax() : 0;
+
+        boolean overloaded = meanMs > maxActionLatencyMs || heapRatio > maxHeapRatio;
+        if (overloaded != shedding) {
+            logService.log(
+                overloaded ? "admission_shedding" : "admission_admitting",
+                "actionLatencyMs", Math.round(meanMs),
+                "heapPercent", Math.round(heapRatio * 100)
+            );
+        }
+        shedding = overloaded;
+    }
+}
@@ -0,0 +1,147 @@
+package com.wolyh.game.backend.service;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+
+import com.wolyh.game.backend.dto.Notification;
+import com.wolyh.game.backend.dto.Notification.GameEvent;
+import com.wolyh.game.backend.dto.UnitActionRequest;
+import com.wolyh.game.backend.game.PlayerSnapshot;
+import com.wolyh.game.backend.game.Result.SkipTurnResult;
+import com.wolyh.game.backend.game.Result.UnitActionResult;
+import com.wolyh.game.backend.game.ai.BotAction;
+import com.wolyh.game.backend.game.ai.MonteCarloSearch;
+
+/**
+ * Plays the bot's turns. Searches run off the inbound channel threads so a
+ * player's message is never held behind the bot thinking. The search workers are
+ * shared by every bot game and bound the CPU they take together, the turn threads
+ * only wait on them and each turn still ends on its time budget.
+ */
+@Service
+public class BotService {
+    public static final String BOT_PREFIX = "bot#";
+
+    @Autowired
+    private GameService gameService;
+
+    @Autowired
+    private RoomService roomService;
+
+    @Autowired
+    private NotificationService notificationService;
+
+    @Autowired
+    private LogService logService;
+
+    @Value("${bot.time-budget-ms:300}")
+    private long timeBudgetMs;
+
+    @Value("${bot.search-threads:2}")
+    private int searchThreads;
+
+    private ExecutorService turnExecutor;
+    private ExecutorService searchWorkers;
+    private MonteCarloSearch search;
+
+    private final Set<String> scheduledRooms = ConcurrentHashMap.newKeySet();
+
+    public static boolean isBot(String username) {
+        return username != null && username.startsWith(BOT_PREFIX);
+    }
+
+    @PostConstruct
+    void start() {
+        turnExecutor = Executors.newVirtualThreadPerTaskExecutor();
+        searchWorkers = Executors.newFixedThreadPool(searchThreads);
+        search = new MonteCarloSearch(searchWorkers, searchThreads);
+    }
+
+    @PreDestroy
+    void stop() {
+        turnExecutor.shutdownNow();
+        searchWorkers.shutdownNow();
+    }
+
+    public void playIfBotTurn(String roomId) {
+        String activePlayer = gameService.getActivePlayer(roomId);
+        if (!isBot(activePlayer) || !scheduledRooms.add(roomId)) {
+            return;
+        }
+        turnExecutor.submit(() -> playTurn(roomId, activePlayer));
+    }
+
+    private void playTurn(String roomId, String bot) {
+        try {
+            PlayerSnapshot snapshot = gameService.getPlayerSnapshot(roomId, bot);
+            if (snapshot == null) {
+                return;
+            }
+
+            BotAction action = search.search(snapshot, Duration.ofMillis(timeBudgetMs));
+            if (!apply(roomId, bot, action)) {
+                logService.log("bot_action_rejected", "room", roomId, "bot", bot);
+                apply(roomId, bot, null);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return;
+        } catch (RuntimeException e) {
+            logService.log("bot_turn_failed", "room", roomId, "bot", bot, "error", e.getMessage());
+        } finally {
+            scheduledRooms.remove(roomId);
+        }
+
+        playIfBotTurn(roomId);
+    }
+
+    /**
+     * Sends the batch of an applied action, marks the room finished with the game and lets
+     * the bot play next. Shared by the players' actions and the bot's own.
+     */
+    public void publish(String roomId, boolean gameOver, Map<String, List<Notification<GameEvent>>> notifications) {
+        if (gameOver) {
+            roomService.markGameAsFinished(roomId);
+        }
+
+        notificationService.sendToPlayers(roomId, notifications);
+
+        if (!gameOver) {
+            playIfBotTurn(roomId);
+        }
+    }
+
+    private boolean apply(String roomId, String bot, BotAction action) {
+        if (action == null || action.type() == BotAction.Type.TURN_SKIP) {
+            SkipTurnResult result = gameService.processSkipTurn(roomId, bot);
+            if (result.isRejected()) {
+                return false;
+            }
+            publish(roomId, result.isGameOver(), result.notifications());
+            return true;
+        }
+
+        UnitActionResult result = gameService.processUnitAction(
+            roomId,
+            bot,
+            new UnitActionRequest(action.type().name(), action.unitIdx(), action.goal())
+        );
+        if (result.isRejected()) {
+            return false;
+        }
+        publish(roomId, result.isGameOver(), result.notifications());
+        return true;
+    }
+}
@@ -5,70 +5,243 @@ import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
-import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
 import java.util.concurrent.locks.Lock;
 import java.util.concurrent.locks.ReentrantLock;
- 
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+
 import com.wolyh.game.backend.dto.UnitActionRequest;
+import com.wolyh.game.backend.dto.UnitActionsRequest;
 import com.wolyh.game.backend.dto.Notification;
 import com.wolyh.game.backend.dto.Notification.AllyUnitMove;
 import com.wolyh.game.backend.dto.Notification.EnemyUnitMove;
+import com.wolyh.game.backend.dto.Notification.FovStep;
 import com.wolyh.game.backend.dto.Notification.GameEvent;
 import com.wolyh.game.backend.dto.Notification.GameOver;
 import com.wolyh.game.backend.dto.Notification.MapShrink;
+import com.wolyh.game.backend.dto.Notification.Resync;
 import com.wolyh.game.backend.dto.Notification.TurnChange;
 import com.wolyh.game.backend.dto.Notification.UnitAttack;
+import com.wolyh.game.backend.game.FovDelta;
 import com.wolyh.game.backend.game.Game;
+import com.wolyh.game.backend.game.GameConfig;
+import com.wolyh.game.backend.game.PlayerManager;
+import com.wolyh.game.backend.game.PlayerSnapshot;
 import com.wolyh.game.backend.game.Result.AddGameResult;
+import com.wolyh.game.backend.game.Rejection;
 import com.wolyh.game.backend.game.Result.ForfeitResult;
+import com.wolyh.game.backend.game.Result.ResyncResult;
 import com.wolyh.game.backend.game.Result.ShrinkMapResult;
 import com.wolyh.game.backend.game.Result.SkipTurnResult;
 import com.wolyh.game.backend.game.Result.UnitActionResult;
+import com.wolyh.game.backend.metrics.GameEvents;
+import com.wolyh.game.backend.metrics.GameMetrics;
 import com.wolyh.game.backend.dto.Notification.Type;
+import com.wolyh.game.backend.model.Hex;
 import com.wolyh.game.backend.model.HexCoordinates;
+import com.wolyh.game.backend.model.RoomIds;
 import com.wolyh.game.backend.model.UnitCoordinates;
+import com.wolyh.game.backend.replay.ReplayAction;
+import com.wolyh.game.backend.utils.LongMap;
 
 @Service
 public class GameService {
 
-    private final Map<String, Game> games = new ConcurrentHashMap<>();
-    private final Map<String, Lock> gameLocks = new ConcurrentHashMap<>();
+    @Autowired
+    private SpectatorService spectatorService;
+
+    @Autowired
+    private ReplayService replayService;
+
+    @Autowired
+    private NotificationService notificationService;
+
+    @Autowired
+    private LogService logService;
+
+    @Autowired
+    private MapCatalogService mapCatalogService;
 
-    public AddGameResult addGame(String roomId, String player1, String player2) {
-        games.computeIfAbsent(roomId, id -> {
+    @Value("${game.action-points:" + GameConfig.ACTION_POINTS + "}")
+    private int actionPoints;
+
+    private final LongMap<Game> games = new LongMap<>();
+    private final LongMap<Lock> gameLocks = new LongMap<>();
+
+    @PostConstruct
+    void registerGauges() {
+        Gauge.builder("games.live", games, g -> g.count(game -> !game.isGameOver()))
+            .tag("state", "playing")
+            .register(GameMetrics.registry());
+        Gauge.builder("games.live", games, g -> g.count(Game::isGameOver))
+            .tag("state", "over")
+            .register(GameMetrics.registry());
+    }
+
+    /** The map comes ready from the catalog, nothing is generated here. */
+    public AddGameResult addGame(String roomId, String player1, String player2, long mapId) {
+        long key = RoomIds.parse(roomId);
+        if (key == RoomIds.INVALID) {
+            throw new IllegalArgumentException("Invalid room id " + roomId);
+        }
+        // the lock is only registered once the game could be built
+        Game game = games.computeIfAbsent(key, id -> {
+            Game created = new Game(
+                player1,
+                player2,
+                mapCatalogService.getConfig().withActionPoints(actionPoints),
+                ThreadLocalRandom.current().nextLong(),
+                mapCatalogService.get(mapId)
+            );
             gameLocks.put(id, new ReentrantLock());
-            return new Game(player1, player2);
+            return created;
         });
 
-        Game game = games.get(roomId);
+        replayService.recordStart(roomId, game);
+        publishToSpectators(roomId, game);
     
         return new AddGameResult(
-            game.getFov(player1),
-            game.getFov(player2),
+            game.getFov(game.getSlot(player1)),
+            game.getFov(game.getSlot(player2)),
             game.getUnitLocations(),
-            game.getNumberOfUnits()
+            game.getNumberOfUnits(),
+            game.getLayout().terrain()
         );
     }
 
+    public String getActivePlayer(String roomId) {
+        long key = RoomIds.parse(roomId);
+        Lock lock = lockOf(key);
+        if (lock == null) {
+            return null;
+        }
+
+        lock.lock();
+
+        try {
+            Game game = games.get(key);
+            if (game == null || game.isGameOver()) {
+                return null;
+            }
+            return game.getActivePlayer();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public PlayerSnapshot getPlayerSnapshot(String roomId, String username) {
+        long key = RoomIds.parse(roomId);
+        Lock lock = lockOf(key);
+        if (lock == null) {
+            return null;
+        }
+
+        lock.lock();
+
+        try {
+            Game game = games.get(key);
+            if (game == null || game.isGameOver()) {
+                return null;
+            }
+            int slot = game.getSlot(username);
+            return slot == PlayerManager.NONE ? null : game.getPlayerSnapshot(slot);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Snapshot of the game for a player who missed too many notifications, along with
+     * the sequence it matches. Snapshots are cached per sequence so a burst of
+     * reconnections only takes the game lock once.
+     */
+    public ResyncResult getResync(String roomId, String username) {
+        long seq = notificationService.currentSeq(roomId, username);
+        Notification<GameEvent> cached = notificationService.cachedSnapshot(roomId, username, seq);
+        if (cached != null) {
+            return new ResyncResult(seq, cached);
+        }
+
+        long key = RoomIds.parse(roomId);
+        Lock lock = lockOf(key);
+        if (lock == null) {
+            return null;
+        }
+
+        lock.lock();
+
+        try {
+            Game game = games.get(key);
+            int slot = game == null ? PlayerManager.NONE : game.getSlot(username);
+            if (slot == PlayerManager.NONE) {
+                return null;
+            }
+
+            // read again under the lock, the sequence must match the state of the snapshot
+            seq = notificationService.currentSeq(roomId, username);
+
+            if (game.isGameOver()) {
+                return new ResyncResult(seq, new Notification<GameEvent>(
+                    Type.GAME_OVER,
+                    new GameOver(game.getWinner(), roomId)
+                ));
+            }
+
+            PlayerSnapshot snapshot = game.getPlayerSnapshot(slot);
+            List<Integer> deadUnits = new ArrayList<>();
+            for (int idx = 0; idx < snapshot.nbUnits(); idx++) {
+                int unitIdx = idx;
+                if (snapshot.allies().stream().noneMatch(unit -> unit.idx() == unitIdx)
+                        && !snapshot.aliveEnemies().contains(unitIdx)) {
+                    deadUnits.add(unitIdx);
+                }
+            }
+
+            return new ResyncResult(seq, new Notification<GameEvent>(Type.RESYNC, new Resync(
+                snapshot.fov(),
+                snapshot.allies(),
+                snapshot.visibleEnemies(),
+                deadUnits,
+                snapshot.nbUnits(),
+                snapshot.activeUnitIdx(),
+                snapshot.shrinkLevel(),
+                game.getLayout().terrain(),
+                roomId
+            )));
+        } finally {
+            lock.unlock();
+        }
+    }
+
     public void deleteGame(String roomId) {
-        Lock lock = gameLocks.get(roomId);
+        long key = RoomIds.parse(roomId);
+        Lock lock = lockOf(key);
         if(lock == null) {
             return;
         }
         lock.lock();
 
         try {
-            games.remove(roomId);
+            games.remove(key);
+            replayService.discard(roomId);
+            notificationService.discard(roomId);
+            spectatorService.discard(roomId);
         }finally {
             lock.unlock();
-            gameLocks.remove(roomId);
+            gameLocks.remove(key);
         }
     }
 
     public ForfeitResult forfeitGame(String roomId, String username) {
-        Lock lock = gameLocks.get(roomId);
+        long key = RoomIds.parse(roomId);
+        Lock lock = lockOf(key);
         if(lock == null) {
             return null;
         }
@@ -76,23 +249,28 @@ public class GameService {
         lock.lock();
 
         try {
-            Game game = games.get(roomId);
-
-            if (game.isGameOver()) {
+            // deleted while this thread waited for the lock
+            Game game = games.get(key);
+            if (game == null || game.isGameOver()) {
                 return null;
             }
 
-            String winner = game.getOtherPlayer(username);
-            game.setGameOver();
+            // the game ends for everyone, the other team wins when there is only one
+            int slot = game.getSlot(username);
+            game.setGameOver(game.getTeamCount() == 2 && slot != PlayerManager.NONE ? game.getOtherSlot(slot) : PlayerManager.NONE);
+            String winner = game.getWinner();
+            replayService.recordEnd(roomId, winner);
+            publishToSpectators(roomId, game);
 
-            return new ForfeitResult(
-                username, 
-                winner, 
-                new Notification<GameEvent>(
-                    Type.GAME_OVER, 
-                    new GameOver(winner, roomId)
-                )
+            Notification<GameEvent> gameOverNotif = new Notification<GameEvent>(
+                Type.GAME_OVER, 
+                new GameOver(winner, roomId)
             );
+            Map<String, List<Notification<GameEvent>>> notifications = new HashMap<>();
+            game.getPlayers().forEach(player -> notifications.put(player, List.of(gameOverNotif)));
+            notificationService.sequence(roomId, notifications);
+
+            return new ForfeitResult(username, winner, game.getPlayers(), gameOverNotif);
 
         }finally {
             lock.unlock();
@@ -100,34 +278,59 @@ public class GameService {
     }
 
     public SkipTurnResult processSkipTurn(String roomId, String username) {
-        Lock lock = gameLocks.get(roomId);
+        return GameMetrics.TURN_SKIP.record(() -> skipTurn(roomId, username));
+    }
+
+    /** The event is committed on every exit, a refused skip under the name of its rejection. */
+    private SkipTurnResult skipTurn(String roomId, String username) {
+        GameEvents.Action event = new GameEvents.Action();
+        event.begin();
+        SkipTurnResult result = null;
+        try {
+            result = skipTurn(roomId, username, event);
+            return result;
+        } finally {
+            String type = result != null && result.isRejected() ? result.rejection().name() : "TURN_SKIP";
+            event.commit(roomId, type, 0, event.fovSize);
+        }
+    }
+
+    private SkipTurnResult skipTurn(String roomId, String username, GameEvents.Action event) {
+        long key = RoomIds.parse(roomId);
+        Lock lock = lockOf(key);
         if (lock == null) {
-            return null;
+            return SkipTurnResult.rejected(reject(Rejection.NOT_IN_GAME, roomId, username, "TURN_SKIP"));
         }
 
         lock.lock();
 
         try {
-            Game game = games.get(roomId);
+            Game game = games.get(key);
+            if (game == null) {
+                return SkipTurnResult.rejected(reject(Rejection.NOT_IN_GAME, roomId, username, "TURN_SKIP"));
+            }
 
             if (game.isGameOver()) { 
-                return null;  
+                return SkipTurnResult.rejected(reject(Rejection.GAME_OVER, roomId, username, "TURN_SKIP"));
             }
 
-            if (!game.isPlayerActive(username)) {
-                return null;
+            if (!game.isPlayerActive(game.getSlot(username))) {
+                return SkipTurnResult.rejected(reject(Rejection.NOT_ACTIVE_PLAYER, roomId, username, "TURN_SKIP"));
             }
 
-            String activePlayer = game.getActivePlayer();
-            String otherPlayer = game.getOtherPlayer(activePlayer);
+            List<List<Notification<GameEvent>>> notifications = teamNotifications(game);
 
-            Map<String, List<Notification<GameEvent>>> notifications = new HashMap<>();
-            notifications.put(activePlayer, new ArrayList<>());
-            notifications.put(otherPlayer, new ArrayList<>());
+            ReplayAction skip = new ReplayAction(ReplayAction.Type.TURN_SKIP, game.getActiveUnitIdx(), null, true);
+            int actingSlot = game.getActiveSlot();
+            boolean isGameOver = endTurn(game, roomId, "TURN_SKIP", notifications);
+            record(roomId, game, List.of(skip));
+            publishToSpectators(roomId, game);
 
-            boolean isGameOver = endTurn(game, roomId, notifications);
+            Map<String, List<Notification<GameEvent>>> playerNotifications = toPlayers(game, notifications);
+            notificationService.sequence(roomId, playerNotifications);
+            event.fovSize = game.getFovSize(actingSlot);
 
-            return new SkipTurnResult(isGameOver, notifications);
+            return new SkipTurnResult(isGameOver, playerNotifications);
 
         }finally {
             lock.unlock();
@@ -139,159 +342,369 @@ public class GameService {
         String username, 
         UnitActionRequest action
     ) {
-        Lock lock = gameLocks.get(roomId);
+        if (action.goal() == null) {
+            return UnitActionResult.rejected(reject(Rejection.MALFORMED_ACTION, roomId, username, action.type()));
+        }
+        Timer timer = switch (action.type()) {
+            case "UNIT_MOVE" -> GameMetrics.UNIT_MOVE;
+            case "UNIT_ATTACK" -> GameMetrics.UNIT_ATTACK;
+            case null, default -> null;
+        };
+
+        if (timer == null) {
+            return UnitActionResult.rejected(reject(Rejection.UNKNOWN_ACTION, roomId, username, action.type()));
+        }
+
+        return timer.record(() -> unitActions(roomId, username, List.of(action)));
+    }
+
+    /**
+     * Several actions of the active unit in one go, applied in order under one lock.
+     * Either they are all applied or none is, and the players get one batch for all of them.
+     */
+    public UnitActionResult processUnitActions(
+        String roomId,
+        String username,
+        UnitActionsRequest request
+    ) {
+        if (request.actions() == null || request.actions().isEmpty()) {
+            return UnitActionResult.rejected(reject(Rejection.EMPTY_BATCH, roomId, username, "UNIT_ACTIONS"));
+        }
+        // checked before the lock, a bad element would otherwise fail halfway through the batch
+        for (UnitActionRequest action : request.actions()) {
+            if (action == null || action.goal() == null) {
+                return UnitActionResult.rejected(reject(Rejection.MALFORMED_ACTION, roomId, username, "UNIT_ACTIONS"));
+            }
+        }
+        GameMetrics.ACTION_BATCH_SIZE.record(request.actions().size());
+        return GameMetrics.UNIT_ACTIONS.record(() -> unitActions(roomId, username, request.actions()));
+    }
+
+    /** The event is committed on every exit, a refused action under the name of its rejection. */
+    private UnitActionResult unitActions(
+        String roomId,
+        String username,
+        List<UnitActionRequest> actions
+    ) {
+        GameEvents.Action event = new GameEvents.Action();
+        event.begin();
+        String actionType = actions.size() > 1 ? "UNIT_ACTIONS" : actions.getFirst().type();
+        UnitActionResult result = null;
+        try {
+            result = unitActions(roomId, username, actions, actionType, event);
+            return result;
+        } finally {
+            String type = result != null && result.isRejected() ? result.rejection().name() : actionType;
+            event.commit(roomId, type, event.pathLength, event.fovSize);
+        }
+    }
+
+    private UnitActionResult unitActions(
+        String roomId, 
+        String username, 
+        List<UnitActionRequest> actions,
+        String actionType,
+        GameEvents.Action event
+    ) {
+        long key = RoomIds.parse(roomId);
+        Lock lock = lockOf(key);
         if (lock == null) {
-            System.err.println("Game lock is null");
-            return null;
+            return UnitActionResult.rejected(reject(Rejection.NOT_IN_GAME, roomId, username, actionType));
         }
         lock.lock();
 
         try {
-            Game game = games.get(roomId);
+            Game game = games.get(key);
+            if (game == null) {
+                return UnitActionResult.rejected(reject(Rejection.NOT_IN_GAME, roomId, username, actionType));
+            }
 
             if (game.isGameOver()) { 
-                return null;  
+                return UnitActionResult.rejected(reject(Rejection.GAME_OVER, roomId, username, actionType));
             }
 
-            if (!game.isPlayerActive(username)) {
-                System.err.println("the player is not active");
-                return null;
+            if (!game.isPlayerActive(game.getSlot(username))) {
+                return UnitActionResult.rejected(reject(Rejection.NOT_ACTIVE_PLAYER, roomId, username, actionType));
             }
 
-            switch (action.type()) {
-                case "UNIT_MOVE":
-                    return handleMove(game, roomId, action.unitIdx(), action.goal());
-                case "UNIT_ATTACK":
-                    return handleAttack(game, roomId, action.unitIdx(), action.goal());
-                default:
-                    System.err.println("Game action should be either attack or move");
-                    return null;
+            int cost = 0;
+            for (UnitActionRequest action : actions) {
+                int actionCost = switch (action.type()) {
+                    case "UNIT_MOVE" -> Game.MOVE_COST;
+                    case "UNIT_ATTACK" -> Game.ATTACK_COST;
+                    case null, default -> -1;
+                };
+                if (actionCost < 0) {
+                    return UnitActionResult.rejected(reject(Rejection.UNKNOWN_ACTION, roomId, username, action.type()));
+                }
+                cost += actionCost;
             }
+
+            if (cost > game.getActionPointsLeft()) {
+                return UnitActionResult.rejected(reject(Rejection.NO_ACTION_POINTS, roomId, username, actionType));
+            }
+
+            // an action is checked before it changes anything, only the earlier ones of the batch need undoing
+            game.beginBatch();
+            List<List<Notification<GameEvent>>> notifications = teamNotifications(game);
+
+            int actingSlot = game.getActiveSlot();
+            int applied = 0;
+            boolean isGameOver = false;
+            for (UnitActionRequest action : actions) {
+                boolean isAttack = action.type().equals("UNIT_ATTACK");
+                Rejection rejection = isAttack
+                    ? handleAttack(game, roomId, action.unitIdx(), action.goal(), notifications)
+                    : handleMove(game, roomId, action.unitIdx(), action.goal(), notifications, event);
+                if (rejection != null) {
+                    game.rollbackBatch();
+                    return UnitActionResult.rejected(reject(rejection, roomId, username, action.type()));
+                }
+                applied++;
+                // the rest of the batch is dropped once the last enemy is dead
+                if (isAttack && checkGameOver(game, roomId, notifications)) {
+                    isGameOver = true;
+                    break;
+                }
+            }
+            game.commitBatch();
+
+            boolean endsTurn = false;
+            if (!isGameOver) {
+                game.spendActionPoints(cost);
+                endsTurn = game.getActionPointsLeft() <= 0;
+                isGameOver = endsTurn && endTurn(game, roomId, actionType, notifications);
+            }
+
+            List<ReplayAction> played = new ArrayList<>(applied);
+            for (int i = 0; i < applied; i++) {
+                UnitActionRequest action = actions.get(i);
+                played.add(new ReplayAction(
+                    ReplayAction.Type.valueOf(action.type()),
+                    action.unitIdx(),
+                    action.goal(),
+                    endsTurn && i == applied - 1
+                ));
+            }
+            record(roomId, game, played);
+            publishToSpectators(roomId, game);
+
+            Map<String, List<Notification<GameEvent>>> playerNotifications = toPlayers(game, notifications);
+            notificationService.sequence(roomId, playerNotifications);
+            event.fovSize = game.getFovSize(actingSlot);
+
+            return new UnitActionResult(isGameOver, playerNotifications);
         } finally {
             lock.unlock();
         }
     }
 
-    public UnitActionResult handleMove(
+    /** Null when the move is applied, the hexes walked are added to the path length of the action. */
+    private Rejection handleMove(
         Game game, 
         String roomId,
         int unitIdx, 
-        HexCoordinates goalCoords
+        HexCoordinates goalCoords,
+        List<List<Notification<GameEvent>>> notifications,
+        GameEvents.Action event
     ){
-        if (!game.canUnitMoveOnHex(unitIdx, goalCoords)) {
-            System.err.println("Unit cannot move on hex");
-            return null;
+        Rejection rejection = game.checkMove(unitIdx, goalCoords);
+        if (rejection != null) {
+            return rejection;
         }
 
-        String activePlayer = game.getActivePlayer();
-        String otherPlayer = game.getOtherPlayer(activePlayer);
-
-        Map<String, List<Notification<GameEvent>>> notifications = new HashMap<>();
-        notifications.put(activePlayer, new ArrayList<>());
-        notifications.put(otherPlayer, new ArrayList<>());
+        int activeSlot = game.getActiveSlot();
+        int activeTeam = game.getTeam(activeSlot);
 
-        List<HexCoordinates> path = game.searchPath(goalCoords, unitIdx, activePlayer);
+        GameEvents.PathSearch search = new GameEvents.PathSearch();
+        search.begin();
+        List<HexCoordinates> path = GameMetrics.PATH_SEARCH.record(() -> game.searchPath(goalCoords, unitIdx, activeSlot));
+        search.commit(roomId, "UNIT_MOVE", path.size(), game.getFovSize(activeSlot));
         if (path.isEmpty()) {
-            return null;
+            return Rejection.NO_PATH;
         }
 
         List<HexCoordinates> pathWithoutStart = path.subList(1, path.size());
-        List<Set<String>> pathFov = game.getPathFov(pathWithoutStart, activePlayer);
-        List<List<UnitCoordinates>> visibleUnitsAlongPath = game.getVisibleUnitsAlongPath(pathFov);
-        List<HexCoordinates> otherPlayerViewOfPath = game.calculateEnemyPovPath(path, otherPlayer);
-        
-        game.moveUnit(unitIdx, goalCoords);
 
-        notifications.get(activePlayer).add(new Notification<GameEvent>(Type.ALLY_MOVE, 
-                new AllyUnitMove(unitIdx, pathWithoutStart, pathFov, visibleUnitsAlongPath, roomId)
-        ));
+        for (int team = 0; team < game.getTeamCount(); team++) {
+            if (team == activeTeam) {
+                continue;
+            }
+            List<HexCoordinates> teamViewOfPath = game.calculateEnemyPovPath(path, team);
+            notifications.get(team).add(new Notification<GameEvent>(Type.ENEMY_MOVE, 
+                    new EnemyUnitMove(unitIdx, teamViewOfPath, roomId)
+            ));
+        }
+
+        GameEvents.Visibility visibility = new GameEvents.Visibility();
+        visibility.begin();
+        List<FovDelta> steps = GameMetrics.FOV_MOVE.record(() -> game.moveUnitAlong(unitIdx, pathWithoutStart));
+        visibility.commit(roomId, "UNIT_MOVE", pathWithoutStart.size(), game.getFovSize(activeSlot));
+        List<FovStep> pathFov = new ArrayList<>(steps.size());
+        for (FovDelta step : steps) {
+            pathFov.add(toFovStep(game, step, activeTeam));
+        }
 
-        notifications.get(otherPlayer).add(new Notification<GameEvent>(Type.ENEMY_MOVE, 
-                new EnemyUnitMove(unitIdx, otherPlayerViewOfPath, roomId)
+        notifications.get(activeTeam).add(new Notification<GameEvent>(Type.ALLY_MOVE, 
+                new AllyUnitMove(unitIdx, pathWithoutStart, pathFov, roomId)
         ));
 
-        boolean isGameOver = endTurn(game, roomId, notifications);
+        event.pathLength += pathWithoutStart.size();
+        return null;
+    }
 
-        return new UnitActionResult(isGameOver, notifications);
+    /** Enemies do not move during the path, so only the hexes of the diff need to be checked. */
+    private FovStep toFovStep(Game game, FovDelta step, int team) {
+        List<UnitCoordinates> spotted = game.getEnemiesOn(step.gained(), team);
+        List<Integer> hidden = new ArrayList<>();
+        for (UnitCoordinates enemy : game.getEnemiesOn(step.lost(), team)) {
+            hidden.add(enemy.idx());
+        }
+        return new FovStep(step.gained(), step.lost(), spotted, hidden);
     }
 
-    public UnitActionResult handleAttack(
+    /** Null when the attack is applied. */
+    private Rejection handleAttack(
         Game game, 
         String roomId, 
         int attackerIdx, 
-        HexCoordinates targetCoords
+        HexCoordinates targetCoords,
+        List<List<Notification<GameEvent>>> notifications
     ) {
-        if (!game.canUnitAttackOnHex(attackerIdx, targetCoords)) {
-            System.err.println("Unit cannot attack on hex");
-            return null;
+        Rejection rejection = game.checkAttack(attackerIdx, targetCoords);
+        if (rejection != null) {
+            return rejection;
         }
 
-        String activePlayer = game.getActivePlayer();
-        String otherPlayer = game.getOtherPlayer(activePlayer);
+        GameEvents.Visibility visibility = new GameEvents.Visibility();
+        visibility.begin();
+        List<Set<String>> teamFovs = GameMetrics.FOV_KILL.record(() -> game.killUnitOn(targetCoords));
+        visibility.commit(roomId, "UNIT_ATTACK", 0, game.getFovSize(game.getActiveSlot()));
 
-        Map<String, List<Notification<GameEvent>>> notifications = new HashMap<>();
-        notifications.put(activePlayer, new ArrayList<>());
-        notifications.put(otherPlayer, new ArrayList<>());
-
-        Map<String, Set<String>> playerFovs = game.killUnitOn(targetCoords);
-
-        notifications.forEach((playerUsername, playerNotifs) -> playerNotifs.add(
-            new Notification<GameEvent>(Type.UNIT_ATTACK, new UnitAttack(
+        for (int team = 0; team < notifications.size(); team++) {
+            notifications.get(team).add(new Notification<GameEvent>(Type.UNIT_ATTACK, new UnitAttack(
                 attackerIdx,
                 targetCoords,
-                playerFovs.get(playerUsername),
+                teamFovs.get(team),
                 roomId
-            ))
-        ));
+            )));
+        }
 
-        boolean isGameOver = endTurn(game, roomId, notifications);
+        return null;
+    }
 
-        return new UnitActionResult(isGameOver, notifications);
+    /** Lock of the running game, null when there is none or the room id did not parse. */
+    private Lock lockOf(long key) {
+        return key == RoomIds.INVALID ? null : gameLocks.get(key);
+    }
+
+    /** Counted and logged here for every refused action, the caller tells the sender. */
+    public Rejection reject(Rejection reason, String roomId, String username, String action) {
+        GameMetrics.rejected(reason);
+        logService.rejected(reason, roomId, username, action);
+        return reason;
+    }
+
+    /** One list per team, its players get the same notifications so they are built once per team. */
+    private List<List<Notification<GameEvent>>> teamNotifications(Game game) {
+        List<List<Notification<GameEvent>>> notifications = new ArrayList<>(game.getTeamCount());
+        for (int team = 0; team < game.getTeamCount(); team++) {
+            notifications.add(new ArrayList<>());
+        }
+        return notifications;
+    }
+
+    /** Players of a team share the list of their team. */
+    private Map<String, List<Notification<GameEvent>>> toPlayers(
+        Game game,
+        List<List<Notification<GameEvent>>> notifications
+    ) {
+        Map<String, List<Notification<GameEvent>>> playerNotifications = new HashMap<>();
+        for (int slot = 0; slot < game.getPlayers().size(); slot++) {
+            playerNotifications.put(game.getPlayer(slot), notifications.get(game.getTeam(slot)));
+        }
+        return playerNotifications;
+    }
+
+    private void record(String roomId, Game game, List<ReplayAction> actions) {
+        for (ReplayAction action : actions) {
+            replayService.recordAction(roomId, game, action);
+        }
+        if (game.isGameOver()) {
+            replayService.recordEnd(roomId, game.getWinner());
+        }
+    }
+
+    /**
+     * Called under the game lock after every event, whether or not anyone watches: a new watcher
+     * is served from the last snapshot without taking the lock. Views are built and encoded on
+     * the spectator thread, the lock is only held for the snapshot.
+     */
+    private void publishToSpectators(String roomId, Game game) {
+        spectatorService.publish(roomId, game.snapshot());
     }
 
     private boolean endTurn(
         Game game, 
         String roomId, 
-        Map<String, List<Notification<GameEvent>>> notifications
+        String actionType,
+        List<List<Notification<GameEvent>>> notifications
     ) {
-        String winner = game.resolveGameOver();
+        GameEvents.EndTurn event = new GameEvents.EndTurn();
+        event.begin();
+        boolean isGameOver = GameMetrics.END_TURN.record(() -> resolveTurn(game, roomId, actionType, notifications));
+        event.commit(roomId, actionType, 0, game.getFovSize(game.getActiveSlot()));
+        return isGameOver;
+    }
 
-        if(game.isGameOver()) {
-            notifications.values().forEach(playerNotifs -> playerNotifs.add(
-                new Notification<GameEvent>(Type.GAME_OVER, new GameOver(winner, roomId))
-            ));
+    private boolean resolveTurn(
+        Game game, 
+        String roomId, 
+        String actionType,
+        List<List<Notification<GameEvent>>> notifications
+    ) {
+        if (checkGameOver(game, roomId, notifications)) {
             return true;
         }
 
         int nextIdx = game.nextTurn();
 
-        notifications.values().forEach(playerNotifs -> playerNotifs.add(
-            new Notification<GameEvent>(Type.TURN_CHANGE, new TurnChange(nextIdx, roomId))
-        ));
+        Notification<GameEvent> turnChange = new Notification<GameEvent>(Type.TURN_CHANGE, new TurnChange(nextIdx, roomId));
+        notifications.forEach(teamNotifs -> teamNotifs.add(turnChange));
 
-        ShrinkMapResult shrink = game.shrinkMapIfNeeded();
+        GameEvents.Shrink event = new GameEvents.Shrink();
+        event.begin();
+        ShrinkMapResult shrink = GameMetrics.MAP_SHRINK.record(() -> game.shrinkMapIfNeeded());
 
         if(!shrink.occurred()) {
             return false;
         }
+        event.commit(roomId, actionType, 0, game.getFovSize(game.getActiveSlot()));
 
-        notifications.forEach((playerUsername, playerNotifs) -> playerNotifs.add(
-            new Notification<GameEvent>(Type.MAP_SHRINK, new MapShrink(
+        for (int team = 0; team < notifications.size(); team++) {
+            notifications.get(team).add(new Notification<GameEvent>(Type.MAP_SHRINK, new MapShrink(
                 shrink.shrinkLevel(),
                 shrink.deadUnits(),
-                shrink.playerFovs().get(playerUsername),
+                shrink.teamFovs().get(team),
                 roomId
-            ))
-        ));
-        
-        String winnerAfterShrink = game.resolveGameOver();
-        if(game.isGameOver()) {
-            notifications.values().forEach(playerNotifs -> playerNotifs.add(
-                new Notification<GameEvent>(Type.GAME_OVER, new GameOver(winnerAfterShrink, roomId))
-            ));
-            return true;
+            )));
         }
+        
+        return checkGameOver(game, roomId, notifications);
+    }
 
-        return false;
+    /** Also used after actions that do not end the turn, the last enemy may have been killed. */
+    private boolean checkGameOver(
+        Game game,
+        String roomId,
+        List<List<Notification<GameEvent>>> notifications
+    ) {
+        String winner = game.resolveGameOver();
+        if (!game.isGameOver()) {
+            return false;
+        }
+        Notification<GameEvent> gameOver = new Notification<GameEvent>(Type.GAME_OVER, new GameOver(winner, roomId));
+        notifications.forEach(teamNotifs -> teamNotifs.add(gameOver));
+        return true;
     }
 }
@@ -0,0 +1,161 @@
+package com.wolyh.game.backend.service;
+
+import java.io.PrintStream;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+
+import com.wolyh.game.backend.game.Rejection;
+import com.wolyh.game.backend.metrics.GameMetrics;
+
+/**
+ * One JSON object per line on stderr, written by a single thread. Callers only put the
+ * entry in a bounded queue, so a flood of rejected actions never makes the inbound
+ * threads wait on the stream: past the queue size entries are dropped, past the rate
+ * they are counted and summed up in one line per second.
+ */
+@Service
+public class LogService {
+    private static final int BATCH = 256;
+
+    @Value("${log.queue-size:4096}")
+    private int queueSize;
+
+    @Value("${log.max-per-second:200}")
+    private int maxPerSecond;
+
+    private record Entry(long timestamp, String event, Object[] fields) {}
+
+    private final PrintStream out = System.err;
+    private final LongAdder dropped = new LongAdder();
+    private BlockingQueue<Entry> queue;
+    private Thread writer;
+
+    private long second;
+    private int writtenThisSecond;
+    private long suppressed;
+
+    @PostConstruct
+    void start() {
+        queue = new ArrayBlockingQueue<>(queueSize);
+        FunctionCounter.builder("log.dropped", dropped, LongAdder::sum).register(GameMetrics.registry());
+        writer = Thread.ofPlatform().name("log-writer").daemon().start(this::write);
+    }
+
+    @PreDestroy
+    void stop() throws InterruptedException {
+        writer.interrupt();
+        writer.join(1000);
+    }
+
+    /** Fields are name and value pairs. */
+    public void log(String event, Object... fields) {
+        if (!queue.offer(new Entry(System.currentTimeMillis(), event, fields))) {
+            dropped.increment();
+        }
+    }
+
+    public void rejected(Rejection reason, String roomId, String username, String action) {
+        log("action_rejected", "reason", reason.name(), "room", roomId, "user", username, "action", action);
+    }
+
+    private void write() {
+        List<Entry> batch = new ArrayList<>(BATCH);
+        StringBuilder lines = new StringBuilder();
+        boolean running = true;
+        while (running) {
+            try {
+                Entry first = queue.poll(1, TimeUnit.SECONDS);
+                if (first != null) {
+                    batch.add(first);
+                }
+            } catch (InterruptedException e) {
+                running = false;
+            }
+            queue.drainTo(batch, BATCH - batch.size());
+
+            rollSecond(System.currentTimeMillis() / 1000, lines);
+            for (Entry entry : batch) {
+                if (writtenThisSecond < maxPerSecond) {
+                    writtenThisSecond++;
+                    append(lines, entry.timestamp(), entry.event(), entry.fields());
+                } else {
+                    suppressed++;
+                    dropped.increment();
+                }
+            }
+            batch.clear();
+
+            if (!lines.isEmpty()) {
+                out.print(lines);
+                out.flush();
+                lines.setLength(0);
+            }
+        }
+    }
+
+    /** The rate is counted by the clock of the writer, not by the time of the entries. */
+    private void rollSecond(long now, StringBuilder lines) {
+        if (now == second) {
+            return;
+        }
+        if (suppressed > 0) {
+            append(lines, second * 1000, "log_suppressed", new Object[] { "count", suppressed });
+            suppressed = 0;
+        }
+        second = now;
+        writtenThisSecond = 0;
+    }
+
+    private static void append(StringBuilder out, long timestamp, String event, Object[] fields) {
+        out.append("{\"ts\":\"").append(Instant.ofEpochMilli(timestamp)).append("\",\"event\":");
+        appendString(out, event);
+        for (int i = 0; i + 1 < fields.length; i += 2) {
+            out.append(',');
+            appendString(out, String.valueOf(fields[i]));
+            out.append(':');
+            Object value = fields[i + 1];
+            if (value == null) {
+                out.append("null");
+            } else if (value instanceof Number || value instanceof Boolean) {
+                out.append(value);
+            } else {
+                appendString(out, value.toString());
+            }
+        }
+        out.append("}\n");
+    }
+
+    private static void appendString(StringBuilder out, String value) {
+        out.append('"');
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            switch (c) {
+                case '"' -> out.append("\\\"");
+                case '\\' -> out.append("\\\\");
+                case '\n' -> out.append("\\n");
+                case '\r' -> out.append("\\r");
+                case '\t' -> out.append("\\t");
+                default -> {
+                    if (c < 0x20) {
+                        out.append(String.format("\\u%04x", (int) c));
+                    } else {
+                        out.append(c);
+                    }
+                }
+            }
+        }
+        out.append('"');
+    }
+}
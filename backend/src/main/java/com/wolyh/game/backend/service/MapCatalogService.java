@@ -0,0 +1,117 @@
+package com.wolyh.game.backend.service;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import io.micrometer.core.instrument.Gauge;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+
+import com.wolyh.game.backend.game.GameConfig;
+import com.wolyh.game.backend.game.MapGenerator;
+import com.wolyh.game.backend.game.MapLayout;
+import com.wolyh.game.backend.metrics.GameMetrics;
+
+/**
+ * Maps ready to be played, with their visibility already computed. Procedural maps are
+ * generated and validated on a background thread, rooms only pick one by id, and the
+ * classic map is handed out until the first ones are ready.
+ */
+@Service
+public class MapCatalogService {
+    /** Rooms are 1v1, so are their replays. */
+    private static final int PLAYERS = 2;
+
+    @Value("${map.catalog-size:32}")
+    private int catalogSize;
+
+    @Value("${map.procedural:true}")
+    private boolean procedural;
+
+    /** Units per player in {@link GameConfig#army} mode, 0 for the default rules. */
+    @Value("${game.army-size:0}")
+    private int armySize;
+
+    private GameConfig config;
+
+    private final Map<Long, MapLayout> maps = new ConcurrentHashMap<>();
+    private final List<Long> ready = new CopyOnWriteArrayList<>();
+    private MapLayout classic;
+    private ExecutorService generator;
+
+    @PostConstruct
+    void start() {
+        config = armySize > 0 ? GameConfig.army(armySize, PLAYERS) : GameConfig.DEFAULT;
+        classic = MapGenerator.precompute(MapGenerator.classic(config.mapRadius()), config.visibilityRange());
+        maps.put(classic.id(), classic);
+
+        Gauge.builder("maps.catalog", ready, List::size)
+            .register(GameMetrics.registry());
+
+        if (procedural) {
+            generator = Executors.newSingleThreadExecutor(Thread.ofPlatform().name("map-generator").daemon().factory());
+            generator.execute(this::fill);
+        }
+    }
+
+    @PreDestroy
+    void stop() {
+        if (generator != null) {
+            generator.shutdownNow();
+        }
+    }
+
+    /** Rules of the room games, the maps of the catalog are made for them. */
+    public GameConfig getConfig() {
+        return config;
+    }
+
+    /** Id of a random ready map, never waits for one to be generated. */
+    public long pick() {
+        if (ready.isEmpty()) {
+            return classic.id();
+        }
+        return ready.get(ThreadLocalRandom.current().nextInt(ready.size()));
+    }
+
+    /** Layout of a map from the catalog, the classic one if the id is unknown. */
+    public MapLayout get(long id) {
+        return maps.getOrDefault(id, classic);
+    }
+
+    /** Layout of a stored game, generated again if it left the catalog. For replays only. */
+    public MapLayout getOrGenerate(long id, GameConfig config) {
+        MapLayout layout = maps.get(id);
+        if (layout != null && layout.radius() == config.mapRadius()) {
+            return layout;
+        }
+        layout = id == MapGenerator.CLASSIC_ID ? MapGenerator.classic(config.mapRadius()) : MapGenerator.generate(id, config, PLAYERS);
+        if (layout == null) {
+            return null;
+        }
+        return MapGenerator.precompute(layout, config.visibilityRange());
+    }
+
+    private void fill() {
+        while (ready.size() < catalogSize && !Thread.currentThread().isInterrupted()) {
+            long seed = ThreadLocalRandom.current().nextLong();
+            if (seed == MapGenerator.CLASSIC_ID || maps.containsKey(seed)) {
+                continue;
+            }
+            MapLayout layout = MapGenerator.generate(seed, config, PLAYERS);
+            if (layout == null) {
+                continue;
+            }
+            maps.put(seed, MapGenerator.precompute(layout, config.visibilityRange()));
+            ready.add(seed);
+        }
+    }
+}
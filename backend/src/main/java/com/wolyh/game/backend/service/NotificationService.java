@@ -0,0 +1,206 @@
+package com.wolyh.game.backend.service;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.messaging.simp.SimpMessageHeaderAccessor;
+import org.springframework.messaging.simp.SimpMessageType;
+import org.springframework.messaging.simp.SimpMessagingTemplate;
+import org.springframework.stereotype.Service;
+
+import com.wolyh.game.backend.dto.Notification;
+import com.wolyh.game.backend.dto.Notification.ActionRejected;
+import com.wolyh.game.backend.dto.Notification.GameEvent;
+import com.wolyh.game.backend.dto.Notification.Type;
+import com.wolyh.game.backend.game.Rejection;
+import com.wolyh.game.backend.metrics.GameEvents;
+
+/**
+ * Delivers game notifications as numbered batches, one sequence per player and game.
+ * Batches are numbered under the game lock so the order of the sequence is the order
+ * of the game, then sent from the caller's thread. The last batches of every player
+ * are kept so a reconnecting client can catch up without touching the game.
+ */
+@Service
+public class NotificationService {
+    public static final String SEQ_HEADER = "seq";
+    /** Set on snapshots, which the client takes whatever their seq and payload. */
+    public static final String SNAPSHOT_HEADER = "snapshot";
+
+    // lazy because the template comes from the websocket config, which needs the room service
+    @Lazy
+    @Autowired
+    private SimpMessagingTemplate messagingTemplate;
+
+    @Value("${notification.history-size:64}")
+    private int historySize;
+
+    private record Batch(long seq, List<Notification<GameEvent>> notifications) {}
+
+    /** Sequence of one player, guarded by its own monitor. */
+    private final class Stream {
+        private final Batch[] history = new Batch[historySize];
+        private long seq;
+        private long sent;
+        private Batch snapshot;
+
+        private Batch get(long seq) {
+            Batch batch = history[(int) (seq % history.length)];
+            return batch != null && batch.seq() == seq ? batch : null;
+        }
+    }
+
+    /** roomId -> username -> stream */
+    private final Map<String, Map<String, Stream>> streams = new ConcurrentHashMap<>();
+
+    /** Called under the game lock, numbers the batches but does not send them. */
+    public void sequence(String roomId, Map<String, List<Notification<GameEvent>>> notifications) {
+        notifications.forEach((username, batch) -> {
+            if (batch.isEmpty() || BotService.isBot(username)) {
+                return;
+            }
+            Stream stream = stream(roomId, username);
+            synchronized (stream) {
+                stream.seq++;
+                stream.history[(int) (stream.seq % stream.history.length)] = new Batch(stream.seq, List.copyOf(batch));
+            }
+        });
+    }
+
+    /** Sends every numbered batch the players did not receive yet. */
+    public void sendToPlayers(String roomId, Map<String, List<Notification<GameEvent>>> notifications) {
+        notifications.keySet().forEach(username -> flush(roomId, username));
+    }
+
+    public void flush(String roomId, String username) {
+        Stream stream = existingStream(roomId, username);
+        if (stream == null) {
+            return;
+        }
+        synchronized (stream) {
+            sendFrom(roomId, username, stream, stream.sent);
+            stream.sent = stream.seq;
+        }
+    }
+
+    /**
+     * Sends again every batch after lastSeq. Returns false when some of them
+     * were already dropped from the history, the client then needs a snapshot.
+     * lastSeq comes from the client, anything out of the history is refused the same way.
+     */
+    public boolean replay(String roomId, String username, long lastSeq) {
+        Stream stream = existingStream(roomId, username);
+        if (stream == null) {
+            return false;
+        }
+        synchronized (stream) {
+            if (lastSeq < 0 || lastSeq > stream.sent || stream.sent - lastSeq > stream.history.length) {
+                return false;
+            }
+            for (long seq = lastSeq + 1; seq <= stream.sent; seq++) {
+                if (stream.get(seq) == null) {
+                    return false;
+                }
+            }
+            sendFrom(roomId, username, stream, lastSeq);
+            stream.sent = stream.seq;
+            return true;
+        }
+    }
+
+    /** Current sequence of the player, read under the game lock along with the state it describes. */
+    public long currentSeq(String roomId, String username) {
+        Stream stream = existingStream(roomId, username);
+        if (stream == null) {
+            return 0;
+        }
+        synchronized (stream) {
+            return stream.seq;
+        }
+    }
+
+    /** Snapshot already built for this sequence, shared by the requests of a reconnect storm. */
+    public Notification<GameEvent> cachedSnapshot(String roomId, String username, long seq) {
+        Stream stream = existingStream(roomId, username);
+        if (stream == null) {
+            return null;
+        }
+        synchronized (stream) {
+            Batch snapshot = stream.snapshot;
+            return snapshot != null && snapshot.seq() == seq ? snapshot.notifications().getFirst() : null;
+        }
+    }
+
+    /**
+     * Sends a snapshot of the game as of seq, followed by the batches numbered
+     * since it was built, which the client would otherwise miss or get before it.
+     */
+    public void sendSnapshot(String roomId, String username, long seq, Notification<GameEvent> snapshot) {
+        Stream stream = stream(roomId, username);
+        synchronized (stream) {
+            stream.snapshot = new Batch(seq, List.of(snapshot));
+            send(username, roomId, seq, List.of(snapshot), true);
+            sendFrom(roomId, username, stream, seq);
+            stream.sent = stream.seq;
+        }
+    }
+
+    /** Not numbered, a refused action changes nothing the client has to catch up on. */
+    public void sendRejection(String roomId, String username, Rejection reason) {
+        if (BotService.isBot(username)) {
+            return;
+        }
+        messagingTemplate.convertAndSendToUser(
+            username,
+            "/queue/" + roomId,
+            new Notification<GameEvent>(Type.ACTION_REJECTED, new ActionRejected(reason, roomId))
+        );
+    }
+
+    public void discard(String roomId) {
+        streams.remove(roomId);
+    }
+
+    private void sendFrom(String roomId, String username, Stream stream, long lastSeq) {
+        for (long seq = lastSeq + 1; seq <= stream.seq; seq++) {
+            Batch batch = stream.get(seq);
+            if (batch != null) {
+                send(username, roomId, seq, batch.notifications(), false);
+            }
+        }
+    }
+
+    private void send(String username, String roomId, long seq, List<Notification<GameEvent>> batch, boolean snapshot) {
+        GameEvents.Notification event = new GameEvents.Notification();
+        event.begin();
+        SimpMessageHeaderAccessor accessor = SimpMessageHeaderAccessor.create(SimpMessageType.MESSAGE);
+        accessor.setNativeHeader(SEQ_HEADER, String.valueOf(seq));
+        if (snapshot) {
+            accessor.setNativeHeader(SNAPSHOT_HEADER, "true");
+        }
+        accessor.setLeaveMutable(true);
+
+        messagingTemplate.convertAndSendToUser(
+            username,
+            "/queue/" + roomId,
+            batch,
+            accessor.getMessageHeaders()
+        );
+        event.commit(roomId, batch.isEmpty() ? null : batch.getFirst().type().name());
+    }
+
+    private Stream stream(String roomId, String username) {
+        return streams
+            .computeIfAbsent(roomId, id -> new ConcurrentHashMap<>())
+            .computeIfAbsent(username, name -> new Stream());
+    }
+
+    private Stream existingStream(String roomId, String username) {
+        Map<String, Stream> roomStreams = streams.get(roomId);
+        return roomStreams == null ? null : roomStreams.get(username);
+    }
+}
@@ -0,0 +1,165 @@
+package com.wolyh.game.backend.service;
+
+import java.security.Principal;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.messaging.simp.SimpMessageHeaderAccessor;
+import org.springframework.messaging.simp.SimpMessagingTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.web.socket.messaging.SessionConnectedEvent;
+import org.springframework.web.socket.messaging.SessionDisconnectEvent;
+
+import io.micrometer.core.instrument.Gauge;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+
+import com.wolyh.game.backend.game.Result.ForfeitResult;
+import com.wolyh.game.backend.metrics.GameMetrics;
+import com.wolyh.game.backend.service.RoomService.LeaveRoomResult;
+
+/**
+ * Tracks the STOMP sessions of each user. When the last one closes, or when a room is taken
+ * over REST without any session open, the user has a grace period to connect, the client
+ * reconnects on its own after a network blip. Past it the
+ * user leaves their room as if they had asked: a game in progress is forfeited and the room,
+ * the game and their locks are removed once nobody is left in it.
+ */
+@Service
+public class PresenceService {
+
+    @Autowired
+    private RoomService roomService;
+
+    @Autowired
+    private NotificationService notificationService;
+
+    @Autowired
+    private SimpMessagingTemplate messagingTemplate;
+
+    @Autowired
+    private LogService logService;
+
+    @Value("${presence.grace-period-ms:30000}")
+    private long gracePeriodMs;
+
+    private final Map<String, Set<String>> sessions = new ConcurrentHashMap<>();
+    private final Map<String, ScheduledFuture<?>> pending = new ConcurrentHashMap<>();
+    private ScheduledExecutorService scheduler;
+
+    @PostConstruct
+    void start() {
+        scheduler = Executors.newSingleThreadScheduledExecutor(Thread.ofPlatform().name("presence-grace").daemon().factory());
+        Gauge.builder("presence.pending", pending, Map::size).register(GameMetrics.registry());
+    }
+
+    @PreDestroy
+    void stop() {
+        scheduler.shutdownNow();
+    }
+
+    @EventListener
+    void onConnect(SessionConnectedEvent event) {
+        Principal user = event.getUser();
+        if (user == null) {
+            return;
+        }
+        sessions.compute(user.getName(), (username, userSessions) -> {
+            Set<String> updated = userSessions == null ? new HashSet<>() : userSessions;
+            updated.add(SimpMessageHeaderAccessor.getSessionId(event.getMessage().getHeaders()));
+            ScheduledFuture<?> expiry = pending.remove(username);
+            if (expiry != null) {
+                expiry.cancel(false);
+            }
+            return updated;
+        });
+    }
+
+    @EventListener
+    void onDisconnect(SessionDisconnectEvent event) {
+        Principal user = event.getUser();
+        if (user == null) {
+            return;
+        }
+        // the grace timer is started in the same atomic step, a connect cannot slip in between
+        sessions.compute(user.getName(), (username, userSessions) -> {
+            if (userSessions != null) {
+                userSessions.remove(event.getSessionId());
+                if (!userSessions.isEmpty()) {
+                    return userSessions;
+                }
+            }
+            if (roomService.getPlayerRoom(username) != null) {
+                scheduleExpiry(username);
+            }
+            return null;
+        });
+    }
+
+    /** Called once the user created or joined a room, a client that never connects does not keep it. */
+    public void track(String username) {
+        sessions.compute(username, (name, userSessions) -> {
+            if (userSessions == null) {
+                scheduleExpiry(name);
+            }
+            return userSessions;
+        });
+    }
+
+    /** Only inside a compute on the user's sessions, the timer cannot expire before it is pending. */
+    private void scheduleExpiry(String username) {
+        AtomicReference<ScheduledFuture<?>> timer = new AtomicReference<>();
+        timer.set(scheduler.schedule(() -> expire(username, timer), gracePeriodMs, TimeUnit.MILLISECONDS));
+        ScheduledFuture<?> previous = pending.put(username, timer.get());
+        if (previous != null) {
+            previous.cancel(false);
+        }
+    }
+
+    /**
+     * Does nothing unless the timer is still the user's pending one, a later timer replaced it
+     * otherwise. The timer is read inside the compute, once scheduleExpiry has set it.
+     */
+    private void expire(String username, AtomicReference<ScheduledFuture<?>> timer) {
+        boolean[] current = new boolean[1];
+        boolean gone = sessions.compute(username, (name, userSessions) -> {
+            current[0] = pending.remove(name, timer.get());
+            return userSessions;
+        }) == null;
+        if (!current[0] || !gone) {
+            return;
+        }
+
+        String roomId = roomService.getPlayerRoom(username);
+        if (roomId == null) {
+            return;
+        }
+
+        try {
+            ForfeitResult forfeit = roomService.processForfeit(roomId, username);
+            if (forfeit != null) {
+                forfeit.players().forEach(player -> notificationService.flush(roomId, player));
+            }
+
+            LeaveRoomResult leave = roomService.leaveRoom(roomId, username);
+            if (leave != null && leave.userNotified() != null && leave.notification() != null) {
+                messagingTemplate.convertAndSendToUser(leave.userNotified(), "/queue/" + roomId, leave.notification());
+            }
+            if (forfeit != null || leave != null) {
+                (forfeit != null ? GameMetrics.ABANDONED_FORFEIT : GameMetrics.ABANDONED_LEFT).increment();
+            }
+        } catch (RuntimeException e) {
+            logService.log("presence_expiry_failed", "room", roomId, "user", username, "error", e.getMessage());
+        }
+    }
+}
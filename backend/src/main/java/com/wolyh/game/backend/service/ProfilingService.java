@@ -0,0 +1,170 @@
+package com.wolyh.game.backend.service;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.text.ParseException;
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.distribution.ValueAtPercentile;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import jdk.jfr.Configuration;
+import jdk.jfr.Recording;
+import jdk.jfr.RecordingState;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingStream;
+
+import com.wolyh.game.backend.dto.ProfilingStatus;
+import com.wolyh.game.backend.metrics.GameEvents;
+import com.wolyh.game.backend.metrics.GameMetrics;
+
+/**
+ * Always-on profiling from the game flight recorder events. A stream in the process
+ * reads them back, about once a second, into one timer per phase whose p99 is exported
+ * with the other meters, and logs the phases slower than the spike threshold with their
+ * room. On demand a full recording, with the JDK events of the chosen settings, is
+ * written to a file to find what the spike was made of.
+ */
+@Service
+public class ProfilingService {
+    private static final String PREFIX = "com.wolyh.game.";
+
+    @Autowired
+    private LogService logService;
+
+    @Value("${profiling.stream:true}")
+    private boolean streamEnabled;
+
+    @Value("${profiling.spike-ms:100}")
+    private long spikeMs;
+
+    @Value("${profiling.dir:recordings}")
+    private String dir;
+
+    @Value("${profiling.settings:profile}")
+    private String settings;
+
+    @Value("${profiling.max-duration-minutes:30}")
+    private long maxDurationMinutes;
+
+    private final Map<String, Timer> phases = new LinkedHashMap<>();
+    private RecordingStream stream;
+    /** guarded by this */
+    private Recording recording;
+
+    @PostConstruct
+    void start() {
+        for (String name : GameEvents.ALL) {
+            phases.put(name, GameMetrics.phase(name.substring(PREFIX.length())));
+        }
+        if (!streamEnabled) {
+            return;
+        }
+
+        stream = new RecordingStream();
+        Duration spike = Duration.ofMillis(spikeMs);
+        for (String name : GameEvents.ALL) {
+            Timer timer = phases.get(name);
+            stream.enable(name);
+            stream.onEvent(name, event -> {
+                timer.record(event.getDuration());
+                if (event.getDuration().compareTo(spike) > 0) {
+                    logSpike(event);
+                }
+            });
+        }
+        stream.startAsync();
+    }
+
+    @PreDestroy
+    synchronized void stop() {
+        if (stream != null) {
+            stream.close();
+        }
+        closeRecording();
+    }
+
+    /** File the recording will be written to, null when one is already running or it cannot start. */
+    public synchronized String startRecording() {
+        if (recording != null && recording.getState() == RecordingState.RUNNING) {
+            return null;
+        }
+        closeRecording();
+
+        try {
+            Path file = Path.of(dir).toAbsolutePath().resolve("game-" + System.currentTimeMillis() + ".jfr");
+            Files.createDirectories(file.getParent());
+
+            Recording started = new Recording(Configuration.getConfiguration(settings));
+            for (String name : GameEvents.ALL) {
+                started.enable(name);
+            }
+            started.setName("game-profiling");
+            started.setToDisk(true);
+            started.setDestination(file);
+            // a forgotten recording stops and writes itself
+            started.setDuration(Duration.ofMinutes(maxDurationMinutes));
+            started.start();
+            recording = started;
+            return file.toString();
+        } catch (IOException | ParseException e) {
+            logService.log("recording_start_failed", "error", e.getMessage());
+            return null;
+        }
+    }
+
+    /** File the recording was written to, null when none was started. */
+    public synchronized String stopRecording() {
+        if (recording == null) {
+            return null;
+        }
+        Path file = recording.getDestination();
+        closeRecording();
+        return file.toString();
+    }
+
+    public synchronized ProfilingStatus getStatus() {
+        Map<String, Double> p99Ms = new LinkedHashMap<>();
+        phases.forEach((name, timer) -> {
+            for (ValueAtPercentile percentile : timer.takeSnapshot().percentileValues()) {
+                p99Ms.put(name.substring(PREFIX.length()), percentile.value(TimeUnit.MILLISECONDS));
+            }
+        });
+        boolean running = recording != null && recording.getState() == RecordingState.RUNNING;
+        String file = recording != null ? recording.getDestination().toString() : null;
+        return new ProfilingStatus(running, file, p99Ms);
+    }
+
+    /** Stopping writes the destination, a recording past its duration already did. */
+    private void closeRecording() {
+        if (recording == null) {
+            return;
+        }
+        if (recording.getState() == RecordingState.RUNNING) {
+            recording.stop();
+        }
+        recording.close();
+        recording = null;
+    }
+
+    private void logSpike(RecordedEvent event) {
+        logService.log(
+            "slow_phase",
+            "phase", event.getEventType().getName().substring(PREFIX.length()),
+            "room", event.getString("roomId"),
+            "action", event.getString("actionType"),
+            "pathLength", event.hasField("pathLength") ? event.getInt("pathLength") : null,
+            "fovSize", event.hasField("fovSize") ? event.getInt("fovSize") : null,
+            "ms", event.getDuration().toMillis()
+        );
+    }
+}
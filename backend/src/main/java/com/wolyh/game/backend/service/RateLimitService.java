@@ -0,0 +1,102 @@
+package com.wolyh.game.backend.service;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+
+import com.wolyh.game.backend.metrics.GameMetrics;
+import com.wolyh.game.backend.model.Channel;
+
+/**
+ * Token buckets per user, one for inbound STOMP frames and one for REST calls, and per
+ * address for logins, which come before there is a user.
+ * A bucket is a single timestamp, the time at which it will be full again (GCRA),
+ * so a check is one compare-and-set and nothing is allocated once the user has a bucket.
+ * Full buckets are dropped every minute.
+ */
+@Service
+public class RateLimitService {
+
+    @Value("${rate-limit.stomp-burst:40}")
+    private int stompBurst;
+
+    @Value("${rate-limit.stomp-per-second:20}")
+    private int stompPerSecond;
+
+    @Value("${rate-limit.rest-burst:20}")
+    private int restBurst;
+
+    @Value("${rate-limit.rest-per-second:5}")
+    private int restPerSecond;
+
+    @Value("${rate-limit.login-burst:10}")
+    private int loginBurst;
+
+    @Value("${rate-limit.login-per-second:1}")
+    private int loginPerSecond;
+
+    private final Map<String, AtomicLong> stompBuckets = new ConcurrentHashMap<>();
+    private final Map<String, AtomicLong> restBuckets = new ConcurrentHashMap<>();
+    private final Map<String, AtomicLong> loginBuckets = new ConcurrentHashMap<>();
+    private ScheduledExecutorService sweeper;
+
+    @PostConstruct
+    void start() {
+        sweeper = Executors.newSingleThreadScheduledExecutor(Thread.ofPlatform().name("rate-limit-sweeper").daemon().factory());
+        sweeper.scheduleWithFixedDelay(this::sweep, 1, 1, TimeUnit.MINUTES);
+    }
+
+    @PreDestroy
+    void stop() {
+        sweeper.shutdownNow();
+    }
+
+    /** Takes a token from the bucket of the user or address, false if it is empty. */
+    public boolean tryAcquire(Channel channel, String key) {
+        Map<String, AtomicLong> buckets = switch (channel) {
+            case STOMP -> stompBuckets;
+            case REST -> restBuckets;
+            case LOGIN -> loginBuckets;
+        };
+        long interval = TimeUnit.SECONDS.toNanos(1) / switch (channel) {
+            case STOMP -> stompPerSecond;
+            case REST -> restPerSecond;
+            case LOGIN -> loginPerSecond;
+        };
+        long window = interval * switch (channel) {
+            case STOMP -> stompBurst;
+            case REST -> restBurst;
+            case LOGIN -> loginBurst;
+        };
+
+        AtomicLong fullAt = buckets.computeIfAbsent(key, k -> new AtomicLong(System.nanoTime()));
+        long now = System.nanoTime();
+        while (true) {
+            long current = fullAt.get();
+            long next = Math.max(current, now) + interval;
+            if (next - now > window) {
+                GameMetrics.throttled(channel);
+                return false;
+            }
+            if (fullAt.compareAndSet(current, next)) {
+                return true;
+            }
+        }
+    }
+
+    private void sweep() {
+        long now = System.nanoTime();
+        stompBuckets.values().removeIf(fullAt -> fullAt.get() - now <= 0);
+        restBuckets.values().removeIf(fullAt -> fullAt.get() - now <= 0);
+        loginBuckets.values().removeIf(fullAt -> fullAt.get() - now <= 0);
+    }
+}
@@ -0,0 +1,298 @@
+package com.wolyh.game.backend.service;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import io.micrometer.core.instrument.Gauge;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+
+import com.wolyh.game.backend.dto.ReplayInfo;
+import com.wolyh.game.backend.game.Game;
+import com.wolyh.game.backend.game.MapLayout;
+import com.wolyh.game.backend.game.PlayerManager;
+import com.wolyh.game.backend.game.SpectatorView;
+import com.wolyh.game.backend.metrics.GameMetrics;
+import com.wolyh.game.backend.replay.Replay;
+import com.wolyh.game.backend.replay.ReplayAction;
+import com.wolyh.game.backend.replay.ReplayPlayer;
+import com.wolyh.game.backend.replay.ReplayRecording;
+import com.wolyh.game.backend.replay.ReplayStore;
+
+/**
+ * Records every game as its seed and action stream and plays finished games back.
+ * The game service only enqueues, encoding and file writes happen on the writer thread.
+ * Games being played are journaled under {@code live/}, the journals left by a crash are
+ * stored as replays without a winner at the next start.
+ */
+@Service
+public class ReplayService {
+
+    @Autowired
+    private MapCatalogService mapCatalogService;
+
+    @Autowired
+    private LogService logService;
+
+    @Value("${replay.dir:replays}")
+    private String dir;
+
+    @Value("${replay.segment-size-mb:64}")
+    private int segmentSizeMb;
+
+    @Value("${replay.keyframe-interval:16}")
+    private int keyframeInterval;
+
+    @Value("${replay.frame-interval-ms:500}")
+    private long frameIntervalMs;
+
+    @Value("${replay.min-speed:0.25}")
+    private double minSpeed;
+
+    @Value("${replay.max-speed:16}")
+    private double maxSpeed;
+
+    /** Each stream holds a whole game engine. */
+    @Value("${replay.max-streams:32}")
+    private int maxStreams;
+
+    private final AtomicInteger streams = new AtomicInteger();
+
+    private ReplayStore store;
+    private Path journals;
+    private ExecutorService writer;
+    private ScheduledExecutorService playback;
+
+    /** Games being played, only touched by the writer thread. */
+    private final Map<String, ReplayRecording> recordings = new HashMap<>();
+
+    @PostConstruct
+    void start() throws IOException {
+        store = new ReplayStore(Path.of(dir), segmentSizeMb * 1024 * 1024);
+        journals = Files.createDirectories(Path.of(dir, "live"));
+        writer = Executors.newSingleThreadExecutor(Thread.ofPlatform().name("replay-writer").factory());
+        writer.execute(this::recoverJournals);
+        playback = Executors.newScheduledThreadPool(2, Thread.ofPlatform().name("replay-playback-", 0).factory());
+
+        Gauge.builder("replays.stored", store, ReplayStore::size)
+            .register(GameMetrics.registry());
+    }
+
+    @PreDestroy
+    void stop() throws IOException, InterruptedException {
+        playback.shutdownNow();
+        writer.shutdown();
+        writer.awaitTermination(10, TimeUnit.SECONDS);
+        // the journals stay for the next start
+        for (ReplayRecording recording : recordings.values()) {
+            recording.close();
+        }
+        store.close();
+    }
+
+    public void recordStart(String roomId, Game game) {
+        long seed = game.getSeed();
+        long mapId = game.getLayout().id();
+        long startedAt = System.currentTimeMillis();
+        String player1 = game.getPlayer1();
+        String player2 = game.getPlayer2();
+
+        writer.execute(() -> {
+            try {
+                recordings.put(roomId, new ReplayRecording(
+                    journals.resolve(roomId),
+                    seed,
+                    mapId,
+                    game.getConfig(),
+                    startedAt,
+                    player1,
+                    player2
+                ));
+            } catch (IOException e) {
+                logService.log("replay_store_failed", "room", roomId, "error", e.getMessage());
+            }
+        });
+    }
+
+    /**
+     * Called under the game lock once the action is applied, takes a keyframe every few turns.
+     * Keyframes are only taken at the end of a turn, seeking never lands in the middle of one.
+     */
+    public void recordAction(String roomId, Game game, ReplayAction action) {
+        SpectatorView keyframe = action.endsTurn() && !game.isGameOver() && game.getTurn() % keyframeInterval == 0
+            ? game.getSpectatorView(PlayerManager.NONE)
+            : null;
+
+        writer.execute(() -> {
+            ReplayRecording recording = recordings.get(roomId);
+            if (recording == null) {
+                return;
+            }
+            try {
+                recording.addAction(action);
+                if (keyframe != null) {
+                    recording.addKeyframe(keyframe);
+                }
+            } catch (IOException e) {
+                logService.log("replay_store_failed", "room", roomId, "error", e.getMessage());
+                recordings.remove(roomId);
+                close(recording);
+            }
+        });
+    }
+
+    public void recordEnd(String roomId, String winner) {
+        long finishedAt = System.currentTimeMillis();
+
+        writer.execute(() -> {
+            ReplayRecording recording = recordings.remove(roomId);
+            if (recording == null) {
+                return;
+            }
+            try {
+                store.append(roomId, recording.finish(finishedAt, winner));
+                recording.delete();
+            } catch (IOException e) {
+                // the journal is stored at the next start
+                logService.log("replay_store_failed", "room", roomId, "error", e.getMessage());
+                close(recording);
+            }
+        });
+    }
+
+    /** Drops the recording of a game deleted before it ended. */
+    public void discard(String roomId) {
+        writer.execute(() -> {
+            ReplayRecording recording = recordings.remove(roomId);
+            if (recording == null) {
+                return;
+            }
+            try {
+                recording.delete();
+            } catch (IOException e) {
+                logService.log("replay_store_failed", "room", roomId, "error", e.getMessage());
+            }
+        });
+    }
+
+    /** Stores the games the last run was playing when it stopped, up to their last whole turn. */
+    private void recoverJournals() {
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(journals)) {
+            for (Path journal : files) {
+                String roomId = journal.getFileName().toString();
+                ByteBuffer block = ReplayRecording.recover(journal);
+                if (block != null && store.open(roomId) == null) {
+                    store.append(roomId, block);
+                }
+                Files.delete(journal);
+            }
+        } catch (IOException e) {
+            logService.log("replay_recover_failed", "error", e.getMessage());
+        }
+    }
+
+    private void close(ReplayRecording recording) {
+        try {
+            recording.close();
+        } catch (IOException e) {
+            logService.log("replay_store_failed", "error", e.getMessage());
+        }
+    }
+
+    public ReplayInfo getReplayInfo(String roomId) {
+        Replay replay = store.open(roomId);
+        if (replay == null) {
+            return null;
+        }
+        return new ReplayInfo(
+            replay.getPlayer1(),
+            replay.getPlayer2(),
+            replay.getActionCount(),
+            replay.getStartedAt()
+        );
+    }
+
+    /** Takes one of the replay.max-streams playback slots, false when they are all in use. */
+    public boolean reserveStream() {
+        if (streams.incrementAndGet() > maxStreams) {
+            streams.decrementAndGet();
+            return false;
+        }
+        return true;
+    }
+
+    /**
+     * Streams the omniscient view after every action, starting at the given action.
+     * Only the engine of the replayed game is kept in memory, records are read as it goes.
+     * Takes over a slot from {@link #reserveStream}, given back when this returns null or the
+     * stream ends.
+     */
+    public SseEmitter play(String roomId, double speed, int from) {
+        // also refuses NaN
+        if (!(speed >= minSpeed && speed <= maxSpeed)) {
+            streams.decrementAndGet();
+            return null;
+        }
+        Replay replay = store.open(roomId);
+        if (replay == null || from < 0 || from > replay.getActionCount()) {
+            streams.decrementAndGet();
+            return null;
+        }
+        MapLayout layout = mapCatalogService.getOrGenerate(replay.getMapId(), replay.getConfig());
+        if (layout == null) {
+            streams.decrementAndGet();
+            return null;
+        }
+
+        ReplayPlayer player = new ReplayPlayer(replay, layout, from);
+        SseEmitter emitter = new SseEmitter(0L);
+        AtomicBoolean released = new AtomicBoolean();
+        Runnable release = () -> {
+            if (released.compareAndSet(false, true)) {
+                streams.decrementAndGet();
+            }
+        };
+        emitter.onCompletion(release);
+        long interval = Math.max(1, (long) (frameIntervalMs / speed));
+
+        playback.execute(() -> sendFrame(emitter, player, interval, release));
+        return emitter;
+    }
+
+    private void sendFrame(SseEmitter emitter, ReplayPlayer player, long interval, Runnable release) {
+        try {
+            emitter.send(SseEmitter.event()
+                .name("frame")
+                .id(String.valueOf(player.getActionsPlayed()))
+                .data(player.current()));
+
+            if (!player.step()) {
+                emitter.send(SseEmitter.event().name("end").data(player.current()));
+                emitter.complete();
+                release.run();
+                return;
+            }
+            playback.schedule(() -> sendFrame(emitter, player, interval, release), interval, TimeUnit.MILLISECONDS);
+        } catch (IOException | IllegalStateException e) {
+            // the client went away
+            emitter.completeWithError(e);
+            release.run();
+        }
+    }
+}
@@ -8,8 +8,12 @@ import java.util.concurrent.locks.ReentrantLock;
 import java.util.stream.Collectors;
 
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
+import io.micrometer.core.instrument.Gauge;
+import jakarta.annotation.PostConstruct;
+
 import com.wolyh.game.backend.dto.RoomResponses;
 import com.wolyh.game.backend.game.Result.AddGameResult;
 import com.wolyh.game.backend.game.Result.ForfeitResult;
@@ -20,8 +24,11 @@ import com.wolyh.game.backend.dto.Notification.PlayerLeave;
 import com.wolyh.game.backend.dto.Notification.RoomDelete;
 import com.wolyh.game.backend.dto.Notification.RoomEvent;
 import com.wolyh.game.backend.dto.Notification.Type;
+import com.wolyh.game.backend.metrics.GameMetrics;
 import com.wolyh.game.backend.model.Room;
 import com.wolyh.game.backend.model.Room.Status;
+import com.wolyh.game.backend.model.RoomIds;
+import com.wolyh.game.backend.utils.LongMap;
 
 @Service
 public class RoomService {
@@ -29,9 +36,16 @@ public class RoomService {
     @Autowired
     private GameService gameService;
 
-    private final Map<String, Room> rooms = new ConcurrentHashMap<>();
+    @Autowired
+    private MapCatalogService mapCatalogService;
+
+    @Value("${room.node-id:0}")
+    private int nodeId;
+
+    private RoomIds roomIds;
+    private final LongMap<Room> rooms = new LongMap<>();
     private final Map<String, String> playerToRoom = new ConcurrentHashMap<>();
-    private final Map<String, Lock> roomLocks = new ConcurrentHashMap<>();
+    private final LongMap<Lock> roomLocks = new LongMap<>();
 
     public static record StartGameResult(
         RoomResponses.StartGame response,
@@ -50,13 +64,48 @@ public class RoomService {
         String userNotified
     ) {}
 
+    @PostConstruct
+    void init() {
+        roomIds = new RoomIds(nodeId);
+        for (Status status : Status.values()) {
+            Gauge.builder("rooms.live", rooms, r -> r.count(room -> room.getStatus() == status))
+                .tag("status", status.name())
+                .register(GameMetrics.registry());
+        }
+    }
+
     public Boolean isPlayerInRoom(String username, String roomId) {
         String playerRoomId = playerToRoom.get(username);
         return playerRoomId == null ? null : playerRoomId.equals(roomId);
     }
 
+    public String getPlayerRoom(String username) {
+        return playerToRoom.get(username);
+    }
+
+    /**
+     * Keeps players from watching their own game under their own name. Any name can log in,
+     * so this is no protection on its own, every spectator view is delayed for that.
+     */
+    public boolean canSpectate(String roomId, String username) {
+        long key = RoomIds.parse(roomId);
+        Room room = key == RoomIds.INVALID ? null : rooms.get(key);
+        if (room == null || room.getStatus() != Status.PLAYING) {
+            return false;
+        }
+        return !username.equals(room.getCreator()) && !username.equals(room.getGuest());
+    }
+
+    public List<RoomResponses.LiveRoom> getLiveRooms() {
+        return rooms.values().stream()
+            .filter(room -> room.getStatus() == Status.PLAYING)
+            .map(room -> new RoomResponses.LiveRoom(room.getCreator(), room.getGuest(), room.id))
+            .collect(Collectors.toList());
+    }
+
     public void markGameAsFinished(String roomId) {
-        Lock lock = roomLocks.get(roomId);
+        long key = RoomIds.parse(roomId);
+        Lock lock = lockOf(key);
         if (lock == null) {
             return;
         }
@@ -64,7 +113,7 @@ public class RoomService {
         lock.lock();
 
         try {
-            Room room = rooms.get(roomId);
+            Room room = rooms.get(key);
             if (room == null || !(room.getStatus() == Status.PLAYING)) {
                 return;
             }
@@ -75,49 +124,58 @@ public class RoomService {
     }
 
     public RoomResponses.CreateRoom createRoom(String creator) {
+        return createRoom(creator, false);
+    }
+
+    /** A private room is left out of the lobby and only joined with the returned token. */
+    public RoomResponses.CreateRoom createRoom(String creator, boolean invite) {
         if (playerToRoom.get(creator) != null) {
             return null;
         }
         
-        Room room = new Room(creator);
+        Room room = new Room(roomIds.next(), creator, invite);
+        room.setMapId(mapCatalogService.pick());
         
         String previous = playerToRoom.putIfAbsent(creator, room.id);
         if (previous != null) {
             return null;
         }
         
-        rooms.computeIfAbsent(room.id, id -> {
-            roomLocks.put(id, new ReentrantLock());
-            return room;
-        });
-        
-        return new RoomResponses.CreateRoom(room.id);
+        roomLocks.put(room.key, new ReentrantLock());
+        rooms.put(room.key, room);
+
+        return new RoomResponses.CreateRoom(room.id, room.joinToken);
     }
 
     public StartGameResult startGame(String roomId) {
-        Lock lock = roomLocks.get(roomId);
+        return GameMetrics.ROOM_START_GAME.record(() -> start(roomId));
+    }
+
+    private StartGameResult start(String roomId) {
+        long key = RoomIds.parse(roomId);
+        Lock lock = lockOf(key);
         if (lock == null) {
             return null;
         }
 
         lock.lock();
         try {
-            Room room = rooms.get(roomId);
+            Room room = rooms.get(key);
             if (room == null || !(room.getStatus() == Status.FULL)) {
                 return null;
             }
 
-            room.setStatus(Status.PLAYING);
-
             String creator = room.getCreator();
             String guest = room.getGuest();
             
-            AddGameResult result = gameService.addGame(roomId, creator, guest);
+            AddGameResult result = gameService.addGame(roomId, creator, guest, room.getMapId());
+            room.setStatus(Status.PLAYING);
 
             GameStart data = new GameStart(
                 result.player2Fov(),
                 result.unitSpawnsPerPlayer().get(guest),
                 result.nb_units(),
+                result.terrain(),
                 roomId
             );
             
@@ -126,6 +184,7 @@ public class RoomService {
                     result.player1Fov(), 
                     result.unitSpawnsPerPlayer().get(creator),
                     result.nb_units(),
+                    result.terrain(),
                     roomId
                 ),
                 new Notification<RoomEvent>(Type.GAME_START, data),
@@ -137,33 +196,35 @@ public class RoomService {
         }
     }
 
-    public List<RoomResponses.JoinRoom> getAvailableRooms() {
+    public List<RoomResponses.AvailableRoom> getAvailableRooms() {
         return rooms.values().stream()
-            .filter(room -> room.getStatus() == Status.WAITING)
-            .map(room -> new RoomResponses.JoinRoom(room.getCreator(), room.id))
+            .filter(room -> room.getStatus() == Status.WAITING && room.joinToken == null)
+            .map(room -> new RoomResponses.AvailableRoom(room.getCreator(), room.id))
             .collect(Collectors.toList());
     }
 
-    public JoinRoomResult joinRoom(String roomId, String username) {
+    public JoinRoomResult joinRoom(String roomId, String joinToken, String username) {
         if (playerToRoom.get(username) != null) {
             return null;
         }
 
-        Lock lock = roomLocks.get(roomId);
+        long key = RoomIds.parse(roomId);
+        Lock lock = lockOf(key);
         if (lock == null) {
             return null;
         }
 
         lock.lock();
         try {
-            Room room = rooms.get(roomId);
+            Room room = rooms.get(key);
             if (room == null) {
                 return null;
             }
 
             String creator = room.getCreator();
 
-            if (username.equals(creator) || room.getStatus() != Status.WAITING) {
+            boolean invited = room.joinToken == null || room.joinToken.equals(joinToken);
+            if (!invited || username.equals(creator) || room.getStatus() != Status.WAITING) {
                 return null;
             }
 
@@ -183,15 +244,44 @@ public class RoomService {
         }
     }
 
+    public RoomResponses.AddBot addBot(String roomId, String username) {
+        long key = RoomIds.parse(roomId);
+        Lock lock = lockOf(key);
+        if (lock == null) {
+            return null;
+        }
+
+        lock.lock();
+        try {
+            Room room = rooms.get(key);
+            if (room == null) {
+                return null;
+            }
+
+            if (!username.equals(room.getCreator()) || room.getStatus() != Status.WAITING) {
+                return null;
+            }
+
+            String botName = BotService.BOT_PREFIX + room.id;
+            room.setGuest(botName);
+            room.setStatus(Status.FULL);
+
+            return new RoomResponses.AddBot(botName, roomId);
+        }finally {
+            lock.unlock();
+        }
+    }
+
     public ForfeitResult processForfeit(String roomId, String username) {
-        Lock lock = roomLocks.get(roomId);
+        long key = RoomIds.parse(roomId);
+        Lock lock = lockOf(key);
         if (lock == null) {
             return null;
         }
 
         lock.lock();
         try {
-            Room room = rooms.get(roomId);
+            Room room = rooms.get(key);
             if (room == null) {
                 return null;
             }
@@ -207,14 +297,15 @@ public class RoomService {
     }
 
     public LeaveRoomResult leaveRoom(String roomId, String username) {
-        Lock lock = roomLocks.get(roomId);
+        long key = RoomIds.parse(roomId);
+        Lock lock = lockOf(key);
         if (lock == null) {
             return null;
         }
 
         lock.lock();
         try {
-            Room room = rooms.get(roomId);
+            Room room = rooms.get(key);
             if (room == null) {
                 return null;
             }
@@ -229,21 +320,26 @@ public class RoomService {
             }
         }finally {
             lock.unlock();
-            if (rooms.get(roomId) == null) {
-                roomLocks.remove(roomId);
+            if (rooms.get(key) == null) {
+                roomLocks.remove(key);
             }
         }
     }
 
+    /** Lock of the open room, null once it is gone or when the room id did not parse. */
+    private Lock lockOf(long key) {
+        return key == RoomIds.INVALID ? null : roomLocks.get(key);
+    }
+
     private LeaveRoomResult handleNotStartedGame(Room room, String username) {
         String creator = room.getCreator();
         String guest = room.getGuest();
 
         if (username.equals(creator)) {
-            rooms.remove(room.id);
+            rooms.remove(room.key);
             playerToRoom.remove(username);
 
-            if (room.getStatus() == Status.WAITING) {
+            if (room.getStatus() == Status.WAITING || BotService.isBot(guest)) {
                 return new LeaveRoomResult(null, null);
             }
 
@@ -281,8 +377,15 @@ public class RoomService {
 
         removePlayer(room, username);
 
+        if (BotService.isBot(room.getCreator())) {
+            room.setCreator(null);
+        }
+        if (BotService.isBot(room.getGuest())) {
+            room.setGuest(null);
+        }
+
         if(room.getCreator() == null && room.getGuest() == null) {
-            rooms.remove(room.id);
+            rooms.remove(room.key);
             gameService.deleteGame(room.id);
         }
 
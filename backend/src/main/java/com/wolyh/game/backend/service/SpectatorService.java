@@ -0,0 +1,257 @@
+package com.wolyh.game.backend.service;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.context.event.EventListener;
+import org.springframework.messaging.MessageChannel;
+import org.springframework.messaging.simp.SimpMessageHeaderAccessor;
+import org.springframework.messaging.simp.SimpMessageType;
+import org.springframework.messaging.simp.SimpMessagingTemplate;
+import org.springframework.messaging.simp.stomp.StompHeaderAccessor;
+import org.springframework.messaging.support.MessageBuilder;
+import org.springframework.stereotype.Service;
+import org.springframework.util.MimeTypeUtils;
+import org.springframework.web.socket.messaging.SessionDisconnectEvent;
+import org.springframework.web.socket.messaging.SessionSubscribeEvent;
+import org.springframework.web.socket.messaging.SessionUnsubscribeEvent;
+
+import io.micrometer.core.instrument.Gauge;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import tools.jackson.databind.json.JsonMapper;
+
+import com.wolyh.game.backend.game.GameSnapshot;
+import com.wolyh.game.backend.game.PlayerManager;
+import com.wolyh.game.backend.game.SpectatorView;
+import com.wolyh.game.backend.metrics.GameMetrics;
+
+/**
+ * Fans game views out to spectators on /topic/spectate/{roomId}/{view}.
+ * The game service hands over a snapshot of each event, the views someone watches are
+ * built from it and encoded once on the publisher thread, then handed to the broker as raw
+ * bytes, so spectators never hold the game lock. Every snapshot of a live game is delayed,
+ * a new watcher gets its view of the last delayed snapshot right away.
+ */
+@Service
+public class SpectatorService {
+    public static final String DESTINATION_PREFIX = "/topic/spectate/";
+
+    public static final String PLAYER1 = "player1";
+    public static final String PLAYER2 = "player2";
+    public static final String OMNISCIENT = "all";
+    public static final List<String> VIEWS = List.of(PLAYER1, PLAYER2, OMNISCIENT);
+
+    // lazy because the template comes from the websocket config, which needs the room service
+    @Lazy
+    @Autowired
+    private SimpMessagingTemplate messagingTemplate;
+
+    @Autowired
+    private JsonMapper jsonMapper;
+
+    @Autowired
+    private LogService logService;
+
+    // the broker sends on this channel too, a frame put here reaches a single subscription
+    @Lazy
+    @Autowired
+    @Qualifier("clientOutboundChannel")
+    private MessageChannel clientOutboundChannel;
+
+    /**
+     * Logins need no password, so a player can watch their own game under another name.
+     * Every view of a live game lags by this much so none of them lifts the fog of war live.
+     */
+    @Value("${spectator.delay-ms:30000}")
+    private long delayMs;
+
+    private ScheduledExecutorService publisher;
+
+    /** sessionId -> subscriptionId -> destination */
+    private final Map<String, Map<String, String>> subscriptions = new ConcurrentHashMap<>();
+    private final Map<String, AtomicInteger> watchers = new ConcurrentHashMap<>();
+    /** Last snapshot of each live game whose delay has passed, only touched by the publisher thread. */
+    private final Map<String, GameSnapshot> snapshots = new HashMap<>();
+    /** Last frame sent to each watched destination, handed to whoever subscribes next. */
+    private final Map<String, byte[]> lastFrames = new ConcurrentHashMap<>();
+
+    @PostConstruct
+    void start() {
+        publisher = Executors.newSingleThreadScheduledExecutor(Thread.ofPlatform().name("spectator-publisher").factory());
+        Gauge.builder("spectators.live", watchers, w -> w.values().stream().mapToInt(AtomicInteger::get).sum())
+            .register(GameMetrics.registry());
+    }
+
+    @PreDestroy
+    void stop() {
+        publisher.shutdownNow();
+    }
+
+    public static boolean isSpectatorDestination(String destination) {
+        return destination != null && destination.startsWith(DESTINATION_PREFIX);
+    }
+
+    public static String destination(String roomId, String view) {
+        return DESTINATION_PREFIX + roomId + "/" + view;
+    }
+
+    private boolean isWatched(String destination) {
+        AtomicInteger count = watchers.get(destination);
+        return count != null && count.get() > 0;
+    }
+
+    /** Taken under the game lock, the views are only built once the delay has passed. */
+    public void publish(String roomId, GameSnapshot snapshot) {
+        publisher.schedule(() -> {
+            if (snapshot.gameOver()) {
+                snapshots.remove(roomId);
+            } else {
+                snapshots.put(roomId, snapshot);
+            }
+            for (String view : VIEWS) {
+                String destination = destination(roomId, view);
+                if (isWatched(destination)) {
+                    send(destination, snapshot);
+                }
+            }
+        }, delayMs, TimeUnit.MILLISECONDS);
+    }
+
+    /** Frames of a game still in the delay are sent first, the room may be reused after them. */
+    public void discard(String roomId) {
+        publisher.schedule(() -> {
+            snapshots.remove(roomId);
+            VIEWS.forEach(view -> lastFrames.remove(destination(roomId, view)));
+        }, delayMs, TimeUnit.MILLISECONDS);
+    }
+
+    private void send(String destination, GameSnapshot snapshot) {
+        byte[] payload = encode(destination, snapshot);
+        if (payload == null) {
+            return;
+        }
+        SimpMessageHeaderAccessor accessor = SimpMessageHeaderAccessor.create(SimpMessageType.MESSAGE);
+        accessor.setContentType(MimeTypeUtils.APPLICATION_JSON);
+        accessor.setLeaveMutable(true);
+
+        try {
+            messagingTemplate.send(destination, MessageBuilder.createMessage(payload, accessor.getMessageHeaders()));
+        } catch (RuntimeException e) {
+            logService.log("spectator_publish_failed", "destination", destination, "error", e.getMessage());
+        }
+    }
+
+    /**
+     * Builds and encodes the view of the destination, kept for the next watchers while the game
+     * goes on. Null when it cannot be encoded.
+     */
+    private byte[] encode(String destination, GameSnapshot snapshot) {
+        String view = destination.substring(destination.lastIndexOf('/') + 1);
+        int team = switch (view) {
+            case PLAYER1 -> 0;
+            case PLAYER2 -> 1;
+            default -> PlayerManager.NONE;
+        };
+        try {
+            SpectatorView state = snapshot.view(team);
+            byte[] payload = jsonMapper.writeValueAsBytes(state);
+            // nobody would get a frame of a destination that lost its watchers before it was sent
+            if (state.gameOver() || !isWatched(destination)) {
+                lastFrames.remove(destination);
+            } else {
+                lastFrames.put(destination, payload);
+            }
+            return payload;
+        } catch (RuntimeException e) {
+            logService.log("spectator_publish_failed", "destination", destination, "error", e.getMessage());
+            return null;
+        }
+    }
+
+    /** Same headers the broker puts on its own frames, the session and subscription pick the receiver. */
+    private void sendTo(String sessionId, String subscriptionId, String destination, byte[] payload) {
+        SimpMessageHeaderAccessor accessor = SimpMessageHeaderAccessor.create(SimpMessageType.MESSAGE);
+        accessor.setSessionId(sessionId);
+        accessor.setSubscriptionId(subscriptionId);
+        accessor.setDestination(destination);
+        accessor.setContentType(MimeTypeUtils.APPLICATION_JSON);
+        accessor.setLeaveMutable(true);
+
+        try {
+            clientOutboundChannel.send(MessageBuilder.createMessage(payload, accessor.getMessageHeaders()));
+        } catch (RuntimeException e) {
+            logService.log("spectator_publish_failed", "destination", destination, "error", e.getMessage());
+        }
+    }
+
+    @EventListener
+    void onSubscribe(SessionSubscribeEvent event) {
+        StompHeaderAccessor accessor = StompHeaderAccessor.wrap(event.getMessage());
+        String destination = accessor.getDestination();
+        if (!isSpectatorDestination(destination)) {
+            return;
+        }
+        String sessionId = accessor.getSessionId();
+        String subscriptionId = accessor.getSubscriptionId();
+        subscriptions
+            .computeIfAbsent(sessionId, id -> new ConcurrentHashMap<>())
+            .put(subscriptionId, destination);
+        watchers.computeIfAbsent(destination, d -> new AtomicInteger()).incrementAndGet();
+
+        // a view nobody watched was never built, it is built from the last delayed snapshot
+        String roomId = destination.substring(DESTINATION_PREFIX.length(), destination.lastIndexOf('/'));
+        publisher.execute(() -> {
+            byte[] frame = lastFrames.get(destination);
+            GameSnapshot snapshot = snapshots.get(roomId);
+            if (frame == null && snapshot != null) {
+                frame = encode(destination, snapshot);
+            }
+            if (frame != null) {
+                sendTo(sessionId, subscriptionId, destination, frame);
+            }
+        });
+    }
+
+    @EventListener
+    void onUnsubscribe(SessionUnsubscribeEvent event) {
+        StompHeaderAccessor accessor = StompHeaderAccessor.wrap(event.getMessage());
+        Map<String, String> sessionSubscriptions = subscriptions.get(accessor.getSessionId());
+        if (sessionSubscriptions == null) {
+            return;
+        }
+        String destination = sessionSubscriptions.remove(accessor.getSubscriptionId());
+        if (destination != null) {
+            unwatch(destination);
+        }
+    }
+
+    @EventListener
+    void onDisconnect(SessionDisconnectEvent event) {
+        Map<String, String> sessionSubscriptions = subscriptions.remove(event.getSessionId());
+        if (sessionSubscriptions != null) {
+            sessionSubscriptions.values().forEach(this::unwatch);
+        }
+    }
+
+    private void unwatch(String destination) {
+        watchers.computeIfPresent(destination, (d, count) -> {
+            if (count.decrementAndGet() > 0) {
+                return count;
+            }
+            // views stop being built, the frame would be stale for the next watcher
+            lastFrames.remove(destination);
+            return null;
+        });
+    }
+}
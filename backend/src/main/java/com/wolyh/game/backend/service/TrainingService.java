@@ -0,0 +1,97 @@
+package com.wolyh.game.backend.service;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.SpringApplication;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+
+import tools.jackson.databind.JsonNode;
+import tools.jackson.databind.json.JsonMapper;
+
+/**
+ * Training run for the JDK AOT cache, only enabled by the aot-cache Maven profile.
+ * Once the node is ready it goes through the lobby over HTTP like real clients, plays
+ * engine turns, and exits so the JVM writes the cache of what was loaded and linked.
+ */
+@Service
+@ConditionalOnProperty(name = "training.enabled", havingValue = "true")
+public class TrainingService {
+
+    @Autowired
+    private WarmupService warmupService;
+
+    @Autowired
+    private JsonMapper jsonMapper;
+
+    @Autowired
+    private LogService logService;
+
+    @Value("${training.lobby-rounds:200}")
+    private int lobbyRounds;
+
+    @Value("${training.turns:5000}")
+    private int turns;
+
+    private final HttpClient http = HttpClient.newHttpClient();
+
+    @EventListener
+    void train(ApplicationReadyEvent event) throws Exception {
+        String port = event.getApplicationContext().getEnvironment().getProperty("local.server.port");
+        String api = "http://localhost:" + port + "/api";
+
+        long start = System.nanoTime();
+        for (int i = 0; i < lobbyRounds; i++) {
+            String creator = login(api, "training-" + i + "a");
+            String guest = login(api, "training-" + i + "b");
+            JsonNode room = send(api, "POST", "/room/create", creator);
+            String roomId = room.get("roomId").asString();
+            send(api, "GET", "/room/available", guest);
+            send(api, "POST", "/room/join/" + roomId, guest);
+            send(api, "GET", "/room/live", guest);
+            send(api, "DELETE", "/room/leave/" + roomId, guest);
+            send(api, "DELETE", "/room/leave/" + roomId, creator);
+        }
+        int games = warmupService.playTurns(turns);
+        logService.log(
+            "training_done",
+            "lobbyRounds", lobbyRounds,
+            "turns", turns,
+            "games", games,
+            "ms", (System.nanoTime() - start) / 1_000_000
+        );
+
+        System.exit(SpringApplication.exit(event.getApplicationContext()));
+    }
+
+    private String login(String api, String username) throws IOException, InterruptedException {
+        HttpRequest request = HttpRequest.newBuilder(URI.create(api + "/auth/login"))
+            .header("Content-Type", "application/json")
+            .POST(HttpRequest.BodyPublishers.ofString(
+                jsonMapper.writeValueAsString(jsonMapper.createObjectNode().put("username", username))
+            ))
+            .build();
+        return jsonMapper.readTree(http.send(request, HttpResponse.BodyHandlers.ofByteArray()).body())
+            .get("token").asString();
+    }
+
+    private JsonNode send(String api, String method, String path, String token) throws IOException, InterruptedException {
+        HttpRequest request = HttpRequest.newBuilder(URI.create(api + path))
+            .header("Authorization", "Bearer " + token)
+            .method(method, HttpRequest.BodyPublishers.noBody())
+            .build();
+        HttpResponse<byte[]> response = http.send(request, HttpResponse.BodyHandlers.ofByteArray());
+        if (response.statusCode() != 200) {
+            throw new IllegalStateException(method + " " + path + " failed with status " + response.statusCode());
+        }
+        return response.body().length == 0 ? jsonMapper.createObjectNode() : jsonMapper.readTree(response.body());
+    }
+}
@@ -0,0 +1,130 @@
+package com.wolyh.game.backend.service;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.SplittableRandom;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.stereotype.Service;
+
+import tools.jackson.databind.json.JsonMapper;
+
+import com.wolyh.game.backend.game.Game;
+import com.wolyh.game.backend.game.PlayerSnapshot;
+import com.wolyh.game.backend.model.Hex;
+import com.wolyh.game.backend.model.HexCoordinates;
+import com.wolyh.game.backend.model.UnitCoordinates;
+
+/**
+ * Plays synthetic games on the engine before the node reports ready, so the first real
+ * games do not run in the interpreter. Runners are called before Spring Boot switches the
+ * readiness state to accepting traffic, the readiness probe stays down until this returns.
+ */
+@Service
+public class WarmupService implements ApplicationRunner {
+    private static final String PLAYER1 = "warmup-1";
+    private static final String PLAYER2 = "warmup-2";
+
+    @Autowired
+    private MapCatalogService mapCatalogService;
+
+    @Autowired
+    private JsonMapper jsonMapper;
+
+    @Autowired
+    private LogService logService;
+
+    @Value("${warmup.turns:3000}")
+    private int turns;
+
+    @Override
+    public void run(ApplicationArguments args) {
+        if (turns <= 0) {
+            return;
+        }
+        long start = System.nanoTime();
+        int games = playTurns(turns);
+        logService.log("warmup_done", "turns", turns, "games", games, "ms", (System.nanoTime() - start) / 1_000_000);
+    }
+
+    /**
+     * Random legal moves and attacks with the player views encoded as they are sent,
+     * a new game is started whenever one ends. Returns the number of games played.
+     */
+    public int playTurns(int turns) {
+        SplittableRandom random = new SplittableRandom();
+        Game game = null;
+        int games = 0;
+
+        for (int turn = 0; turn < turns; turn++) {
+            if (game == null || game.isGameOver()) {
+                game = new Game(PLAYER1, PLAYER2, mapCatalogService.getConfig(), random.nextLong(), mapCatalogService.get(mapCatalogService.pick()));
+                games++;
+            }
+
+            int slot = game.getActiveSlot();
+            PlayerSnapshot snapshot = game.getPlayerSnapshot(slot);
+            if (isActiveUnitAlive(snapshot)) {
+                play(game, slot, snapshot, random);
+            }
+            jsonMapper.writeValueAsBytes(game.getView(slot));
+
+            game.resolveGameOver();
+            if (!game.isGameOver()) {
+                game.nextTurn();
+                if (game.shrinkMapIfNeeded().occurred()) {
+                    game.resolveGameOver();
+                }
+            }
+        }
+        return games;
+    }
+
+    private void play(Game game, int slot, PlayerSnapshot snapshot, SplittableRandom random) {
+        int unitIdx = snapshot.activeUnitIdx();
+        for (UnitCoordinates enemy : snapshot.visibleEnemies()) {
+            HexCoordinates target = new HexCoordinates(enemy.q(), enemy.r());
+            if (game.canUnitAttackOnHex(unitIdx, target)) {
+                game.killUnitOn(target);
+                return;
+            }
+        }
+
+        Set<String> occupied = new HashSet<>();
+        snapshot.allies().forEach(unit -> occupied.add(Hex.key(unit.q(), unit.r())));
+        snapshot.visibleEnemies().forEach(unit -> occupied.add(Hex.key(unit.q(), unit.r())));
+
+        List<HexCoordinates> goals = new ArrayList<>();
+        for (HexCoordinates hex : snapshot.hexes()) {
+            String key = Hex.key(hex.q(), hex.r());
+            if (snapshot.fov().contains(key) && !occupied.contains(key) && !snapshot.obstacles().contains(hex)) {
+                goals.add(hex);
+            }
+        }
+        if (goals.isEmpty()) {
+            return;
+        }
+
+        HexCoordinates goal = goals.get(random.nextInt(goals.size()));
+        List<HexCoordinates> path = game.searchPath(goal, unitIdx, slot);
+        if (path.isEmpty()) {
+            return;
+        }
+        game.calculateEnemyPovPath(path, game.getTeam(game.getOtherSlot(slot)));
+        game.moveUnitAlong(unitIdx, path.subList(1, path.size()));
+    }
+
+    private static boolean isActiveUnitAlive(PlayerSnapshot snapshot) {
+        for (UnitCoordinates unit : snapshot.allies()) {
+            if (unit.idx() == snapshot.activeUnitIdx()) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
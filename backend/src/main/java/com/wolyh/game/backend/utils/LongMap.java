@@ -0,0 +1,244 @@
+package com.wolyh.game.backend.utils;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.LongFunction;
+import java.util.function.Predicate;
+
+/**
+ * Concurrent map from long keys to values, without boxing the keys. The keys are spread
+ * over 64 stripes, each an open addressing table. Lookups never lock, and two writers only
+ * wait for each other when their keys land on the same stripe.
+ */
+public final class LongMap<V> {
+    private static final int STRIPE_BITS = 6;
+
+    private final Stripe<V>[] stripes;
+
+    @SuppressWarnings("unchecked")
+    public LongMap() {
+        this.stripes = new Stripe[1 << STRIPE_BITS];
+        for (int i = 0; i < stripes.length; i++) {
+            stripes[i] = new Stripe<>();
+        }
+    }
+
+    public V get(long key) {
+        long hash = mix(key);
+        return stripe(hash).get(key, hash);
+    }
+
+    public V put(long key, V value) {
+        long hash = mix(key);
+        return stripe(hash).put(key, hash, value, false);
+    }
+
+    public V putIfAbsent(long key, V value) {
+        long hash = mix(key);
+        return stripe(hash).put(key, hash, value, true);
+    }
+
+    /** The function runs under the stripe monitor, it must not touch this map. */
+    public V computeIfAbsent(long key, LongFunction<V> function) {
+        long hash = mix(key);
+        return stripe(hash).computeIfAbsent(key, hash, function);
+    }
+
+    public V remove(long key) {
+        long hash = mix(key);
+        return stripe(hash).remove(key, hash);
+    }
+
+    public int size() {
+        int size = 0;
+        for (Stripe<V> stripe : stripes) {
+            size += stripe.size();
+        }
+        return size;
+    }
+
+    /** Snapshot of the values, stripe by stripe. */
+    public List<V> values() {
+        List<V> values = new ArrayList<>();
+        for (Stripe<V> stripe : stripes) {
+            stripe.addValues(values);
+        }
+        return values;
+    }
+
+    public long count(Predicate<? super V> predicate) {
+        long count = 0;
+        for (Stripe<V> stripe : stripes) {
+            count += stripe.count(predicate);
+        }
+        return count;
+    }
+
+    private Stripe<V> stripe(long hash) {
+        return stripes[(int) (hash >>> (Long.SIZE - STRIPE_BITS))];
+    }
+
+    /** Room ids differ in their low bits first, every bit of the key has to reach the top ones. */
+    private static long mix(long key) {
+        key = (key ^ (key >>> 33)) * 0xff51afd7ed558ccdL;
+        key = (key ^ (key >>> 33)) * 0xc4ceb9fe1a85ec53L;
+        return key ^ (key >>> 33);
+    }
+
+    /**
+     * Linear probing, a null value marks a free slot and removals shift the following entries back.
+     * Readers take no lock: the table is published through a volatile field and never changed once
+     * published, writers copy it under the stripe monitor. Rooms and games are created and removed
+     * far less often than they are looked up.
+     */
+    private static final class Stripe<V> {
+        private record Table(long[] keys, Object[] values, int size) {}
+
+        private volatile Table table = new Table(new long[8], new Object[8], 0);
+
+        V get(long key, long hash) {
+            Table t = table;
+            long[] keys = t.keys();
+            Object[] values = t.values();
+            int mask = keys.length - 1;
+            for (int i = (int) hash & mask; values[i] != null; i = (i + 1) & mask) {
+                if (keys[i] == key) {
+                    return value(values, i);
+                }
+            }
+            return null;
+        }
+
+        synchronized V put(long key, long hash, V value, boolean onlyIfAbsent) {
+            Table t = table;
+            int i = slot(t, key, hash);
+            if (t.values()[i] != null) {
+                V previous = value(t.values(), i);
+                if (!onlyIfAbsent) {
+                    Object[] values = t.values().clone();
+                    values[i] = value;
+                    table = new Table(t.keys(), values, t.size());
+                }
+                return previous;
+            }
+            insert(t, i, key, value);
+            return null;
+        }
+
+        synchronized V computeIfAbsent(long key, long hash, LongFunction<V> function) {
+            Table t = table;
+            int i = slot(t, key, hash);
+            if (t.values()[i] != null) {
+                return value(t.values(), i);
+            }
+            V value = function.apply(key);
+            if (value != null) {
+                insert(t, i, key, value);
+            }
+            return value;
+        }
+
+        synchronized V remove(long key, long hash) {
+            Table t = table;
+            int i = slot(t, key, hash);
+            if (t.values()[i] == null) {
+                return null;
+            }
+            V previous = value(t.values(), i);
+
+            long[] keys = t.keys().clone();
+            Object[] values = t.values().clone();
+            int mask = keys.length - 1;
+            int hole = i;
+            for (int j = (hole + 1) & mask; values[j] != null; j = (j + 1) & mask) {
+                int home = (int) mix(keys[j]) & mask;
+                // an entry can fill the hole when the hole lies between its home slot and itself
+                if (((j - home) & mask) >= ((j - hole) & mask)) {
+                    keys[hole] = keys[j];
+                    values[hole] = values[j];
+                    hole = j;
+                }
+            }
+            values[hole] = null;
+            table = new Table(keys, values, t.size() - 1);
+            return previous;
+        }
+
+        int size() {
+            return table.size();
+        }
+
+        void addValues(List<V> out) {
+            Object[] values = table.values();
+            for (int i = 0; i < values.length; i++) {
+                if (values[i] != null) {
+                    out.add(value(values, i));
+                }
+            }
+        }
+
+        long count(Predicate<? super V> predicate) {
+            Object[] values = table.values();
+            long count = 0;
+            for (int i = 0; i < values.length; i++) {
+                if (values[i] != null && predicate.test(value(values, i))) {
+                    count++;
+                }
+            }
+            return count;
+        }
+
+        /** Slot of the key, or the free slot where it would go. */
+        private static int slot(Table t, long key, long hash) {
+            long[] keys = t.keys();
+            Object[] values = t.values();
+            int mask = keys.length - 1;
+            int i = (int) hash & mask;
+            while (values[i] != null && keys[i] != key) {
+                i = (i + 1) & mask;
+            }
+            return i;
+        }
+
+        private void insert(Table t, int slot, long key, V value) {
+            int size = t.size() + 1;
+            // kept at most half full
+            if (size * 2 > t.keys().length) {
+                table = grow(t, key, value, size);
+                return;
+            }
+            long[] keys = t.keys().clone();
+            Object[] values = t.values().clone();
+            keys[slot] = key;
+            values[slot] = value;
+            table = new Table(keys, values, size);
+        }
+
+        private static Table grow(Table t, long key, Object value, int size) {
+            long[] keys = new long[t.keys().length * 2];
+            Object[] values = new Object[t.values().length * 2];
+            for (int i = 0; i < t.keys().length; i++) {
+                if (t.values()[i] != null) {
+                    place(keys, values, t.keys()[i], t.values()[i]);
+                }
+            }
+            place(keys, values, key, value);
+            return new Table(keys, values, size);
+        }
+
+        private static void place(long[] keys, Object[] values, long key, Object value) {
+            int mask = keys.length - 1;
+            int i = (int) mix(key) & mask;
+            while (values[i] != null) {
+                i = (i + 1) & mask;
+            }
+            keys[i] = key;
+            values[i] = value;
+        }
+
+        @SuppressWarnings("unchecked")
+        private static <V> V value(Object[] values, int slot) {
+            return (V) values[slot];
+        }
+    }
+}
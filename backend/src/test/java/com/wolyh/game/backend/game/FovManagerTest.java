@@ -0,0 +1,146 @@
+package com.wolyh.game.backend.game;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+import org.junit.jupiter.api.Test;
+
+import com.wolyh.game.backend.model.Hex;
+
+/** The counters kept through moves and deaths must always match a recount from scratch. */
+class FovManagerTest {
+    private static final long SEED = 7;
+
+    private final Random random = new Random(SEED);
+
+    private MapManager mapManager;
+    private PlayerManager playerManager;
+    private UnitManager unitManager;
+    private FovManager fovManager;
+    private int visibilityRange;
+
+    private void setup(int radius, List<List<String>> teams, int unitsPerPlayer, int visibilityRange) {
+        mapManager = new MapManager(radius, random);
+        playerManager = new PlayerManager(teams);
+        unitManager = new UnitManager(mapManager, playerManager, unitsPerPlayer, 1, random);
+        unitManager.spawnUnits();
+        this.visibilityRange = visibilityRange;
+        fovManager = new FovManager(unitManager, mapManager, playerManager, visibilityRange);
+        fovManager.updateFov();
+    }
+
+    @Test
+    void movesMatchARecount() {
+        setup(4, List.of(List.of("a"), List.of("b")), 3, 2);
+
+        for (int i = 0; i < 500; i++) {
+            int unit = randomAliveUnit();
+            int team = unitManager.getTeam(unit);
+            Set<String> before = new HashSet<>(fovManager.getTeamFov(team));
+            Hex from = unitManager.getHex(unit);
+            Hex to = randomFreeHex();
+
+            unitManager.setUnitHex(unit, to);
+            FovDelta delta = fovManager.moveUnit(team, from, to);
+
+            assertThat(delta.gained()).noneMatch(before::contains);
+            assertThat(delta.lost()).allMatch(before::contains);
+            Set<String> expected = new HashSet<>(before);
+            expected.addAll(delta.gained());
+            expected.removeAll(delta.lost());
+            assertThat(fovManager.getTeamFov(team)).isEqualTo(expected);
+            assertMatchesRecount();
+        }
+    }
+
+    @Test
+    void deathsMatchARecount() {
+        setup(6, List.of(List.of("a"), List.of("b"), List.of("c")), 5, 2);
+
+        while (unitManager.checkEndCondition().teamsAlive() > 0) {
+            int unit = randomAliveUnit();
+            Hex at = unitManager.getHex(unit);
+            unitManager.killUnit(unit);
+            fovManager.removeUnit(unitManager.getTeam(unit), at);
+            assertMatchesRecount();
+        }
+        for (int team = 0; team < 3; team++) {
+            assertThat(fovManager.getTeamFov(team)).isEmpty();
+        }
+    }
+
+    @Test
+    void aHexSeenByTwoUnitsStaysSeenWhenOneLeaves() {
+        setup(4, List.of(List.of("a"), List.of("b")), 3, 1);
+        int first = firstUnitOf(0);
+        int second = nextUnitOf(0, first);
+
+        // the second unit stands next to the first, they see the hexes between them twice
+        Hex neighbour = freeNeighbour(unitManager.getHex(first));
+        Hex from = unitManager.getHex(second);
+        unitManager.setUnitHex(second, neighbour);
+        fovManager.moveUnit(0, from, neighbour);
+
+        unitManager.killUnit(second);
+        FovDelta delta = fovManager.removeUnit(0, neighbour);
+
+        assertThat(delta.lost()).doesNotContain(unitManager.getHex(first).getKey(), neighbour.getKey());
+        assertThat(fovManager.isVisibleBy(unitManager.getHex(first), 0)).isTrue();
+        assertThat(fovManager.isVisibleBy(neighbour, 0)).isTrue();
+        assertMatchesRecount();
+    }
+
+    /** A new manager on the same units counts everything again. */
+    private void assertMatchesRecount() {
+        FovManager recount = new FovManager(unitManager, mapManager, playerManager, visibilityRange);
+        recount.updateFov();
+        assertThat(fovManager.getFovs()).isEqualTo(recount.getFovs());
+        assertThat(fovManager.getVisibility()).isEqualTo(recount.getVisibility());
+        for (int team = 0; team < playerManager.getTeamCount(); team++) {
+            assertThat(fovManager.getTeamFovSize(team)).isEqualTo(recount.getTeamFovSize(team));
+        }
+    }
+
+    private int randomAliveUnit() {
+        List<Integer> alive = new ArrayList<>();
+        unitManager.forEachAliveUnit(alive::add);
+        return alive.get(random.nextInt(alive.size()));
+    }
+
+    private Hex randomFreeHex() {
+        List<Hex> free = new ArrayList<>();
+        mapManager.forEachHex(hex -> {
+            if (!hex.isObstacle() && unitManager.isFree(hex)) {
+                free.add(hex);
+            }
+        });
+        return free.get(random.nextInt(free.size()));
+    }
+
+    private Hex freeNeighbour(Hex hex) {
+        for (Hex candidate : mapManager.getHexesInRange(hex, 1)) {
+            if (candidate != hex && !candidate.isObstacle() && unitManager.isFree(candidate)) {
+                return candidate;
+            }
+        }
+        throw new IllegalStateException("No free hex around " + hex.getKey());
+    }
+
+    private int firstUnitOf(int team) {
+        return nextUnitOf(team, -1);
+    }
+
+    private int nextUnitOf(int team, int after) {
+        for (int unit = after + 1; unit < unitManager.getNumberOfUnits(); unit++) {
+            if (unitManager.getTeam(unit) == team) {
+                return unit;
+            }
+        }
+        throw new IllegalStateException("No unit of team " + team + " after " + after);
+    }
+}
@@ -0,0 +1,62 @@
+package com.wolyh.game.backend.game;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+import com.wolyh.game.backend.model.HexCoordinates;
+import com.wolyh.game.backend.model.UnitCoordinates;
+
+/** Spectator views built from a snapshot match the views of the players at that time. */
+class GameSnapshotTest {
+
+    @Test
+    void teamViewsMatchThePlayerViews() {
+        for (long seed = 1; seed <= 20; seed++) {
+            Game game = new Game("p1", "p2", GameConfig.DEFAULT, seed);
+            for (int turn = 0; turn < 6 && !game.isGameOver(); turn++) {
+                assertMatches(game);
+                game.nextTurn();
+            }
+        }
+    }
+
+    @Test
+    void aSnapshotIsNotChangedByLaterMoves() {
+        Game game = new Game("p1", "p2", GameConfig.DEFAULT, 7);
+        GameSnapshot before = game.snapshot();
+        SpectatorView view = before.view(0);
+
+        int unit = game.getActiveUnitIdx();
+        UnitCoordinates at = game.getSpectatorView(PlayerManager.NONE).units().stream()
+            .filter(u -> u.idx() == unit)
+            .findFirst()
+            .orElseThrow();
+        int[][] directions = {{1, 0}, {1, -1}, {0, -1}, {-1, 0}, {-1, 1}, {0, 1}};
+        for (int[] direction : directions) {
+            HexCoordinates goal = new HexCoordinates(at.q() + direction[0], at.r() + direction[1]);
+            if (game.canUnitMoveOnHex(unit, goal)) {
+                game.moveUnit(unit, goal);
+                break;
+            }
+        }
+
+        assertThat(before.view(0)).isEqualTo(view);
+    }
+
+    private static void assertMatches(Game game) {
+        for (int team = 0; team < 2; team++) {
+            PlayerView player = game.getTeamView(team);
+            SpectatorView spectator = game.snapshot().view(team);
+
+            List<UnitCoordinates> expected = new ArrayList<>(player.allies());
+            expected.addAll(player.visibleEnemies());
+            assertThat(spectator.fov()).isEqualTo(player.fov());
+            assertThat(spectator.units()).containsExactlyInAnyOrderElementsOf(expected);
+        }
+        assertThat(game.snapshot().view(PlayerManager.NONE).units()).hasSize(game.getNumberOfUnits());
+    }
+}
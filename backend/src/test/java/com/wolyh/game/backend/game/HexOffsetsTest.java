@@ -0,0 +1,150 @@
+package com.wolyh.game.backend.game;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.stream.IntStream;
+
+import org.junit.jupiter.api.Test;
+
+import com.wolyh.game.backend.model.Hex;
+import com.wolyh.game.backend.model.HexCoordinates;
+
+class HexOffsetsTest {
+
+    @Test
+    void diskListsEveryOffsetOnceWithItsDistance() {
+        for (int radius = 0; radius <= 6; radius++) {
+            HexOffsets offsets = HexOffsets.of(radius);
+            assertThat(offsets.size()).isEqualTo(3 * radius * (radius + 1) + 1);
+
+            Set<Long> seen = new HashSet<>();
+            for (int i = 0; i < offsets.size(); i++) {
+                assertThat(offsets.distance[i]).isEqualTo(distance(0, 0, offsets.dq[i], offsets.dr[i]));
+                assertThat(offsets.distance[i]).isLessThanOrEqualTo(radius);
+                assertThat(seen.add(((long) offsets.dq[i] << 32) | (offsets.dr[i] & 0xffffffffL))).isTrue();
+            }
+        }
+    }
+
+    @Test
+    void ringsListTheOffsetsAtTheirDistance() {
+        for (int radius = 0; radius <= 6; radius++) {
+            HexOffsets offsets = HexOffsets.of(radius);
+            assertThat(offsets.ringStart(0)).isZero();
+            assertThat(offsets.ringStart(radius + 1)).isEqualTo(offsets.size());
+            for (int d = 0; d <= radius; d++) {
+                assertThat(offsets.ringStart(d + 1) - offsets.ringStart(d)).isEqualTo(d == 0 ? 1 : 6 * d);
+                for (int i = offsets.ringStart(d); i < offsets.ringStart(d + 1); i++) {
+                    assertThat(offsets.distance[i]).isEqualTo(d);
+                }
+            }
+        }
+    }
+
+    @Test
+    void rangeQueriesReadOnlyTheirRings() {
+        MapManager map = new MapManager(new MapLayout(1, 6, 0, List.of(), List.of(), null, null), new Random(1));
+        Hex origin = map.hexAt(map.index(0, 0));
+
+        List<Integer> distances = new ArrayList<>();
+        map.forEachHexInRange(origin, 2, 4, hex -> distances.add(distance(0, 0, hex.getQ(), hex.getR())));
+
+        assertThat(distances).hasSize(6 * (2 + 3 + 4)).isSorted().allMatch(d -> d >= 2 && d <= 4);
+    }
+
+    @Test
+    void rangesBeyondTheMapStopAtItsEdge() {
+        MapManager map = new MapManager(new MapLayout(1, 2, 0, List.of(), List.of(), null, null), new Random(1));
+        Hex origin = map.hexAt(map.index(0, 0));
+
+        List<Hex> far = new ArrayList<>();
+        map.forEachHexInRange(origin, 5, 20, far::add);
+
+        assertThat(map.getHexesInRange(origin, 100)).hasSize(19);
+        assertThat(far).isEmpty();
+    }
+
+    @Test
+    void sameRadiusSharesItsTable() {
+        assertThat(HexOffsets.of(3)).isSameAs(HexOffsets.of(3));
+    }
+
+    @Test
+    void lineOfSightStepsFromNeighbourToNeighbourUpToItsEnd() {
+        HexOffsets offsets = HexOffsets.of(5);
+        for (int i = 0; i < offsets.size(); i++) {
+            int start = offsets.rayStart[i];
+            int end = offsets.rayStart[i + 1];
+            assertThat(end - start).isEqualTo(offsets.distance[i]);
+
+            int q = 0;
+            int r = 0;
+            for (int step = start; step < end; step++) {
+                assertThat(distance(q, r, offsets.rayDq[step], offsets.rayDr[step])).isEqualTo(1);
+                q = offsets.rayDq[step];
+                r = offsets.rayDr[step];
+            }
+            assertThat(q).isEqualTo(offsets.dq[i]);
+            assertThat(r).isEqualTo(offsets.dr[i]);
+        }
+    }
+
+    @Test
+    void straightLinesFollowTheAxis() {
+        HexOffsets offsets = HexOffsets.of(3);
+        int i = indexOf(offsets, 3, 0);
+        assertThat(ray(offsets, i)).containsExactly(
+            new HexCoordinates(1, 0),
+            new HexCoordinates(2, 0),
+            new HexCoordinates(3, 0)
+        );
+        i = indexOf(offsets, 0, -3);
+        assertThat(ray(offsets, i)).containsExactly(
+            new HexCoordinates(0, -1),
+            new HexCoordinates(0, -2),
+            new HexCoordinates(0, -3)
+        );
+    }
+
+    @Test
+    void obstaclesHideWhatIsBehindThem() {
+        MapLayout layout = new MapLayout(1, 3, 0, List.of(), List.of(new HexCoordinates(1, 0)), null, null);
+        MapManager map = new MapManager(layout, new Random(1));
+
+        int[][] visibility = FovManager.computeVisibility(map, 3);
+        List<String> fromCenter = IntStream.of(visibility[map.index(0, 0)])
+            .mapToObj(index -> map.hexAt(index).getKey())
+            .toList();
+
+        assertThat(fromCenter).doesNotContain(Hex.key(1, 0), Hex.key(2, 0), Hex.key(3, 0));
+        assertThat(fromCenter).contains(Hex.key(0, 0), Hex.key(-3, 0), Hex.key(0, 3), Hex.key(0, -2));
+        assertThat(visibility[map.index(1, 0)]).isEmpty();
+        assertThat(visibility[map.index(3, 1)]).as("off the hexagon").isNull();
+    }
+
+    private static List<HexCoordinates> ray(HexOffsets offsets, int i) {
+        return IntStream.range(offsets.rayStart[i], offsets.rayStart[i + 1])
+            .mapToObj(step -> new HexCoordinates(offsets.rayDq[step], offsets.rayDr[step]))
+            .toList();
+    }
+
+    private static int indexOf(HexOffsets offsets, int q, int r) {
+        for (int i = 0; i < offsets.size(); i++) {
+            if (offsets.dq[i] == q && offsets.dr[i] == r) {
+                return i;
+            }
+        }
+        throw new IllegalArgumentException("No offset " + q + "," + r);
+    }
+
+    private static int distance(int q1, int r1, int q2, int r2) {
+        int dq = q1 - q2;
+        int dr = r1 - r2;
+        return Math.max(Math.abs(dq), Math.max(Math.abs(dr), Math.abs(dq + dr)));
+    }
+}
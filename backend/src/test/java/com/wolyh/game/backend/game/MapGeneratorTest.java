@@ -0,0 +1,70 @@
+package com.wolyh.game.backend.game;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatCode;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+import com.wolyh.game.backend.model.HexCoordinates;
+import com.wolyh.game.backend.model.UnitCoordinates;
+
+/** Catalog maps, generated as MapCatalogService does, take a game whatever its seed. */
+class MapGeneratorTest {
+    private static final GameConfig CONFIG = GameConfig.DEFAULT;
+    private static final int PLAYERS = 2;
+    private static final int MAPS = 4;
+    private static final int GAMES_PER_MAP = 250;
+
+    @Test
+    void validatedSpawnsFitEveryUnitApart() {
+        for (MapLayout layout : catalog()) {
+            List<HexCoordinates> spawns = layout.spawns();
+            assertThat(spawns).hasSizeGreaterThanOrEqualTo(PLAYERS * CONFIG.unitsPerPlayer());
+            for (int i = 0; i < spawns.size(); i++) {
+                for (int j = i + 1; j < spawns.size(); j++) {
+                    assertThat(distance(spawns.get(i), spawns.get(j))).isGreaterThanOrEqualTo(CONFIG.minSpawnDistance());
+                }
+            }
+        }
+    }
+
+    @Test
+    void gamesStartOnCatalogMapsWithAnySeed() {
+        for (MapLayout layout : catalog()) {
+            for (long seed = 0; seed < GAMES_PER_MAP; seed++) {
+                long gameSeed = seed;
+                assertThatCode(() -> {
+                    Game game = new Game("p1", "p2", CONFIG, gameSeed, layout);
+                    List<UnitCoordinates> units = game.getSpectatorView(PlayerManager.NONE).units();
+                    assertThat(units).hasSize(PLAYERS * CONFIG.unitsPerPlayer());
+                }).as("map %d, game seed %d", layout.id(), gameSeed).doesNotThrowAnyException();
+            }
+        }
+    }
+
+    @Test
+    void theClassicMapIsNotValidated() {
+        assertThat(MapGenerator.classic(CONFIG.mapRadius()).spawns()).isNull();
+    }
+
+    private static List<MapLayout> catalog() {
+        List<MapLayout> maps = new ArrayList<>();
+        for (long seed = 1; maps.size() < MAPS && seed < 1000; seed++) {
+            MapLayout layout = MapGenerator.generate(seed, CONFIG, PLAYERS);
+            if (layout != null) {
+                maps.add(MapGenerator.precompute(layout, CONFIG.visibilityRange()));
+            }
+        }
+        assertThat(maps).hasSize(MAPS);
+        return maps;
+    }
+
+    private static int distance(HexCoordinates a, HexCoordinates b) {
+        int dq = a.q() - b.q();
+        int dr = a.r() - b.r();
+        return Math.max(Math.abs(dq), Math.max(Math.abs(dr), Math.abs(dq + dr)));
+    }
+}
@@ -0,0 +1,125 @@
+package com.wolyh.game.backend.game;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+import com.wolyh.game.backend.game.UnitManager.EndConditionResult;
+import com.wolyh.game.backend.model.Hex;
+import com.wolyh.game.backend.model.UnitCoordinates;
+
+/** The ring and the counts are checked against plain scans of the alive flags. */
+class UnitManagerTest {
+    private static final List<List<String>> TEAMS = List.of(List.of("a", "b"), List.of("c"), List.of("d"));
+
+    private final Random random = new Random(11);
+
+    private UnitManager newUnitManager(int unitsPerPlayer) {
+        MapManager mapManager = new MapManager(8, random);
+        UnitManager unitManager = new UnitManager(mapManager, new PlayerManager(TEAMS), unitsPerPlayer, 1, random);
+        unitManager.spawnUnits();
+        return unitManager;
+    }
+
+    @Test
+    void unitsAreDealtInTurnOrder() {
+        UnitManager unitManager = newUnitManager(3);
+        assertThat(unitManager.getNumberOfUnits()).isEqualTo(12);
+        for (int unit = 0; unit < 12; unit++) {
+            assertThat(unitManager.getOwner(unit)).isEqualTo(unit % 4);
+        }
+        assertThat(unitManager.getTeam(0)).isEqualTo(0);
+        assertThat(unitManager.getTeam(3)).isEqualTo(0);
+        assertThat(unitManager.getTeam(1)).isEqualTo(1);
+    }
+
+    @Test
+    void turnsSkipDeadUnitsInIndexOrder() {
+        for (int game = 0; game < 50; game++) {
+            UnitManager unitManager = newUnitManager(5);
+            while (true) {
+                if (random.nextInt(3) == 0) {
+                    // the active unit dies as often as any other
+                    int unit = random.nextBoolean() ? unitManager.getActiveUnitIdx() : random.nextInt(unitManager.getNumberOfUnits());
+                    unitManager.killUnit(unit);
+                    assertCounts(unitManager);
+                }
+                int expected = nextAliveAfter(unitManager, unitManager.getActiveUnitIdx());
+                int next = unitManager.setNextActiveUnit();
+                assertThat(next).isEqualTo(expected);
+                if (next == UnitManager.NONE) {
+                    break;
+                }
+                assertThat(unitManager.getActiveUnitIdx()).isEqualTo(next);
+            }
+        }
+    }
+
+    @Test
+    void lastTeamStandingIsReported() {
+        UnitManager unitManager = newUnitManager(2);
+        for (int unit = 0; unit < unitManager.getNumberOfUnits(); unit++) {
+            if (unitManager.getTeam(unit) != 2) {
+                unitManager.killUnit(unit);
+            }
+        }
+        assertThat(unitManager.checkEndCondition()).isEqualTo(new EndConditionResult(1, 2));
+    }
+
+    @Test
+    void restoreRebuildsTheRing() {
+        UnitManager unitManager = newUnitManager(3);
+        List<UnitCoordinates> alive = new ArrayList<>();
+        for (int unit : new int[] {1, 4, 6, 11}) {
+            Hex hex = unitManager.getHex(unit);
+            alive.add(new UnitCoordinates(unit, hex.getQ(), hex.getR()));
+        }
+
+        // the active unit of the keyframe is dead, the next alive one comes after it
+        unitManager.restore(7, alive);
+        assertCounts(unitManager);
+        assertThat(unitManager.setNextActiveUnit()).isEqualTo(11);
+        assertThat(unitManager.setNextActiveUnit()).isEqualTo(1);
+        assertThat(unitManager.setNextActiveUnit()).isEqualTo(4);
+        assertThat(unitManager.setNextActiveUnit()).isEqualTo(6);
+        assertThat(unitManager.unitAt(unitManager.getHex(4))).isEqualTo(4);
+        assertThat(unitManager.isFree(unitManager.getHex(5))).isTrue();
+    }
+
+    private static int nextAliveAfter(UnitManager unitManager, int active) {
+        int count = unitManager.getNumberOfUnits();
+        for (int i = 1; i < count; i++) {
+            int unit = (active + i) % count;
+            if (unitManager.isAlive(unit)) {
+                return unit;
+            }
+        }
+        return UnitManager.NONE;
+    }
+
+    private static void assertCounts(UnitManager unitManager) {
+        int[] aliveByTeam = new int[TEAMS.size()];
+        for (int unit = 0; unit < unitManager.getNumberOfUnits(); unit++) {
+            if (unitManager.isAlive(unit)) {
+                aliveByTeam[unitManager.getTeam(unit)]++;
+            }
+        }
+        int teamsAlive = 0;
+        int lastTeam = UnitManager.NONE;
+        for (int team = 0; team < aliveByTeam.length; team++) {
+            if (aliveByTeam[team] > 0) {
+                teamsAlive++;
+                lastTeam = team;
+            }
+        }
+        EndConditionResult result = unitManager.checkEndCondition();
+        assertThat(result.teamsAlive()).isEqualTo(teamsAlive);
+        if (teamsAlive == 1) {
+            assertThat(result.lastTeam()).isEqualTo(lastTeam);
+        }
+    }
+}
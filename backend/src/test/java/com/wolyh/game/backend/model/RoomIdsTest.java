@@ -0,0 +1,81 @@
+package com.wolyh.game.backend.model;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.junit.jupiter.api.Test;
+
+class RoomIdsTest {
+
+    @Test
+    void formatAndParseRoundTrip() {
+        Random random = new Random(5);
+        List<Long> ids = new ArrayList<>(List.of(0L, 1L, 61L, 62L, Long.MAX_VALUE));
+        for (int i = 0; i < 10_000; i++) {
+            ids.add(random.nextLong() >>> (1 + random.nextInt(63)));
+        }
+        for (long id : ids) {
+            String text = RoomIds.format(id);
+            assertThat(text.length()).isBetween(1, 11);
+            assertThat(RoomIds.parse(text)).isEqualTo(id);
+        }
+        assertThat(RoomIds.format(61)).isEqualTo("z");
+        assertThat(RoomIds.format(62)).isEqualTo("10");
+    }
+
+    @Test
+    void parseRejectsWhatFormatNeverProduces() {
+        assertThat(RoomIds.parse(null)).isEqualTo(RoomIds.INVALID);
+        assertThat(RoomIds.parse("")).isEqualTo(RoomIds.INVALID);
+        assertThat(RoomIds.parse("01")).isEqualTo(RoomIds.INVALID);
+        assertThat(RoomIds.parse("ab-c")).isEqualTo(RoomIds.INVALID);
+        assertThat(RoomIds.parse("-1")).isEqualTo(RoomIds.INVALID);
+        assertThat(RoomIds.parse("123456789012")).isEqualTo(RoomIds.INVALID);
+        // eleven digits that do not fit in a long
+        assertThat(RoomIds.parse("zzzzzzzzzzz")).isEqualTo(RoomIds.INVALID);
+        assertThat(RoomIds.parse(RoomIds.format(Long.MAX_VALUE) + "0")).isEqualTo(RoomIds.INVALID);
+    }
+
+    @Test
+    void idsAreUniqueIncreasingAndCarryTheirNode() throws InterruptedException {
+        RoomIds roomIds = new RoomIds(37);
+        Set<Long> seen = ConcurrentHashMap.newKeySet();
+        List<Thread> threads = new ArrayList<>();
+        for (int t = 0; t < 4; t++) {
+            threads.add(Thread.ofPlatform().start(() -> {
+                long previous = -1;
+                // more than the 4096 ids of a millisecond
+                for (int i = 0; i < 20_000; i++) {
+                    long id = roomIds.next();
+                    assertThat(id).isGreaterThan(previous);
+                    assertThat((id >>> 12) & RoomIds.MAX_NODE).isEqualTo(37);
+                    assertThat(seen.add(id)).isTrue();
+                    previous = id;
+                }
+            }));
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        assertThat(seen).hasSize(80_000);
+    }
+
+    @Test
+    void nodeMustFitInTenBits() {
+        assertThatThrownBy(() -> new RoomIds(-1)).isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> new RoomIds(RoomIds.MAX_NODE + 1)).isInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Test
+    void tokensParseAsIds() {
+        String token = RoomIds.token();
+        assertThat(RoomIds.parse(token)).isNotEqualTo(RoomIds.INVALID);
+        assertThat(RoomIds.token()).isNotEqualTo(token);
+    }
+}
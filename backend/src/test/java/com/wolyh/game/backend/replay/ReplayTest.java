@@ -0,0 +1,251 @@
+package com.wolyh.game.backend.replay;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import com.wolyh.game.backend.game.Game;
+import com.wolyh.game.backend.game.GameConfig;
+import com.wolyh.game.backend.game.MapGenerator;
+import com.wolyh.game.backend.game.MapLayout;
+import com.wolyh.game.backend.game.PlayerManager;
+import com.wolyh.game.backend.game.SpectatorView;
+import com.wolyh.game.backend.model.HexCoordinates;
+import com.wolyh.game.backend.model.UnitCoordinates;
+import com.wolyh.game.backend.replay.ReplayAction.Type;
+
+/** Blocks are written by ReplayRecording and read back by Replay, a played game is replayed from any action. */
+class ReplayTest {
+    private static final GameConfig CONFIG = GameConfig.DEFAULT.withActionPoints(2);
+    private static final int KEYFRAME_INTERVAL = 4;
+
+    private static final int[][] DIRECTIONS = {{1, 0}, {1, -1}, {0, -1}, {-1, 0}, {-1, 1}, {0, 1}};
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void blockRoundTrip() throws IOException {
+        ReplayRecording recording = new ReplayRecording(dir.resolve("game"), 42, 7, CONFIG, 1000, "alice", "bob");
+        recording.addAction(new ReplayAction(Type.UNIT_MOVE, 0, new HexCoordinates(1, -2), false));
+        recording.addAction(new ReplayAction(Type.UNIT_ATTACK, 0, new HexCoordinates(-3, 1), true));
+        List<UnitCoordinates> units = List.of(new UnitCoordinates(0, 1, -2), new UnitCoordinates(5, 0, 3));
+        recording.addKeyframe(new SpectatorView(3, 1, 5, 6, units, null, false, null, null));
+        recording.addAction(new ReplayAction(Type.TURN_SKIP, 5, null, true));
+
+        Replay replay = Replay.of(recording.finish(2000, "bob"));
+        assertThat(replay.getSeed()).isEqualTo(42);
+        assertThat(replay.getMapId()).isEqualTo(7);
+        assertThat(replay.getConfig()).isEqualTo(CONFIG);
+        assertThat(replay.getStartedAt()).isEqualTo(1000);
+        assertThat(replay.getPlayer1()).isEqualTo("alice");
+        assertThat(replay.getPlayer2()).isEqualTo("bob");
+        assertThat(replay.getActionCount()).isEqualTo(3);
+
+        Replay.Cursor cursor = replay.seek(0);
+        assertThat(cursor.getKeyframe()).isNull();
+        assertThat(cursor.next()).isEqualTo(new ReplayAction(Type.UNIT_MOVE, 0, new HexCoordinates(1, -2), false));
+        assertThat(cursor.next()).isEqualTo(new ReplayAction(Type.UNIT_ATTACK, 0, new HexCoordinates(-3, 1), true));
+        // the keyframe between them is skipped
+        assertThat(cursor.next()).isEqualTo(new ReplayAction(Type.TURN_SKIP, 5, null, true));
+        assertThat(cursor.next()).isNull();
+        assertThat(cursor.isEnded()).isTrue();
+        assertThat(cursor.getWinner()).isEqualTo("bob");
+        assertThat(cursor.getActionsRead()).isEqualTo(3);
+    }
+
+    @Test
+    void seekLandsOnTheLastKeyframeAtOrBeforeTheAction() throws IOException {
+        ReplayRecording recording = new ReplayRecording(dir.resolve("game"), 1, MapGenerator.CLASSIC_ID, CONFIG, 0, "a", "b");
+        for (int action = 1; action <= 10; action++) {
+            recording.addAction(new ReplayAction(Type.TURN_SKIP, action % 6, null, true));
+            if (action % 3 == 0) {
+                recording.addKeyframe(new SpectatorView(action, 0, action % 6, 6, List.of(), null, false, null, null));
+            }
+        }
+        Replay replay = Replay.of(recording.finish(0, null));
+
+        int[] expected = {0, 0, 0, 3, 3, 3, 6, 6, 6, 9, 9};
+        for (int action = 0; action <= 10; action++) {
+            Replay.Cursor cursor = replay.seek(action);
+            assertThat(cursor.getActionsRead()).isEqualTo(expected[action]);
+            if (expected[action] == 0) {
+                assertThat(cursor.getKeyframe()).isNull();
+            } else {
+                assertThat(cursor.getKeyframe().turn()).isEqualTo(expected[action]);
+                assertThat(cursor.getKeyframe().nbUnits()).isEqualTo(6);
+            }
+        }
+
+        Replay.Cursor cursor = replay.seek(7);
+        int read = 0;
+        while (cursor.next() != null) {
+            read++;
+        }
+        assertThat(read).isEqualTo(4);
+        assertThat(cursor.getWinner()).isNull();
+    }
+
+    @Test
+    void replayingFromAnyActionReachesThePlayedStates() throws IOException {
+        for (long seed = 1; seed <= 5; seed++) {
+            MapLayout layout = MapGenerator.classic(CONFIG.mapRadius());
+            List<SpectatorView> played = new ArrayList<>();
+            Replay replay = Replay.of(play(dir.resolve("game" + seed), seed, layout, played));
+            assertThat(replay.getActionCount()).isEqualTo(played.size() - 1);
+
+            for (int from = 0; from < played.size(); from += 1 + from / 8) {
+                ReplayPlayer player = new ReplayPlayer(replay, layout, from);
+                assertThat(player.getActionsPlayed()).isEqualTo(from);
+                assertThat(player.current()).isEqualTo(played.get(from));
+                while (player.step()) {
+                    assertThat(player.current()).isEqualTo(played.get(player.getActionsPlayed()));
+                }
+            }
+        }
+    }
+
+    @Test
+    void rejectsWhatIsNotAReplay() throws IOException {
+        ByteBuffer block = new ReplayRecording(dir.resolve("a"), 1, 1, CONFIG, 0, "a", "b").finish(0, null);
+        block.putInt(0, 0xCAFE);
+        assertThatThrownBy(() -> Replay.of(block)).isInstanceOf(IllegalArgumentException.class);
+
+        ByteBuffer future = new ReplayRecording(dir.resolve("b"), 1, 1, CONFIG, 0, "a", "b").finish(0, null);
+        future.putInt(4, ReplayFormat.VERSION + 1);
+        assertThatThrownBy(() -> Replay.of(future)).isInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Test
+    void aCutJournalKeepsItsWholeTurns() throws IOException {
+        Path journal = dir.resolve("game");
+        ReplayRecording recording = new ReplayRecording(journal, 3, 7, CONFIG, 1000, "alice", "bob");
+        recording.addAction(new ReplayAction(Type.UNIT_MOVE, 0, new HexCoordinates(1, -2), false));
+        recording.addAction(new ReplayAction(Type.TURN_SKIP, 0, null, true));
+        recording.addKeyframe(new SpectatorView(2, 0, 5, 6, List.of(new UnitCoordinates(5, 0, 3)), null, false, null, null));
+        recording.addAction(new ReplayAction(Type.UNIT_MOVE, 5, new HexCoordinates(0, 2), true));
+        // the next turn is still in memory when the process dies
+        recording.addAction(new ReplayAction(Type.UNIT_MOVE, 0, new HexCoordinates(2, -3), false));
+        try (FileChannel channel = FileChannel.open(journal, StandardOpenOption.WRITE)) {
+            // and the last whole turn is torn
+            channel.truncate(channel.size() - 5);
+        }
+
+        Replay replay = Replay.of(ReplayRecording.recover(journal));
+        assertThat(replay.getSeed()).isEqualTo(3);
+        assertThat(replay.getPlayer2()).isEqualTo("bob");
+        assertThat(replay.getActionCount()).isEqualTo(2);
+
+        Replay.Cursor cursor = replay.seek(2);
+        assertThat(cursor.getKeyframe().turn()).isEqualTo(2);
+        assertThat(cursor.next()).isNull();
+        assertThat(cursor.isEnded()).isTrue();
+        assertThat(cursor.getWinner()).isNull();
+    }
+
+    @Test
+    void aFinishedJournalIsRecoveredAsItWasStored() throws IOException {
+        Path journal = dir.resolve("game");
+        ReplayRecording recording = new ReplayRecording(journal, 3, 7, CONFIG, 1000, "alice", "bob");
+        recording.addAction(new ReplayAction(Type.TURN_SKIP, 0, null, true));
+        recording.addKeyframe(new SpectatorView(1, 0, 5, 6, List.of(), null, false, null, null));
+        ByteBuffer block = recording.finish(2000, "alice");
+        recording.close();
+
+        assertThat(ReplayRecording.recover(journal)).isEqualTo(block);
+    }
+
+    @Test
+    void aJournalWithoutItsStartIsNotRecovered() throws IOException {
+        Path journal = dir.resolve("game");
+        new ReplayRecording(journal, 3, 7, CONFIG, 1000, "alice", "bob").close();
+        try (FileChannel channel = FileChannel.open(journal, StandardOpenOption.WRITE)) {
+            channel.truncate(channel.size() - 1);
+        }
+
+        assertThat(ReplayRecording.recover(journal)).isNull();
+    }
+
+    /**
+     * Plays random moves, attacks and skips with the turn resolution of GameService, keyframes
+     * taken as ReplayService does. The state after each action is added to the list, the spawns first.
+     */
+    private static ByteBuffer play(Path journal, long seed, MapLayout layout, List<SpectatorView> states)
+            throws IOException {
+        Game game = new Game("p1", "p2", CONFIG, seed, layout);
+        ReplayRecording recording = new ReplayRecording(journal, seed, layout.id(), CONFIG, 0, "p1", "p2");
+        Random random = new Random(seed);
+        states.add(game.getSpectatorView(PlayerManager.NONE));
+
+        while (!game.isGameOver()) {
+            int unit = game.getActiveUnitIdx();
+            Type type = Type.TURN_SKIP;
+            HexCoordinates goal = null;
+
+            HexCoordinates target = attackable(game, unit);
+            if (target != null && random.nextBoolean()) {
+                type = Type.UNIT_ATTACK;
+                goal = target;
+                game.killUnitOn(goal);
+            } else if (random.nextInt(4) != 0) {
+                HexCoordinates step = reachableNeighbour(game, unit, random);
+                if (step != null) {
+                    type = Type.UNIT_MOVE;
+                    goal = step;
+                    game.moveUnit(unit, goal);
+                }
+            }
+
+            game.spendActionPoints(type == Type.TURN_SKIP ? game.getActionPointsLeft() : 1);
+            boolean endsTurn = game.getActionPointsLeft() <= 0;
+            game.resolveGameOver();
+            if (!game.isGameOver() && endsTurn) {
+                game.nextTurn();
+                if (game.shrinkMapIfNeeded().occurred()) {
+                    game.resolveGameOver();
+                }
+            }
+
+            recording.addAction(new ReplayAction(type, unit, goal, endsTurn));
+            if (endsTurn && !game.isGameOver() && game.getTurn() % KEYFRAME_INTERVAL == 0) {
+                recording.addKeyframe(game.getSpectatorView(PlayerManager.NONE));
+            }
+            states.add(game.getSpectatorView(PlayerManager.NONE));
+        }
+        return recording.finish(0, game.getWinner());
+    }
+
+    private static HexCoordinates attackable(Game game, int unit) {
+        for (UnitCoordinates other : game.getSpectatorView(PlayerManager.NONE).units()) {
+            HexCoordinates hex = new HexCoordinates(other.q(), other.r());
+            if (game.canUnitAttackOnHex(unit, hex)) {
+                return hex;
+            }
+        }
+        return null;
+    }
+
+    private static HexCoordinates reachableNeighbour(Game game, int unit, Random random) {
+        UnitCoordinates at = game.getSpectatorView(PlayerManager.NONE).units().stream()
+            .filter(u -> u.idx() == unit)
+            .findFirst()
+            .orElseThrow();
+        int[] direction = DIRECTIONS[random.nextInt(DIRECTIONS.length)];
+        HexCoordinates goal = new HexCoordinates(at.q() + direction[0], at.r() + direction[1]);
+        if (!game.canUnitMoveOnHex(unit, goal)) {
+            return null;
+        }
+        return game.searchPath(goal, unit, game.getActiveSlot()).isEmpty() ? null : goal;
+    }
+}
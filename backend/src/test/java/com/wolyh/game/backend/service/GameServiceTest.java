@@ -0,0 +1,155 @@
+package com.wolyh.game.backend.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Stream;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.context.annotation.AnnotationConfigApplicationContext;
+import org.springframework.core.env.MapPropertySource;
+import org.springframework.messaging.simp.SimpMessagingTemplate;
+
+import tools.jackson.databind.json.JsonMapper;
+
+import com.wolyh.game.backend.dto.Notification;
+import com.wolyh.game.backend.dto.Notification.Type;
+import com.wolyh.game.backend.dto.UnitActionRequest;
+import com.wolyh.game.backend.dto.UnitActionsRequest;
+import com.wolyh.game.backend.game.MapGenerator;
+import com.wolyh.game.backend.game.PlayerSnapshot;
+import com.wolyh.game.backend.game.Rejection;
+import com.wolyh.game.backend.game.Result.UnitActionResult;
+import com.wolyh.game.backend.model.Hex;
+import com.wolyh.game.backend.model.HexCoordinates;
+import com.wolyh.game.backend.model.RoomIds;
+import com.wolyh.game.backend.model.UnitCoordinates;
+
+/** Batches of actions through the real services, with a broker channel that drops every message. */
+class GameServiceTest {
+    private static final String ALICE = "alice";
+    private static final String BOB = "bob";
+    private static final String ROOM = RoomIds.format(1);
+
+    @TempDir
+    Path replayDir;
+
+    private AnnotationConfigApplicationContext context;
+    private GameService gameService;
+
+    private void start(int actionPoints) {
+        context = new AnnotationConfigApplicationContext();
+        context.getEnvironment().getPropertySources().addFirst(new MapPropertySource("test", Map.of(
+            "replay.dir", replayDir.toString(),
+            "map.procedural", "false",
+            "game.action-points", String.valueOf(actionPoints)
+        )));
+        context.registerBean(SimpMessagingTemplate.class, () -> new SimpMessagingTemplate((message, timeout) -> true));
+        context.registerBean(JsonMapper.class, () -> new JsonMapper());
+        context.register(
+            GameService.class,
+            NotificationService.class,
+            SpectatorService.class,
+            ReplayService.class,
+            MapCatalogService.class,
+            LogService.class
+        );
+        context.refresh();
+        gameService = context.getBean(GameService.class);
+        gameService.addGame(ROOM, ALICE, BOB, MapGenerator.CLASSIC_ID);
+    }
+
+    @AfterEach
+    void stop() {
+        context.close();
+    }
+
+    @Test
+    void aBatchIsAppliedInOrderAndKeepsTheTurnWhilePointsAreLeft() {
+        start(3);
+        PlayerSnapshot before = gameService.getPlayerSnapshot(ROOM, ALICE);
+        UnitCoordinates unit = activeUnit(before);
+        HexCoordinates neighbour = freeNeighbour(before, unit);
+
+        UnitActionResult result = gameService.processUnitActions(ROOM, ALICE, new UnitActionsRequest(List.of(
+            move(unit, neighbour),
+            move(unit, new HexCoordinates(unit.q(), unit.r()))
+        )));
+
+        assertThat(result.isRejected()).isFalse();
+        assertThat(result.isGameOver()).isFalse();
+        assertThat(result.notifications().get(ALICE))
+            .extracting(Notification::type)
+            .containsExactly(Type.ALLY_MOVE, Type.ALLY_MOVE);
+        assertThat(gameService.getActivePlayer(ROOM)).isEqualTo(ALICE);
+        assertThat(gameService.getPlayerSnapshot(ROOM, ALICE).allies()).isEqualTo(before.allies());
+    }
+
+    @Test
+    void aRejectedActionRollsBackTheEarlierOnes() {
+        start(3);
+        PlayerSnapshot alice = gameService.getPlayerSnapshot(ROOM, ALICE);
+        PlayerSnapshot bob = gameService.getPlayerSnapshot(ROOM, BOB);
+        UnitCoordinates unit = activeUnit(alice);
+        HexCoordinates neighbour = freeNeighbour(alice, unit);
+
+        // the hex the unit left is empty, the attack fails after the move is applied
+        UnitActionResult result = gameService.processUnitActions(ROOM, ALICE, new UnitActionsRequest(List.of(
+            move(unit, neighbour),
+            new UnitActionRequest("UNIT_ATTACK", unit.idx(), new HexCoordinates(unit.q(), unit.r()))
+        )));
+
+        assertThat(result.rejection()).isEqualTo(Rejection.NO_TARGET);
+        assertThat(gameService.getPlayerSnapshot(ROOM, ALICE)).isEqualTo(alice);
+        assertThat(gameService.getPlayerSnapshot(ROOM, BOB)).isEqualTo(bob);
+        assertThat(gameService.getActivePlayer(ROOM)).isEqualTo(ALICE);
+    }
+
+    @Test
+    void batchesNeedMoreThanTheDefaultPoint() {
+        start(1);
+        PlayerSnapshot before = gameService.getPlayerSnapshot(ROOM, ALICE);
+        UnitCoordinates unit = activeUnit(before);
+        HexCoordinates neighbour = freeNeighbour(before, unit);
+
+        UnitActionResult result = gameService.processUnitActions(ROOM, ALICE, new UnitActionsRequest(List.of(
+            move(unit, neighbour),
+            move(unit, new HexCoordinates(unit.q(), unit.r()))
+        )));
+
+        assertThat(result.rejection()).isEqualTo(Rejection.NO_ACTION_POINTS);
+        assertThat(gameService.getPlayerSnapshot(ROOM, ALICE)).isEqualTo(before);
+    }
+
+    private static UnitActionRequest move(UnitCoordinates unit, HexCoordinates goal) {
+        return new UnitActionRequest("UNIT_MOVE", unit.idx(), goal);
+    }
+
+    private static UnitCoordinates activeUnit(PlayerSnapshot snapshot) {
+        return snapshot.allies().stream()
+            .filter(unit -> unit.idx() == snapshot.activeUnitIdx())
+            .findFirst()
+            .orElseThrow();
+    }
+
+    /** A visible hex next to the unit with nothing on it. */
+    private static HexCoordinates freeNeighbour(PlayerSnapshot snapshot, UnitCoordinates unit) {
+        int[][] directions = {{1, 0}, {1, -1}, {0, -1}, {-1, 0}, {-1, 1}, {0, 1}};
+        for (int[] direction : directions) {
+            HexCoordinates hex = new HexCoordinates(unit.q() + direction[0], unit.r() + direction[1]);
+            boolean occupied = Stream.concat(snapshot.allies().stream(), snapshot.visibleEnemies().stream())
+                .anyMatch(other -> other.q() == hex.q() && other.r() == hex.r());
+            if (snapshot.fov().contains(Hex.key(hex.q(), hex.r()))
+                    && snapshot.hexes().contains(hex)
+                    && !snapshot.obstacles().contains(hex)
+                    && !occupied) {
+                return hex;
+            }
+        }
+        throw new IllegalStateException("No free hex next to unit " + unit.idx());
+    }
+}
@@ -0,0 +1,190 @@
+package com.wolyh.game.backend.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.simp.SimpMessageHeaderAccessor;
+import org.springframework.messaging.simp.SimpMessagingTemplate;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import com.wolyh.game.backend.dto.Notification;
+import com.wolyh.game.backend.dto.Notification.ActionRejected;
+import com.wolyh.game.backend.dto.Notification.GameEvent;
+import com.wolyh.game.backend.dto.Notification.GameOver;
+import com.wolyh.game.backend.dto.Notification.Type;
+import com.wolyh.game.backend.game.Rejection;
+
+/** The numbered batches of every player go through a ring of the last few, sent messages are captured. */
+class NotificationServiceTest {
+    private static final String ROOM = "room";
+    private static final int HISTORY_SIZE = 4;
+
+    private final List<Message<?>> sent = new ArrayList<>();
+    private NotificationService notificationService;
+
+    @BeforeEach
+    void setup() {
+        notificationService = new NotificationService();
+        ReflectionTestUtils.setField(notificationService, "historySize", HISTORY_SIZE);
+        ReflectionTestUtils.setField(notificationService, "messagingTemplate", new SimpMessagingTemplate((message, timeout) -> sent.add(message)));
+    }
+
+    @Test
+    void batchesAreNumberedPerPlayerAndSentOnce() {
+        sequence("alice", "bob");
+        sequence("alice");
+
+        notificationService.flush(ROOM, "alice");
+        assertThat(sentSeqs()).containsExactly(1L, 2L);
+        notificationService.flush(ROOM, "alice");
+        assertThat(sentSeqs()).isEmpty();
+
+        sequence("alice", "bob");
+        notificationService.sendToPlayers(ROOM, Map.of("alice", List.of(), "bob", List.of()));
+        assertThat(sentSeqs()).containsExactlyInAnyOrder(3L, 1L, 2L);
+        assertThat(notificationService.currentSeq(ROOM, "alice")).isEqualTo(3);
+        assertThat(notificationService.currentSeq(ROOM, "bob")).isEqualTo(2);
+    }
+
+    @Test
+    void botsAndEmptyBatchesAreNotNumbered() {
+        notificationService.sequence(ROOM, Map.of("alice", List.of(), BotService.BOT_PREFIX + "1", List.of(notification())));
+        assertThat(notificationService.currentSeq(ROOM, "alice")).isZero();
+        assertThat(notificationService.currentSeq(ROOM, BotService.BOT_PREFIX + "1")).isZero();
+    }
+
+    @Test
+    void replayResendsWhatFollowsTheLastSeq() {
+        for (int i = 0; i < 3; i++) {
+            sequence("alice");
+        }
+        notificationService.flush(ROOM, "alice");
+        sentSeqs();
+
+        assertThat(notificationService.replay(ROOM, "alice", 1)).isTrue();
+        assertThat(sentSeqs()).containsExactly(2L, 3L);
+
+        // numbered but not flushed yet, replayed along
+        sequence("alice");
+        assertThat(notificationService.replay(ROOM, "alice", 3)).isTrue();
+        assertThat(sentSeqs()).containsExactly(4L);
+    }
+
+    @Test
+    void replayFailsAheadOfWhatWasSent() {
+        sequence("alice");
+        sequence("alice");
+        notificationService.flush(ROOM, "alice");
+        sentSeqs();
+
+        assertThat(notificationService.replay(ROOM, "alice", 3)).isFalse();
+        assertThat(notificationService.replay(ROOM, "bob", 0)).isFalse();
+        assertThat(sentSeqs()).isEmpty();
+    }
+
+    @Test
+    void replayRefusesSeqsOutOfTheHistory() {
+        for (int i = 0; i < HISTORY_SIZE + 2; i++) {
+            sequence("alice");
+        }
+        notificationService.flush(ROOM, "alice");
+        sent.clear();
+
+        assertThat(notificationService.replay(ROOM, "alice", -1)).isFalse();
+        assertThat(notificationService.replay(ROOM, "alice", -2)).isFalse();
+        assertThat(notificationService.replay(ROOM, "alice", Long.MIN_VALUE)).isFalse();
+        assertThat(notificationService.replay(ROOM, "alice", Long.MAX_VALUE)).isFalse();
+        assertThat(sent).isEmpty();
+    }
+
+    @Test
+    void replayFailsOnceABatchLeftTheRing() {
+        for (int i = 0; i < HISTORY_SIZE + 2; i++) {
+            sequence("alice");
+        }
+        notificationService.flush(ROOM, "alice");
+        // the first two were overwritten before they could be sent
+        assertThat(sentSeqs()).containsExactly(3L, 4L, 5L, 6L);
+
+        assertThat(notificationService.replay(ROOM, "alice", 0)).isFalse();
+        assertThat(notificationService.replay(ROOM, "alice", 1)).isFalse();
+        assertThat(sentSeqs()).isEmpty();
+        assertThat(notificationService.replay(ROOM, "alice", 2)).isTrue();
+        assertThat(sentSeqs()).containsExactly(3L, 4L, 5L, 6L);
+    }
+
+    @Test
+    void snapshotIsFollowedByTheBatchesNumberedSinceIt() {
+        sequence("alice");
+        long seq = notificationService.currentSeq(ROOM, "alice");
+        sequence("alice");
+
+        Notification<GameEvent> snapshot = notification();
+        notificationService.sendSnapshot(ROOM, "alice", seq, snapshot);
+        assertThat(sentSeqs()).containsExactly(1L, 2L);
+        assertThat(notificationService.cachedSnapshot(ROOM, "alice", seq)).isSameAs(snapshot);
+        assertThat(notificationService.cachedSnapshot(ROOM, "alice", seq + 1)).isNull();
+
+        notificationService.flush(ROOM, "alice");
+        assertThat(sentSeqs()).isEmpty();
+
+        notificationService.discard(ROOM);
+        assertThat(notificationService.currentSeq(ROOM, "alice")).isZero();
+    }
+
+    @Test
+    void endedGameIsSentAsAFlaggedSnapshotToAClientTooFarBehind() {
+        for (int i = 0; i < HISTORY_SIZE + 2; i++) {
+            sequence("alice");
+        }
+        notificationService.flush(ROOM, "alice");
+        sent.clear();
+
+        // what GameController does when the history no longer holds the missing batches of an ended game
+        assertThat(notificationService.replay(ROOM, "alice", 1)).isFalse();
+        long seq = notificationService.currentSeq(ROOM, "alice");
+        Notification<GameEvent> gameOver = new Notification<GameEvent>(Type.GAME_OVER, new GameOver("bob", ROOM));
+        notificationService.sendSnapshot(ROOM, "alice", seq, gameOver);
+
+        assertThat(sent).hasSize(1);
+        SimpMessageHeaderAccessor headers = SimpMessageHeaderAccessor.wrap(sent.getFirst());
+        assertThat(headers.getFirstNativeHeader(NotificationService.SEQ_HEADER)).isEqualTo(String.valueOf(seq));
+        assertThat(headers.getFirstNativeHeader(NotificationService.SNAPSHOT_HEADER)).isEqualTo("true");
+        assertThat(sent.getFirst().getPayload()).isEqualTo(List.of(gameOver));
+    }
+
+    @Test
+    void batchesAreNotFlaggedAsSnapshots() {
+        sequence("alice");
+        notificationService.flush(ROOM, "alice");
+        assertThat(SimpMessageHeaderAccessor.wrap(sent.getFirst()).getFirstNativeHeader(NotificationService.SNAPSHOT_HEADER)).isNull();
+    }
+
+    private void sequence(String... usernames) {
+        Map<String, List<Notification<GameEvent>>> batches = new HashMap<>();
+        for (String username : usernames) {
+            batches.put(username, List.of(notification()));
+        }
+        notificationService.sequence(ROOM, batches);
+    }
+
+    private static Notification<GameEvent> notification() {
+        return new Notification<GameEvent>(Type.ACTION_REJECTED, new ActionRejected(Rejection.NO_PATH, ROOM));
+    }
+
+    /** Seq headers of the messages sent since the last call. */
+    private List<Long> sentSeqs() {
+        List<Long> seqs = sent.stream()
+            .map(message -> Long.parseLong(SimpMessageHeaderAccessor.wrap(message).getFirstNativeHeader(NotificationService.SEQ_HEADER)))
+            .toList();
+        sent.clear();
+        return seqs;
+    }
+}
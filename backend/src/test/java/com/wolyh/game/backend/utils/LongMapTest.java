@@ -0,0 +1,126 @@
+package com.wolyh.game.backend.utils;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.junit.jupiter.api.Test;
+
+class LongMapTest {
+
+    @Test
+    void behavesLikeAHashMap() {
+        Random random = new Random(3);
+        LongMap<String> map = new LongMap<>();
+        Map<Long, String> expected = new HashMap<>();
+
+        for (int i = 0; i < 200_000; i++) {
+            // few enough keys that tables fill up, clusters form and removals shift them
+            long key = random.nextInt(4000);
+            String value = "v" + i;
+            switch (random.nextInt(4)) {
+                case 0 -> assertThat(map.put(key, value)).isEqualTo(expected.put(key, value));
+                case 1 -> assertThat(map.putIfAbsent(key, value)).isEqualTo(expected.putIfAbsent(key, value));
+                case 2 -> assertThat(map.computeIfAbsent(key, k -> value)).isEqualTo(expected.computeIfAbsent(key, k -> value));
+                default -> assertThat(map.remove(key)).isEqualTo(expected.remove(key));
+            }
+        }
+
+        assertThat(map.size()).isEqualTo(expected.size());
+        assertThat(map.values()).containsExactlyInAnyOrderElementsOf(expected.values());
+        for (long key = 0; key < 4000; key++) {
+            assertThat(map.get(key)).isEqualTo(expected.get(key));
+        }
+    }
+
+    @Test
+    void removalKeepsTheRestOfTheClusterReachable() {
+        // same stripe and same home slot in a table of 8, which holds 4, the cluster wraps around its end
+        List<Long> cluster = keysWithHome(7, 4);
+        LongMap<Long> map = new LongMap<>();
+        cluster.forEach(key -> map.put(key, key));
+
+        for (int removed = 0; removed < cluster.size(); removed++) {
+            assertThat(map.remove(cluster.get(removed))).isEqualTo(cluster.get(removed));
+            assertThat(map.get(cluster.get(removed))).isNull();
+            for (long key : cluster.subList(removed + 1, cluster.size())) {
+                assertThat(map.get(key)).isEqualTo(key);
+            }
+            assertThat(map.size()).isEqualTo(cluster.size() - removed - 1);
+        }
+
+        // a cluster broken in the middle
+        cluster.forEach(key -> map.put(key, key));
+        map.remove(cluster.get(1));
+        assertThat(map.get(cluster.get(1))).isNull();
+        assertThat(map.get(cluster.get(2))).isEqualTo(cluster.get(2));
+        assertThat(map.get(cluster.get(3))).isEqualTo(cluster.get(3));
+        map.put(cluster.get(1), -1L);
+        assertThat(map.get(cluster.get(1))).isEqualTo(-1L);
+        assertThat(map.size()).isEqualTo(cluster.size());
+    }
+
+    @Test
+    void readersNeverMissAKeyWhileTheStripeIsRewritten() throws InterruptedException {
+        List<Long> keys = keysWithHome(0, 40);
+        List<Long> stable = keys.subList(0, 8);
+        List<Long> churn = keys.subList(8, keys.size());
+        LongMap<Long> map = new LongMap<>();
+        stable.forEach(key -> map.put(key, key));
+
+        AtomicBoolean running = new AtomicBoolean(true);
+        AtomicReference<Long> missed = new AtomicReference<>();
+        List<Thread> readers = new ArrayList<>();
+        for (int i = 0; i < 3; i++) {
+            readers.add(Thread.ofPlatform().start(() -> {
+                while (running.get()) {
+                    for (long key : stable) {
+                        if (!Long.valueOf(key).equals(map.get(key))) {
+                            missed.compareAndSet(null, key);
+                        }
+                    }
+                }
+            }));
+        }
+
+        for (int round = 0; round < 2000; round++) {
+            for (long key : churn) {
+                map.put(key, key);
+            }
+            for (long key : churn) {
+                map.remove(key);
+            }
+        }
+        running.set(false);
+        for (Thread reader : readers) {
+            reader.join();
+        }
+
+        assertThat(missed.get()).isNull();
+        assertThat(map.size()).isEqualTo(stable.size());
+    }
+
+    /** Keys of stripe 0 whose home slot in a table of 8 is the given one, same mix as LongMap. */
+    private static List<Long> keysWithHome(int slot, int count) {
+        List<Long> keys = new ArrayList<>();
+        for (long key = 0; keys.size() < count; key++) {
+            long hash = mix(key);
+            if (hash >>> 58 == 0 && (hash & 7) == slot) {
+                keys.add(key);
+            }
+        }
+        return keys;
+    }
+
+    private static long mix(long key) {
+        key = (key ^ (key >>> 33)) * 0xff51afd7ed558ccdL;
+        key = (key ^ (key >>> 33)) * 0xc4ceb9fe1a85ec53L;
+        return key ^ (key >>> 33);
+    }
+}
@@ -1,4 +1,6 @@
+import type { FovStepData } from "./dto/Notification";
 import type { FovManager } from "./FovManager";
+import type { FovStep } from "./MovementState";
 import type { MapManager } from "./MapManager";
 import { Hex } from "./model/Hex";
 import type { Unit } from "./model/Unit";
@@ -76,8 +78,8 @@ export class ActionValidator {
     validateAllyMove(
         unitIdx: number,
         pathCoords: Array<{q: number, r: number}>,
-        visibleUnitsAlongPath: Array<Array<{idx: number, q: number, r: number}>>
-    ): { path: Array<Hex>, enemyLocationSnapshots: Array<Map<number, Hex>>} 
+        pathFov: Array<FovStepData>
+    ): { path: Array<Hex>, fovSteps: Array<FovStep>} 
     {
         if (!this.#unitManager.isUnitActive(unitIdx)) {
             throw new Error(`Unit ${unitIdx} is not the active unit`);
@@ -88,7 +90,7 @@ export class ActionValidator {
         }
         
         const path: Array<Hex> = [];
-        const enemyLocationSnapshots: Array<Map<number, Hex>> = [];
+        const fovSteps: Array<FovStep> = [];
         
         for (let i = 0; i < pathCoords.length; i++) {
             const hex = this.#mapManager.getHex(
@@ -103,25 +105,30 @@ export class ActionValidator {
             
             path.push(hex);
             
-            const snapshot: Map<number, Hex> = new Map();
-            for (const unitCoords of visibleUnitsAlongPath[i]) {
+            const spotted: Map<number, Hex> = new Map();
+            for (const unitCoords of pathFov[i].spotted) {
                 const unitHex = this.#mapManager.getHex(
                     Hex.hashCode(unitCoords.q, unitCoords.r)
                 );
                 
                 if (!unitHex) {
                     throw new Error(
-                        `Enemy snapshot ${i}: hex at (${unitCoords.q}, ${unitCoords.r}) not found`
+                        `Enemy sighting ${i}: hex at (${unitCoords.q}, ${unitCoords.r}) not found`
                     );
                 }
                 
-                snapshot.set(unitCoords.idx, unitHex);
+                spotted.set(unitCoords.idx, unitHex);
             }
             
-            enemyLocationSnapshots.push(snapshot);
+            fovSteps.push({
+                gained: pathFov[i].gained,
+                lost: pathFov[i].lost,
+                spotted,
+                hidden: pathFov[i].hidden
+            });
         }
         
-        return { path, enemyLocationSnapshots };
+        return { path, fovSteps };
     }
 
     validateEnemyMove(
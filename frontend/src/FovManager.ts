@@ -14,6 +14,10 @@ export class FovManager {
         return this.#fov.has(hex.hashCode);
     }
  
+    getFov(): ReadonlySet<string> {
+        return this.#fov;
+    }
+
     setFov(fov: Array<string> | Set<string>): void {
         this.#fov = new Set(fov);
         this.#eventBus.emit("fov_changed");
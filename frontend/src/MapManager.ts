@@ -1,4 +1,5 @@
 import { Hex } from "./model/Hex";
+import type { MapTerrainData } from "./dto/Notification";
 
 export class MapManager {
     #map: Map<string, Hex>;
@@ -27,9 +28,11 @@ export class MapManager {
         return this.#n;
     }
 
-    fill(): void {
+    /** Hexagon of radius n minus the holes of the map the server picked. */
+    fill(terrain: MapTerrainData): void {
         this.#map.clear();
 
+        const obstacles = new Set(terrain.obstacles.map(o => Hex.hashCode(o.q, o.r)));
         const n = this.#n;
         //hexagonal shape
         for (let q = -n; q <= n; q++) {
@@ -37,14 +40,14 @@ export class MapManager {
           const r2 = Math.min(n, -q + n);
         
           for(let r = r1 ; r <= r2 ; r++) {
-            const hex = new Hex(q, r, -q-r);
+            const hex = new Hex(q, r, -q-r, obstacles.has(Hex.hashCode(q, r)));
             this.#map.set(hex.hashCode, hex);
           }
         }
 
-        this.#map.delete(Hex.hashCode(-n,0));
-        this.#map.delete(Hex.hashCode(n,0));
-        this.#map.delete(Hex.hashCode(0,0));
+        for (const hole of terrain.holes) {
+            this.#map.delete(Hex.hashCode(hole.q, hole.r));
+        }
     }
 
     shrink(shrinkLevel: number): void {
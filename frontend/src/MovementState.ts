@@ -1,19 +1,43 @@
 import type { Hex } from "./model/Hex";
 
 
+export type FovStep = {
+    gained: Array<string>,
+    lost: Array<string>,
+    spotted: Map<number, Hex>,
+    hidden: Array<number>
+};
+
 export class MovementState {
     #path: Array<Hex> = [];
-    #pathFov: Array<Set<string>> = [];
-    #enemyLocationSnapshots: Array<Map<number, Hex>> = [];
+    #fovSteps: Array<FovStep> = [];
+
+    // fov and visible enemies once the unit stands on the next hex of the path
+    #fov: Set<string> = new Set();
+    #enemyLocation: Map<number, Hex> = new Map();
 
     set(
         path: Array<Hex>,
-        pathFov: Array<Array<string>> = [],
-        enemyLocationSnapshots: Array<Map<number, Hex>> = []
+        fovSteps: Array<FovStep> = [],
+        fov: ReadonlySet<string> = new Set(),
+        enemyLocation: Map<number, Hex> = new Map()
     ): void {
         this.#path = [...path];
-        this.#pathFov = pathFov.map(stepArray => new Set(stepArray));
-        this.#enemyLocationSnapshots = [...enemyLocationSnapshots];
+        this.#fovSteps = [...fovSteps];
+        this.#fov = new Set(fov);
+        this.#enemyLocation = new Map(enemyLocation);
+        this.applyNextFovStep();
+    }
+
+    private applyNextFovStep(): void {
+        const step = this.#fovSteps[0];
+        if (step === undefined) {
+            return;
+        }
+        step.gained.forEach(key => this.#fov.add(key));
+        step.lost.forEach(key => this.#fov.delete(key));
+        step.spotted.forEach((hex, idx) => this.#enemyLocation.set(idx, hex));
+        step.hidden.forEach(idx => this.#enemyLocation.delete(idx));
     }
 
     getNextGoal(): Hex {
@@ -21,9 +45,12 @@ export class MovementState {
     }
 
     getCurrentFovAndLocation(): {currentFov :Set<string> | undefined, currentLocation: Map<number, Hex> | undefined} {
+        if (this.#fovSteps.length === 0) {
+            return {currentFov: undefined, currentLocation: undefined};
+        }
         return {
-            currentFov: this.#pathFov.length === 0 ? undefined : this.#pathFov[0],
-            currentLocation: this.#enemyLocationSnapshots.length === 0 ? undefined : this.#enemyLocationSnapshots[0]
+            currentFov: new Set(this.#fov),
+            currentLocation: new Map(this.#enemyLocation)
         }
     }
 
@@ -32,8 +59,8 @@ export class MovementState {
     }
 
     shiftFovAndLocation(): void {
-        this.#enemyLocationSnapshots.shift();
-        this.#pathFov.shift();
+        this.#fovSteps.shift();
+        this.applyNextFovStep();
     }
 
     isMoving(): boolean {
@@ -12,6 +12,11 @@ export class NetworkManager {
     #client: Client | undefined = undefined;
     #token: string | undefined  = undefined;
     #currentSub: StompSubscription | undefined = undefined;
+    #currentRoomId: string | undefined = undefined;
+
+    // sequence number of the last game batch applied, and whether a resync is on its way
+    #lastSeq: number = 0;
+    #resyncPending: boolean = false;
 
     readonly #API_BASE_URL = import.meta.env.VITE_API_BASE_URL;
     readonly #WS_BASE_URL = import.meta.env.VITE_WS_BASE_URL;
@@ -50,8 +55,14 @@ export class NetworkManager {
             connectHeaders: {
                 Authorization: `Bearer ${token}` 
             },
+            // jittered so clients dropped by the same blip do not all come back at once
+            reconnectDelay: 1000 + Math.random() * 2000,
             onConnect: () => {
                 console.log('ws connection established');
+                if (this.#currentRoomId !== undefined) {
+                    this.resubscribe(this.#currentRoomId);
+                    return;
+                }
                 this.#eventBus.emit("connected");
             },
         });
@@ -64,9 +75,16 @@ export class NetworkManager {
             throw Error("You must be logged in before creating a room");
         }
 
+        this.#currentRoomId = roomId;
+        this.#lastSeq = 0;
+        this.#resyncPending = false;
+
         this.#currentSub = this.#client.subscribe(`/user/queue/${roomId}`,
             (msg) => {
                 const payload = JSON.parse(msg.body);
+                if (msg.headers.seq !== undefined && !this.acceptSeq(Number(msg.headers.seq), msg.headers.snapshot === "true")) {
+                    return;
+                }
                 if (Array.isArray(payload)) {
                     for (const notification of payload) {
                     this.#eventBus.emit("server_notification", notification);
@@ -80,12 +98,52 @@ export class NetworkManager {
         );
     }
 
+    /**
+     * Game batches are numbered per player. Already applied ones are dropped and a gap
+     * asks the server to send the missing batches, or a snapshot if it is too late for that.
+     * A snapshot is flagged by the server, the game over of an ended game is one too.
+     */
+    private acceptSeq(seq: number, isSnapshot: boolean): boolean {
+        if (isSnapshot) {
+            this.#lastSeq = seq;
+            this.#resyncPending = false;
+            return true;
+        }
+        if (seq <= this.#lastSeq) {
+            return false;
+        }
+        if (seq > this.#lastSeq + 1) {
+            this.requestResync();
+            return false;
+        }
+        this.#lastSeq = seq;
+        this.#resyncPending = false;
+        return true;
+    }
+
+    private requestResync(): void {
+        if (this.#resyncPending) {
+            return;
+        }
+        this.#resyncPending = true;
+        this.sendGameAction("resync", { lastSeq: this.#lastSeq });
+    }
+
+    /** Subscriptions do not survive a reconnection, the room queue is subscribed again and resynced. */
+    private resubscribe(roomId: string): void {
+        const lastSeq = this.#lastSeq;
+        this.subscribe(roomId);
+        this.#lastSeq = lastSeq;
+        this.requestResync();
+    }
+
     private unsubscribe(): void {
         if(this.#currentSub === undefined) {
             throw new Error("public channel is already undefined");
         }
         this.#currentSub.unsubscribe();
         this.#currentSub = undefined;
+        this.#currentRoomId = undefined;
 
         this.#eventBus.emit("leave_room");
     }
@@ -127,20 +185,28 @@ export class NetworkManager {
     }
 
     async startBrowsing(): Promise<void> {
-        const data = await this.request<Array<RoomResponses.JoinRoom>>("room/available", "GET");
+        const data = await this.request<Array<RoomResponses.AvailableRoom>>("room/available", "GET");
         if (data) {
             this.#eventBus.emit("rooms_list_received", data);
         }
     }
     
-    async joinRoom(roomId: string) {
-        const data = await this.request<RoomResponses.JoinRoom>(`room/join/${roomId}`, "POST");
+    async joinRoom(roomId: string, joinToken?: string) {
+        const query = joinToken ? `?token=${encodeURIComponent(joinToken)}` : "";
+        const data = await this.request<RoomResponses.JoinRoom>(`room/join/${roomId}${query}`, "POST");
         if (data && data.roomId && data.creatorName) {
             this.subscribe(data.roomId);
             this.#eventBus.emit("join_room", data.roomId, data.creatorName);
         }
     }
 
+    async addBot(roomId: string) {
+        const data = await this.request<RoomResponses.AddBot>(`room/bot/${roomId}`, "POST");
+        if (data && data.roomId && data.botName) {
+            this.#eventBus.emit("bot_added", data.botName);
+        }
+    }
+
     async leaveRoom(roomId: string) {
         await this.request<void>(`room/leave/${roomId}`, "DELETE");
         this.unsubscribe();
@@ -149,7 +215,7 @@ export class NetworkManager {
     async startGame(roomId: string) {
         const data = await this.request<RoomResponses.StartGame>(`room/start/${roomId}`, "POST");
 
-        if (data && data.roomId && data.fov && data.unitSpawns && data.nb_units) {
+        if (data && data.roomId && data.fov && data.unitSpawns && data.nb_units && data.terrain) {
             this.#eventBus.emit("GAME_START", data);
         }
     }
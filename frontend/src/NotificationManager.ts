@@ -56,13 +56,14 @@ export class NotificationManager {
             case "GAME_START":
                 return this.isStringArray(data.fov) &&
                     this.isUnitCoordsArray(data.unitSpawns) &&
-                    this.isNumber(data.nb_units)
+                    this.isNumber(data.nb_units) &&
+                    this.isTerrain(data.terrain)
                 ? update : undefined;
             case "ALLY_MOVE":
                 return this.isNumber(data.unitIdx) &&
                    this.isHexCoordsArray(data.path) &&
-                   this.isStringArray2D(data.pathFov) &&
-                   this.isUnitCoordsArray2D(data.visibleUnitsAlongPath)
+                   this.isFovStepArray(data.pathFov) &&
+                   data.pathFov.length === data.path.length
                 ? update : undefined;
             case "ENEMY_MOVE":
                 return this.isNumber(data.unitIdx) &&
@@ -82,6 +83,18 @@ export class NotificationManager {
                 ? update : undefined;
             case "GAME_OVER":
                 return this.isString(data.winner) ? update : undefined;
+            case "RESYNC":
+                return this.isStringArray(data.fov) &&
+                    this.isUnitCoordsArray(data.allies) &&
+                    this.isUnitCoordsArray(data.visibleEnemies) &&
+                    this.isNumberArray(data.deadUnits) &&
+                    this.isNumber(data.nb_units) &&
+                    this.isNumber(data.activeUnitIdx) &&
+                    this.isNumber(data.shrinkLevel) &&
+                    this.isTerrain(data.terrain)
+                ? update : undefined;
+            case "ACTION_REJECTED":
+                return this.isString(data.reason) ? update : undefined;
             default:
                 return undefined;
         }
@@ -130,21 +143,20 @@ export class NotificationManager {
             arr.every(x => x && typeof x.q === "number" && typeof x.r === "number");
     }
 
-    private isStringArray2D(arr: any): boolean {
-        return Array.isArray(arr) && 
-            arr.every(fov => this.isStringArray(fov));
+    private isTerrain(val: any): boolean {
+        return val &&
+            this.isHexCoordsArray(val.holes) &&
+            this.isHexCoordsArray(val.obstacles);
     }
 
-    private isUnitCoordsArray2D(arr: any): boolean {
-        return Array.isArray(arr) && 
-            arr.every(snapshot => 
-                Array.isArray(snapshot) && 
-                snapshot.every(x => 
-                    x && 
-                    typeof x.q === "number" && 
-                    typeof x.r === "number" && 
-                    typeof x.idx === "number"
-                )
+    private isFovStepArray(arr: any): boolean {
+        return Array.isArray(arr) &&
+            arr.every(step =>
+                step &&
+                this.isStringArray(step.gained) &&
+                this.isStringArray(step.lost) &&
+                this.isUnitCoordsArray(step.spotted) &&
+                this.isNumberArray(step.hidden)
             );
     }
 }
\ No newline at end of file
@@ -51,7 +51,7 @@ export class UiManager {
         return this.#state;
     }
 
-    showBrowser(rooms: Array<RoomResponses.JoinRoom>) {
+    showBrowser(rooms: Array<RoomResponses.AvailableRoom>) {
         this.#state = "MENU";
         this.#currentUi = new BrowserUi(this.#eventBus, rooms);
     }
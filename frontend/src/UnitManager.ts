@@ -93,6 +93,33 @@ export class UnitManager {
         }
     }
 
+    /** Rebuilds every unit from a server snapshot, the map must have been refilled before. */
+    restoreUnits(
+        allies: Array<{idx: number, q: number, r: number}>,
+        visibleEnemies: Array<{idx: number, q: number, r: number}>,
+        deadUnits: Array<number>,
+        nb_units: number
+    ): void {
+        this.spawnUnits(allies, nb_units);
+
+        const enemyLocation = new Map<number, Hex>();
+        for (const unitCoords of visibleEnemies) {
+            const hex = this.#mapManager.getHex(Hex.hashCode(unitCoords.q, unitCoords.r));
+            if (hex === undefined) {
+                throw new Error(`Cannot restore unit ${unitCoords.idx}: hex (${unitCoords.q}, ${unitCoords.r}) is invalid`);
+            }
+            enemyLocation.set(unitCoords.idx, hex);
+        }
+        this.setEnemyLocation(enemyLocation);
+
+        for (const idx of deadUnits) {
+            if (idx < 0 || idx >= this.#units.length) {
+                throw new Error (`dead unit idx ${idx} is uncorrect`);
+            }
+            this.#units[idx].die();
+        }
+    }
+
     public forEachAliveUnit(consumer: (unit: Unit) => void) {
         for (const unit of this.#units) {
             if (!(unit.isDead && unit.is("Idle"))) {
@@ -101,6 +128,16 @@ export class UnitManager {
         }
     }
     
+    getEnemyLocation(): Map<number, Hex> {
+        const enemyLocation = new Map<number, Hex>();
+        for (const unit of this.#units) {
+            if (this.isUnitEnemy(unit) && unit.isVisible()) {
+                enemyLocation.set(unit.idx, unit.hex);
+            }
+        }
+        return enemyLocation;
+    }
+
     public setEnemyLocation(enemyLocation: Map<number, Hex>): void {
         for(const unit of this.#units) {
             const hex = enemyLocation.get(unit.idx);
@@ -8,7 +8,9 @@ export type Notification = {type: "PLAYER_JOIN", data: PlayerJoinData} |
     {type: "ENEMY_MOVE", data: EnemyMoveData} |
     {type: "TURN_CHANGE", data: TurnChangeData} |
     {type: "MAP_SHRINK", data: MapShrinkData} |
-    {type: "GAME_OVER", data: GameOverData};
+    {type: "GAME_OVER", data: GameOverData} |
+    {type: "RESYNC", data: ResyncData} |
+    {type: "ACTION_REJECTED", data: ActionRejectedData};
 
 export interface PlayerJoinData {
     username: string, 
@@ -24,10 +26,16 @@ export interface PlayerLeaveData {
     roomId: string
 }
 
+export interface MapTerrainData {
+    holes: Array<{q: number, r: number}>,
+    obstacles: Array<{q: number, r: number}>
+}
+
 export interface GameStartData {
     fov: Array<string>,
     unitSpawns: Array<{idx: number, q: number, r: number}>,
     nb_units: number,
+    terrain: MapTerrainData,
     roomId: string
 }
 
@@ -38,11 +46,17 @@ export interface UnitAttackData {
     roomId: string
 }
 
+export interface FovStepData {
+    gained: Array<string>,
+    lost: Array<string>,
+    spotted: Array<{idx: number, q: number, r: number}>,
+    hidden: Array<number>
+}
+
 export interface AllyMoveData {
     unitIdx: number, 
     path: Array<{q: number; r: number;}>, 
-    pathFov: Array<Array<string>>, 
-    visibleUnitsAlongPath: Array<Array<{idx: number, q: number, r: number}>>, 
+    pathFov: Array<FovStepData>, 
     roomId: string
 }
 
@@ -64,7 +78,28 @@ export interface MapShrinkData {
     roomId: string
 }
 
+export type Rejection = "NOT_IN_GAME" | "GAME_OVER" | "NOT_ACTIVE_PLAYER" | "UNKNOWN_ACTION" |
+    "EMPTY_BATCH" | "MALFORMED_ACTION" | "NO_ACTION_POINTS" | "UNIT_NOT_ACTIVE" | "OFF_MAP" | "HEX_NOT_VISIBLE" |
+    "HEX_BLOCKED" | "NO_PATH" | "NO_TARGET" | "ALLY_TARGET";
+
+export interface ActionRejectedData {
+    reason: Rejection,
+    roomId: string
+}
+
 export interface GameOverData {
     winner: string, 
     roomId: string
+}
+
+export interface ResyncData {
+    fov: Array<string>,
+    allies: Array<{idx: number, q: number, r: number}>,
+    visibleEnemies: Array<{idx: number, q: number, r: number}>,
+    deadUnits: Array<number>,
+    nb_units: number,
+    activeUnitIdx: number,
+    shrinkLevel: number,
+    terrain: MapTerrainData,
+    roomId: string
 }
\ No newline at end of file
@@ -1,6 +1,14 @@
+import type { MapTerrainData } from "./Notification";
+
 export namespace RoomResponses {
     export interface CreateRoom {
         roomId: string;
+        joinToken: string | null;
+    }
+
+    export interface AvailableRoom {
+        creatorName: string;
+        roomId: string;
     }
 
     export interface JoinRoom {
@@ -8,10 +16,16 @@ export namespace RoomResponses {
         roomId: string;
     }
 
+    export interface AddBot {
+        botName: string;
+        roomId: string;
+    }
+
     export interface StartGame {
         fov: Array<string>;
         unitSpawns: Array<{idx: number, q: number, r: number}>;
         nb_units: number;
+        terrain: MapTerrainData;
         roomId: string;
     }
 }
\ No newline at end of file
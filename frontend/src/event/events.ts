@@ -1,5 +1,5 @@
 import type { RoomResponses } from "../dto/RoomResponses";
-import type { AllyMoveData, EnemyMoveData, GameOverData, GameStartData, MapShrinkData, PlayerJoinData, PlayerLeaveData, RoomDeleteData, TurnChangeData, UnitAttackData } from "../dto/Notification";
+import type { ActionRejectedData, AllyMoveData, EnemyMoveData, GameOverData, GameStartData, MapShrinkData, PlayerJoinData, PlayerLeaveData, ResyncData, RoomDeleteData, TurnChangeData, UnitAttackData } from "../dto/Notification";
 import type { UiButton } from "../ui/UiButton";
 import type { Hex } from "../model/Hex";
 
@@ -22,6 +22,8 @@ export type NotificationEvent = {
 
     GAME_START: (data: GameStartData) => void;
     GAME_OVER: (data: GameOverData) => void;
+    RESYNC: (data: ResyncData) => void;
+    ACTION_REJECTED: (data: ActionRejectedData) => void;
 };
 
 export type InputEvent = {
@@ -62,13 +64,16 @@ export type HTTPEvent = {
     create_room: (roomId: string) => void;
 
     browse_rooms_requested: () => void;
-    rooms_list_received: (rooms: Array<RoomResponses.JoinRoom>) => void;
+    rooms_list_received: (rooms: Array<RoomResponses.AvailableRoom>) => void;
     refresh_rooms_requested: () => void;
     cancel_browsing: () => void;
 
-    join_room_requested: (roomId: string) => void;
+    join_room_requested: (roomId: string, joinToken?: string) => void;
     join_room: (roomId: string, opponent: string) => void;
 
+    add_bot_requested: () => void;
+    bot_added: (botName: string) => void;
+
     leave_room_requested: () => void;
     leave_room: () => void;
 
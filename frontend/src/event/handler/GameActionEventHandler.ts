@@ -27,8 +27,8 @@ export class GameActionEventHandler {
             };
 
             this.#networkManager.sendGameAction(
-                "unit-action",
-                payload
+                "unit-actions",
+                {actions: [payload]}
             );
         });
 
@@ -39,8 +39,8 @@ export class GameActionEventHandler {
                 goal: {q: hex.q, r: hex.r}
             };
             this.#networkManager.sendGameAction(  
-                "unit-action",
-                payload
+                "unit-actions",
+                {actions: [payload]}
             );
         });
 
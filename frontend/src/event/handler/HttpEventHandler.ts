@@ -69,8 +69,8 @@ export class HttpEventHandler {
             this.#uiManager.showStart();
         });
 
-        this.#eventBus.on("join_room_requested", (roomId) => {
-            this.#networkManager.joinRoom(roomId);
+        this.#eventBus.on("join_room_requested", (roomId, joinToken) => {
+            this.#networkManager.joinRoom(roomId, joinToken);
         });
 
         this.#eventBus.on("join_room", (roomId, opponent) => {
@@ -79,6 +79,15 @@ export class HttpEventHandler {
             this.#uiManager.showRoom(false, this.#roomState.username, opponent);
         });
 
+        this.#eventBus.on("add_bot_requested", () => {
+            this.#networkManager.addBot(this.#roomState.room.roomId);
+        });
+
+        this.#eventBus.on("bot_added", (botName) => {
+            this.#roomState.setOpponent(botName);
+            this.#uiManager.showRoom(true, this.#roomState.username, botName);
+        });
+
         this.#eventBus.on("leave_room_requested", () => {
             this.#networkManager.leaveRoom(this.#roomState.room.roomId);
         });
@@ -95,13 +95,18 @@ export class NotificationEventHandler {
         });
 
         this.#eventBus.on("ALLY_MOVE", (data) => { 
-            const {path, enemyLocationSnapshots} = this.#actionValidator.validateAllyMove(
+            const {path, fovSteps} = this.#actionValidator.validateAllyMove(
                 data.unitIdx, 
                 data.path, 
-                data.visibleUnitsAlongPath
+                data.pathFov
             );
 
-            this.#movementState.set(path, data.pathFov, enemyLocationSnapshots);
+            this.#movementState.set(
+                path,
+                fovSteps,
+                this.#fovManager.getFov(),
+                this.#unitManager.getEnemyLocation()
+            );
             this.#unitManager.getActiveUnit().move();
             this.#pathPreviewManager.clearPathPreview();
             this.#gameInputHandler.clearHoverState();
@@ -145,7 +150,7 @@ export class NotificationEventHandler {
         });
 
         this.#eventBus.on("GAME_START", (data) => {
-            this.#mapManager.fill();
+            this.#mapManager.fill(data.terrain);
             this.#gameInputHandler.clearHoverState();
             this.#fovManager.setFov(data.fov);
             this.#unitManager.spawnUnits(data.unitSpawns, data.nb_units);
@@ -154,12 +159,35 @@ export class NotificationEventHandler {
             this.#uiManager.showGame();
         });
 
+        this.#eventBus.on("RESYNC", (data) => {
+            this.#mapManager.fill(data.terrain);
+            this.#mapManager.shrink(data.shrinkLevel);
+            this.#movementState.set([]);
+            this.#pathPreviewManager.clearPathPreview();
+            this.#gameInputHandler.clearHoverState();
+            this.#fovManager.setFov(data.fov);
+            this.#unitManager.restoreUnits(data.allies, data.visibleEnemies, data.deadUnits, data.nb_units);
+            this.#unitManager.setUnitIdx(data.activeUnitIdx);
+
+            if (this.#uiManager.state !== "GAME") {
+                this.#menuInputHandler.removeEventListeners();
+                this.#gameInputHandler.setupEventListeners();
+                this.#uiManager.showGame();
+            }
+        });
+
         this.#eventBus.on("GAME_OVER", (data) => {
             this.#gameInputHandler.removeEventListeners();
             this.#menuInputHandler.setupEventListeners();
             this.#uiManager.showEnd(data.winner === this.#roomState.username);
         });
 
+        // the server changed nothing, only the preview of the refused action is dropped
+        this.#eventBus.on("ACTION_REJECTED", (data) => {
+            console.warn(`Action rejected by the server: ${data.reason}`);
+            this.#pathPreviewManager.clearPathPreview();
+        });
+
         this.#eventBus.on("ROOM_DELETE", (_) => {
             this.#eventBus.emit("leave_room");
         });
@@ -15,6 +15,7 @@ export class Hex {
 
     static readonly DEFAULT_FILL_COLOR = "#607c7fff";
     static readonly DEFAULT_HIDDEN_FILL_COLOR = "#303e40ff"
+    static readonly OBSTACLE_FILL_COLOR = "#1c1a17ff";
     static readonly DEFAULT_STROKE_COLOR = "#0a0a0aff";
 
     constructor(q: number, r: number, s: number, isObstacle: boolean = false) {
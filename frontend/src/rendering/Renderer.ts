@@ -104,7 +104,11 @@ export class Renderer {
                 ctx.lineTo(corners[i].x, corners[i].y);
             }
             ctx.closePath();
-            ctx.fillStyle = this.#fovManager.isVisible(h) ? Hex.DEFAULT_FILL_COLOR : Hex.DEFAULT_HIDDEN_FILL_COLOR;
+            if (h.isObstacle) {
+                ctx.fillStyle = Hex.OBSTACLE_FILL_COLOR;
+            } else {
+                ctx.fillStyle = this.#fovManager.isVisible(h) ? Hex.DEFAULT_FILL_COLOR : Hex.DEFAULT_HIDDEN_FILL_COLOR;
+            }
             ctx.fill();
             
             outline.moveTo(corners[0].x, corners[0].y);
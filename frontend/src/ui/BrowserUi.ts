@@ -5,11 +5,11 @@ import type { AllEvents } from "../event/events.ts";
 import type { EventBus } from "../utils/EvenBus.ts";
 
 export class BrowserUi extends Ui {
-    #rooms: Array<RoomResponses.JoinRoom>;
+    #rooms: Array<RoomResponses.AvailableRoom>;
 
     constructor(
         eventBus: EventBus<AllEvents>, 
-        rooms: Array<RoomResponses.JoinRoom>
+        rooms: Array<RoomResponses.AvailableRoom>
     ) {
         super(eventBus);
         this.#rooms = rooms;
@@ -68,5 +68,16 @@ export class RoomUi extends Ui {
                 () => this.eventBus.emit("start_game_requested")
             ));
         }
+
+        if (this.#isCreator && !this.#opponent) {
+            this.buttons.push(new UiButton(
+                centerX,
+                centerY,
+                btnW,
+                btnH,
+                "Play vs Bot",
+                () => this.eventBus.emit("add_bot_requested")
+            ));
+        }
     }
 }
\ No newline at end of file